@@ -0,0 +1,207 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.execution.librarycache;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import eu.stratosphere.nephele.io.IOReadableWritable;
+import eu.stratosphere.nephele.types.StringRecord;
+
+/**
+ * A library cache chunk transports a contiguous part of a library file in a Nephele RPC call. Libraries are
+ * transmitted as a sequence of chunks, so neither the sender nor the receiver has to hold the entire library in
+ * memory. The data of the chunk is compressed while it is written to the stream and decompressed while it is read.
+ */
+public final class LibraryCacheChunk implements IOReadableWritable {
+
+	/**
+	 * The cache name of the library the chunk belongs to.
+	 */
+	private String libraryFileName;
+
+	/**
+	 * The offset of the chunk's data within the library file.
+	 */
+	private long offset;
+
+	/**
+	 * Stores whether this is the last chunk of the library.
+	 */
+	private boolean isLast;
+
+	/**
+	 * The uncompressed data of the chunk.
+	 */
+	private byte[] data;
+
+	/**
+	 * Constructs a new library cache chunk.
+	 * 
+	 * @param libraryFileName
+	 *        the cache name of the library the chunk belongs to
+	 * @param offset
+	 *        the offset of the chunk's data within the library file
+	 * @param isLast
+	 *        <code>true</code> if this is the last chunk of the library, <code>false</code> otherwise
+	 * @param data
+	 *        the data of the chunk
+	 */
+	public LibraryCacheChunk(final String libraryFileName, final long offset, final boolean isLast,
+			final byte[] data) {
+
+		if (libraryFileName == null) {
+			throw new IllegalArgumentException("Argument libraryFileName must not be null");
+		}
+
+		if (data == null) {
+			throw new IllegalArgumentException("Argument data must not be null");
+		}
+
+		this.libraryFileName = libraryFileName;
+		this.offset = offset;
+		this.isLast = isLast;
+		this.data = data;
+	}
+
+	/**
+	 * Constructor used to reconstruct the object at the receiver of the RPC call.
+	 */
+	public LibraryCacheChunk() {
+	}
+
+	/**
+	 * Returns the cache name of the library the chunk belongs to.
+	 * 
+	 * @return the cache name of the library the chunk belongs to
+	 */
+	public String getLibraryFileName() {
+
+		return this.libraryFileName;
+	}
+
+	/**
+	 * Returns the offset of the chunk's data within the library file.
+	 * 
+	 * @return the offset of the chunk's data within the library file
+	 */
+	public long getOffset() {
+
+		return this.offset;
+	}
+
+	/**
+	 * Checks whether this is the last chunk of the library.
+	 * 
+	 * @return <code>true</code> if this is the last chunk of the library, <code>false</code> otherwise
+	 */
+	public boolean isLast() {
+
+		return this.isLast;
+	}
+
+	/**
+	 * Returns the uncompressed data of the chunk.
+	 * 
+	 * @return the uncompressed data of the chunk
+	 */
+	public byte[] getData() {
+
+		return this.data;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void write(final DataOutput out) throws IOException {
+
+		StringRecord.writeString(out, this.libraryFileName);
+		out.writeLong(this.offset);
+		out.writeBoolean(this.isLast);
+		out.writeInt(this.data.length);
+
+		// Libraries are mostly JAR files which are already compressed, so favor speed over compression ratio
+		final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		try {
+			deflater.setInput(this.data);
+			deflater.finish();
+
+			final byte[] buf = new byte[Math.max(64, this.data.length + (this.data.length >> 8) + 64)];
+			int compressedLength = 0;
+			while (!deflater.finished()) {
+				if (compressedLength == buf.length) {
+					throw new IOException("Cannot compress chunk of library " + this.libraryFileName);
+				}
+				compressedLength += deflater.deflate(buf, compressedLength, buf.length - compressedLength);
+			}
+
+			out.writeInt(compressedLength);
+			out.write(buf, 0, compressedLength);
+		} finally {
+			deflater.end();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void read(final DataInput in) throws IOException {
+
+		this.libraryFileName = StringRecord.readString(in);
+		this.offset = in.readLong();
+		this.isLast = in.readBoolean();
+		this.data = new byte[in.readInt()];
+
+		final byte[] compressed = new byte[in.readInt()];
+		in.readFully(compressed);
+
+		final Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(compressed);
+			int length = 0;
+			while (!inflater.finished()) {
+
+				if (length == this.data.length) {
+					// All data has been inflated, only the end of the compressed stream may be left
+					if (inflater.inflate(new byte[1]) != 0 || !inflater.finished()) {
+						throw new IOException("Chunk of library " + this.libraryFileName + " is corrupt");
+					}
+					break;
+				}
+
+				final int inflated = inflater.inflate(this.data, length, this.data.length - length);
+				if (inflated == 0 && inflater.needsInput()) {
+					throw new IOException("Chunk of library " + this.libraryFileName + " is truncated");
+				}
+				length += inflated;
+			}
+
+			if (length != this.data.length) {
+				throw new IOException("Chunk of library " + this.libraryFileName + " is corrupt");
+			}
+		} catch (DataFormatException e) {
+			throw new IOException("Chunk of library " + this.libraryFileName + " is corrupt: " + e.getMessage());
+		} finally {
+			inflater.end();
+		}
+	}
+}
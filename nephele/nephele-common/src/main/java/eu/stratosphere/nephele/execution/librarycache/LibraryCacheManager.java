@@ -16,7 +16,6 @@
 package eu.stratosphere.nephele.execution.librarycache;
 
 import java.io.DataInput;
-import java.io.DataOutput;
 import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
@@ -25,17 +24,17 @@ import java.net.URL;
 import java.net.URLClassLoader;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import eu.stratosphere.nephele.fs.FSDataInputStream;
 import eu.stratosphere.nephele.fs.FSDataOutputStream;
-import eu.stratosphere.nephele.fs.FileStatus;
 import eu.stratosphere.nephele.fs.FileSystem;
 import eu.stratosphere.nephele.fs.Path;
 import eu.stratosphere.nephele.jobgraph.JobID;
-import eu.stratosphere.nephele.types.StringRecord;
 import eu.stratosphere.nephele.util.StringUtils;
 
 /**
@@ -70,6 +69,11 @@ public final class LibraryCacheManager {
 	 */
 	private static final String HASHING_ALGORITHM = "SHA-1";
 
+	/**
+	 * Suffix of the files which hold libraries whose transfer has not been completed yet.
+	 */
+	private static final String PARTIAL_LIBRARY_SUFFIX = ".part";
+
 	/**
 	 * Dummy object used in the lock map.
 	 */
@@ -105,6 +109,12 @@ public final class LibraryCacheManager {
 	 */
 	private final ConcurrentMap<JobID, Object> lockMap = new ConcurrentHashMap<JobID, Object>();
 
+	/**
+	 * Map of the libraries which are currently received chunk by chunk, accessible via their cache names. Access is
+	 * guarded by the file system object.
+	 */
+	private final Map<String, PartialLibrary> partialLibraries = new HashMap<String, PartialLibrary>();
+
 	/**
 	 * Returns the singleton instance of the library cache manager.
 	 * 
@@ -153,12 +163,7 @@ public final class LibraryCacheManager {
 		this.fs.mkdirs(this.libraryCachePath);
 
 		// Create an MD5 message digest object we can use
-		try {
-			this.md = MessageDigest.getInstance(HASHING_ALGORITHM);
-		} catch (NoSuchAlgorithmException e) {
-			throw new IOException("Cannot find algorithm " + HASHING_ALGORITHM + ": "
-				+ StringUtils.stringifyException(e));
-		}
+		this.md = createMessageDigest();
 	}
 
 	/**
@@ -492,33 +497,41 @@ public final class LibraryCacheManager {
 	}
 
 	/**
-	 * Writes data from the library with the given file name to the specified stream.
+	 * Reads a chunk of the library with the given file name from the library cache.
 	 * 
 	 * @param libraryFileName
 	 *        the name of the library
-	 * @param out
-	 *        the stream to write the data to
+	 * @param offset
+	 *        the offset of the chunk within the library file
+	 * @param maximumChunkSize
+	 *        the maximum size of the chunk in bytes
+	 * @return the chunk of the library
 	 * @throws IOException
-	 *         thrown if an error occurs while writing the data
+	 *         thrown if the library cache manager could not be instantiated or an error occurs while reading the
+	 *         chunk
 	 */
-	public static void writeLibraryToStream(final String libraryFileName, final DataOutput out) throws IOException {
+	public static LibraryCacheChunk readLibraryChunk(final String libraryFileName, final long offset,
+			final int maximumChunkSize) throws IOException {
 
 		final LibraryCacheManager lib = get();
-		lib.writeLibraryToStreamInternal(libraryFileName, out);
-
+		return lib.readLibraryChunkInternal(libraryFileName, offset, maximumChunkSize);
 	}
 
 	/**
-	 * Writes data from the library with the given file name to the specified stream.
+	 * Reads a chunk of the library with the given file name from the library cache.
 	 * 
 	 * @param libraryFileName
 	 *        the name of the library
-	 * @param out
-	 *        the stream to write the data to
+	 * @param offset
+	 *        the offset of the chunk within the library file
+	 * @param maximumChunkSize
+	 *        the maximum size of the chunk in bytes
+	 * @return the chunk of the library
 	 * @throws IOException
-	 *         thrown if an error occurs while writing the data
+	 *         thrown if an error occurs while reading the chunk
 	 */
-	private void writeLibraryToStreamInternal(final String libraryFileName, final DataOutput out) throws IOException {
+	private LibraryCacheChunk readLibraryChunkInternal(final String libraryFileName, final long offset,
+			final int maximumChunkSize) throws IOException {
 
 		if (libraryFileName == null) {
 			throw new IOException("libraryName is null!");
@@ -528,80 +541,230 @@ public final class LibraryCacheManager {
 
 		synchronized (this.fs) {
 
-			if (!fs.exists(storePath)) {
+			if (!this.fs.exists(storePath)) {
 				throw new IOException(storePath + " does not exist!");
 			}
 
-			final FileStatus status = fs.getFileStatus(storePath);
+			final long length = this.fs.getFileStatus(storePath).getLen();
+			if (offset < 0L || offset > length) {
+				throw new IOException("Offset " + offset + " is outside of " + storePath);
+			}
 
-			StringRecord.writeString(out, libraryFileName);
-			out.writeLong(status.getLen());
+			final byte[] buf = new byte[(int) Math.min(maximumChunkSize, length - offset)];
 
-			final FSDataInputStream inStream = fs.open(storePath);
-			final byte[] buf = new byte[8192]; // 8K Buffer*/
-			int read = inStream.read(buf, 0, buf.length);
-			while (read > 0) {
-				out.write(buf, 0, read);
-				read = inStream.read(buf, 0, buf.length);
+			final FSDataInputStream inStream = this.fs.open(storePath);
+			try {
+				inStream.seek(offset);
+				int read = 0;
+				while (read < buf.length) {
+					final int r = inStream.read(buf, read, buf.length - read);
+					if (r < 0) {
+						throw new IOException("Unexpected end of " + storePath);
+					}
+					read += r;
+				}
+			} finally {
+				inStream.close();
 			}
 
-			inStream.close();
+			return new LibraryCacheChunk(libraryFileName, offset, offset + buf.length == length, buf);
 		}
 	}
 
 	/**
-	 * Reads library data from the given stream.
+	 * Creates a manifest for the library with the given file name which records the checksum of every chunk of the
+	 * library.
 	 * 
-	 * @param in
-	 *        the stream to read the library data from
+	 * @param libraryFileName
+	 *        the name of the library
+	 * @param chunkSize
+	 *        the size of the chunks the library is split into
+	 * @return the manifest of the library
 	 * @throws IOException
-	 *         throws if an error occurs while reading from the stream
+	 *         thrown if the library cache manager could not be instantiated or an error occurs while reading the
+	 *         library
 	 */
-	public static void readLibraryFromStream(final DataInput in) throws IOException {
+	public static LibraryManifest createLibraryManifest(final String libraryFileName, final int chunkSize)
+			throws IOException {
 
 		final LibraryCacheManager lib = get();
-		lib.readLibraryFromStreamInternal(in);
-
+		return lib.createLibraryManifestInternal(libraryFileName, chunkSize);
 	}
 
 	/**
-	 * Reads library data from the given stream.
+	 * Creates a manifest for the library with the given file name which records the checksum of every chunk of the
+	 * library.
 	 * 
-	 * @param in
-	 *        the stream to read the library data from
+	 * @param libraryFileName
+	 *        the name of the library
+	 * @param chunkSize
+	 *        the size of the chunks the library is split into
+	 * @return the manifest of the library
 	 * @throws IOException
-	 *         throws if an error occurs while reading from the stream
+	 *         thrown if an error occurs while reading the library
 	 */
-	private void readLibraryFromStreamInternal(final DataInput in) throws IOException {
-
-		final String libraryFileName = StringRecord.readString(in);
+	private LibraryManifest createLibraryManifestInternal(final String libraryFileName, final int chunkSize)
+			throws IOException {
 
 		if (libraryFileName == null) {
-			throw new IOException("libraryFileName is null!");
+			throw new IOException("libraryName is null!");
+		}
+
+		if (chunkSize <= 0) {
+			throw new IOException("Invalid chunk size " + chunkSize);
 		}
 
-		final long length = in.readLong();
+		final Path storePath = new Path(this.libraryCachePath + "/" + libraryFileName);
+
+		synchronized (this.fs) {
+
+			if (!this.fs.exists(storePath)) {
+				throw new IOException(storePath + " does not exist!");
+			}
 
-		if (length > (long) Integer.MAX_VALUE) {
-			throw new IOException("Submitted jar file " + libraryFileName + " is too large");
+			final long length = this.fs.getFileStatus(storePath).getLen();
+			final int numberOfChunks = (int) Math.max(1L, (length + chunkSize - 1) / chunkSize);
+			final byte[][] chunkChecksums = new byte[numberOfChunks][];
+			final MessageDigest messageDigest = createMessageDigest();
+			final byte[] buf = new byte[(int) Math.min(chunkSize, length)];
+
+			final FSDataInputStream inStream = this.fs.open(storePath);
+			try {
+				for (int i = 0; i < numberOfChunks; ++i) {
+					final int len = (int) Math.min(chunkSize, length - (long) i * chunkSize);
+					int read = 0;
+					while (read < len) {
+						final int r = inStream.read(buf, read, len - read);
+						if (r < 0) {
+							throw new IOException("Unexpected end of " + storePath);
+						}
+						read += r;
+					}
+					messageDigest.update(buf, 0, len);
+					chunkChecksums[i] = messageDigest.digest();
+				}
+			} finally {
+				inStream.close();
+			}
+
+			return new LibraryManifest(libraryFileName, length, chunkSize, chunkChecksums);
 		}
+	}
 
-		final byte[] buf = new byte[(int) length];
-		in.readFully(buf);
+	/**
+	 * Writes the given chunk of a library to the library cache. The chunks of a library must be written in order. When
+	 * the last chunk has been written, the checksum of the library is compared to its cache name and the library is
+	 * added to the cache.
+	 * 
+	 * @param chunk
+	 *        the chunk to write
+	 * @throws IOException
+	 *         thrown if the library cache manager could not be instantiated, the chunk is out of order, the checksum
+	 *         of the library does not match its name or an error occurs while writing the chunk
+	 */
+	public static void writeLibraryChunk(final LibraryCacheChunk chunk) throws IOException {
 
+		final LibraryCacheManager lib = get();
+		lib.writeLibraryChunkInternal(chunk);
+	}
+
+	/**
+	 * Writes the given chunk of a library to the library cache. The chunks of a library must be written in order. When
+	 * the last chunk has been written, the checksum of the library is compared to its cache name and the library is
+	 * added to the cache.
+	 * 
+	 * @param chunk
+	 *        the chunk to write
+	 * @throws IOException
+	 *         thrown if the chunk is out of order, the checksum of the library does not match its name or an error
+	 *         occurs while writing the chunk
+	 */
+	private void writeLibraryChunkInternal(final LibraryCacheChunk chunk) throws IOException {
+
+		final String libraryFileName = chunk.getLibraryFileName();
 		final Path storePath = new Path(this.libraryCachePath + "/" + libraryFileName);
+		final Path partialPath = new Path(this.libraryCachePath + "/" + libraryFileName + PARTIAL_LIBRARY_SUFFIX);
 
 		synchronized (this.fs) {
 
-			// Check if file already exists in our library cache, if not write it to the cache directory
-			if (!fs.exists(storePath)) {
-				final FSDataOutputStream fos = fs.create(storePath, false);
-				fos.write(buf, 0, buf.length);
-				fos.close();
+			PartialLibrary partialLibrary = this.partialLibraries.get(libraryFileName);
+
+			// A transfer starting from the beginning replaces an aborted one
+			if (chunk.getOffset() == 0L) {
+				if (partialLibrary != null) {
+					partialLibrary.discard();
+				}
+				partialLibrary = new PartialLibrary(this.fs.create(partialPath, true), createMessageDigest());
+				this.partialLibraries.put(libraryFileName, partialLibrary);
+			}
+
+			if (partialLibrary == null || partialLibrary.getLength() != chunk.getOffset()) {
+				if (partialLibrary != null) {
+					this.partialLibraries.remove(libraryFileName);
+					partialLibrary.discard();
+				}
+				throw new IOException("Received chunk of library " + libraryFileName + " at unexpected offset "
+					+ chunk.getOffset());
+			}
+
+			try {
+				partialLibrary.write(chunk.getData());
+			} catch (IOException ioe) {
+				this.partialLibraries.remove(libraryFileName);
+				partialLibrary.discard();
+				throw ioe;
+			}
+
+			if (!chunk.isLast()) {
+				return;
+			}
+
+			this.partialLibraries.remove(libraryFileName);
+			final String checksum = partialLibrary.close();
+			if (!libraryFileName.equals(checksum + ".jar")) {
+				this.fs.delete(partialPath, false);
+				throw new IOException("Checksum " + checksum + " does not match library " + libraryFileName);
+			}
+
+			if (this.fs.exists(storePath)) {
+				this.fs.delete(partialPath, false);
+			} else if (!this.fs.rename(partialPath, storePath)) {
+				throw new IOException("Cannot move " + partialPath + " to " + storePath);
 			}
 		}
 	}
 
+	/**
+	 * Calculates the checksum of the given data with the hashing algorithm used for the library cache names.
+	 * 
+	 * @param data
+	 *        the data to calculate the checksum for
+	 * @return the checksum of the data
+	 * @throws IOException
+	 *         thrown if the requested hashing algorithm does not exist
+	 */
+	static byte[] computeChecksum(final byte[] data) throws IOException {
+
+		return createMessageDigest().digest(data);
+	}
+
+	/**
+	 * Creates a new message digest object to calculate the checksums of the libraries.
+	 * 
+	 * @return the new message digest object
+	 * @throws IOException
+	 *         thrown if the requested hashing algorithm does not exist
+	 */
+	private static MessageDigest createMessageDigest() throws IOException {
+
+		try {
+			return MessageDigest.getInstance(HASHING_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException("Cannot find algorithm " + HASHING_ALGORITHM + ": "
+				+ StringUtils.stringifyException(e));
+		}
+	}
+
 	/**
 	 * Reads a library from the given input stream and adds it to the local library cache. The cache name of
 	 * the library is determined by the checksum of the received data and cannot be specified manually.
@@ -674,6 +837,88 @@ public final class LibraryCacheManager {
 		this.clientPathToCacheName.putIfAbsent(key, cacheName);
 	}
 
+	/**
+	 * Auxiliary class that stores the state of a library which is received chunk by chunk.
+	 */
+	private static final class PartialLibrary {
+
+		/**
+		 * The stream to write the received data to.
+		 */
+		private final FSDataOutputStream outputStream;
+
+		/**
+		 * The message digest object used to calculate the checksum of the received data.
+		 */
+		private final MessageDigest messageDigest;
+
+		/**
+		 * The number of bytes received so far.
+		 */
+		private long length = 0L;
+
+		/**
+		 * Constructs a new partial library.
+		 * 
+		 * @param outputStream
+		 *        the stream to write the received data to
+		 * @param messageDigest
+		 *        the message digest object used to calculate the checksum of the received data
+		 */
+		private PartialLibrary(final FSDataOutputStream outputStream, final MessageDigest messageDigest) {
+			this.outputStream = outputStream;
+			this.messageDigest = messageDigest;
+		}
+
+		/**
+		 * Returns the number of bytes received so far.
+		 * 
+		 * @return the number of bytes received so far
+		 */
+		private long getLength() {
+			return this.length;
+		}
+
+		/**
+		 * Appends the given data to the library.
+		 * 
+		 * @param data
+		 *        the data to append
+		 * @throws IOException
+		 *         thrown if an error occurs while writing the data
+		 */
+		private void write(final byte[] data) throws IOException {
+
+			this.outputStream.write(data, 0, data.length);
+			this.messageDigest.update(data);
+			this.length += data.length;
+		}
+
+		/**
+		 * Closes the library file and returns the checksum of the received data.
+		 * 
+		 * @return the checksum of the received data
+		 * @throws IOException
+		 *         thrown if an error occurs while closing the library file
+		 */
+		private String close() throws IOException {
+
+			this.outputStream.close();
+			return StringUtils.byteToHexString(this.messageDigest.digest());
+		}
+
+		/**
+		 * Closes the library file and ignores any errors, the file is overwritten by the next transfer.
+		 */
+		private void discard() {
+
+			try {
+				this.outputStream.close();
+			} catch (IOException e) {
+			}
+		}
+	}
+
 	/**
 	 * Auxiliary class that stores the class loader object as well as the names of the required
 	 * libraries for a job vertex.
@@ -0,0 +1,198 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.execution.librarycache;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+import eu.stratosphere.nephele.io.IOReadableWritable;
+import eu.stratosphere.nephele.types.StringRecord;
+
+/**
+ * A library manifest describes how a library is split into chunks and stores the checksum of each chunk. It is created
+ * by the job manager, which holds the original copy of every library, and allows a task manager to verify every chunk
+ * it fetches from a peer before the chunk is added to its library cache.
+ */
+public final class LibraryManifest implements IOReadableWritable {
+
+	/**
+	 * The cache name of the library described by this manifest.
+	 */
+	private String libraryFileName;
+
+	/**
+	 * The size of the library in bytes.
+	 */
+	private long length;
+
+	/**
+	 * The size of every chunk but the last one in bytes.
+	 */
+	private int chunkSize;
+
+	/**
+	 * The checksums of the individual chunks.
+	 */
+	private byte[][] chunkChecksums;
+
+	/**
+	 * Constructs a new library manifest.
+	 *
+	 * @param libraryFileName
+	 *        the cache name of the library described by this manifest
+	 * @param length
+	 *        the size of the library in bytes
+	 * @param chunkSize
+	 *        the size of every chunk but the last one in bytes
+	 * @param chunkChecksums
+	 *        the checksums of the individual chunks
+	 */
+	LibraryManifest(final String libraryFileName, final long length, final int chunkSize,
+			final byte[][] chunkChecksums) {
+
+		if (libraryFileName == null) {
+			throw new IllegalArgumentException("Argument libraryFileName must not be null");
+		}
+
+		if (chunkChecksums == null) {
+			throw new IllegalArgumentException("Argument chunkChecksums must not be null");
+		}
+
+		this.libraryFileName = libraryFileName;
+		this.length = length;
+		this.chunkSize = chunkSize;
+		this.chunkChecksums = chunkChecksums;
+	}
+
+	/**
+	 * Default constructor for serialization/deserialization.
+	 */
+	public LibraryManifest() {
+		this.libraryFileName = null;
+		this.length = 0L;
+		this.chunkSize = 0;
+		this.chunkChecksums = null;
+	}
+
+	/**
+	 * Returns the cache name of the library described by this manifest.
+	 *
+	 * @return the cache name of the library described by this manifest
+	 */
+	public String getLibraryFileName() {
+
+		return this.libraryFileName;
+	}
+
+	/**
+	 * Returns the size of the library in bytes.
+	 *
+	 * @return the size of the library in bytes
+	 */
+	public long getLength() {
+
+		return this.length;
+	}
+
+	/**
+	 * Returns the size of every chunk but the last one in bytes.
+	 *
+	 * @return the size of every chunk but the last one in bytes
+	 */
+	public int getChunkSize() {
+
+		return this.chunkSize;
+	}
+
+	/**
+	 * Returns the number of chunks the library is split into.
+	 *
+	 * @return the number of chunks the library is split into
+	 */
+	public int getNumberOfChunks() {
+
+		return this.chunkChecksums.length;
+	}
+
+	/**
+	 * Checks whether the given chunk is a valid part of the library described by this manifest.
+	 *
+	 * @param chunk
+	 *        the chunk to verify
+	 * @throws IOException
+	 *         thrown if the chunk does not belong to the library, is not aligned to the chunk boundaries or its data
+	 *         does not match the checksum recorded for it
+	 */
+	public void verifyChunk(final LibraryCacheChunk chunk) throws IOException {
+
+		if (!this.libraryFileName.equals(chunk.getLibraryFileName())) {
+			throw new IOException("Chunk of library " + chunk.getLibraryFileName() + " does not belong to library "
+				+ this.libraryFileName);
+		}
+
+		final long offset = chunk.getOffset();
+		if (offset < 0L || offset % this.chunkSize != 0L || offset / this.chunkSize >= this.chunkChecksums.length) {
+			throw new IOException("Chunk of library " + this.libraryFileName + " has invalid offset " + offset);
+		}
+
+		final int index = (int) (offset / this.chunkSize);
+		final boolean isLast = (index == this.chunkChecksums.length - 1);
+		final long expectedLength = isLast ? this.length - offset : this.chunkSize;
+		if (chunk.isLast() != isLast || chunk.getData().length != expectedLength) {
+			throw new IOException("Chunk of library " + this.libraryFileName + " at offset " + offset
+				+ " has unexpected length " + chunk.getData().length);
+		}
+
+		if (!Arrays.equals(this.chunkChecksums[index], LibraryCacheManager.computeChecksum(chunk.getData()))) {
+			throw new IOException("Chunk of library " + this.libraryFileName + " at offset " + offset
+				+ " does not match its checksum");
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void write(final DataOutput out) throws IOException {
+
+		StringRecord.writeString(out, this.libraryFileName);
+		out.writeLong(this.length);
+		out.writeInt(this.chunkSize);
+		out.writeInt(this.chunkChecksums.length);
+		for (int i = 0; i < this.chunkChecksums.length; ++i) {
+			out.writeInt(this.chunkChecksums[i].length);
+			out.write(this.chunkChecksums[i]);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void read(final DataInput in) throws IOException {
+
+		this.libraryFileName = StringRecord.readString(in);
+		this.length = in.readLong();
+		this.chunkSize = in.readInt();
+		this.chunkChecksums = new byte[in.readInt()][];
+		for (int i = 0; i < this.chunkChecksums.length; ++i) {
+			this.chunkChecksums[i] = new byte[in.readInt()];
+			in.readFully(this.chunkChecksums[i]);
+		}
+	}
+}
@@ -23,6 +23,14 @@ package eu.stratosphere.nephele.fs;
 
 import java.io.IOException;
 
+/**
+ * The line reader reads the lines of a range of a file. A line belongs to the range if it starts at a position between
+ * the start (exclusive) and the end (inclusive) of the range. The only exception is a range starting at the beginning
+ * of the file, which also includes the line starting at position 0. Consequently, a range starting at an arbitrary
+ * position skips the partial line at its start and resumes at the next record boundary, while the preceding range
+ * reads this line to its end. The end of the range may be moved while the reader is in use, which allows to hand the
+ * remainder of the range to another reader starting at the new end.
+ */
 public class LineReader {
 
 	private static final int CR = '\r';
@@ -35,40 +43,93 @@ public class LineReader {
 
 	private byte[] wrapBuffer;
 
-	private long lengthLeft;
+	/**
+	 * The position in the file of the next byte to be read from the stream.
+	 */
+	private long streamPos;
+
+	/**
+	 * The position in the file of the last byte at which a line returned by this reader may start.
+	 */
+	private long end;
 
 	private int readPos;
 
 	private int limit;
 
-	private boolean overLimit;
-
 	public LineReader(final FSDataInputStream strm, final long start, final long length, final int buffersize)
 			throws IOException {
 		this.stream = strm;
 		this.readBuffer = new byte[buffersize];
 		this.wrapBuffer = new byte[256];
 
-		this.lengthLeft = length;
+		this.streamPos = start;
+		this.end = start + length;
 		this.readPos = 0;
-		this.overLimit = false;
+		this.limit = 0;
 
 		if (start != 0) {
 			strm.seek(start);
-			readLine();
-		} else {
-			fillBuffer();
+			// Skip the partial line, it belongs to the preceding range
+			readNextLine();
 		}
 	}
 
-	private final boolean fillBuffer() throws IOException {
+	/**
+	 * Returns the position in the file of the first byte which has not been consumed by this reader, i.e. the start of
+	 * the next line.
+	 * 
+	 * @return the position in the file of the first byte which has not been consumed by this reader
+	 */
+	public long getPosition() {
 
-		int toRead = this.lengthLeft > this.readBuffer.length ? this.readBuffer.length : (int) this.lengthLeft;
-		if (this.lengthLeft <= 0) {
-			toRead = this.readBuffer.length;
-			this.overLimit = true;
+		return this.streamPos - this.limit + this.readPos;
+	}
+
+	/**
+	 * Returns the position in the file of the last byte at which a line returned by this reader may start.
+	 * 
+	 * @return the position in the file of the last byte at which a line returned by this reader may start
+	 */
+	public long getEnd() {
+
+		return this.end;
+	}
+
+	/**
+	 * Moves the end of the range read by this reader. The end may be moved backwards as long as no line starting after
+	 * the new end has been returned, so a reader starting at the new end continues exactly with the line following the
+	 * last line returned by this reader.
+	 * 
+	 * @param end
+	 *        the position in the file of the last byte at which a line returned by this reader may start
+	 */
+	public void setEnd(final long end) {
+
+		if (end < this.end && end < getPosition() - 1) {
+			throw new IllegalArgumentException("End " + end + " is before the current position " + getPosition());
 		}
 
+		this.end = end;
+	}
+
+	/**
+	 * Checks whether this reader has reached the end of the file.
+	 * 
+	 * @return <code>true</code> if this reader has reached the end of the file, <code>false</code> otherwise
+	 */
+	public boolean isEndOfFile() {
+
+		return this.stream == null;
+	}
+
+	private final boolean fillBuffer() throws IOException {
+
+		// Read up to the end of the range, the line starting at the end is completed with full buffers
+		final long bytesToEnd = this.end - this.streamPos;
+		final int toRead = (bytesToEnd > 0 && bytesToEnd < this.readBuffer.length) ? (int) bytesToEnd
+			: this.readBuffer.length;
+
 		int read = this.stream.read(this.readBuffer, 0, toRead);
 
 		if (read == -1) {
@@ -76,7 +137,7 @@ public class LineReader {
 			this.stream = null;
 			return false;
 		} else {
-			this.lengthLeft -= read;
+			this.streamPos += read;
 			this.readPos = 0;
 			this.limit = read;
 			return true;
@@ -92,8 +153,24 @@ public class LineReader {
 		}
 	}
 
+	/**
+	 * Reads the next line of the range.
+	 * 
+	 * @return the next line of the range without the line terminator or <code>null</code> if the range contains no
+	 *         further lines
+	 * @throws IOException
+	 *         thrown if an error occurs while reading from the stream
+	 */
 	public byte[] readLine() throws IOException {
-		if (this.stream == null || this.overLimit) {
+		if (this.stream == null || getPosition() > this.end) {
+			return null;
+		}
+
+		return readNextLine();
+	}
+
+	private byte[] readNextLine() throws IOException {
+		if (this.stream == null) {
 			return null;
 		}
 
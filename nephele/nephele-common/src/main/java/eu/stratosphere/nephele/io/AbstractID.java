@@ -82,6 +82,7 @@ public abstract class AbstractID implements IOReadableWritable {
 
 		this.lowerPart = lowerPart;
 		this.upperPart = upperPart;
+		precomputeHash();
 	}
 
 	/**
@@ -95,6 +96,27 @@ public abstract class AbstractID implements IOReadableWritable {
 
 		this.lowerPart = id.lowerPart;
 		this.upperPart = id.upperPart;
+		this.precomputedHash = id.precomputedHash;
+	}
+
+	/**
+	 * Returns the lower bytes of the ID.
+	 * 
+	 * @return the lower bytes of the ID
+	 */
+	protected long getLowerPart() {
+
+		return this.lowerPart;
+	}
+
+	/**
+	 * Returns the higher bytes of the ID.
+	 * 
+	 * @return the higher bytes of the ID
+	 */
+	protected long getUpperPart() {
+
+		return this.upperPart;
 	}
 
 	/**	
@@ -119,7 +141,9 @@ public abstract class AbstractID implements IOReadableWritable {
 
 
 	private void precomputeHash() {
-		this.precomputedHash = (int) (this.lowerPart ^ (this.upperPart >>> 32));
+		// Mix all bits of both parts, IDs derived from a common seed only differ in a few bits of their lower part
+		final long mixed = this.lowerPart * 0x9E3779B97F4A7C15L ^ this.upperPart;
+		this.precomputedHash = (int) (mixed ^ (mixed >>> 32));
 	}
 
 	/**
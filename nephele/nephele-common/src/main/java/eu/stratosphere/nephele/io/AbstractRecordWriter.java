@@ -22,6 +22,8 @@ import eu.stratosphere.nephele.event.task.AbstractTaskEvent;
 import eu.stratosphere.nephele.event.task.EventListener;
 import eu.stratosphere.nephele.execution.Environment;
 import eu.stratosphere.nephele.io.channels.AbstractOutputChannel;
+import eu.stratosphere.nephele.io.channels.LengthPrefixEncoding;
+import eu.stratosphere.nephele.io.channels.serialization.RecordSerializers;
 import eu.stratosphere.nephele.template.AbstractInvokable;
 import eu.stratosphere.nephele.types.Record;
 
@@ -84,6 +86,9 @@ public abstract class AbstractRecordWriter<T extends Record> implements Writer<T
 
 		this.outputGate = this.environment.createOutputGate(gateID, outputClass, selector, isBroadcast);
 		this.environment.registerOutputGate(this.outputGate);
+
+		// Generate the serializer for annotated records now instead of on the first emitted record
+		RecordSerializers.getSerializer(outputClass);
 	}
 
 	/**
@@ -110,6 +115,19 @@ public abstract class AbstractRecordWriter<T extends Record> implements Writer<T
 		return this.outputGate.getOutputChannels();
 	}
 
+	/**
+	 * Sets the encoding of the length prefixes of the records emitted through this record writer. The encoding must be
+	 * set before the first record is emitted, typically from the task's <code>registerInputOutput</code> method.
+	 * 
+	 * @param lengthPrefixEncoding
+	 *        the encoding of the length prefixes
+	 */
+	public void setLengthPrefixEncoding(final LengthPrefixEncoding lengthPrefixEncoding) {
+
+		// Delegate call to output gate
+		this.outputGate.setLengthPrefixEncoding(lengthPrefixEncoding);
+	}
+
 	/**
 	 * Subscribes the listener object to receive events of the given type.
 	 * 
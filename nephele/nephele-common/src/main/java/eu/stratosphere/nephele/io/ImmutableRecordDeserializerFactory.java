@@ -16,6 +16,7 @@
 package eu.stratosphere.nephele.io;
 
 import eu.stratosphere.nephele.io.channels.DefaultDeserializer;
+import eu.stratosphere.nephele.io.channels.serialization.RecordSerializers;
 import eu.stratosphere.nephele.types.Record;
 
 /**
@@ -37,6 +38,9 @@ public class ImmutableRecordDeserializerFactory<T extends Record> implements Rec
 	public ImmutableRecordDeserializerFactory(final Class<? extends T> recordType)
 	{
 		this.recordType = recordType;
+
+		// Generate the serializer for annotated records now instead of on the first received record
+		RecordSerializers.getSerializer(recordType);
 	}
 
 	/* (non-Javadoc)
@@ -17,6 +17,7 @@ package eu.stratosphere.nephele.io;
 
 import eu.stratosphere.nephele.io.channels.AbstractOutputChannel;
 import eu.stratosphere.nephele.io.channels.ChannelID;
+import eu.stratosphere.nephele.io.channels.LengthPrefixEncoding;
 import eu.stratosphere.nephele.io.channels.bytebuffered.InMemoryOutputChannel;
 import eu.stratosphere.nephele.io.channels.bytebuffered.NetworkOutputChannel;
 import eu.stratosphere.nephele.types.Record;
@@ -79,6 +80,23 @@ public interface OutputGate<T extends Record> extends Gate<T> {
 	 */
 	boolean isBroadcast();
 
+	/**
+	 * Sets the encoding of the length prefixes of the records written through this gate. The encoding must be set
+	 * before the first record is written; each output channel announces it to its connected input channel ahead of
+	 * its first record.
+	 * 
+	 * @param lengthPrefixEncoding
+	 *        the encoding of the length prefixes
+	 */
+	void setLengthPrefixEncoding(LengthPrefixEncoding lengthPrefixEncoding);
+
+	/**
+	 * Returns the encoding of the length prefixes of the records written through this gate.
+	 * 
+	 * @return the encoding of the length prefixes of the records written through this gate
+	 */
+	LengthPrefixEncoding getLengthPrefixEncoding();
+
 	/**
 	 * Returns the number of output channels associated with this output gate.
 	 * 
@@ -18,6 +18,8 @@ package eu.stratosphere.nephele.io;
 import java.io.IOException;
 import java.nio.channels.ReadableByteChannel;
 
+import eu.stratosphere.nephele.io.channels.LengthPrefixEncoding;
+
 /**
  * This interface must be implemented by classes which transfer bytes streams back into {@link Record} objects.
  * 
@@ -55,4 +57,13 @@ public interface RecordDeserializer<T>
 	 *         attempt, <code>false</code> otherwise.
 	 */
 	boolean hasUnfinishedData();
+
+	/**
+	 * Sets the encoding of the length prefixes of the records read from now on. The encoding must only be changed
+	 * between two records.
+	 * 
+	 * @param lengthPrefixEncoding
+	 *        the encoding of the length prefixes
+	 */
+	void setLengthPrefixEncoding(LengthPrefixEncoding lengthPrefixEncoding);
 }
\ No newline at end of file
@@ -30,4 +30,87 @@ public class ChannelID extends AbstractID {
 	public ChannelID() {
 		super();
 	}
+
+	/**
+	 * Constructs a new channel ID from the given lower and higher bytes.
+	 * 
+	 * @param lowerPart
+	 *        the lower bytes of the ID
+	 * @param upperPart
+	 *        the higher bytes of the ID
+	 */
+	private ChannelID(final long lowerPart, final long upperPart) {
+		super(lowerPart, upperPart);
+	}
+
+	/**
+	 * Generates a new random seed to derive channel IDs from. The lowest bit of the seed's upper part is cleared, so
+	 * all IDs derived from the seed share the same {@link #getSeedKey()}.
+	 * 
+	 * @return the new random seed
+	 */
+	public static ChannelID generateSeed() {
+
+		final ChannelID random = new ChannelID();
+
+		return new ChannelID(random.getLowerPart(), random.getUpperPart() & ~1L);
+	}
+
+	/**
+	 * Returns the key shared by a seed created by {@link #generateSeed()} and all channel IDs derived from it.
+	 * 
+	 * @return the key shared by the seed and all channel IDs derived from it
+	 */
+	public long getSeedKey() {
+
+		return getUpperPart() & ~1L;
+	}
+
+	/**
+	 * Checks whether this ID has been derived as the ID of an input channel, provided it has been derived from a seed
+	 * created by {@link #generateSeed()}.
+	 * 
+	 * @return <code>true</code> if this ID has been derived as the ID of an input channel, <code>false</code> otherwise
+	 */
+	public boolean isDerivedInputChannelID() {
+
+		return (getUpperPart() & 1L) != 0L;
+	}
+
+	/**
+	 * Returns the offset this ID has been derived with from the given seed. The upper 32 bits of the offset contain
+	 * the source index, the lower 32 bits contain the channel index.
+	 * 
+	 * @param seed
+	 *        the seed this ID has been derived from
+	 * @return the offset this ID has been derived with
+	 */
+	public long getDerivationOffset(final ChannelID seed) {
+
+		return getLowerPart() - seed.getLowerPart();
+	}
+
+	/**
+	 * Derives the ID of a channel from a random seed shared by all channels of a connection between two groups of
+	 * vertices. Different source indices, channel indices and sides always result in different IDs, so the channel
+	 * IDs of an entire connection can be transmitted as the seed and the respective indices.
+	 * 
+	 * @param seed
+	 *        the random seed shared by all channels of the connection
+	 * @param sourceIndex
+	 *        the index of the vertex the channel originates from within its group
+	 * @param channelIndex
+	 *        the index of the channel within the output gate of its source vertex
+	 * @param inputSide
+	 *        <code>true</code> to derive the ID of the input channel, <code>false</code> to derive the ID of the
+	 *        output channel
+	 * @return the derived channel ID
+	 */
+	public static ChannelID derive(final ChannelID seed, final int sourceIndex, final int channelIndex,
+			final boolean inputSide) {
+
+		final long offset = ((long) sourceIndex << 32) | (channelIndex & 0xffffffffL);
+
+		return new ChannelID(seed.getLowerPart() + offset, seed.getUpperPart() ^ (inputSide ? 1L : 0L));
+	}
 }
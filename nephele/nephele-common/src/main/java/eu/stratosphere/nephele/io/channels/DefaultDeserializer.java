@@ -25,11 +25,19 @@ import java.nio.channels.ReadableByteChannel;
 
 import eu.stratosphere.nephele.io.IOReadableWritable;
 import eu.stratosphere.nephele.io.RecordDeserializer;
+import eu.stratosphere.nephele.io.channels.serialization.RecordSerializer;
+import eu.stratosphere.nephele.io.channels.serialization.RecordSerializers;
 import eu.stratosphere.nephele.services.memorymanager.DataInputView;
+import eu.stratosphere.nephele.types.FixedWidthRecord;
+import eu.stratosphere.nephele.types.Record;
 
 /**
  * A class for deserializing a portion of binary data into records of type <code>T</code>. The internal
- * buffer grows dynamically to the size that is required for deserialization.
+ * buffer grows dynamically to the size that is required for deserialization. Records with fields annotated for a
+ * generated {@link RecordSerializer} are read by that serializer, all other records by their own <code>read</code>
+ * method. The length field of the records is decoded according to the deserializer's {@link LengthPrefixEncoding}.
+ * With {@link LengthPrefixEncoding#NONE}, the targets must be {@link FixedWidthRecord} objects, which are read
+ * directly from a byte buffer.
  * 
  * @author warneke
  * @param <T>
@@ -53,6 +61,26 @@ public class DefaultDeserializer<T extends IOReadableWritable> implements Record
 	 */
 	private final ByteBuffer lengthBuf;
 
+	/**
+	 * Buffer to read a variable-length encoded length field byte by byte.
+	 */
+	private final ByteBuffer varintBuf = ByteBuffer.allocate(1);
+
+	/**
+	 * The value accumulated from the bytes of a partially read variable-length encoded length field.
+	 */
+	private int varintValue = 0;
+
+	/**
+	 * The number of bits accumulated from the bytes of a partially read variable-length encoded length field.
+	 */
+	private int varintShift = 0;
+
+	/**
+	 * The encoding of the length fields.
+	 */
+	private LengthPrefixEncoding lengthPrefixEncoding = LengthPrefixEncoding.FIXED_INT;
+
 	/**
 	 * Temporary buffer.
 	 */
@@ -73,6 +101,33 @@ public class DefaultDeserializer<T extends IOReadableWritable> implements Record
 	 */
 	private final boolean propagateEndOfStream;
 
+	/**
+	 * The class of the most recently deserialized record.
+	 */
+	private Class<?> lastRecordType = null;
+
+	/**
+	 * The generated serializer for the class of the most recently deserialized record or <code>null</code> if the
+	 * record reads itself.
+	 */
+	private RecordSerializer<Record> lastRecordSerializer = null;
+
+	/**
+	 * The class of the most recently deserialized {@link FixedWidthRecord}.
+	 */
+	private Class<?> lastFixedWidthType = null;
+
+	/**
+	 * The width of the most recently deserialized {@link FixedWidthRecord} in bytes.
+	 */
+	private int lastFixedWidth = 0;
+
+	/**
+	 * A target object which has been instantiated to read a fixed-width record that has not been completely
+	 * available yet.
+	 */
+	private T pendingTarget = null;
+
 	// --------------------------------------------------------------------------------------------
 
 	/**
@@ -117,25 +172,34 @@ public class DefaultDeserializer<T extends IOReadableWritable> implements Record
 	 */
 	@Override
 	public T readData(T target, final ReadableByteChannel readableByteChannel) throws IOException {
+
+		if (this.lengthPrefixEncoding == LengthPrefixEncoding.NONE) {
+			if (target == null) {
+				if (this.pendingTarget != null) {
+					target = this.pendingTarget;
+				} else {
+					target = instantiateTarget();
+					// Keep the new target for the next call in case the record is not complete yet
+					this.pendingTarget = target;
+				}
+			}
+
+			return readFixedWidth(target, readableByteChannel);
+		}
+
 		// check whether the length has already been de-serialized
 		final int len;
 		if (this.recordLength < 0) {
-			if (readableByteChannel.read(this.lengthBuf) == -1 && this.propagateEndOfStream) {
-				if (this.lengthBuf.position() == 0) {
-					throw new EOFException();
-				} else {
-					throw new IOException("Deserialization error: Expected to read " + this.lengthBuf.remaining()
-						+ " more bytes of length information from the stream!");
-				}
+			if (this.lengthPrefixEncoding == LengthPrefixEncoding.VARINT) {
+				len = readVarintLength(readableByteChannel);
+			} else {
+				len = readFixedLength(readableByteChannel);
 			}
 
-			if (this.lengthBuf.hasRemaining()) {
+			if (len < 0) {
 				return null;
 			}
 
-			len = this.lengthBuf.getInt(0);
-			this.lengthBuf.clear();
-
 			if (this.tempBuffer.capacity() < len) {
 				this.tempBuffer = ByteBuffer.allocate(len);
 				this.tempBuffer.order(ByteOrder.BIG_ENDIAN);
@@ -169,14 +233,184 @@ public class DefaultDeserializer<T extends IOReadableWritable> implements Record
 
 		// now de-serialize the target
 		try {
-			target.read(this.deserializationWrapper);
+			final RecordSerializer<Record> recordSerializer = getRecordSerializer(target.getClass());
+			if (recordSerializer != null) {
+				recordSerializer.deserialize((Record) target, this.deserializationWrapper);
+			} else {
+				target.read(this.deserializationWrapper);
+			}
 			return target;
 		} catch (BufferUnderflowException buex) {
 			throw new EOFException();
 		}
 	}
 
+	/**
+	 * Reads a length field of four bytes from the given channel.
+	 * 
+	 * @param readableByteChannel
+	 *        the channel to read the length field from
+	 * @return the length or <code>-1</code> if the channel does not provide enough data to complete the length field
+	 * @throws IOException
+	 *         thrown if the stream ends before the length field is complete
+	 */
+	private int readFixedLength(final ReadableByteChannel readableByteChannel) throws IOException {
+
+		if (readableByteChannel.read(this.lengthBuf) == -1 && this.propagateEndOfStream) {
+			if (this.lengthBuf.position() == 0) {
+				throw new EOFException();
+			} else {
+				throw new IOException("Deserialization error: Expected to read " + this.lengthBuf.remaining()
+					+ " more bytes of length information from the stream!");
+			}
+		}
+
+		if (this.lengthBuf.hasRemaining()) {
+			return -1;
+		}
+
+		final int len = this.lengthBuf.getInt(0);
+		this.lengthBuf.clear();
+
+		return len;
+	}
+
+	/**
+	 * Reads a variable-length encoded length field from the given channel. The field is read byte by byte, so a field
+	 * which is split across two buffers is continued with the next buffer.
+	 * 
+	 * @param readableByteChannel
+	 *        the channel to read the length field from
+	 * @return the length or <code>-1</code> if the channel does not provide enough data to complete the length field
+	 * @throws IOException
+	 *         thrown if the stream ends before the length field is complete or the length field is malformed
+	 */
+	private int readVarintLength(final ReadableByteChannel readableByteChannel) throws IOException {
+
+		while (true) {
+
+			this.varintBuf.clear();
+			final int read = readableByteChannel.read(this.varintBuf);
+			if (read <= 0) {
+				if (read == -1 && this.propagateEndOfStream) {
+					if (this.varintShift == 0) {
+						throw new EOFException();
+					}
+					throw new IOException(
+						"Deserialization error: Stream ended within a variable-length length information!");
+				}
+				return -1;
+			}
+
+			final int b = this.varintBuf.get(0);
+			this.varintValue |= (b & 0x7f) << this.varintShift;
+			if ((b & 0x80) == 0) {
+				break;
+			}
+
+			this.varintShift += 7;
+			if (this.varintShift >= 7 * SerializationBuffer.MAX_VARINT_LENGTH) {
+				throw new IOException("Deserialization error: Variable-length length information is too long!");
+			}
+		}
+
+		final int len = this.varintValue;
+		this.varintValue = 0;
+		this.varintShift = 0;
+
+		if (len < 0) {
+			throw new IOException("Deserialization error: Invalid record length " + len);
+		}
+
+		return len;
+	}
+
+	/**
+	 * Reads a fixed-width record from the given channel.
+	 * 
+	 * @param target
+	 *        the record to read the data into
+	 * @param readableByteChannel
+	 *        the channel to read the data from
+	 * @return the record or <code>null</code> if the channel does not provide enough data to complete the record
+	 * @throws IOException
+	 *         thrown if the stream ends before the record is complete
+	 */
+	private T readFixedWidth(final T target, final ReadableByteChannel readableByteChannel) throws IOException {
+
+		if (this.recordLength < 0) {
+
+			if (target.getClass() != this.lastFixedWidthType) {
+				if (!(target instanceof FixedWidthRecord)) {
+					throw new IOException("Cannot read " + target.getClass().getName()
+						+ " without length prefix, it is not a fixed-width record");
+				}
+				this.lastFixedWidth = ((FixedWidthRecord) target).getWidth();
+				this.lastFixedWidthType = target.getClass();
+			}
+
+			final int width = this.lastFixedWidth;
+			if (this.tempBuffer.capacity() < width) {
+				this.tempBuffer = ByteBuffer.allocate(width);
+				this.tempBuffer.order(ByteOrder.BIG_ENDIAN);
+				this.deserializationWrapper.setArray(this.tempBuffer.array());
+			}
+
+			this.tempBuffer.position(0);
+			this.tempBuffer.limit(width);
+			this.recordLength = width;
+		}
+
+		if (readableByteChannel.read(this.tempBuffer) == -1 && this.propagateEndOfStream) {
+			if (this.tempBuffer.position() == 0) {
+				this.recordLength = -1;
+				this.pendingTarget = null;
+				throw new EOFException();
+			}
+			throw new IOException("Deserialization error: Expected to read " + this.tempBuffer.remaining()
+				+ " more bytes from stream!");
+		}
+
+		if (this.tempBuffer.hasRemaining()) {
+			return null;
+		}
+
+		this.recordLength = -1;
+		this.pendingTarget = null;
+		this.tempBuffer.flip();
+		((FixedWidthRecord) target).readFixed(this.tempBuffer);
+
+		return target;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.nephele.io.RecordDeserializer#setLengthPrefixEncoding(eu.stratosphere.nephele.io.channels.
+	 * LengthPrefixEncoding)
+	 */
+	@Override
+	public void setLengthPrefixEncoding(final LengthPrefixEncoding lengthPrefixEncoding) {
+
+		if (lengthPrefixEncoding == null) {
+			throw new IllegalArgumentException("Argument lengthPrefixEncoding must not be null");
+		}
+
+		if (hasUnfinishedData()) {
+			throw new IllegalStateException("Cannot change the length prefix encoding within a record");
+		}
+
+		this.lengthPrefixEncoding = lengthPrefixEncoding;
+	}
+
+	@SuppressWarnings("unchecked")
 	private final T instantiateTarget() throws IOException {
+
+		// generated serializers instantiate their records without reflection
+		final RecordSerializer<Record> recordSerializer = getRecordSerializer(this.recordType);
+		if (recordSerializer != null) {
+			return (T) recordSerializer.createInstance();
+		}
+
 		try {
 			return this.recordType.newInstance();
 		} catch (Exception e) {
@@ -184,6 +418,23 @@ public class DefaultDeserializer<T extends IOReadableWritable> implements Record
 		}
 	}
 
+	/**
+	 * Returns the generated serializer for the given record class.
+	 * 
+	 * @param type
+	 *        the record class
+	 * @return the generated serializer or <code>null</code> if the record reads itself
+	 */
+	private RecordSerializer<Record> getRecordSerializer(final Class<?> type) {
+
+		if (type != this.lastRecordType) {
+			this.lastRecordSerializer = RecordSerializers.getSerializer(type);
+			this.lastRecordType = type;
+		}
+
+		return this.lastRecordSerializer;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see eu.stratosphere.nephele.io.RecordDeserializer#clear()
@@ -192,12 +443,15 @@ public class DefaultDeserializer<T extends IOReadableWritable> implements Record
 	public void clear() {
 
 		this.recordLength = -1;
+		this.pendingTarget = null;
 		if (this.tempBuffer != null) {
 			this.tempBuffer.clear();
 		}
 		if (this.lengthBuf != null) {
 			this.lengthBuf.clear();
 		}
+		this.varintValue = 0;
+		this.varintShift = 0;
 	}
 
 	/*
@@ -214,6 +468,10 @@ public class DefaultDeserializer<T extends IOReadableWritable> implements Record
 			return true;
 		}
 
+		if (this.varintShift > 0) {
+			return true;
+		}
+
 		return false;
 	}
 
@@ -0,0 +1,46 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+
+package eu.stratosphere.nephele.io.channels;
+
+/**
+ * An enumeration of the encodings for the length field which precedes each serialized record in a byte-buffered
+ * channel. The encoding is selected at the output gate and announced to the receiving channels in-band, so both ends
+ * of a channel always agree on it. This also applies to the decision whether records are written as fixed-width
+ * records without any length field, which is taken from the declared record type of the output gate.
+ * 
+ * @author warneke
+ */
+public enum LengthPrefixEncoding {
+
+	/**
+	 * The length is written as a big-endian integer of four bytes.
+	 */
+	FIXED_INT,
+
+	/**
+	 * The length is written as an unsigned variable-length integer: seven bits per byte, least significant group
+	 * first, with the highest bit of each byte indicating that another byte follows. Lengths below 128 take a single
+	 * byte, lengths below 16384 two bytes and no length takes more than five bytes.
+	 */
+	VARINT,
+
+	/**
+	 * No length field precedes the records. This encoding is used if the declared record type of the output gate is
+	 * a {@link eu.stratosphere.nephele.types.FixedWidthRecord}, whose width the receiver knows from the target record.
+	 */
+	NONE
+}
@@ -19,11 +19,19 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.WritableByteChannel;
 
-import eu.stratosphere.nephele.io.DataOutputBuffer;
 import eu.stratosphere.nephele.io.IOReadableWritable;
+import eu.stratosphere.nephele.io.channels.serialization.MemorySegmentOutputView;
+import eu.stratosphere.nephele.io.channels.serialization.RecordSerializer;
+import eu.stratosphere.nephele.io.channels.serialization.RecordSerializers;
+import eu.stratosphere.nephele.types.FixedWidthRecord;
+import eu.stratosphere.nephele.types.Record;
 
 /**
- * A class for serializing a record to its binary representation.
+ * A class for serializing a record to its binary representation. Records with fields annotated for a generated
+ * {@link RecordSerializer} are written by that serializer, all other records by their own <code>write</code> method.
+ * The length prefix of the records is encoded according to the buffer's {@link LengthPrefixEncoding}. With
+ * {@link LengthPrefixEncoding#NONE}, all records must be {@link FixedWidthRecord} objects, which are written directly
+ * into a byte buffer, since the receiver knows their length from their type.
  * 
  * @author warneke
  * @param <T>
@@ -33,12 +41,38 @@ public class SerializationBuffer<T extends IOReadableWritable> {
 
 	private static final int SIZEOFINT = 4;
 
-	private DataOutputBuffer serializationBuffer = new DataOutputBuffer();
+	/**
+	 * The maximum number of bytes of a variable-length encoded length prefix.
+	 */
+	static final int MAX_VARINT_LENGTH = 5;
+
+	private final MemorySegmentOutputView serializationBuffer = new MemorySegmentOutputView();
+
+	private ByteBuffer lengthBuf = ByteBuffer.allocate(MAX_VARINT_LENGTH);
 
-	private ByteBuffer lengthBuf = ByteBuffer.allocate(SIZEOFINT);
+	/**
+	 * The encoding of the length prefixes.
+	 */
+	private LengthPrefixEncoding lengthPrefixEncoding = LengthPrefixEncoding.FIXED_INT;
 
 	private int bytesReadFromBuffer = 0;
 
+	/**
+	 * The class of the most recently serialized record.
+	 */
+	private Class<?> lastRecordType = null;
+
+	/**
+	 * The generated serializer for the class of the most recently serialized record or <code>null</code> if the
+	 * record writes itself.
+	 */
+	private RecordSerializer<Record> lastRecordSerializer = null;
+
+	/**
+	 * The buffer holding the most recently serialized {@link FixedWidthRecord}.
+	 */
+	private ByteBuffer fixedWidthBuffer = ByteBuffer.allocate(0);
+
 	/**
 	 * Translates an integer into an array of bytes.
 	 * 
@@ -58,6 +92,55 @@ public class SerializationBuffer<T extends IOReadableWritable> {
 		byteBuffer.limit(SIZEOFINT);
 	}
 
+	/**
+	 * Translates a non-negative integer into its variable-length representation.
+	 * 
+	 * @param val
+	 *        the integer to be translated
+	 * @param byteBuffer
+	 *        the byte buffer to store the representation of the integer
+	 */
+	private static void integerToVarint(int val, final ByteBuffer byteBuffer) {
+
+		byteBuffer.clear();
+		while ((val & ~0x7f) != 0) {
+			byteBuffer.put((byte) ((val & 0x7f) | 0x80));
+			val >>>= 7;
+		}
+		byteBuffer.put((byte) val);
+		byteBuffer.flip();
+	}
+
+	/**
+	 * Sets the encoding of the length prefixes of the records serialized from now on.
+	 * 
+	 * @param lengthPrefixEncoding
+	 *        the encoding of the length prefixes
+	 * @throws IllegalStateException
+	 *         thrown if the buffer still contains data from a previous serialization
+	 */
+	public void setLengthPrefixEncoding(final LengthPrefixEncoding lengthPrefixEncoding) {
+
+		if (lengthPrefixEncoding == null) {
+			throw new IllegalArgumentException("Argument lengthPrefixEncoding must not be null");
+		}
+
+		if (dataLeftFromPreviousSerialization()) {
+			throw new IllegalStateException("Cannot change the length prefix encoding while data is left");
+		}
+
+		this.lengthPrefixEncoding = lengthPrefixEncoding;
+	}
+
+	/**
+	 * Returns the encoding of the length prefixes.
+	 * 
+	 * @return the encoding of the length prefixes
+	 */
+	public LengthPrefixEncoding getLengthPrefixEncoding() {
+		return this.lengthPrefixEncoding;
+	}
+
 	/**
 	 * Return <code>true</code> if the internal serialization buffer still contains data.
 	 * In this case the method serialize must not be called. If the internal buffer is empty
@@ -67,7 +150,7 @@ public class SerializationBuffer<T extends IOReadableWritable> {
 	 *         empty
 	 */
 	public boolean dataLeftFromPreviousSerialization() {
-		return leftInSerializationBuffer() > 0;
+		return leftInSerializationBuffer() > 0 || this.fixedWidthBuffer.hasRemaining();
 	}
 
 	/**
@@ -82,6 +165,10 @@ public class SerializationBuffer<T extends IOReadableWritable> {
 	 */
 	public int read(final WritableByteChannel writableByteChannel) throws IOException {
 
+		if (this.fixedWidthBuffer.hasRemaining()) {
+			return writableByteChannel.write(this.fixedWidthBuffer);
+		}
+
 		int bytesReadFromLengthBuf = 0;
 
 		// Deal with length buffer first
@@ -130,13 +217,62 @@ public class SerializationBuffer<T extends IOReadableWritable> {
 				+ " bytes still left from previous call");
 		}
 
-		record.write(this.serializationBuffer); // serializationBuffer grows dynamically
+		if (this.lengthPrefixEncoding == LengthPrefixEncoding.NONE) {
+			if (!(record instanceof FixedWidthRecord)) {
+				throw new IOException("Cannot serialize " + record.getClass().getName()
+					+ " without length prefix, it is not a fixed-width record");
+			}
+			serializeFixedWidth((FixedWidthRecord) record);
+			return;
+		}
+
+		final Class<?> recordType = record.getClass();
+		if (recordType != this.lastRecordType) {
+			this.lastRecordSerializer = RecordSerializers.getSerializer(recordType);
+			this.lastRecordType = recordType;
+		}
+
+		// serializationBuffer grows dynamically
+		if (this.lastRecordSerializer != null) {
+			this.lastRecordSerializer.serialize((Record) record, this.serializationBuffer);
+		} else {
+			record.write(this.serializationBuffer);
+		}
 
 		// Now record is completely in serializationBuffer;
-		integerToByteBuffer(this.serializationBuffer.getLength(), this.lengthBuf);
+		if (this.lengthPrefixEncoding == LengthPrefixEncoding.VARINT) {
+			integerToVarint(this.serializationBuffer.getLength(), this.lengthBuf);
+		} else {
+			integerToByteBuffer(this.serializationBuffer.getLength(), this.lengthBuf);
+		}
+	}
+
+	/**
+	 * Writes the given fixed-width record to the fixed-width buffer.
+	 * 
+	 * @param record
+	 *        the record to write
+	 * @throws IOException
+	 *         thrown if the record does not write exactly as many bytes as it announces
+	 */
+	private void serializeFixedWidth(final FixedWidthRecord record) throws IOException {
+
+		final int width = record.getWidth();
+		if (this.fixedWidthBuffer.capacity() < width) {
+			this.fixedWidthBuffer = ByteBuffer.allocate(width);
+		}
+
+		this.fixedWidthBuffer.clear();
+		record.writeFixed(this.fixedWidthBuffer);
+		if (this.fixedWidthBuffer.position() != width) {
+			throw new IOException(record.getClass().getName() + " wrote " + this.fixedWidthBuffer.position()
+				+ " bytes instead of " + width);
+		}
+		this.fixedWidthBuffer.flip();
 	}
 
 	public void clear() {
+		this.fixedWidthBuffer.position(this.fixedWidthBuffer.limit());
 		this.bytesReadFromBuffer = 0;
 		this.lengthBuf.clear();
 		this.serializationBuffer.reset();
@@ -131,6 +131,9 @@ public abstract class AbstractByteBufferedInputChannel<T extends Record> extends
 				} else if (evt instanceof ChannelSuspendConfirmEvent) {
 					this.getInputGate().setInputChannelSuspended(getChannelIndex(), true);
 					return InputChannelResult.NONE;
+				} else if (evt instanceof LengthPrefixEncodingEvent) {
+					this.deserializer.setLengthPrefixEncoding(((LengthPrefixEncodingEvent) evt).getEncoding());
+					return InputChannelResult.NONE;
 				} else if (evt instanceof AbstractTaskEvent) {
 					this.currentEvent = (AbstractTaskEvent) evt;
 					return InputChannelResult.EVENT;
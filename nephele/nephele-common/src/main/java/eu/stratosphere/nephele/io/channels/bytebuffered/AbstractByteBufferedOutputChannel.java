@@ -19,6 +19,7 @@ import eu.stratosphere.nephele.event.task.AbstractEvent;
 import eu.stratosphere.nephele.event.task.AbstractTaskEvent;
 import eu.stratosphere.nephele.io.OutputGate;
 import eu.stratosphere.nephele.io.channels.*;
+import eu.stratosphere.nephele.types.FixedWidthRecord;
 import eu.stratosphere.nephele.types.Record;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -76,6 +77,12 @@ public abstract class AbstractByteBufferedOutputChannel<T extends Record> extend
 	
 	private volatile boolean receivedChannelSuspendEvent = false;
 
+	/**
+	 * Stores whether the encoding of the length prefixes has already been taken from the output gate and, if
+	 * necessary, announced to the connected input channel.
+	 */
+	private boolean lengthPrefixEncodingAnnounced = false;
+
 	/**
 	 * The output channel broker the channel should contact to request and release write buffers.
 	 */
@@ -87,6 +94,28 @@ public abstract class AbstractByteBufferedOutputChannel<T extends Record> extend
 	 */
 	private long amountOfDataTransmitted = 0L;
 
+	/**
+	 * Lock guarding the throttling state. The task thread waits on it outside the channel's monitor, so the flusher
+	 * threads are never blocked by a throttled channel. It is notified whenever the requested rate changes.
+	 */
+	private final Object throttleLock = new Object();
+
+	/**
+	 * The rate in bytes per second requested by the consumer through a {@link NetworkThrottleEvent}, a non-positive
+	 * value if the channel is not throttled.
+	 */
+	private long throttleRate = 0L;
+
+	/**
+	 * The time in milliseconds at which the current throttling expires.
+	 */
+	private long throttleExpiration = 0L;
+
+	/**
+	 * The earliest time in nanoseconds at which the next buffer may be released while the channel is throttled.
+	 */
+	private long nextReleaseTime = 0L;
+
 	private static final Log LOG = LogFactory.getLog(AbstractByteBufferedOutputChannel.class);
 
 	/**
@@ -179,11 +208,40 @@ public abstract class AbstractByteBufferedOutputChannel<T extends Record> extend
 					"Serialization buffer is expected to be empty!");
 		}
 
+		if (!this.lengthPrefixEncodingAnnounced) {
+			announceLengthPrefixEncoding();
+		}
+
 		this.serializationBuffer.serialize(record);
-		
+
+		awaitRelease();
 		flushSerializationBuffer(flushDeadline == 0);
 	}
 	
+	/**
+	 * Takes the encoding of the length prefixes from the output gate. If the gate's declared record type is a
+	 * {@link FixedWidthRecord}, the records are written without length prefix instead. Unless it is the default
+	 * encoding, the encoding is announced to the connected input channel ahead of the first record, so the receiver
+	 * does not depend on its own view of the record type.
+	 * 
+	 * @throws IOException
+	 *         thrown if an I/O error occurs while transferring the announcement
+	 * @throws InterruptedException
+	 *         thrown if the thread is interrupted while transferring the announcement
+	 */
+	private void announceLengthPrefixEncoding() throws IOException, InterruptedException {
+
+		final Class<T> recordType = getOutputGate().getType();
+		final LengthPrefixEncoding lengthPrefixEncoding = (recordType != null && FixedWidthRecord.class
+			.isAssignableFrom(recordType)) ? LengthPrefixEncoding.NONE : getOutputGate().getLengthPrefixEncoding();
+		if (lengthPrefixEncoding != null && lengthPrefixEncoding != LengthPrefixEncoding.FIXED_INT) {
+			transferEvent(new LengthPrefixEncodingEvent(lengthPrefixEncoding));
+			this.serializationBuffer.setLengthPrefixEncoding(lengthPrefixEncoding);
+		}
+
+		this.lengthPrefixEncodingAnnounced = true;
+	}
+
 	/**
 	 * Returns the filled buffer to the framework and triggers further processing. This method by itself
 	 * is not thread-safe.
@@ -195,6 +253,7 @@ public abstract class AbstractByteBufferedOutputChannel<T extends Record> extend
 	 */
 	private void flushBufferUnsynchronized() throws IOException, InterruptedException {
 		if (this.dataBuffer != null) {
+			accountRelease(this.dataBuffer.position());
 			this.outputChannelBroker.releaseWriteBuffer(dataBuffer);
 
 			// Notify the output gate to enable statistics collection by plugins
@@ -204,6 +263,56 @@ public abstract class AbstractByteBufferedOutputChannel<T extends Record> extend
 		}
 	}
 	
+	/**
+	 * Blocks the calling thread as long as necessary to keep the channel's output within the rate requested by the
+	 * consumer. A single wait never exceeds the remaining duration of the throttling and ends early if the rate
+	 * changes. This method must not be called while holding the channel's monitor.
+	 * 
+	 * @throws InterruptedException
+	 *         thrown if the thread is interrupted while waiting
+	 */
+	private void awaitRelease() throws InterruptedException {
+
+		synchronized (this.throttleLock) {
+
+			while (this.throttleRate > 0L) {
+
+				final long remainingThrottleTime = this.throttleExpiration - System.currentTimeMillis();
+				if (remainingThrottleTime <= 0L) {
+					this.throttleRate = 0L;
+					return;
+				}
+
+				final long delay = Math.min(this.nextReleaseTime - System.nanoTime(), remainingThrottleTime * 1000000L);
+				if (delay <= 0L) {
+					return;
+				}
+
+				this.throttleLock.wait(delay / 1000000L, (int) (delay % 1000000L));
+			}
+		}
+	}
+
+	/**
+	 * Accounts for the release of a buffer by postponing the earliest time of the next release according to the rate
+	 * requested by the consumer.
+	 * 
+	 * @param numberOfBytes
+	 *        the number of bytes which are about to be released
+	 */
+	private void accountRelease(final int numberOfBytes) {
+
+		synchronized (this.throttleLock) {
+
+			if (this.throttleRate <= 0L) {
+				return;
+			}
+
+			this.nextReleaseTime = Math.max(this.nextReleaseTime, System.nanoTime())
+				+ (numberOfBytes * 1000000000L) / this.throttleRate;
+		}
+	}
+
 	private synchronized void flushSerializationBuffer(boolean releaseNonEmptyDataBuffer) throws InterruptedException, IOException {
 		boolean freshBufferAllocated = false;
 		
@@ -263,6 +372,17 @@ public abstract class AbstractByteBufferedOutputChannel<T extends Record> extend
 		} else if (event instanceof ChannelUnsuspendEvent) {
 			getOutputGate().setOutputChannelSuspended(this.getChannelIndex(),
 					false);
+		} else if (event instanceof NetworkThrottleEvent) {
+			final NetworkThrottleEvent nte = (NetworkThrottleEvent) event;
+			synchronized (this.throttleLock) {
+				if (nte.isUnthrottleEvent()) {
+					this.throttleRate = 0L;
+				} else {
+					this.throttleExpiration = System.currentTimeMillis() + nte.getDuration();
+					this.throttleRate = nte.getTargetRate();
+				}
+				this.throttleLock.notifyAll();
+			}
 		} else {
 			LOG.error("Channel " + getID() + " received unknown event " + event);
 		}
@@ -282,6 +402,7 @@ public abstract class AbstractByteBufferedOutputChannel<T extends Record> extend
 	 */
 	@Override
 	public void flush() throws IOException, InterruptedException {
+		awaitRelease();
 		flushSerializationBuffer(true);
 	}
 
@@ -0,0 +1,94 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+
+package eu.stratosphere.nephele.io.channels.bytebuffered;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import eu.stratosphere.nephele.event.task.AbstractEvent;
+import eu.stratosphere.nephele.io.channels.LengthPrefixEncoding;
+
+/**
+ * This event is sent by a byte-buffered output channel ahead of its first record if the records are not preceded by
+ * the default length prefix encoding. Since events travel in order with the data, the receiving channel switches its
+ * deserializer before it reads the first record.
+ * 
+ * @author warneke
+ */
+public final class LengthPrefixEncodingEvent extends AbstractEvent {
+
+	/**
+	 * The encoding of the length prefixes of the following records.
+	 */
+	private LengthPrefixEncoding encoding;
+
+	/**
+	 * Constructs a new length prefix encoding event.
+	 * 
+	 * @param encoding
+	 *        the encoding of the length prefixes of the following records
+	 */
+	public LengthPrefixEncodingEvent(final LengthPrefixEncoding encoding) {
+
+		if (encoding == null) {
+			throw new IllegalArgumentException("Argument encoding must not be null");
+		}
+
+		this.encoding = encoding;
+	}
+
+	/**
+	 * Default constructor for serialization/deserialization.
+	 */
+	public LengthPrefixEncodingEvent() {
+		this.encoding = LengthPrefixEncoding.FIXED_INT;
+	}
+
+	/**
+	 * Returns the encoding of the length prefixes of the following records.
+	 * 
+	 * @return the encoding of the length prefixes of the following records
+	 */
+	public LengthPrefixEncoding getEncoding() {
+		return this.encoding;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void write(final DataOutput out) throws IOException {
+
+		out.writeByte(this.encoding.ordinal());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void read(final DataInput in) throws IOException {
+
+		final int ordinal = in.readUnsignedByte();
+		final LengthPrefixEncoding[] encodings = LengthPrefixEncoding.values();
+		if (ordinal >= encodings.length) {
+			throw new IOException("Unknown length prefix encoding " + ordinal);
+		}
+
+		this.encoding = encodings[ordinal];
+	}
+}
@@ -23,8 +23,9 @@ import eu.stratosphere.nephele.event.task.AbstractEvent;
 
 /**
  * A network throttle event can be used by a consuming task to request the connected producing task to send data at a
- * lower rate. In order to achieve this behavior Nephele will read the duration value stored inside this event and be
- * suspend the producing task accordingly.
+ * lower rate. The producing output channel paces the release of its buffers to the target rate stored inside this
+ * event. The throttling ends when an event with a non-positive target rate arrives or when the duration of the
+ * throttling has passed without the event being renewed, so a lost unthrottle request cannot stall the producer.
  * <p>
  * This class is not thread-safe
  * 
@@ -33,24 +34,61 @@ import eu.stratosphere.nephele.event.task.AbstractEvent;
 public final class NetworkThrottleEvent extends AbstractEvent {
 
 	/**
-	 * The duration for which the producing task will be suspended in milliseconds.
+	 * The rate in bytes per second at which the producing task may send data, a non-positive value lifts the
+	 * throttling.
+	 */
+	private long targetRate;
+
+	/**
+	 * The duration for which the throttling will be in effect in milliseconds.
 	 */
 	private int duration;
 
 	/**
 	 * Constructs a new network throttle event.
 	 * 
+	 * @param targetRate
+	 *        the rate in bytes per second at which the producing task may send data, a non-positive value lifts the
+	 *        throttling
 	 * @param duration
-	 *        the duration for which the producing task will be suspended in milliseconds
+	 *        the duration for which the throttling will be in effect in milliseconds
 	 */
-	public NetworkThrottleEvent(final int duration) {
+	public NetworkThrottleEvent(final long targetRate, final int duration) {
+		this.targetRate = targetRate;
 		this.duration = duration;
 	}
 
 	/**
-	 * Returns the duration for which the producing task will be suspended in milliseconds.
+	 * Constructs a new network throttle event which lifts a previous throttling.
+	 * 
+	 * @return a new network throttle event which lifts a previous throttling
+	 */
+	public static NetworkThrottleEvent createUnthrottleEvent() {
+		return new NetworkThrottleEvent(0L, 0);
+	}
+
+	/**
+	 * Returns the rate in bytes per second at which the producing task may send data.
+	 * 
+	 * @return the rate in bytes per second at which the producing task may send data
+	 */
+	public long getTargetRate() {
+		return this.targetRate;
+	}
+
+	/**
+	 * Checks whether this event lifts a previous throttling.
+	 * 
+	 * @return <code>true</code> if this event lifts a previous throttling, <code>false</code> otherwise
+	 */
+	public boolean isUnthrottleEvent() {
+		return this.targetRate <= 0L;
+	}
+
+	/**
+	 * Returns the duration for which the throttling will be in effect in milliseconds.
 	 * 
-	 * @return the duration for which the producing task will be suspended in milliseconds
+	 * @return the duration for which the throttling will be in effect in milliseconds
 	 */
 	public int getDuration() {
 		return this.duration;
@@ -60,6 +98,7 @@ public final class NetworkThrottleEvent extends AbstractEvent {
 	 * Default constructor for serialization/deserialization.
 	 */
 	public NetworkThrottleEvent() {
+		this.targetRate = 0L;
 		this.duration = 0;
 	}
 
@@ -69,6 +108,7 @@ public final class NetworkThrottleEvent extends AbstractEvent {
 	@Override
 	public void write(final DataOutput out) throws IOException {
 
+		out.writeLong(this.targetRate);
 		out.writeInt(this.duration);
 	}
 
@@ -78,6 +118,7 @@ public final class NetworkThrottleEvent extends AbstractEvent {
 	@Override
 	public void read(final DataInput in) throws IOException {
 
+		this.targetRate = in.readLong();
 		this.duration = in.readInt();
 	}
 
@@ -0,0 +1,385 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.io.channels.serialization;
+
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.nio.ByteBuffer;
+
+import eu.stratosphere.nephele.services.memorymanager.DataInputView;
+import eu.stratosphere.nephele.services.memorymanager.DataOutputView;
+import eu.stratosphere.nephele.services.memorymanager.MemorySegment;
+
+/**
+ * A growable output view which writes straight into a heap-backed {@link MemorySegment}. Unlike a
+ * {@link java.io.DataOutputStream}, the view is final and writes multi-byte values with a single memory access, so
+ * calls from generated serializers and hand-written records alike can be inlined by the JIT compiler. Multi-byte
+ * values are written in big endian byte order, so the binary representation is identical to the one produced by
+ * {@link java.io.DataOutputStream}.
+ * <p>
+ * This class is not thread-safe.
+ */
+public final class MemorySegmentOutputView implements DataOutputView {
+
+	/**
+	 * The default initial size of the view in bytes.
+	 */
+	private static final int DEFAULT_INITIAL_SIZE = 1024;
+
+	/**
+	 * The memory backing the segment.
+	 */
+	private byte[] memory;
+
+	/**
+	 * The memory segment the data is written to.
+	 */
+	private MemorySegment segment;
+
+	/**
+	 * The byte buffer wrapping the memory of the segment, used to read the written data.
+	 */
+	private ByteBuffer wrapper;
+
+	/**
+	 * The position at which the next byte is written.
+	 */
+	private int position = 0;
+
+	/**
+	 * Constructs a new output view with the default initial size.
+	 */
+	public MemorySegmentOutputView() {
+		this(DEFAULT_INITIAL_SIZE);
+	}
+
+	/**
+	 * Constructs a new output view.
+	 * 
+	 * @param initialSize
+	 *        the initial size of the view in bytes
+	 */
+	public MemorySegmentOutputView(final int initialSize) {
+
+		this.memory = new byte[Math.max(1, initialSize)];
+		this.segment = new MemorySegment(this.memory);
+		this.wrapper = ByteBuffer.wrap(this.memory);
+	}
+
+	/**
+	 * Returns a byte buffer containing the data written so far. The position of the buffer is advanced by consumers
+	 * of the data and is only reset by {@link #reset()}.
+	 * 
+	 * @return a byte buffer containing the data written so far
+	 */
+	public ByteBuffer getData() {
+
+		this.wrapper.limit(this.position);
+		return this.wrapper;
+	}
+
+	/**
+	 * Returns the number of bytes written so far.
+	 * 
+	 * @return the number of bytes written so far
+	 */
+	public int getLength() {
+
+		return this.position;
+	}
+
+	/**
+	 * Discards the written data.
+	 */
+	public void reset() {
+
+		this.position = 0;
+		this.wrapper.clear();
+	}
+
+	/**
+	 * Writes a string in the format of {@link eu.stratosphere.nephele.types.StringRecord#writeString(java.io.DataOutput, String)},
+	 * encoding the characters directly into the memory of the view.
+	 * 
+	 * @param s
+	 *        the string to write, possibly <code>null</code>
+	 */
+	public void writeString(final String s) {
+
+		if (s == null) {
+			writeBoolean(false);
+			return;
+		}
+
+		final int numberOfChars = s.length();
+		ensureCapacity(5 + 3 * numberOfChars);
+		this.segment.putBoolean(this.position, true);
+		final int lengthPosition = this.position + 1;
+		final byte[] memory = this.memory;
+		int pos = lengthPosition + 4;
+
+		for (int i = 0; i < numberOfChars; ++i) {
+			final char c = s.charAt(i);
+			if (c < 0x80) {
+				memory[pos++] = (byte) c;
+			} else if (c < 0x800) {
+				memory[pos++] = (byte) (0xc0 | (c >> 6));
+				memory[pos++] = (byte) (0x80 | (c & 0x3f));
+			} else if (Character.isHighSurrogate(c) && i + 1 < numberOfChars
+				&& Character.isLowSurrogate(s.charAt(i + 1))) {
+				final int codePoint = Character.toCodePoint(c, s.charAt(++i));
+				memory[pos++] = (byte) (0xf0 | (codePoint >> 18));
+				memory[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+				memory[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+				memory[pos++] = (byte) (0x80 | (codePoint & 0x3f));
+			} else if (Character.isSurrogate(c)) {
+				// Unpaired surrogates are replaced like the charset encoder of the string record does
+				memory[pos++] = (byte) '?';
+			} else {
+				memory[pos++] = (byte) (0xe0 | (c >> 12));
+				memory[pos++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+				memory[pos++] = (byte) (0x80 | (c & 0x3f));
+			}
+		}
+
+		this.segment.putIntBigEndian(lengthPosition, pos - lengthPosition - 4);
+		this.position = pos;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void write(final int b) {
+
+		ensureCapacity(1);
+		this.segment.put(this.position++, (byte) b);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void write(final byte[] b) {
+
+		write(b, 0, b.length);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void write(final byte[] b, final int off, final int len) {
+
+		ensureCapacity(len);
+		this.segment.put(this.position, b, off, len);
+		this.position += len;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeBoolean(final boolean v) {
+
+		ensureCapacity(1);
+		this.segment.putBoolean(this.position++, v);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeByte(final int v) {
+
+		ensureCapacity(1);
+		this.segment.put(this.position++, (byte) v);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeShort(final int v) {
+
+		ensureCapacity(2);
+		this.segment.putShort(this.position, (short) v);
+		this.position += 2;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeChar(final int v) {
+
+		ensureCapacity(2);
+		this.segment.putChar(this.position, (char) v);
+		this.position += 2;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeInt(final int v) {
+
+		ensureCapacity(4);
+		this.segment.putIntBigEndian(this.position, v);
+		this.position += 4;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeLong(final long v) {
+
+		ensureCapacity(8);
+		this.segment.putLongBigEndian(this.position, v);
+		this.position += 8;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeFloat(final float v) {
+
+		writeInt(Float.floatToIntBits(v));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeDouble(final double v) {
+
+		writeLong(Double.doubleToLongBits(v));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeBytes(final String s) {
+
+		final int len = s.length();
+		ensureCapacity(len);
+		for (int i = 0; i < len; ++i) {
+			this.segment.put(this.position++, (byte) s.charAt(i));
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeChars(final String s) {
+
+		final int len = s.length();
+		ensureCapacity(2 * len);
+		for (int i = 0; i < len; ++i) {
+			this.segment.putChar(this.position, s.charAt(i));
+			this.position += 2;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeUTF(final String str) throws IOException {
+
+		final int strlen = str.length();
+		int utflen = 0;
+		for (int i = 0; i < strlen; ++i) {
+			final char c = str.charAt(i);
+			if (c >= 0x0001 && c <= 0x007f) {
+				++utflen;
+			} else if (c > 0x07ff) {
+				utflen += 3;
+			} else {
+				utflen += 2;
+			}
+		}
+
+		if (utflen > 65535) {
+			throw new UTFDataFormatException("encoded string too long: " + utflen + " bytes");
+		}
+
+		writeShort(utflen);
+		ensureCapacity(utflen);
+		for (int i = 0; i < strlen; ++i) {
+			final char c = str.charAt(i);
+			if (c >= 0x0001 && c <= 0x007f) {
+				this.segment.put(this.position++, (byte) c);
+			} else if (c > 0x07ff) {
+				this.segment.put(this.position++, (byte) (0xe0 | ((c >> 12) & 0x0f)));
+				this.segment.put(this.position++, (byte) (0x80 | ((c >> 6) & 0x3f)));
+				this.segment.put(this.position++, (byte) (0x80 | (c & 0x3f)));
+			} else {
+				this.segment.put(this.position++, (byte) (0xc0 | ((c >> 6) & 0x1f)));
+				this.segment.put(this.position++, (byte) (0x80 | (c & 0x3f)));
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void skipBytesToWrite(final int numBytes) {
+
+		ensureCapacity(numBytes);
+		this.position += numBytes;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void write(final DataInputView source, final int numBytes) throws IOException {
+
+		ensureCapacity(numBytes);
+		source.readFully(this.memory, this.position, numBytes);
+		this.position += numBytes;
+	}
+
+	/**
+	 * Makes sure the given number of bytes can be written at the current position, growing the underlying memory if
+	 * necessary.
+	 * 
+	 * @param numBytes
+	 *        the number of bytes which are about to be written
+	 */
+	private void ensureCapacity(final int numBytes) {
+
+		final int required = this.position + numBytes;
+		if (required <= this.memory.length) {
+			return;
+		}
+
+		final byte[] newMemory = new byte[Math.max(this.memory.length << 1, required)];
+		System.arraycopy(this.memory, 0, newMemory, 0, this.position);
+
+		final int readPosition = Math.min(this.wrapper.position(), this.position);
+		this.memory = newMemory;
+		this.segment = new MemorySegment(newMemory);
+		this.wrapper = ByteBuffer.wrap(newMemory);
+		this.wrapper.position(readPosition);
+	}
+}
@@ -0,0 +1,118 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.io.channels.serialization;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import eu.stratosphere.nephele.types.Record;
+
+/**
+ * A record serializer transfers the fields of a record which are annotated with {@link SerializedField} without
+ * going through the record's own <code>write</code> and <code>read</code> methods. Implementations of this class are
+ * generated at runtime by {@link RecordSerializers}, one for each record class, and access the fields of the record
+ * directly.
+ * <p>
+ * Record serializers are stateless and therefore thread-safe.
+ * 
+ * @param <T>
+ *        the type of record this serializer works with
+ */
+public abstract class RecordSerializer<T extends Record> {
+
+	/**
+	 * The charset of the strings written by {@link MemorySegmentOutputView#writeString(String)}.
+	 */
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/**
+	 * The serializers for the nested record types of the record, indexed in the order in which the generated code
+	 * refers to them. An entry is <code>null</code> if the nested record type has no annotated fields and must be
+	 * transferred through its own <code>write</code> and <code>read</code> methods.
+	 */
+	protected RecordSerializer<?>[] nestedSerializers;
+
+	/**
+	 * Writes the annotated fields of the given record to the given output view.
+	 * 
+	 * @param record
+	 *        the record to serialize
+	 * @param out
+	 *        the output view to write the record to
+	 * @throws IOException
+	 *         thrown if a nested record cannot be written
+	 */
+	public abstract void serialize(T record, MemorySegmentOutputView out) throws IOException;
+
+	/**
+	 * Reads the annotated fields of the given record from the given input.
+	 * 
+	 * @param record
+	 *        the record to read the fields into
+	 * @param in
+	 *        the input to read the record from
+	 * @throws IOException
+	 *         thrown if an error occurs while reading the record
+	 */
+	public abstract void deserialize(T record, DataInput in) throws IOException;
+
+	/**
+	 * Creates a new instance of the record type without using reflection.
+	 * 
+	 * @return a new instance of the record type
+	 */
+	public abstract T createInstance();
+
+	/**
+	 * Reads a string written by {@link MemorySegmentOutputView#writeString(String)}. Unlike
+	 * {@link eu.stratosphere.nephele.types.StringRecord#readString(DataInput)}, this method decodes the string without
+	 * an intermediate byte buffer and charset decoder.
+	 * 
+	 * @param in
+	 *        the input to read the string from
+	 * @return the string, possibly <code>null</code>
+	 * @throws IOException
+	 *         thrown if an error occurs while reading the string
+	 */
+	protected static String readString(final DataInput in) throws IOException {
+
+		if (!in.readBoolean()) {
+			return null;
+		}
+
+		final int length = in.readInt();
+		if (length < 0) {
+			throw new IOException("Length of string is " + length);
+		}
+
+		final byte[] bytes = new byte[length];
+		in.readFully(bytes, 0, length);
+
+		return new String(bytes, 0, length, UTF8);
+	}
+
+	/**
+	 * Sets the serializers for the nested record types of the record.
+	 * 
+	 * @param nestedSerializers
+	 *        the serializers for the nested record types of the record
+	 */
+	final void setNestedSerializers(final RecordSerializer<?>[] nestedSerializers) {
+
+		this.nestedSerializers = nestedSerializers;
+	}
+}
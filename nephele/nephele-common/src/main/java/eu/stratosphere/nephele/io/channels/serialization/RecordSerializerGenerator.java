@@ -0,0 +1,487 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.io.channels.serialization;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import javassist.CannotCompileException;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtField;
+import javassist.CtNewConstructor;
+import javassist.CtNewMethod;
+import javassist.LoaderClassPath;
+import javassist.NotFoundException;
+
+import eu.stratosphere.nephele.types.AbstractTaggableRecord;
+import eu.stratosphere.nephele.types.Record;
+
+/**
+ * The record serializer generator creates the bytecode of a {@link RecordSerializer} for a record class with
+ * fields annotated with {@link SerializedField}. The generated class is defined in the package and the class loader
+ * of the record class, so it can access non-public fields directly.
+ * <p>
+ * The binary representation of the record is the concatenation of the annotated fields in the order of their
+ * positions, preceded by the tag if the record is an {@link AbstractTaggableRecord}:
+ * <ul>
+ * <li>primitive values are written as by {@link java.io.DataOutput}</li>
+ * <li>strings are written as by {@link MemorySegmentOutputView#writeString(String)}</li>
+ * <li>nested records are written as a boolean indicating whether the record is present, followed by the record</li>
+ * <li>arrays are written as their length, or -1 for <code>null</code>, followed by their elements</li>
+ * </ul>
+ * <p>
+ * This class is not thread-safe.
+ */
+final class RecordSerializerGenerator {
+
+	/**
+	 * The name of the static field of a generated class which holds its only instance.
+	 */
+	private static final String INSTANCE_FIELD_NAME = "INSTANCE";
+
+	/**
+	 * The fully qualified name of the record serializer class used in the generated code.
+	 */
+	private static final String RECORD_SERIALIZER = RecordSerializer.class.getName();
+
+	/**
+	 * Counter to create unique names for the generated classes, guarded by the lock of {@link RecordSerializers}.
+	 */
+	private static int generatedClasses = 0;
+
+	/**
+	 * The record class to generate the serializer for.
+	 */
+	private final Class<?> type;
+
+	/**
+	 * The annotated fields of the record class, sorted by their positions.
+	 */
+	private final List<Field> fields;
+
+	/**
+	 * The nested record types, indexed as in {@link RecordSerializer#nestedSerializers}.
+	 */
+	private final List<Class<?>> nestedTypes = new ArrayList<Class<?>>();
+
+	/**
+	 * Constructs a new record serializer generator.
+	 * 
+	 * @param type
+	 *        the record class to generate the serializer for
+	 * @param fields
+	 *        the annotated fields of the record class as returned by {@link #collectFields(Class)}
+	 */
+	RecordSerializerGenerator(final Class<?> type, final List<Field> fields) {
+
+		this.type = type;
+		this.fields = fields;
+	}
+
+	/**
+	 * Collects and validates the fields of the given record class which are annotated with {@link SerializedField}.
+	 * 
+	 * @param type
+	 *        the record class
+	 * @return the annotated fields sorted by their positions, possibly empty
+	 * @throws IllegalArgumentException
+	 *         thrown if an annotated field cannot be handled by a generated serializer
+	 */
+	static List<Field> collectFields(final Class<?> type) {
+
+		final List<Field> fields = new ArrayList<Field>();
+		for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+			for (final Field field : c.getDeclaredFields()) {
+				if (field.isAnnotationPresent(SerializedField.class)) {
+					checkField(type, field);
+					fields.add(field);
+				}
+			}
+		}
+
+		if (fields.isEmpty()) {
+			return fields;
+		}
+
+		checkInstantiable(type, type);
+
+		Collections.sort(fields, new Comparator<Field>() {
+
+			@Override
+			public int compare(final Field f1, final Field f2) {
+
+				final int p1 = f1.getAnnotation(SerializedField.class).value();
+				final int p2 = f2.getAnnotation(SerializedField.class).value();
+
+				return (p1 < p2) ? -1 : ((p1 == p2) ? 0 : 1);
+			}
+		});
+
+		for (int i = 1; i < fields.size(); ++i) {
+			if (fields.get(i - 1).getAnnotation(SerializedField.class).value() == fields.get(i)
+				.getAnnotation(SerializedField.class).value()) {
+				throw new IllegalArgumentException("Fields " + fields.get(i - 1).getName() + " and "
+					+ fields.get(i).getName() + " of " + type.getName() + " share the same position");
+			}
+		}
+
+		return fields;
+	}
+
+	/**
+	 * Generates the serializer class, defines it in the class loader of the record class and returns its instance.
+	 * 
+	 * @return the instance of the generated serializer class
+	 * @throws IllegalStateException
+	 *         thrown if the serializer class cannot be compiled or defined
+	 */
+	@SuppressWarnings("unchecked")
+	RecordSerializer<Record> generate() {
+
+		final String typeName = this.type.getName();
+		final StringBuilder serialize = new StringBuilder();
+		final StringBuilder deserialize = new StringBuilder();
+
+		serialize.append("public void serialize(").append(Record.class.getName()).append(" record, ")
+			.append(MemorySegmentOutputView.class.getName()).append(" out) throws java.io.IOException {\n");
+		serialize.append(typeName).append(" r = (").append(typeName).append(") record;\n");
+		deserialize.append("public void deserialize(").append(Record.class.getName())
+			.append(" record, java.io.DataInput in) throws java.io.IOException {\n");
+		deserialize.append(typeName).append(" r = (").append(typeName).append(") record;\n");
+
+		if (AbstractTaggableRecord.class.isAssignableFrom(this.type)) {
+			serialize.append("r.writeTag(out);\n");
+			deserialize.append("r.readTag(in);\n");
+		}
+
+		for (int i = 0; i < this.fields.size(); ++i) {
+			final Field field = this.fields.get(i);
+			final String lvalue = "r." + field.getName();
+			if (field.getType().isArray()) {
+				appendArrayWrite(serialize, lvalue, field.getType().getComponentType(), i);
+				appendArrayRead(deserialize, lvalue, field.getType().getComponentType(), i);
+			} else {
+				appendWrite(serialize, lvalue, field.getType());
+				appendRead(deserialize, lvalue, field.getType());
+			}
+		}
+
+		serialize.append("}");
+		deserialize.append("}");
+
+		final String createInstance = "public " + Record.class.getName() + " createInstance() { return new "
+			+ typeName + "(); }";
+
+		final ClassPool pool = new ClassPool(true);
+		pool.insertClassPath(new LoaderClassPath(RecordSerializer.class.getClassLoader()));
+		pool.insertClassPath(new LoaderClassPath(this.type.getClassLoader()));
+
+		final String serializerName = typeName + "$$RecordSerializer" + (generatedClasses++);
+		final CtClass ctClass = pool.makeClass(serializerName);
+		try {
+			ctClass.setSuperclass(pool.get(RECORD_SERIALIZER));
+			ctClass.addField(CtField.make("public static " + RECORD_SERIALIZER + " "
+				+ INSTANCE_FIELD_NAME + ";", ctClass));
+			ctClass.addConstructor(CtNewConstructor.defaultConstructor(ctClass));
+			ctClass.addMethod(CtNewMethod.make(serialize.toString(), ctClass));
+			ctClass.addMethod(CtNewMethod.make(deserialize.toString(), ctClass));
+			ctClass.addMethod(CtNewMethod.make(createInstance, ctClass));
+
+			final Class<?> serializerClass = defineClass(ctClass);
+			final RecordSerializer<Record> serializer = (RecordSerializer<Record>) serializerClass.newInstance();
+
+			// The class holds on to its instance, so the instance lives exactly as long as the class loader
+			serializerClass.getField(INSTANCE_FIELD_NAME).set(null, serializer);
+
+			return serializer;
+
+		} catch (CannotCompileException e) {
+			throw new IllegalStateException("Cannot compile record serializer for " + typeName, e);
+		} catch (NotFoundException e) {
+			throw new IllegalStateException("Cannot compile record serializer for " + typeName, e);
+		} catch (Exception e) {
+			throw new IllegalStateException("Cannot instantiate record serializer for " + typeName, e);
+		} finally {
+			ctClass.detach();
+		}
+	}
+
+	/**
+	 * Defines the compiled serializer class in the class loader and package of the record class, so it can access
+	 * package-private fields. On Java 9 and later, defining a class in a foreign class loader through reflection is no
+	 * longer permitted, so the class is defined through a private lookup in the record class instead.
+	 * 
+	 * @param ctClass
+	 *        the compiled serializer class
+	 * @return the defined serializer class
+	 * @throws Exception
+	 *         thrown if the class cannot be defined
+	 */
+	private Class<?> defineClass(final CtClass ctClass) throws Exception {
+
+		final Method privateLookupIn;
+		try {
+			privateLookupIn = Class.forName("java.lang.invoke.MethodHandles").getMethod("privateLookupIn",
+				Class.class, Class.forName("java.lang.invoke.MethodHandles$Lookup"));
+		} catch (ClassNotFoundException e) {
+			return ctClass.toClass(this.type.getClassLoader(), this.type.getProtectionDomain());
+		} catch (NoSuchMethodException e) {
+			return ctClass.toClass(this.type.getClassLoader(), this.type.getProtectionDomain());
+		}
+
+		final Object lookup = privateLookupIn.invoke(null, this.type,
+			privateLookupIn.getDeclaringClass().getMethod("lookup").invoke(null));
+
+		return (Class<?>) lookup.getClass().getMethod("defineClass", byte[].class).invoke(lookup,
+			ctClass.toBytecode());
+	}
+
+	/**
+	 * Returns the nested record types referred to by the generated serializer. The serializers for these types must
+	 * be passed to {@link RecordSerializer#setNestedSerializers(RecordSerializer[])} in the same order.
+	 * 
+	 * @return the nested record types referred to by the generated serializer
+	 */
+	List<Class<?>> getNestedTypes() {
+
+		return this.nestedTypes;
+	}
+
+	private void appendWrite(final StringBuilder sb, final String value, final Class<?> valueType) {
+
+		if (valueType == boolean.class) {
+			sb.append("out.writeBoolean(").append(value).append(");\n");
+		} else if (valueType == byte.class) {
+			sb.append("out.writeByte((int) ").append(value).append(");\n");
+		} else if (valueType == short.class) {
+			sb.append("out.writeShort((int) ").append(value).append(");\n");
+		} else if (valueType == char.class) {
+			sb.append("out.writeChar((int) ").append(value).append(");\n");
+		} else if (valueType == int.class) {
+			sb.append("out.writeInt(").append(value).append(");\n");
+		} else if (valueType == long.class) {
+			sb.append("out.writeLong(").append(value).append(");\n");
+		} else if (valueType == float.class) {
+			sb.append("out.writeFloat(").append(value).append(");\n");
+		} else if (valueType == double.class) {
+			sb.append("out.writeDouble(").append(value).append(");\n");
+		} else if (valueType == String.class) {
+			sb.append("out.writeString(").append(value).append(");\n");
+		} else {
+			final String nested = "this.nestedSerializers[" + getNestedIndex(valueType) + "]";
+			sb.append("if (").append(value).append(" == null) { out.writeBoolean(false); } else {\n");
+			sb.append("out.writeBoolean(true);\n");
+			sb.append("if (").append(nested).append(" != null) { ").append(nested).append(".serialize(")
+				.append(value).append(", out); } else { ").append(value).append(".write(out); }\n");
+			sb.append("}\n");
+		}
+	}
+
+	private void appendRead(final StringBuilder sb, final String lvalue, final Class<?> valueType) {
+
+		if (valueType == boolean.class) {
+			sb.append(lvalue).append(" = in.readBoolean();\n");
+		} else if (valueType == byte.class) {
+			sb.append(lvalue).append(" = in.readByte();\n");
+		} else if (valueType == short.class) {
+			sb.append(lvalue).append(" = in.readShort();\n");
+		} else if (valueType == char.class) {
+			sb.append(lvalue).append(" = in.readChar();\n");
+		} else if (valueType == int.class) {
+			sb.append(lvalue).append(" = in.readInt();\n");
+		} else if (valueType == long.class) {
+			sb.append(lvalue).append(" = in.readLong();\n");
+		} else if (valueType == float.class) {
+			sb.append(lvalue).append(" = in.readFloat();\n");
+		} else if (valueType == double.class) {
+			sb.append(lvalue).append(" = in.readDouble();\n");
+		} else if (valueType == String.class) {
+			sb.append(lvalue).append(" = ").append(RECORD_SERIALIZER).append(".readString(in);\n");
+		} else {
+			final String nested = "this.nestedSerializers[" + getNestedIndex(valueType) + "]";
+			sb.append("if (in.readBoolean()) {\n");
+			sb.append("if (").append(lvalue).append(" == null) { ").append(lvalue).append(" = new ")
+				.append(valueType.getName()).append("(); }\n");
+			sb.append("if (").append(nested).append(" != null) { ").append(nested).append(".deserialize(")
+				.append(lvalue).append(", in); } else { ").append(lvalue).append(".read(in); }\n");
+			sb.append("} else { ").append(lvalue).append(" = null; }\n");
+		}
+	}
+
+	private void appendArrayWrite(final StringBuilder sb, final String value, final Class<?> componentType,
+			final int fieldIndex) {
+
+		final String array = "a" + fieldIndex;
+		final String index = "i" + fieldIndex;
+
+		sb.append("{\n").append(componentType.getName()).append("[] ").append(array).append(" = ").append(value)
+			.append(";\n");
+		sb.append("if (").append(array).append(" == null) { out.writeInt(-1); } else {\n");
+		sb.append("out.writeInt(").append(array).append(".length);\n");
+		if (componentType == byte.class) {
+			sb.append("out.write(").append(array).append(", 0, ").append(array).append(".length);\n");
+		} else {
+			sb.append("for (int ").append(index).append(" = 0; ").append(index).append(" < ").append(array)
+				.append(".length; ").append(index).append("++) {\n");
+			appendWrite(sb, array + "[" + index + "]", componentType);
+			sb.append("}\n");
+		}
+		sb.append("}\n}\n");
+	}
+
+	private void appendArrayRead(final StringBuilder sb, final String lvalue, final Class<?> componentType,
+			final int fieldIndex) {
+
+		final String length = "n" + fieldIndex;
+		final String index = "i" + fieldIndex;
+
+		sb.append("{\nint ").append(length).append(" = in.readInt();\n");
+		sb.append("if (").append(length).append(" < 0) { ").append(lvalue).append(" = null; } else {\n");
+		sb.append("if (").append(lvalue).append(" == null || ").append(lvalue).append(".length != ")
+			.append(length).append(") { ").append(lvalue).append(" = new ").append(componentType.getName())
+			.append("[").append(length).append("]; }\n");
+		if (componentType == byte.class) {
+			sb.append("in.readFully(").append(lvalue).append(", 0, ").append(length).append(");\n");
+		} else {
+			sb.append("for (int ").append(index).append(" = 0; ").append(index).append(" < ").append(length)
+				.append("; ").append(index).append("++) {\n");
+			appendRead(sb, lvalue + "[" + index + "]", componentType);
+			sb.append("}\n");
+		}
+		sb.append("}\n}\n");
+	}
+
+	private int getNestedIndex(final Class<?> nestedType) {
+
+		int index = this.nestedTypes.indexOf(nestedType);
+		if (index < 0) {
+			index = this.nestedTypes.size();
+			this.nestedTypes.add(nestedType);
+		}
+
+		return index;
+	}
+
+	/**
+	 * Checks whether the given annotated field can be accessed and transferred by the generated serializer.
+	 * 
+	 * @param type
+	 *        the record class the serializer is generated for
+	 * @param field
+	 *        the annotated field
+	 * @throws IllegalArgumentException
+	 *         thrown if the field cannot be handled by a generated serializer
+	 */
+	private static void checkField(final Class<?> type, final Field field) {
+
+		final int modifiers = field.getModifiers();
+		if (Modifier.isStatic(modifiers) || Modifier.isFinal(modifiers)) {
+			throw new IllegalArgumentException("Annotated field " + field.getName() + " of " + type.getName()
+				+ " must neither be static nor final");
+		}
+
+		if (!Modifier.isPublic(modifiers)
+			&& (Modifier.isPrivate(modifiers) || !isSamePackage(field.getDeclaringClass(), type))) {
+			throw new IllegalArgumentException("Annotated field " + field.getName() + " of " + type.getName()
+				+ " is not accessible from the package of the record");
+		}
+
+		Class<?> fieldType = field.getType();
+		if (fieldType.isArray()) {
+			fieldType = fieldType.getComponentType();
+			if (fieldType.isArray()) {
+				throw new IllegalArgumentException("Annotated field " + field.getName() + " of " + type.getName()
+					+ " is a multi-dimensional array");
+			}
+		}
+
+		if (fieldType.isPrimitive() || fieldType == String.class) {
+			return;
+		}
+
+		if (!Record.class.isAssignableFrom(fieldType)) {
+			throw new IllegalArgumentException("Annotated field " + field.getName() + " of " + type.getName()
+				+ " has unsupported type " + fieldType.getName());
+		}
+
+		checkInstantiable(type, fieldType);
+	}
+
+	/**
+	 * Checks whether the generated serializer can instantiate the given record type.
+	 * 
+	 * @param type
+	 *        the record class the serializer is generated for
+	 * @param recordType
+	 *        the record type to instantiate
+	 * @throws IllegalArgumentException
+	 *         thrown if the generated serializer cannot instantiate the given record type
+	 */
+	private static void checkInstantiable(final Class<?> type, final Class<?> recordType) {
+
+		if (recordType.isInterface() || Modifier.isAbstract(recordType.getModifiers())) {
+			throw new IllegalArgumentException("Record type " + recordType.getName() + " used by " + type.getName()
+				+ " is not a concrete class");
+		}
+
+		if (!isAccessible(recordType.getModifiers(), recordType, type)) {
+			throw new IllegalArgumentException("Record type " + recordType.getName() + " is not accessible from "
+				+ type.getName());
+		}
+
+		final Constructor<?> constructor;
+		try {
+			constructor = recordType.getDeclaredConstructor();
+		} catch (NoSuchMethodException e) {
+			throw new IllegalArgumentException("Record type " + recordType.getName() + " used by " + type.getName()
+				+ " has no constructor without arguments");
+		}
+
+		if (!isAccessible(constructor.getModifiers(), recordType, type)) {
+			throw new IllegalArgumentException("The constructor of record type " + recordType.getName()
+				+ " is not accessible from " + type.getName());
+		}
+	}
+
+	private static boolean isAccessible(final int modifiers, final Class<?> member, final Class<?> type) {
+
+		if (Modifier.isPublic(modifiers)) {
+			return true;
+		}
+
+		return !Modifier.isPrivate(modifiers) && isSamePackage(member, type);
+	}
+
+	private static boolean isSamePackage(final Class<?> c1, final Class<?> c2) {
+
+		if (c1.getClassLoader() != c2.getClassLoader()) {
+			return false;
+		}
+
+		final String n1 = c1.getName();
+		final String n2 = c2.getName();
+
+		return n1.substring(0, Math.max(0, n1.lastIndexOf('.'))).equals(
+			n2.substring(0, Math.max(0, n2.lastIndexOf('.'))));
+	}
+}
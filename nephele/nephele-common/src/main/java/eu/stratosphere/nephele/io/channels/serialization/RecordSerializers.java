@@ -0,0 +1,133 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.io.channels.serialization;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import eu.stratosphere.nephele.types.Record;
+
+/**
+ * This class provides the generated {@link RecordSerializer} objects for record classes with fields annotated with
+ * {@link SerializedField}. A serializer is generated the first time it is requested for a record class, which
+ * typically happens while the tasks of a job are set up, and cached afterwards. Record classes without annotated
+ * fields keep using their own <code>write</code> and <code>read</code> methods, so generated and hand-written
+ * records can be mixed freely.
+ * <p>
+ * The cache only holds weak references to the record classes, so the classes of a job can be unloaded once the job
+ * has finished.
+ * <p>
+ * This class is thread-safe.
+ */
+public final class RecordSerializers {
+
+	/**
+	 * The log object used for debugging.
+	 */
+	private static final Log LOG = LogFactory.getLog(RecordSerializers.class);
+
+	/**
+	 * Marker for record classes without a generated serializer.
+	 */
+	private static final WeakReference<RecordSerializer<Record>> NO_SERIALIZER = new WeakReference<RecordSerializer<Record>>(
+		null);
+
+	/**
+	 * The cached serializers, indexed by their record class. The serializers are only weakly referenced here because
+	 * they strongly refer to their record class. A generated serializer class keeps its instance alive itself.
+	 */
+	private static final Map<Class<?>, WeakReference<RecordSerializer<Record>>> SERIALIZERS = new WeakHashMap<Class<?>, WeakReference<RecordSerializer<Record>>>();
+
+	/**
+	 * Private constructor to prevent instantiation.
+	 */
+	private RecordSerializers() {
+	}
+
+	/**
+	 * Returns the generated serializer for the given record class, generating it if necessary.
+	 * 
+	 * @param type
+	 *        the record class
+	 * @return the generated serializer or <code>null</code> if the given class is not a concrete record class with
+	 *         annotated fields
+	 * @throws IllegalArgumentException
+	 *         thrown if the annotated fields of the record class cannot be handled by a generated serializer
+	 */
+	public static RecordSerializer<Record> getSerializer(final Class<?> type) {
+
+		if (type == null || !Record.class.isAssignableFrom(type)) {
+			return null;
+		}
+
+		synchronized (SERIALIZERS) {
+			return getSerializerInternal(type);
+		}
+	}
+
+	private static RecordSerializer<Record> getSerializerInternal(final Class<?> type) {
+
+		final WeakReference<RecordSerializer<Record>> reference = SERIALIZERS.get(type);
+		if (reference != null) {
+			return reference.get();
+		}
+
+		if (type.isInterface() || Modifier.isAbstract(type.getModifiers())) {
+			SERIALIZERS.put(type, NO_SERIALIZER);
+			return null;
+		}
+
+		final List<Field> fields = RecordSerializerGenerator.collectFields(type);
+		if (fields.isEmpty()) {
+			SERIALIZERS.put(type, NO_SERIALIZER);
+			return null;
+		}
+
+		final RecordSerializerGenerator generator = new RecordSerializerGenerator(type, fields);
+		final RecordSerializer<Record> serializer = generator.generate();
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("Generated record serializer for " + type.getName() + " with " + fields.size() + " fields");
+		}
+
+		// Register the serializer before resolving the nested types, so recursive record types find it
+		SERIALIZERS.put(type, new WeakReference<RecordSerializer<Record>>(serializer));
+
+		boolean success = false;
+		try {
+			final List<Class<?>> nestedTypes = generator.getNestedTypes();
+			final RecordSerializer<?>[] nestedSerializers = new RecordSerializer<?>[nestedTypes.size()];
+			for (int i = 0; i < nestedSerializers.length; ++i) {
+				nestedSerializers[i] = getSerializerInternal(nestedTypes.get(i));
+			}
+			serializer.setNestedSerializers(nestedSerializers);
+			success = true;
+		} finally {
+			if (!success) {
+				SERIALIZERS.remove(type);
+			}
+		}
+
+		return serializer;
+	}
+}
@@ -0,0 +1,40 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.io.channels.serialization;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * This annotation marks a field of a {@link eu.stratosphere.nephele.types.Record} which shall be transferred by a
+ * generated {@link RecordSerializer} instead of the record's own <code>write</code> and <code>read</code> methods.
+ * Supported field types are the primitive types, {@link String}, concrete record types with a no-argument
+ * constructor and one-dimensional arrays of these types. Annotated fields must neither be private, static nor final.
+ * 
+ * @see RecordSerializers
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface SerializedField {
+
+	/**
+	 * The position of the field in the binary representation of the record. Positions must be unique within a record
+	 * class and its superclasses, but need not be contiguous.
+	 */
+	int value();
+}
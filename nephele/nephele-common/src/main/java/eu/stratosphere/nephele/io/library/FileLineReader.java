@@ -23,6 +23,7 @@ import eu.stratosphere.nephele.fs.FileSystem;
 import eu.stratosphere.nephele.fs.LineReader;
 import eu.stratosphere.nephele.io.RecordWriter;
 import eu.stratosphere.nephele.template.AbstractFileInputTask;
+import eu.stratosphere.nephele.template.InputSplitProvider;
 import eu.stratosphere.nephele.types.StringRecord;
 
 /**
@@ -38,6 +39,7 @@ public class FileLineReader extends AbstractFileInputTask {
 	public void invoke() throws Exception {
 
 		final Iterator<FileInputSplit> splitIterator = getFileInputSplits();
+		final InputSplitProvider inputSplitProvider = getEnvironment().getInputSplitProvider();
 
 		while (splitIterator.hasNext()) {
 
@@ -52,18 +54,39 @@ public class FileLineReader extends AbstractFileInputTask {
 
 			final LineReader lineReader = new LineReader(fdis, start, length, (1024 * 1024));
 
-			byte[] line = lineReader.readLine();
+			// Consume the lines in the range granted by the job manager, which may hand the remainder to another task
+			final long end = start + length;
+			long limit = inputSplitProvider.reportInputSplitProgress(lineReader.getPosition());
 
-			while (line != null) {
+			while (limit >= lineReader.getPosition()) {
 
-				// Create a string object from the data read
-				StringRecord str = new StringRecord();
-				str.set(line);
+				lineReader.setEnd(Math.min(limit, end));
 
-				// Send out string
-				output.emit(str);
+				byte[] line = lineReader.readLine();
 
-				line = lineReader.readLine();
+				while (line != null) {
+
+					// Create a string object from the data read
+					StringRecord str = new StringRecord();
+					str.set(line);
+
+					// Send out string
+					output.emit(str);
+
+					line = lineReader.readLine();
+				}
+
+				if (limit >= end) {
+					break;
+				}
+
+				if (lineReader.isEndOfFile()) {
+					// Report that the split is finished, so its remainder is not handed to another task
+					inputSplitProvider.reportInputSplitProgress(Long.MAX_VALUE);
+					break;
+				}
+
+				limit = inputSplitProvider.reportInputSplitProgress(lineReader.getPosition());
 			}
 
 			// Close the stream;
@@ -29,6 +29,7 @@ import java.net.ConnectException;
 
 import java.io.IOException;
 import java.io.DataInputStream;
+import java.io.DataOutput;
 import java.io.DataOutputStream;
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
@@ -38,6 +39,10 @@ import java.io.InputStream;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -86,6 +91,11 @@ public class Client {
 
 	final static int PING_CALL_ID = -1;
 
+	/**
+	 * The call ID of the response with which the server acknowledges that it shares the client's method table.
+	 */
+	final static int METHOD_TABLE_ACK_ID = -2;
+
 	/**
 	 * Increment this client's reference count
 	 */
@@ -189,6 +199,11 @@ public class Client {
 
 		private IOException closeException; // close reason
 
+		/**
+		 * Indicates whether the server has acknowledged the method table announced in the connection header.
+		 */
+		private volatile boolean methodTableAcknowledged = false;
+
 		public Connection(ConnectionId remoteId)
 												throws IOException {
 			this.remoteId = remoteId;
@@ -198,7 +213,12 @@ public class Client {
 			}
 
 			Class<?> protocol = remoteId.getProtocol();
-			header = new ConnectionHeader(protocol == null ? null : protocol.getName());
+			if (protocol == null) {
+				header = new ConnectionHeader(null, MethodTable.NO_FINGERPRINT);
+			} else {
+				header = new ConnectionHeader(protocol.getName(), MethodTable.getMethodTable(protocol)
+					.getFingerprint());
+			}
 
 			this.setName("IPC Client (" + socketFactory.hashCode() + ") connection to "
 				+ remoteId.getAddress().toString() + " from an unknown user");
@@ -468,7 +488,8 @@ public class Client {
 					// First, write call id to buffer d
 					d.writeInt(call.id);
 					// Then write RPC data (the actual call) to buffer d
-					call.param.write(d);
+					writeParam(d, call.param, header.getMethodTableFingerprint() != MethodTable.NO_FINGERPRINT,
+						this.methodTableAcknowledged);
 
 					byte[] data = d.getData().array();
 					int dataLength = d.getLength();
@@ -498,6 +519,12 @@ public class Client {
 			try {
 				int id = in.readInt(); // try to read an id
 
+				if (id == METHOD_TABLE_ACK_ID) {
+					// Calls sent from now on may identify their methods by ID
+					this.methodTableAcknowledged = true;
+					return;
+				}
+
 				final Call call = calls.remove(id);
 
 				final int state = in.readInt(); // read call status
@@ -679,6 +706,26 @@ public class Client {
 		}
 	}
 
+	/**
+	 * Writes the parameter of a call to the given output.
+	 * 
+	 * @param out
+	 *        the output to write the parameter to
+	 * @param param
+	 *        the parameter to write
+	 * @param encoded
+	 *        <code>true</code> if the connection header announced a method table fingerprint
+	 * @param methodTableAcknowledged
+	 *        <code>true</code> if the server has acknowledged that it shares the announced method table
+	 * @throws IOException
+	 *         thrown if an error occurs while writing the parameter
+	 */
+	void writeParam(final DataOutput out, final IOReadableWritable param, final boolean encoded,
+			final boolean methodTableAcknowledged) throws IOException {
+
+		param.write(out);
+	}
+
 	/**
 	 * Make a call, passing <code>param</code>, to the IPC server running at <code>address</code> which is servicing the
 	 * <code>protocol</code> protocol,
@@ -699,15 +746,142 @@ public class Client {
 				}
 			}
 
-			if (call.error != null) {
-				if (call.error instanceof RemoteException) {
-					call.error.fillInStackTrace();
-					throw call.error;
-				} else { // local exception
-					throw wrapException(addr, call.error);
+			return getResult(call, addr);
+		}
+	}
+
+	/**
+	 * Make a call, passing <code>param</code>, to the IPC server running at <code>address</code> which is servicing the
+	 * <code>protocol</code> protocol, without waiting for the value. Several calls may be in flight on the same
+	 * connection; the responses are matched to the calls by their call IDs.
+	 * 
+	 * @param param
+	 *        the parameter of the call
+	 * @param addr
+	 *        the address of the IPC server
+	 * @param protocol
+	 *        the protocol the IPC server is servicing
+	 * @return the future to obtain the value of the call from
+	 * @throws IOException
+	 *         thrown if the connection to the IPC server cannot be established
+	 */
+	public Future<IOReadableWritable> asyncCall(IOReadableWritable param, InetSocketAddress addr, Class<?> protocol)
+			throws IOException {
+		Call call = new Call(param);
+		Connection connection = getConnection(addr, protocol, call);
+		connection.sendParam(call); // send the parameter
+
+		return new CallFuture(call, addr);
+	}
+
+	/**
+	 * Returns the value of a completed call or throws its error.
+	 * 
+	 * @param call
+	 *        the completed call
+	 * @param addr
+	 *        the address of the IPC server the call has been sent to
+	 * @return the value of the call
+	 * @throws IOException
+	 *         the error of the call
+	 */
+	private IOReadableWritable getResult(final Call call, final InetSocketAddress addr) throws IOException {
+
+		if (call.error != null) {
+			if (call.error instanceof RemoteException) {
+				call.error.fillInStackTrace();
+				throw call.error;
+			} else { // local exception
+				throw wrapException(addr, call.error);
+			}
+		} else {
+			return call.value;
+		}
+	}
+
+	/**
+	 * The future of a call made with {@link Client#asyncCall(IOReadableWritable, InetSocketAddress, Class)}. The
+	 * error of a failed call is the cause of the {@link ExecutionException} thrown by the <code>get</code> methods.
+	 * Calls cannot be canceled.
+	 */
+	private class CallFuture implements Future<IOReadableWritable> {
+
+		private final Call call;
+
+		private final InetSocketAddress addr;
+
+		private CallFuture(final Call call, final InetSocketAddress addr) {
+			this.call = call;
+			this.addr = addr;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean cancel(final boolean mayInterruptIfRunning) {
+			return false;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean isCancelled() {
+			return false;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean isDone() {
+			synchronized (this.call) {
+				return this.call.done;
+			}
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public IOReadableWritable get() throws InterruptedException, ExecutionException {
+			synchronized (this.call) {
+				while (!this.call.done) {
+					this.call.wait();
+				}
+
+				return getValue();
+			}
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public IOReadableWritable get(final long timeout, final TimeUnit unit) throws InterruptedException,
+				ExecutionException, TimeoutException {
+
+			final long deadline = System.currentTimeMillis() + unit.toMillis(timeout);
+			synchronized (this.call) {
+				while (!this.call.done) {
+					final long remaining = deadline - System.currentTimeMillis();
+					if (remaining <= 0L) {
+						throw new TimeoutException("Call to " + this.addr + " did not complete within " + timeout
+							+ " " + unit);
+					}
+					this.call.wait(remaining);
 				}
-			} else {
-				return call.value;
+
+				return getValue();
+			}
+		}
+
+		private IOReadableWritable getValue() throws ExecutionException {
+			try {
+				return getResult(this.call, this.addr);
+			} catch (IOException e) {
+				throw new ExecutionException(e);
 			}
 		}
 	}
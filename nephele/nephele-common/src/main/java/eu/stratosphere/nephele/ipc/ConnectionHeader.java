@@ -23,6 +23,7 @@ package eu.stratosphere.nephele.ipc;
 
 import java.io.DataInput;
 import java.io.DataOutput;
+import java.io.EOFException;
 import java.io.IOException;
 
 import eu.stratosphere.nephele.io.IOReadableWritable;
@@ -36,6 +37,11 @@ class ConnectionHeader implements IOReadableWritable {
 
 	private String protocol;
 
+	/**
+	 * The fingerprint of the client's {@link MethodTable} for the protocol.
+	 */
+	private long methodTableFingerprint = MethodTable.NO_FINGERPRINT;
+
 	public ConnectionHeader() {
 	}
 
@@ -44,9 +50,13 @@ class ConnectionHeader implements IOReadableWritable {
 	 * 
 	 * @param protocol
 	 *        protocol used for communication between the IPC client and the server
+	 * @param methodTableFingerprint
+	 *        the fingerprint of the client's method table for the protocol or {@link MethodTable#NO_FINGERPRINT} if
+	 *        the client does not use a method table
 	 */
-	public ConnectionHeader(String protocol) {
+	public ConnectionHeader(final String protocol, final long methodTableFingerprint) {
 		this.protocol = protocol;
+		this.methodTableFingerprint = methodTableFingerprint;
 	}
 
 	/**
@@ -56,6 +66,13 @@ class ConnectionHeader implements IOReadableWritable {
 	public void read(final DataInput in) throws IOException {
 
 		this.protocol = StringRecord.readString(in);
+
+		// Headers of clients without a method table end after the protocol
+		try {
+			this.methodTableFingerprint = in.readLong();
+		} catch (EOFException e) {
+			this.methodTableFingerprint = MethodTable.NO_FINGERPRINT;
+		}
 	}
 
 	/**
@@ -65,12 +82,23 @@ class ConnectionHeader implements IOReadableWritable {
 	public void write(final DataOutput out) throws IOException {
 
 		StringRecord.writeString(out, this.protocol);
+		out.writeLong(this.methodTableFingerprint);
 	}
 
 	public String getProtocol() {
 		return this.protocol;
 	}
 
+	/**
+	 * Returns the fingerprint of the client's method table for the protocol.
+	 * 
+	 * @return the fingerprint of the client's method table for the protocol or {@link MethodTable#NO_FINGERPRINT} if
+	 *         the client does not use a method table
+	 */
+	public long getMethodTableFingerprint() {
+		return this.methodTableFingerprint;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -0,0 +1,212 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+
+package eu.stratosphere.nephele.ipc;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A method table assigns a compact ID to each method of an RPC protocol. Both ends of a connection derive the table
+ * from the protocol interface, sorting the methods by their signatures, and compare the fingerprints of their tables
+ * when the connection is established. If the fingerprints match, invocations carry the method ID instead of the method
+ * name and the names of the parameter classes.
+ * <p>
+ * The table also caches the accessible {@link Method} handles, so the server does not have to look up the method of
+ * each invocation by reflection.
+ * <p>
+ * This class is thread-safe.
+ * 
+ * @author warneke
+ */
+final class MethodTable {
+
+	/**
+	 * The fingerprint sent by clients which do not use a method table.
+	 */
+	static final long NO_FINGERPRINT = 0L;
+
+	/**
+	 * The method tables created so far, indexed by their protocol.
+	 */
+	private static final ConcurrentHashMap<Class<?>, MethodTable> METHOD_TABLES = new ConcurrentHashMap<Class<?>, MethodTable>();
+
+	/**
+	 * The methods of the protocol, indexed by their ID.
+	 */
+	private final Method[] methods;
+
+	/**
+	 * Maps the methods of the protocol to their IDs.
+	 */
+	private final Map<Method, Integer> methodIDs;
+
+	/**
+	 * Maps the signatures of the methods of the protocol to the methods.
+	 */
+	private final Map<String, Method> methodsBySignature;
+
+	/**
+	 * The fingerprint of this method table.
+	 */
+	private final long fingerprint;
+
+	/**
+	 * Constructs the method table for the given protocol.
+	 * 
+	 * @param protocol
+	 *        the protocol to construct the method table for
+	 */
+	private MethodTable(final Class<?> protocol) {
+
+		// A method inherited from several interfaces is only included once
+		final Map<String, Method> bySignature = new HashMap<String, Method>();
+		for (final Method method : protocol.getMethods()) {
+			bySignature.put(getSignature(method.getName(), method.getParameterTypes()), method);
+		}
+
+		final String[] signatures = bySignature.keySet().toArray(new String[bySignature.size()]);
+		Arrays.sort(signatures);
+
+		// 64 bit FNV-1a hash over the sorted signatures
+		long hash = 0xcbf29ce484222325L;
+		this.methods = new Method[signatures.length];
+		this.methodIDs = new HashMap<Method, Integer>();
+		for (int i = 0; i < signatures.length; ++i) {
+
+			final Method method = bySignature.get(signatures[i]);
+			method.setAccessible(true);
+			this.methods[i] = method;
+			this.methodIDs.put(method, Integer.valueOf(i));
+
+			final String signature = signatures[i];
+			for (int j = 0; j < signature.length(); ++j) {
+				hash ^= signature.charAt(j);
+				hash *= 0x100000001b3L;
+			}
+			hash ^= ';';
+			hash *= 0x100000001b3L;
+		}
+
+		this.methodsBySignature = bySignature;
+		this.fingerprint = (hash == NO_FINGERPRINT) ? 1L : hash;
+	}
+
+	/**
+	 * Returns the method table for the given protocol.
+	 * 
+	 * @param protocol
+	 *        the protocol to return the method table for
+	 * @return the method table for the given protocol
+	 */
+	static MethodTable getMethodTable(final Class<?> protocol) {
+
+		MethodTable methodTable = METHOD_TABLES.get(protocol);
+		if (methodTable == null) {
+			methodTable = new MethodTable(protocol);
+			final MethodTable previous = METHOD_TABLES.putIfAbsent(protocol, methodTable);
+			if (previous != null) {
+				methodTable = previous;
+			}
+		}
+
+		return methodTable;
+	}
+
+	/**
+	 * Returns the fingerprint of this method table.
+	 * 
+	 * @return the fingerprint of this method table
+	 */
+	long getFingerprint() {
+
+		return this.fingerprint;
+	}
+
+	/**
+	 * Returns the ID of the given method.
+	 * 
+	 * @param method
+	 *        the method to return the ID for
+	 * @return the ID of the method or <code>-1</code> if the method does not belong to the protocol
+	 */
+	int getMethodID(final Method method) {
+
+		final Integer methodID = this.methodIDs.get(method);
+		if (methodID == null) {
+			return -1;
+		}
+
+		return methodID.intValue();
+	}
+
+	/**
+	 * Returns the method with the given ID.
+	 * 
+	 * @param methodID
+	 *        the ID of the method
+	 * @return the method with the given ID or <code>null</code> if no method has that ID
+	 */
+	Method getMethod(final int methodID) {
+
+		if (methodID < 0 || methodID >= this.methods.length) {
+			return null;
+		}
+
+		return this.methods[methodID];
+	}
+
+	/**
+	 * Returns the method with the given name and parameter classes.
+	 * 
+	 * @param methodName
+	 *        the name of the method
+	 * @param parameterClasses
+	 *        the parameter classes of the method
+	 * @return the method or <code>null</code> if the protocol has no such method
+	 */
+	Method getMethod(final String methodName, final Class<?>[] parameterClasses) {
+
+		return this.methodsBySignature.get(getSignature(methodName, parameterClasses));
+	}
+
+	/**
+	 * Returns the signature of a method.
+	 * 
+	 * @param methodName
+	 *        the name of the method
+	 * @param parameterClasses
+	 *        the parameter classes of the method
+	 * @return the signature of the method
+	 */
+	private static String getSignature(final String methodName, final Class<?>[] parameterClasses) {
+
+		final StringBuilder sb = new StringBuilder(methodName);
+		sb.append('(');
+		for (int i = 0; i < parameterClasses.length; ++i) {
+			if (i > 0) {
+				sb.append(',');
+			}
+			sb.append(parameterClasses[i].getName());
+		}
+		sb.append(')');
+
+		return sb.toString();
+	}
+}
@@ -34,6 +34,10 @@ import java.net.InetSocketAddress;
 import java.net.SocketTimeoutException;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import javax.net.SocketFactory;
 
@@ -67,8 +71,40 @@ public class RPC {
 	private RPC() {
 	} // no public ctor
 
-	/** A method invocation, including the method name and its parameters. */
-	private static class Invocation implements IOReadableWritable {
+	/**
+	 * A method invocation, including the method and its parameters. If both ends of the connection share the protocol's
+	 * {@link MethodTable}, the method is identified by its ID and the declared parameter classes are implied by its
+	 * signature. Otherwise, the method is identified by its name and the names of its parameter classes. Clients which
+	 * announce a method table fingerprint prefix each invocation with its encoding, clients which do not write the
+	 * name encoding without prefix.
+	 */
+	static class Invocation implements IOReadableWritable {
+
+		/**
+		 * Marks an invocation which identifies the method by its name and parameter classes.
+		 */
+		private static final byte ENCODING_BY_NAME = 0;
+
+		/**
+		 * Marks an invocation which identifies the method by its ID in the method table.
+		 */
+		private static final byte ENCODING_BY_ID = 1;
+
+		/**
+		 * Marks a <code>null</code> parameter in an invocation encoded by method ID.
+		 */
+		private static final byte PARAMETER_NULL = 0;
+
+		/**
+		 * Marks a parameter of the declared parameter class in an invocation encoded by method ID.
+		 */
+		private static final byte PARAMETER_DECLARED_CLASS = 1;
+
+		/**
+		 * Marks a parameter of a subclass of the declared parameter class in an invocation encoded by method ID. The
+		 * name of the subclass follows.
+		 */
+		private static final byte PARAMETER_OTHER_CLASS = 2;
 
 		private String methodName;
 
@@ -76,16 +112,56 @@ public class RPC {
 
 		private IOReadableWritable[] parameters;
 
+		/**
+		 * The ID of the method in the method table or <code>-1</code> to identify the method by its name.
+		 */
+		private int methodID = -1;
+
+		/**
+		 * The invoked method if it has been resolved by its ID, otherwise <code>null</code>.
+		 */
+		private Method method = null;
+
+		/**
+		 * The method table to resolve method IDs with, <code>null</code> if no method table has been negotiated.
+		 */
+		private final MethodTable methodTable;
+
+		/**
+		 * <code>true</code> if the invocation to be read is prefixed with its encoding.
+		 */
+		private final boolean encoded;
+
 		@SuppressWarnings("unused")
 		public Invocation() {
+			this.methodTable = null;
+			this.encoded = false;
+		}
+
+		/**
+		 * Constructs an invocation to be read with the given method table.
+		 * 
+		 * @param encoded
+		 *        <code>true</code> if the invocation is prefixed with its encoding, <code>false</code> if it is
+		 *        encoded by name without prefix
+		 * @param methodTable
+		 *        the method table to resolve method IDs with or <code>null</code> if no method table has been
+		 *        negotiated
+		 */
+		public Invocation(final boolean encoded, final MethodTable methodTable) {
+			this.methodTable = methodTable;
+			this.encoded = encoded;
 		}
 
 		// TODO: See if type safety can be improved here
 		@SuppressWarnings("unchecked")
-		public Invocation(Method method, IOReadableWritable[] parameters) {
+		public Invocation(Method method, int methodID, IOReadableWritable[] parameters) {
 			this.methodName = method.getName();
 			this.parameterClasses = (Class<? extends IOReadableWritable>[]) method.getParameterTypes();
 			this.parameters = parameters;
+			this.methodID = methodID;
+			this.methodTable = null;
+			this.encoded = false;
 		}
 
 		/** The name of the method invoked. */
@@ -103,9 +179,72 @@ public class RPC {
 			return parameters;
 		}
 
+		/** The method invoked if it has been resolved by its ID, otherwise <code>null</code>. */
+		public Method getMethod() {
+			return method;
+		}
+
+		public void read(DataInput in) throws IOException {
+
+			if (!this.encoded) {
+				readByName(in);
+				return;
+			}
+
+			final byte encoding = in.readByte();
+			if (encoding == ENCODING_BY_ID) {
+				readByID(in);
+			} else if (encoding == ENCODING_BY_NAME) {
+				readByName(in);
+			} else {
+				throw new IOException("Unknown invocation encoding " + encoding);
+			}
+		}
+
 		// TODO: See if type safety can be improved here
 		@SuppressWarnings("unchecked")
-		public void read(DataInput in) throws IOException {
+		private void readByID(final DataInput in) throws IOException {
+
+			if (this.methodTable == null) {
+				throw new IOException("Received method ID on a connection without a matching method table");
+			}
+
+			this.methodID = in.readUnsignedShort();
+			this.method = this.methodTable.getMethod(this.methodID);
+			if (this.method == null) {
+				throw new IOException("Unknown method ID " + this.methodID);
+			}
+
+			this.methodName = this.method.getName();
+			this.parameterClasses = (Class<? extends IOReadableWritable>[]) this.method.getParameterTypes();
+			this.parameters = new IOReadableWritable[this.parameterClasses.length];
+
+			for (int i = 0; i < this.parameters.length; i++) {
+
+				final byte parameterEncoding = in.readByte();
+				if (parameterEncoding == PARAMETER_NULL) {
+					continue;
+				}
+
+				if (parameterEncoding == PARAMETER_DECLARED_CLASS) {
+					this.parameters[i] = instantiateParameter(this.parameterClasses[i]);
+				} else {
+					try {
+						this.parameters[i] = instantiateParameter(ClassUtils.getRecordByName(StringRecord
+							.readString(in)));
+					} catch (ClassNotFoundException cnfe) {
+						throw new IOException(cnfe.toString());
+					}
+				}
+
+				// Object will do everything else on its own
+				this.parameters[i].read(in);
+			}
+		}
+
+		// TODO: See if type safety can be improved here
+		@SuppressWarnings("unchecked")
+		private void readByName(final DataInput in) throws IOException {
 
 			this.methodName = StringRecord.readString(in);
 			this.parameters = new IOReadableWritable[in.readInt()];
@@ -125,13 +264,7 @@ public class RPC {
 				if (in.readBoolean()) {
 					try {
 						final String parameterClassName = StringRecord.readString(in);
-						final Class<? extends IOReadableWritable> parameterClass = ClassUtils
-							.getRecordByName(parameterClassName);
-						parameters[i] = parameterClass.newInstance();
-					} catch (IllegalAccessException iae) {
-						throw new IOException(iae.toString());
-					} catch (InstantiationException ie) {
-						throw new IOException(ie.toString());
+						parameters[i] = instantiateParameter(ClassUtils.getRecordByName(parameterClassName));
 					} catch (ClassNotFoundException cnfe) {
 						throw new IOException(cnfe.toString());
 					}
@@ -143,7 +276,68 @@ public class RPC {
 			}
 		}
 
+		private static IOReadableWritable instantiateParameter(final Class<? extends IOReadableWritable> parameterClass)
+				throws IOException {
+
+			try {
+				return parameterClass.newInstance();
+			} catch (IllegalAccessException iae) {
+				throw new IOException(iae.toString());
+			} catch (InstantiationException ie) {
+				throw new IOException(ie.toString());
+			}
+		}
+
+		/**
+		 * Writes the invocation encoded by name without prefix, which is understood by every server.
+		 */
 		public void write(DataOutput out) throws IOException {
+
+			writeByName(out);
+		}
+
+		/**
+		 * Writes the invocation prefixed with its encoding.
+		 * 
+		 * @param out
+		 *        the output to write the invocation to
+		 * @param byID
+		 *        <code>true</code> to identify the method by its ID if the server has acknowledged the method table,
+		 *        <code>false</code> to identify it by its name
+		 * @throws IOException
+		 *         thrown if an error occurs while writing the invocation
+		 */
+		void write(final DataOutput out, final boolean byID) throws IOException {
+
+			if (byID && this.methodID >= 0) {
+				out.writeByte(ENCODING_BY_ID);
+				writeByID(out);
+			} else {
+				out.writeByte(ENCODING_BY_NAME);
+				writeByName(out);
+			}
+		}
+
+		private void writeByID(final DataOutput out) throws IOException {
+
+			out.writeShort(this.methodID);
+			for (int i = 0; i < parameterClasses.length; i++) {
+				if (parameters[i] == null) {
+					out.writeByte(PARAMETER_NULL);
+				} else {
+					if (parameters[i].getClass() == parameterClasses[i]) {
+						out.writeByte(PARAMETER_DECLARED_CLASS);
+					} else {
+						out.writeByte(PARAMETER_OTHER_CLASS);
+						StringRecord.writeString(out, parameters[i].getClass().getName());
+					}
+					parameters[i].write(out);
+				}
+			}
+		}
+
+		private void writeByName(final DataOutput out) throws IOException {
+
 			StringRecord.writeString(out, methodName);
 			out.writeInt(parameterClasses.length);
 			for (int i = 0; i < parameterClasses.length; i++) {
@@ -173,6 +367,30 @@ public class RPC {
 
 	}
 
+	/**
+	 * An IPC client which writes invocations in the encoding negotiated for their connection.
+	 */
+	private static class InvocationClient extends Client {
+
+		public InvocationClient(final SocketFactory factory) {
+			super(factory);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		void writeParam(final DataOutput out, final IOReadableWritable param, final boolean encoded,
+				final boolean methodTableAcknowledged) throws IOException {
+
+			if (encoded) {
+				((Invocation) param).write(out, methodTableAcknowledged);
+			} else {
+				param.write(out);
+			}
+		}
+	}
+
 	/* Cache a client using its socket factory as the hash key */
 	static private class ClientCache {
 		private Map<SocketFactory, Client> clients = new HashMap<SocketFactory, Client>();
@@ -193,7 +411,7 @@ public class RPC {
 			// per-job, we choose (a).
 			Client client = clients.get(factory);
 			if (client == null) {
-				client = new Client(factory);
+				client = new InvocationClient(factory);
 				clients.put(factory, client);
 			} else {
 				client.incCount();
@@ -221,9 +439,9 @@ public class RPC {
 	private static ClientCache CLIENTS = new ClientCache();
 
 	private static class Invoker implements InvocationHandler {
-		private InetSocketAddress address;
+		protected final InetSocketAddress address;
 
-		private Client client;
+		protected final Client client;
 
 		private boolean isClosed = false;
 
@@ -234,22 +452,12 @@ public class RPC {
 
 		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
 
-			// TODO clean up
-			IOReadableWritable[] castArgs = null;
-			if (args != null) {
-				castArgs = new IOReadableWritable[args.length];
-
-				// Check if args are instances of ReadableWritable
-				for (int i = 0; i < args.length; i++) {
-					if ((args[i] != null) && !(args[i] instanceof IOReadableWritable))
-						throw new IOException("Argument " + i + " of method " + method.getName()
-							+ " is not of type IOReadableWriteable");
-					else
-						castArgs[i] = (IOReadableWritable) args[i];
-				}
-			}
-			final IOReadableWritable value = this.client.call(new Invocation(method, castArgs), this.address, method
-				.getDeclaringClass());
+			final IOReadableWritable[] castArgs = castArguments(method, args);
+			// The connection is established for the declaring class, so the method ID refers to its method table
+			final Class<?> protocol = method.getDeclaringClass();
+			final int methodID = MethodTable.getMethodTable(protocol).getMethodID(method);
+			final IOReadableWritable value = this.client.call(new Invocation(method, methodID, castArgs),
+				this.address, protocol);
 
 			return value;
 		}
@@ -261,6 +469,140 @@ public class RPC {
 				CLIENTS.stopClient(this.client);
 			}
 		}
+
+		/**
+		 * Checks that the arguments of a call are {@link IOReadableWritable} objects.
+		 */
+		static IOReadableWritable[] castArguments(final Method method, final Object[] args) throws IOException {
+
+			if (args == null) {
+				return null;
+			}
+
+			final IOReadableWritable[] castArgs = new IOReadableWritable[args.length];
+			for (int i = 0; i < args.length; i++) {
+				if ((args[i] != null) && !(args[i] instanceof IOReadableWritable))
+					throw new IOException("Argument " + i + " of method " + method.getName()
+						+ " is not of type IOReadableWriteable");
+				else
+					castArgs[i] = (IOReadableWritable) args[i];
+			}
+
+			return castArgs;
+		}
+	}
+
+	/**
+	 * The invocation handler of asynchronous proxies. Each method of the asynchronous interface is mapped to the
+	 * protocol method with the same name and parameter types. The call is sent without waiting for the response and
+	 * the method returns a {@link Future} for the protocol method's value.
+	 */
+	private static class AsyncInvoker extends Invoker {
+
+		/**
+		 * Maps the methods of the asynchronous interface to the methods of the protocol.
+		 */
+		private final Map<Method, Method> protocolMethods = new HashMap<Method, Method>();
+
+		public AsyncInvoker(final Class<?> asyncInterface, final Class<? extends VersionedProtocol> protocol,
+				final InetSocketAddress address, final SocketFactory factory) {
+			super(address, factory);
+
+			final MethodTable methodTable = MethodTable.getMethodTable(protocol);
+			for (final Method asyncMethod : asyncInterface.getMethods()) {
+
+				if (!Future.class.equals(asyncMethod.getReturnType())) {
+					throw new IllegalArgumentException("Method " + asyncMethod.getName() + " of "
+						+ asyncInterface.getName() + " does not return a future");
+				}
+
+				final Method method = methodTable.getMethod(asyncMethod.getName(), asyncMethod.getParameterTypes());
+				if (method == null) {
+					throw new IllegalArgumentException("Method " + asyncMethod.getName() + " of "
+						+ asyncInterface.getName() + " has no counterpart in " + protocol.getName());
+				}
+
+				this.protocolMethods.put(asyncMethod, method);
+			}
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Object invoke(Object proxy, Method asyncMethod, Object[] args) throws Throwable {
+
+			final Method method = this.protocolMethods.get(asyncMethod);
+			if (method == null) {
+				// Methods of java.lang.Object are handled locally
+				return asyncMethod.invoke(this, args);
+			}
+
+			final Class<?> protocol = method.getDeclaringClass();
+			final int methodID = MethodTable.getMethodTable(protocol).getMethodID(method);
+			final Future<IOReadableWritable> future = this.client.asyncCall(new Invocation(method, methodID,
+				castArguments(method, args)), this.address, protocol);
+
+			return new ValueFuture<Object>(future);
+		}
+	}
+
+	/**
+	 * A future which casts the value of a call to the return type of the invoked method.
+	 * 
+	 * @param <V>
+	 *        the return type of the invoked method
+	 */
+	private static final class ValueFuture<V> implements Future<V> {
+
+		private final Future<IOReadableWritable> future;
+
+		private ValueFuture(final Future<IOReadableWritable> future) {
+			this.future = future;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean cancel(final boolean mayInterruptIfRunning) {
+			return this.future.cancel(mayInterruptIfRunning);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean isCancelled() {
+			return this.future.isCancelled();
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean isDone() {
+			return this.future.isDone();
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@SuppressWarnings("unchecked")
+		@Override
+		public V get() throws InterruptedException, ExecutionException {
+			return (V) this.future.get();
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@SuppressWarnings("unchecked")
+		@Override
+		public V get(final long timeout, final TimeUnit unit) throws InterruptedException, ExecutionException,
+				TimeoutException {
+			return (V) this.future.get(timeout, unit);
+		}
 	}
 
 	public static VersionedProtocol waitForProxy(Class<? extends VersionedProtocol> protocol, InetSocketAddress addr)
@@ -335,6 +677,31 @@ public class RPC {
 		return getProxy(protocol, addr, NetUtils.getDefaultSocketFactory());
 	}
 
+	/**
+	 * Construct a client-side asynchronous proxy object, talking to a server at the named address. Each method of the
+	 * asynchronous interface must have the same name and parameter types as a method of the protocol and return a
+	 * {@link Future} for the value of the protocol method. The methods return as soon as the call has been sent, so
+	 * several calls can be in flight on the same connection. The methods should declare {@link IOException}, which is thrown if the
+	 * call cannot be sent.
+	 * 
+	 * @param asyncInterface
+	 *        the asynchronous interface
+	 * @param protocol
+	 *        the protocol the server implements
+	 * @param addr
+	 *        remote address
+	 * @return the asynchronous proxy
+	 * @throws IllegalArgumentException
+	 *         thrown if a method of the asynchronous interface has no counterpart in the protocol
+	 */
+	@SuppressWarnings("unchecked")
+	public static <A> A getAsyncProxy(final Class<A> asyncInterface,
+			final Class<? extends VersionedProtocol> protocol, final InetSocketAddress addr) {
+
+		return (A) Proxy.newProxyInstance(asyncInterface.getClassLoader(), new Class[] { asyncInterface },
+			new AsyncInvoker(asyncInterface, protocol, addr, NetUtils.getDefaultSocketFactory()));
+	}
+
 	/**
 	 * Stop this proxy and release its invoker's resource
 	 * 
@@ -347,6 +714,18 @@ public class RPC {
 		}
 	}
 
+	/**
+	 * Stop this asynchronous proxy and release its invoker's resource
+	 * 
+	 * @param asyncProxy
+	 *        the asynchronous proxy to be stopped
+	 */
+	public static void stopAsyncProxy(Object asyncProxy) {
+		if (asyncProxy != null) {
+			((Invoker) Proxy.getInvocationHandler(asyncProxy)).close();
+		}
+	}
+
 	/**
 	 * Construct a server for a protocol implementation instance listening on a
 	 * port and address.
@@ -404,15 +783,36 @@ public class RPC {
 			this.instance = instance;
 		}
 
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		IOReadableWritable readParam(final DataInput in, final boolean encoded, final MethodTable methodTable)
+				throws IOException {
+
+			final Invocation invocation = new Invocation(encoded, methodTable);
+			invocation.read(in);
+
+			return invocation;
+		}
+
 		public IOReadableWritable call(Class<?> protocol, IOReadableWritable param, long receivedTime)
 				throws IOException {
 			
 			try {
 				
 				final Invocation call = (Invocation) param;
-				
-				final Method method = protocol.getMethod(call.getMethodName(), call.getParameterClasses());
-				method.setAccessible(true);
+
+				// Invocations encoded by method ID have been resolved already, others are looked up by signature
+				Method method = call.getMethod();
+				if (method == null) {
+					method = MethodTable.getMethodTable(protocol).getMethod(call.getMethodName(),
+						call.getParameterClasses());
+					if (method == null) {
+						method = protocol.getMethod(call.getMethodName(), call.getParameterClasses());
+						method.setAccessible(true);
+					}
+				}
 
 				final Object value = method.invoke((Object) instance, (Object[]) call.getParameters());
 
@@ -23,6 +23,7 @@ package eu.stratosphere.nephele.ipc;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
@@ -234,7 +235,7 @@ public abstract class Server {
 
 		@Override
 		public String toString() {
-			return param.toString() + " from " + connection.toString();
+			return String.valueOf(param) + " from " + connection.toString();
 		}
 
 		public void setResponse(ByteBuffer response) {
@@ -751,6 +752,11 @@ public abstract class Server {
 
 		Class<? extends VersionedProtocol> protocol;
 
+		/**
+		 * The method table for the protocol if it matches the client's, otherwise <code>null</code>.
+		 */
+		MethodTable methodTable;
+
 		public Connection(SelectionKey key, SocketChannel channel, long lastContact) {
 			this.channel = channel;
 			this.lastContact = lastContact;
@@ -882,15 +888,46 @@ public abstract class Server {
 				throw new IOException("Unknown protocol: " + header.getProtocol());
 			}
 
+			final long fingerprint = header.getMethodTableFingerprint();
+			if (protocol != null && fingerprint != MethodTable.NO_FINGERPRINT) {
+				final MethodTable table = MethodTable.getMethodTable(protocol);
+				if (table.getFingerprint() == fingerprint) {
+					methodTable = table;
+					acknowledgeMethodTable();
+				} else {
+					LOG.warn("Method table of protocol " + protocol.getName() + " does not match the one of client "
+						+ hostAddress + ":" + remotePort);
+				}
+			}
+
+		}
+
+		/**
+		 * Tells the client that the server shares its method table, so the client may identify methods by their IDs.
+		 * 
+		 * @throws IOException
+		 *         thrown if an error occurs while sending the acknowledgment
+		 */
+		private void acknowledgeMethodTable() throws IOException {
+
+			final Call ack = new Call(Client.METHOD_TABLE_ACK_ID, null, this);
+			final ByteBuffer response = ByteBuffer.allocate(4);
+			response.putInt(Client.METHOD_TABLE_ACK_ID);
+			response.flip();
+			ack.setResponse(response);
+
+			// The responder counts the acknowledgment as a finished call
+			incRpcCount();
+			responder.doRespond(ack);
 		}
 
 		private void processData() throws IOException, InterruptedException {
 			DataInputStream dis = new DataInputStream(new ByteArrayInputStream(data.array()));
 			int id = dis.readInt(); // try to read an id
 
-
-			IOReadableWritable invocation = newInstance(invocationClass); // read param
-			invocation.read(dis);
+			// Clients which announce a method table prefix their invocations with the encoding
+			final boolean encoded = header.getMethodTableFingerprint() != MethodTable.NO_FINGERPRINT;
+			IOReadableWritable invocation = readParam(dis, encoded, methodTable); // read param
 
 			Call call = new Call(id, invocation, this);
 			callQueue.put(call); // queue the call; maybe blocked here
@@ -1151,6 +1188,29 @@ public abstract class Server {
 		return listener.getAddress();
 	}
 
+	/**
+	 * Reads the parameter of a call from the given input.
+	 * 
+	 * @param in
+	 *        the input to read the parameter from
+	 * @param encoded
+	 *        <code>true</code> if the client announced a method table fingerprint in the connection header
+	 * @param methodTable
+	 *        the method table negotiated for the connection or <code>null</code> if the client's method table does
+	 *        not match the server's
+	 * @return the parameter of the call
+	 * @throws IOException
+	 *         thrown if an error occurs while reading the parameter
+	 */
+	IOReadableWritable readParam(final DataInput in, final boolean encoded, final MethodTable methodTable)
+			throws IOException {
+
+		final IOReadableWritable param = newInstance(this.invocationClass);
+		param.read(in);
+
+		return param;
+	}
+
 	/** Called for each call. */
 	public abstract IOReadableWritable call(Class<?> protocol, IOReadableWritable param, long receiveTime)
 			throws IOException;
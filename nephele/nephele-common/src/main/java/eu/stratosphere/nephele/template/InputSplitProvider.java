@@ -30,4 +30,18 @@ public interface InputSplitProvider {
 	 *         {@link AbstractInputTask} shall not consume any further input splits.
 	 */
 	InputSplit getNextInputSplit();
+
+	/**
+	 * Reports that the calling {@link AbstractInputTask} has consumed the input split most recently returned by
+	 * {@link #getNextInputSplit()} up to the given position and determines how far the task may continue to consume
+	 * it. The remainder of an input split may be handed to another task while the input split is being consumed. A task
+	 * which reports its progress must therefore only consume records starting up to the returned position before
+	 * reporting its progress again.
+	 * 
+	 * @param position
+	 *        the position of the first record of the input split which has not been consumed yet
+	 * @return the position of the last record the task may consume before reporting its progress again. A position
+	 *         before the reported one indicates that the task shall stop consuming the input split.
+	 */
+	long reportInputSplitProgress(long position);
 }
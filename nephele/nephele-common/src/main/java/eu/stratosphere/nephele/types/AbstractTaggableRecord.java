@@ -19,13 +19,36 @@ import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
 
-import eu.stratosphere.nephele.util.StringUtils;
-
+/**
+ * Abstract base class for records which can carry a {@link Tag}. The type of the tag is encoded in a single byte if it
+ * has been registered with the {@link TagRegistry}, otherwise its class name is transmitted along with the tag.
+ */
 public abstract class AbstractTaggableRecord implements Record {
 
+	/**
+	 * Marks a record without a tag in the serialized representation.
+	 */
+	private static final int NO_TAG = 0;
+
+	/**
+	 * Marks a tag of an unregistered type in the serialized representation. The tag type is followed by its class
+	 * name.
+	 */
+	private static final int UNREGISTERED_TAG = 255;
+
 	private Tag tag = null;
 
+	/**
+	 * A previously attached tag which can be reused instead of allocating a new one.
+	 */
+	private Tag spareTag = null;
+
 	public void setTag(final Tag tag) {
+
+		if (this.tag != null && this.tag != tag) {
+			this.spareTag = this.tag;
+		}
+
 		this.tag = tag;
 	}
 
@@ -34,43 +57,177 @@ public abstract class AbstractTaggableRecord implements Record {
 		return this.tag;
 	}
 
+	/**
+	 * Attaches a tag of the given type to this record and returns it. If the record already carries or previously
+	 * carried a tag of exactly this type, that tag object is reused, otherwise a new one is created. The returned tag
+	 * may therefore still contain the values of a previous use.
+	 * 
+	 * @param tagType
+	 *        the type of the tag to attach
+	 * @return the attached tag
+	 * @throws IOException
+	 *         thrown if a new tag of the given type cannot be instantiated
+	 */
+	public final <T extends Tag> T reuseTag(final Class<T> tagType) throws IOException {
+
+		final Tag reusable = obtainReusableTag(tagType);
+		final T reused = (reusable != null) ? tagType.cast(reusable) : TagRegistry.createTag(tagType);
+		setTag(reused);
+
+		return reused;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
 	public void write(final DataOutput out) throws IOException {
 
-		if (this.tag == null) {
-			out.writeBoolean(false);
-		} else {
-			out.writeBoolean(true);
-			StringRecord.writeString(out, this.tag.getClass().getName());
-			this.tag.write(out);
-		}
+		writeTag(out);
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
-	@SuppressWarnings("unchecked")
 	@Override
 	public void read(final DataInput in) throws IOException {
 
-		if (in.readBoolean()) {
-			final String tagType = StringRecord.readString(in);
-			Class<Tag> clazz = null;
-			try {
-				clazz = (Class<Tag>) Class.forName(tagType);
-			} catch (ClassNotFoundException e) {
-				throw new IOException(StringUtils.stringifyException(e));
+		readTag(in);
+	}
+
+	/**
+	 * Writes the tag of this record to the given output. Serializers which do not call {@link #write(DataOutput)}
+	 * must call this method before writing the actual content of the record.
+	 * 
+	 * @param out
+	 *        the output to write the tag to
+	 * @throws IOException
+	 *         thrown if an error occurs while writing the tag
+	 */
+	public final void writeTag(final DataOutput out) throws IOException {
+
+		if (this.tag == null) {
+			out.writeByte(NO_TAG);
+			return;
+		}
+
+		final int tagTypeID = TagRegistry.getTagTypeID(this.tag.getClass());
+		if (tagTypeID == 0) {
+			out.writeByte(UNREGISTERED_TAG);
+			StringRecord.writeString(out, this.tag.getClass().getName());
+		} else {
+			out.writeByte(tagTypeID);
+		}
+
+		this.tag.write(out);
+	}
+
+	/**
+	 * Reads the tag of this record from the given input. Serializers which do not call {@link #read(DataInput)}
+	 * must call this method before reading the actual content of the record. A tag object this record already
+	 * carries is reused if the received tag has the same type.
+	 * 
+	 * @param in
+	 *        the input to read the tag from
+	 * @throws IOException
+	 *         thrown if an error occurs while reading the tag
+	 */
+	public final void readTag(final DataInput in) throws IOException {
+
+		final int tagTypeID = in.readUnsignedByte();
+		if (tagTypeID == NO_TAG) {
+			setTag(null);
+			return;
+		}
+
+		Tag tag;
+		if (tagTypeID == UNREGISTERED_TAG) {
+			final String className = StringRecord.readString(in);
+			tag = obtainReusableTag(className);
+			if (tag == null) {
+				tag = TagRegistry.createTag(className);
 			}
+		} else {
+			tag = obtainReusableTag(TagRegistry.getTagType(tagTypeID));
+			if (tag == null) {
+				tag = TagRegistry.createTag(tagTypeID);
+			}
+		}
+
+		tag.read(in);
+		setTag(tag);
+	}
+
+	/**
+	 * Attaches a copy of the tag of this record to the given record, reusing a tag object of the given record if
+	 * possible. Implementations of {@link CopyableRecord} call this method to copy the tag.
+	 * 
+	 * @param target
+	 *        the record to attach the copy of the tag to
+	 * @throws IllegalStateException
+	 *         thrown if the tag cannot be copied
+	 */
+	protected final void copyTagTo(final AbstractTaggableRecord target) {
+
+		if (target == this) {
+			return;
+		}
+
+		if (this.tag == null) {
+			target.setTag(null);
+			return;
+		}
 
-			try {
-				this.tag = clazz.newInstance();
-			} catch (Exception e) {
-				throw new IOException(StringUtils.stringifyException(e));
+		try {
+			Tag copy = target.obtainReusableTag(this.tag.getClass());
+			if (copy == null) {
+				copy = TagRegistry.createTag(this.tag.getClass());
 			}
-			this.tag.read(in);
+			RecordCopier.copyTag(this.tag, copy);
+			target.setTag(copy);
+		} catch (IOException e) {
+			throw new IllegalStateException("Cannot copy tag of type " + this.tag.getClass().getName() + ": "
+				+ e.getMessage());
 		}
 	}
+
+	/**
+	 * Returns the current or the spare tag of this record if it has exactly the given type.
+	 * 
+	 * @param tagType
+	 *        the requested tag type, possibly <code>null</code>
+	 * @return the reusable tag or <code>null</code> if this record has no tag of the given type
+	 */
+	private Tag obtainReusableTag(final Class<?> tagType) {
+
+		if (this.tag != null && this.tag.getClass() == tagType) {
+			return this.tag;
+		}
+
+		if (this.spareTag != null && this.spareTag.getClass() == tagType) {
+			return this.spareTag;
+		}
+
+		return null;
+	}
+
+	/**
+	 * Returns the current or the spare tag of this record if its type has the given class name.
+	 * 
+	 * @param className
+	 *        the class name of the requested tag type
+	 * @return the reusable tag or <code>null</code> if this record has no tag of the given type
+	 */
+	private Tag obtainReusableTag(final String className) {
+
+		if (this.tag != null && this.tag.getClass().getName().equals(className)) {
+			return this.tag;
+		}
+
+		if (this.spareTag != null && this.spareTag.getClass().getName().equals(className)) {
+			return this.spareTag;
+		}
+
+		return null;
+	}
 }
@@ -0,0 +1,42 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.types;
+
+/**
+ * This interface can be implemented by records which are able to copy their content without serializing it. Copies
+ * are created through the {@link RecordCopier}, which falls back to an in-memory serialization for all other records.
+ * 
+ * @param <T>
+ *        the type of the record itself
+ */
+public interface CopyableRecord<T extends CopyableRecord<T>> extends Record {
+
+	/**
+	 * Copies the content of this record, including its tag, into the given record. Afterwards, the given record must
+	 * not share any mutable state with this record.
+	 * 
+	 * @param target
+	 *        the record to copy the content to
+	 */
+	void copyTo(T target);
+
+	/**
+	 * Creates a new record of the same class with a copy of the content of this record, including its tag.
+	 * 
+	 * @return the new record
+	 */
+	T createCopy();
+}
@@ -0,0 +1,201 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.types;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * This class represents a fixed-width record for a pair of double values.
+ */
+public final class DoublePairRecord implements FixedWidthRecord, CopyableRecord<DoublePairRecord> {
+
+	/**
+	 * The length of the serialized representation in bytes.
+	 */
+	public static final int WIDTH = 16;
+
+	/**
+	 * The first double value of the pair.
+	 */
+	private double first;
+
+	/**
+	 * The second double value of the pair.
+	 */
+	private double second;
+
+	/**
+	 * Constructs a new record with the given values.
+	 * 
+	 * @param first
+	 *        the first double value of the pair
+	 * @param second
+	 *        the second double value of the pair
+	 */
+	public DoublePairRecord(final double first, final double second) {
+		this.first = first;
+		this.second = second;
+	}
+
+	/**
+	 * Constructs a new record with all values set to zero.
+	 */
+	public DoublePairRecord() {
+	}
+
+	/**
+	 * Returns the first double value of the pair.
+	 * 
+	 * @return the first double value of the pair
+	 */
+	public double getFirst() {
+		return this.first;
+	}
+
+	/**
+	 * Sets the first double value of the pair.
+	 * 
+	 * @param first
+	 *        the new value
+	 */
+	public void setFirst(final double first) {
+		this.first = first;
+	}
+
+	/**
+	 * Returns the second double value of the pair.
+	 * 
+	 * @return the second double value of the pair
+	 */
+	public double getSecond() {
+		return this.second;
+	}
+
+	/**
+	 * Sets the second double value of the pair.
+	 * 
+	 * @param second
+	 *        the new value
+	 */
+	public void setSecond(final double second) {
+		this.second = second;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getWidth() {
+		return WIDTH;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeFixed(final ByteBuffer target) {
+		target.putDouble(this.first);
+		target.putDouble(this.second);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void readFixed(final ByteBuffer source) {
+		this.first = source.getDouble();
+		this.second = source.getDouble();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void write(final DataOutput out) throws IOException {
+		out.writeDouble(this.first);
+		out.writeDouble(this.second);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void read(final DataInput in) throws IOException {
+		this.first = in.readDouble();
+		this.second = in.readDouble();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void copyTo(final DoublePairRecord target) {
+		target.first = this.first;
+		target.second = this.second;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public DoublePairRecord createCopy() {
+		return new DoublePairRecord(this.first, this.second);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(final Object obj) {
+
+		if (!(obj instanceof DoublePairRecord)) {
+			return false;
+		}
+
+		final DoublePairRecord other = (DoublePairRecord) obj;
+
+		return Double.doubleToLongBits(this.first) == Double.doubleToLongBits(other.first) && Double.doubleToLongBits(this.second) == Double.doubleToLongBits(other.second);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int hashCode() {
+
+		return 31 * hashDouble(this.first) + hashDouble(this.second);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return "(" + this.first + ", " + this.second + ")";
+	}
+
+	/**
+	 * Computes the hash code of a double value the same way as {@link Double#hashCode()}.
+	 */
+	private static int hashDouble(final double value) {
+
+		final long bits = Double.doubleToLongBits(value);
+		return (int) (bits ^ (bits >>> 32));
+	}
+}
@@ -0,0 +1,169 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.types;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * This class represents a fixed-width record for a double value.
+ */
+public final class DoubleRecord implements FixedWidthRecord, CopyableRecord<DoubleRecord> {
+
+	/**
+	 * The length of the serialized representation in bytes.
+	 */
+	public static final int WIDTH = 8;
+
+	/**
+	 * The double value represented by the record.
+	 */
+	private double value;
+
+	/**
+	 * Constructs a new record with the given values.
+	 * 
+	 * @param value
+	 *        the double value represented by the record
+	 */
+	public DoubleRecord(final double value) {
+		this.value = value;
+	}
+
+	/**
+	 * Constructs a new record with all values set to zero.
+	 */
+	public DoubleRecord() {
+	}
+
+	/**
+	 * Returns the double value represented by the record.
+	 * 
+	 * @return the double value represented by the record
+	 */
+	public double getValue() {
+		return this.value;
+	}
+
+	/**
+	 * Sets the double value represented by the record.
+	 * 
+	 * @param value
+	 *        the new value
+	 */
+	public void setValue(final double value) {
+		this.value = value;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getWidth() {
+		return WIDTH;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeFixed(final ByteBuffer target) {
+		target.putDouble(this.value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void readFixed(final ByteBuffer source) {
+		this.value = source.getDouble();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void write(final DataOutput out) throws IOException {
+		out.writeDouble(this.value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void read(final DataInput in) throws IOException {
+		this.value = in.readDouble();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void copyTo(final DoubleRecord target) {
+		target.value = this.value;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public DoubleRecord createCopy() {
+		return new DoubleRecord(this.value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(final Object obj) {
+
+		if (!(obj instanceof DoubleRecord)) {
+			return false;
+		}
+
+		final DoubleRecord other = (DoubleRecord) obj;
+
+		return Double.doubleToLongBits(this.value) == Double.doubleToLongBits(other.value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int hashCode() {
+
+		return hashDouble(this.value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return Double.toString(this.value);
+	}
+
+	/**
+	 * Computes the hash code of a double value the same way as {@link Double#hashCode()}.
+	 */
+	private static int hashDouble(final double value) {
+
+		final long bits = Double.doubleToLongBits(value);
+		return (int) (bits ^ (bits >>> 32));
+	}
+}
@@ -20,7 +20,7 @@ import java.io.DataOutput;
 import java.io.IOException;
 import java.util.Arrays;
 
-public class FileRecord implements Record {
+public class FileRecord implements CopyableRecord<FileRecord> {
 
 	private String fileName;
 
@@ -99,6 +99,28 @@ public class FileRecord implements Record {
 		out.write(this.bytes, 0, this.bytes.length);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void copyTo(final FileRecord target) {
+
+		target.fileName = this.fileName;
+		target.bytes = Arrays.copyOf(this.bytes, this.bytes.length);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public FileRecord createCopy() {
+
+		final FileRecord copy = new FileRecord(this.fileName);
+		copy.bytes = Arrays.copyOf(this.bytes, this.bytes.length);
+
+		return copy;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
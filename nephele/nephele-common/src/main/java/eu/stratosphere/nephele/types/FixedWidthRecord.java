@@ -0,0 +1,56 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.types;
+
+import java.nio.ByteBuffer;
+
+/**
+ * This interface is implemented by records whose serialized representation has the same length for all instances of
+ * the record class. Nephele's channels transfer such records without a length prefix and write and read them directly
+ * from byte buffers instead of going through the {@link java.io.DataOutput} and {@link java.io.DataInput} interfaces.
+ * <p>
+ * Fixed-width records do not carry a {@link Tag}. The methods {@link #write(java.io.DataOutput)} and
+ * {@link #read(java.io.DataInput)} must still be implemented and must produce the same representation as
+ * {@link #writeFixed(ByteBuffer)} and {@link #readFixed(ByteBuffer)}.
+ */
+public interface FixedWidthRecord extends Record {
+
+	/**
+	 * Returns the length of the serialized representation of this record in bytes. The length must be the same for
+	 * all instances of the record class.
+	 * 
+	 * @return the length of the serialized representation in bytes
+	 */
+	int getWidth();
+
+	/**
+	 * Writes the content of this record to the given byte buffer. Exactly {@link #getWidth()} bytes are written in big
+	 * endian byte order, starting at the buffer's current position.
+	 * 
+	 * @param target
+	 *        the byte buffer to write the content to
+	 */
+	void writeFixed(ByteBuffer target);
+
+	/**
+	 * Reads the content of this record from the given byte buffer. Exactly {@link #getWidth()} bytes are read in big
+	 * endian byte order, starting at the buffer's current position.
+	 * 
+	 * @param source
+	 *        the byte buffer to read the content from
+	 */
+	void readFixed(ByteBuffer source);
+}
@@ -24,7 +24,7 @@ import java.io.IOException;
  * 
  * @author warneke
  */
-public class IntegerRecord extends AbstractTaggableRecord {
+public class IntegerRecord extends AbstractTaggableRecord implements CopyableRecord<IntegerRecord> {
 
 	/**
 	 * The integer value represented by the record.
@@ -88,6 +88,28 @@ public class IntegerRecord extends AbstractTaggableRecord {
 		out.writeInt(this.value);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void copyTo(final IntegerRecord target) {
+
+		target.value = this.value;
+		copyTagTo(target);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public IntegerRecord createCopy() {
+
+		final IntegerRecord copy = new IntegerRecord(this.value);
+		copyTagTo(copy);
+
+		return copy;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -0,0 +1,201 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.types;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * This class represents a fixed-width record for a long key with a double value, such as a weighted ID.
+ */
+public final class LongDoublePairRecord implements FixedWidthRecord, CopyableRecord<LongDoublePairRecord> {
+
+	/**
+	 * The length of the serialized representation in bytes.
+	 */
+	public static final int WIDTH = 16;
+
+	/**
+	 * The long key of the pair.
+	 */
+	private long key;
+
+	/**
+	 * The double value of the pair.
+	 */
+	private double value;
+
+	/**
+	 * Constructs a new record with the given values.
+	 * 
+	 * @param key
+	 *        the long key of the pair
+	 * @param value
+	 *        the double value of the pair
+	 */
+	public LongDoublePairRecord(final long key, final double value) {
+		this.key = key;
+		this.value = value;
+	}
+
+	/**
+	 * Constructs a new record with all values set to zero.
+	 */
+	public LongDoublePairRecord() {
+	}
+
+	/**
+	 * Returns the long key of the pair.
+	 * 
+	 * @return the long key of the pair
+	 */
+	public long getKey() {
+		return this.key;
+	}
+
+	/**
+	 * Sets the long key of the pair.
+	 * 
+	 * @param key
+	 *        the new value
+	 */
+	public void setKey(final long key) {
+		this.key = key;
+	}
+
+	/**
+	 * Returns the double value of the pair.
+	 * 
+	 * @return the double value of the pair
+	 */
+	public double getValue() {
+		return this.value;
+	}
+
+	/**
+	 * Sets the double value of the pair.
+	 * 
+	 * @param value
+	 *        the new value
+	 */
+	public void setValue(final double value) {
+		this.value = value;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getWidth() {
+		return WIDTH;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeFixed(final ByteBuffer target) {
+		target.putLong(this.key);
+		target.putDouble(this.value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void readFixed(final ByteBuffer source) {
+		this.key = source.getLong();
+		this.value = source.getDouble();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void write(final DataOutput out) throws IOException {
+		out.writeLong(this.key);
+		out.writeDouble(this.value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void read(final DataInput in) throws IOException {
+		this.key = in.readLong();
+		this.value = in.readDouble();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void copyTo(final LongDoublePairRecord target) {
+		target.key = this.key;
+		target.value = this.value;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public LongDoublePairRecord createCopy() {
+		return new LongDoublePairRecord(this.key, this.value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(final Object obj) {
+
+		if (!(obj instanceof LongDoublePairRecord)) {
+			return false;
+		}
+
+		final LongDoublePairRecord other = (LongDoublePairRecord) obj;
+
+		return this.key == other.key && Double.doubleToLongBits(this.value) == Double.doubleToLongBits(other.value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int hashCode() {
+
+		return 31 * (int) (this.key ^ (this.key >>> 32)) + hashDouble(this.value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return "(" + this.key + ", " + this.value + ")";
+	}
+
+	/**
+	 * Computes the hash code of a double value the same way as {@link Double#hashCode()}.
+	 */
+	private static int hashDouble(final double value) {
+
+		final long bits = Double.doubleToLongBits(value);
+		return (int) (bits ^ (bits >>> 32));
+	}
+}
@@ -0,0 +1,192 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.types;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * This class represents a fixed-width record for a pair of long values.
+ */
+public final class LongPairRecord implements FixedWidthRecord, CopyableRecord<LongPairRecord> {
+
+	/**
+	 * The length of the serialized representation in bytes.
+	 */
+	public static final int WIDTH = 16;
+
+	/**
+	 * The first long value of the pair.
+	 */
+	private long first;
+
+	/**
+	 * The second long value of the pair.
+	 */
+	private long second;
+
+	/**
+	 * Constructs a new record with the given values.
+	 * 
+	 * @param first
+	 *        the first long value of the pair
+	 * @param second
+	 *        the second long value of the pair
+	 */
+	public LongPairRecord(final long first, final long second) {
+		this.first = first;
+		this.second = second;
+	}
+
+	/**
+	 * Constructs a new record with all values set to zero.
+	 */
+	public LongPairRecord() {
+	}
+
+	/**
+	 * Returns the first long value of the pair.
+	 * 
+	 * @return the first long value of the pair
+	 */
+	public long getFirst() {
+		return this.first;
+	}
+
+	/**
+	 * Sets the first long value of the pair.
+	 * 
+	 * @param first
+	 *        the new value
+	 */
+	public void setFirst(final long first) {
+		this.first = first;
+	}
+
+	/**
+	 * Returns the second long value of the pair.
+	 * 
+	 * @return the second long value of the pair
+	 */
+	public long getSecond() {
+		return this.second;
+	}
+
+	/**
+	 * Sets the second long value of the pair.
+	 * 
+	 * @param second
+	 *        the new value
+	 */
+	public void setSecond(final long second) {
+		this.second = second;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getWidth() {
+		return WIDTH;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeFixed(final ByteBuffer target) {
+		target.putLong(this.first);
+		target.putLong(this.second);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void readFixed(final ByteBuffer source) {
+		this.first = source.getLong();
+		this.second = source.getLong();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void write(final DataOutput out) throws IOException {
+		out.writeLong(this.first);
+		out.writeLong(this.second);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void read(final DataInput in) throws IOException {
+		this.first = in.readLong();
+		this.second = in.readLong();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void copyTo(final LongPairRecord target) {
+		target.first = this.first;
+		target.second = this.second;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public LongPairRecord createCopy() {
+		return new LongPairRecord(this.first, this.second);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(final Object obj) {
+
+		if (!(obj instanceof LongPairRecord)) {
+			return false;
+		}
+
+		final LongPairRecord other = (LongPairRecord) obj;
+
+		return this.first == other.first && this.second == other.second;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int hashCode() {
+
+		return 31 * (int) (this.first ^ (this.first >>> 32)) + (int) (this.second ^ (this.second >>> 32));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return "(" + this.first + ", " + this.second + ")";
+	}
+}
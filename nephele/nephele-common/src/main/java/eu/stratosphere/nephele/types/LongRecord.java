@@ -0,0 +1,160 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.types;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * This class represents a fixed-width record for a long value.
+ */
+public final class LongRecord implements FixedWidthRecord, CopyableRecord<LongRecord> {
+
+	/**
+	 * The length of the serialized representation in bytes.
+	 */
+	public static final int WIDTH = 8;
+
+	/**
+	 * The long value represented by the record.
+	 */
+	private long value;
+
+	/**
+	 * Constructs a new record with the given values.
+	 * 
+	 * @param value
+	 *        the long value represented by the record
+	 */
+	public LongRecord(final long value) {
+		this.value = value;
+	}
+
+	/**
+	 * Constructs a new record with all values set to zero.
+	 */
+	public LongRecord() {
+	}
+
+	/**
+	 * Returns the long value represented by the record.
+	 * 
+	 * @return the long value represented by the record
+	 */
+	public long getValue() {
+		return this.value;
+	}
+
+	/**
+	 * Sets the long value represented by the record.
+	 * 
+	 * @param value
+	 *        the new value
+	 */
+	public void setValue(final long value) {
+		this.value = value;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getWidth() {
+		return WIDTH;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeFixed(final ByteBuffer target) {
+		target.putLong(this.value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void readFixed(final ByteBuffer source) {
+		this.value = source.getLong();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void write(final DataOutput out) throws IOException {
+		out.writeLong(this.value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void read(final DataInput in) throws IOException {
+		this.value = in.readLong();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void copyTo(final LongRecord target) {
+		target.value = this.value;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public LongRecord createCopy() {
+		return new LongRecord(this.value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(final Object obj) {
+
+		if (!(obj instanceof LongRecord)) {
+			return false;
+		}
+
+		final LongRecord other = (LongRecord) obj;
+
+		return this.value == other.value;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int hashCode() {
+
+		return (int) (this.value ^ (this.value >>> 32));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return Long.toString(this.value);
+	}
+}
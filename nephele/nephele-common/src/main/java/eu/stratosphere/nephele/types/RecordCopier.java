@@ -0,0 +1,206 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.types;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import eu.stratosphere.nephele.io.IOReadableWritable;
+import eu.stratosphere.nephele.io.channels.serialization.MemorySegmentOutputView;
+import eu.stratosphere.nephele.util.StringUtils;
+
+/**
+ * This class provides methods to copy {@link Record} objects. Records implementing {@link CopyableRecord} copy
+ * themselves, all other records are copied by serializing them into a buffer and deserializing them into a new
+ * instance. The buffers are kept per thread and reused across copies.
+ * <p>
+ * This class is thread-safe.
+ */
+public final class RecordCopier {
+
+	/**
+	 * The buffers for serialization copies, one per thread.
+	 */
+	private static final ThreadLocal<CopyBuffer> COPY_BUFFERS = new ThreadLocal<CopyBuffer>() {
+
+		@Override
+		protected CopyBuffer initialValue() {
+			return new CopyBuffer();
+		}
+	};
+
+	/**
+	 * Caches the default constructors of the copied types.
+	 */
+	private static final ConcurrentMap<Class<?>, Constructor<?>> CONSTRUCTORS = new ConcurrentHashMap<Class<?>, Constructor<?>>();
+
+	/**
+	 * Caches for the copied types whether they declare their own <code>copyTo</code> method.
+	 */
+	private static final ConcurrentMap<Class<?>, Boolean> COPY_METHODS = new ConcurrentHashMap<Class<?>, Boolean>();
+
+	/**
+	 * A reusable pair of output and input through which objects are copied.
+	 * <p>
+	 * This class is not thread-safe.
+	 */
+	private static final class CopyBuffer extends ByteArrayInputStream {
+
+		private final MemorySegmentOutputView outputView = new MemorySegmentOutputView();
+
+		private final DataInputStream inputView = new DataInputStream(this);
+
+		private CopyBuffer() {
+			super(new byte[0]);
+		}
+
+		/**
+		 * Copies the content of one object into another one through serialization.
+		 */
+		private void copy(final IOReadableWritable source, final IOReadableWritable target) throws IOException {
+
+			this.outputView.reset();
+			source.write(this.outputView);
+
+			final ByteBuffer data = this.outputView.getData();
+			this.buf = data.array();
+			this.pos = data.arrayOffset();
+			this.count = data.arrayOffset() + data.limit();
+			this.mark = this.pos;
+
+			target.read(this.inputView);
+		}
+	}
+
+	/**
+	 * Private constructor to prevent instantiation.
+	 */
+	private RecordCopier() {
+	}
+
+	/**
+	 * Creates a copy of the given record which does not share any mutable state with it.
+	 * 
+	 * @param original
+	 *        the record to copy
+	 * @return the copy of the record
+	 * @throws IOException
+	 *         thrown if the record cannot be instantiated or an error occurs while copying it by serialization
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public static <T extends Record> T createCopy(final T original) throws IOException {
+
+		if (original instanceof CopyableRecord) {
+			final Record copy = ((CopyableRecord) original).createCopy();
+			// Subclasses which do not override createCopy would be copied as their super class
+			if (copy.getClass() == original.getClass()) {
+				return (T) copy;
+			}
+		}
+
+		final T copy = (T) newInstance(original.getClass());
+		COPY_BUFFERS.get().copy(original, copy);
+
+		return copy;
+	}
+
+	/**
+	 * Copies the content of the given record into the given target record of the same class.
+	 * 
+	 * @param original
+	 *        the record to copy
+	 * @param target
+	 *        the record to copy the content to
+	 * @throws IOException
+	 *         thrown if an error occurs while copying the record by serialization
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public static <T extends Record> void copy(final T original, final T target) throws IOException {
+
+		if (original.getClass() != target.getClass()) {
+			throw new IllegalArgumentException("Cannot copy a record of type " + original.getClass().getName()
+				+ " into a record of type " + target.getClass().getName());
+		}
+
+		// Subclasses which do not override copyTo would only be copied partially
+		if (original instanceof CopyableRecord && declaresCopyTo(original.getClass())) {
+			((CopyableRecord) original).copyTo((CopyableRecord) target);
+			return;
+		}
+
+		COPY_BUFFERS.get().copy(original, target);
+	}
+
+	/**
+	 * Creates a copy of the given tag. Tags are always copied by serialization.
+	 * 
+	 * @param original
+	 *        the tag to copy
+	 * @param target
+	 *        the tag to copy the content to, must be of the same class as the original tag
+	 * @throws IOException
+	 *         thrown if an error occurs while copying the tag
+	 */
+	static void copyTag(final Tag original, final Tag target) throws IOException {
+
+		COPY_BUFFERS.get().copy(original, target);
+	}
+
+	/**
+	 * Checks whether the given class itself declares a <code>copyTo</code> method rather than inheriting it.
+	 */
+	private static boolean declaresCopyTo(final Class<?> clazz) {
+
+		Boolean declared = COPY_METHODS.get(clazz);
+		if (declared == null) {
+			declared = Boolean.FALSE;
+			for (final Method method : clazz.getDeclaredMethods()) {
+				if ("copyTo".equals(method.getName()) && method.getParameterTypes().length == 1) {
+					declared = Boolean.TRUE;
+					break;
+				}
+			}
+			COPY_METHODS.put(clazz, declared);
+		}
+
+		return declared.booleanValue();
+	}
+
+	/**
+	 * Creates a new instance of the given class through its cached default constructor.
+	 */
+	private static Object newInstance(final Class<?> clazz) throws IOException {
+
+		try {
+			Constructor<?> constructor = CONSTRUCTORS.get(clazz);
+			if (constructor == null) {
+				constructor = clazz.getDeclaredConstructor();
+				constructor.setAccessible(true);
+				CONSTRUCTORS.put(clazz, constructor);
+			}
+
+			return constructor.newInstance();
+		} catch (Exception e) {
+			throw new IOException(StringUtils.stringifyException(e));
+		}
+	}
+}
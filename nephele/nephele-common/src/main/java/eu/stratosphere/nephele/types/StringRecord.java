@@ -36,6 +36,8 @@ import java.text.CharacterIterator;
 import java.text.StringCharacterIterator;
 import java.util.Arrays;
 
+import eu.stratosphere.nephele.services.memorymanager.MemorySegment;
+
 /**
  * This class stores text using standard UTF8 encoding. It provides methods to
  * serialize, deserialize, and compare texts at byte level. The type of length
@@ -45,8 +47,30 @@ import java.util.Arrays;
  * <p>
  * Also includes utilities for serializing/deserialing a string, coding/decoding a string, checking if a byte array
  * contains valid UTF8 code, calculating the length of an encoded string.
+ * <p>
+ * String records are ordered by the unsigned values of their UTF-8 bytes, which equals the order of the Unicode code
+ * points. Records can therefore be compared without decoding them, either through a normalized key made of their
+ * first bytes or in their serialized representation inside a {@link MemorySegment}. The hash code and the normalized
+ * key are cached until the record is modified through one of its methods. Modifying the array returned by
+ * {@link #getBytes()} directly does not invalidate them.
  */
-public class StringRecord extends AbstractTaggableRecord {
+public class StringRecord extends AbstractTaggableRecord implements Comparable<StringRecord>,
+		CopyableRecord<StringRecord> {
+
+	/**
+	 * The number of bytes of a normalized key.
+	 */
+	public static final int NORMALIZED_KEY_LENGTH = 8;
+
+	/**
+	 * The offset of the length field in the serialized representation of a record without a tag.
+	 */
+	private static final int SERIALIZED_LENGTH_OFFSET = 1;
+
+	/**
+	 * The offset of the UTF-8 bytes in the serialized representation of a record without a tag.
+	 */
+	private static final int SERIALIZED_DATA_OFFSET = SERIALIZED_LENGTH_OFFSET + 4;
 
 	private static final ThreadLocal<CharsetEncoder> ENCODER_FACTORY = new ThreadLocal<CharsetEncoder>() {
 		protected CharsetEncoder initialValue() {
@@ -67,6 +91,16 @@ public class StringRecord extends AbstractTaggableRecord {
 	 **/
 	private int hash = 0;
 
+	/**
+	 * Cache the normalized key for the encapsulated string.
+	 */
+	private long normalizedKey = 0L;
+
+	/**
+	 * Stores whether {@link #normalizedKey} is up to date.
+	 */
+	private boolean normalizedKeyValid = false;
+
 	private static final byte[] EMPTY_BYTES = new byte[0];
 
 	private byte[] bytes;
@@ -75,7 +109,6 @@ public class StringRecord extends AbstractTaggableRecord {
 
 	public StringRecord() {
 		this.bytes = EMPTY_BYTES;
-		this.hash = 0;
 	}
 
 	/**
@@ -186,7 +219,7 @@ public class StringRecord extends AbstractTaggableRecord {
 			final ByteBuffer bb = encode(string, true);
 			this.bytes = bb.array();
 			this.length = bb.limit();
-			this.hash = 0;
+			invalidateCaches();
 		} catch (CharacterCodingException e) {
 			throw new RuntimeException("Should not have happened " + e.toString());
 		}
@@ -202,6 +235,7 @@ public class StringRecord extends AbstractTaggableRecord {
 	/** copy a text. */
 	public void set(final StringRecord other) {
 		set(other.getBytes(), 0, other.getLength());
+		this.hash = other.hash;
 	}
 
 	/** Returns the number of bytes in the byte array */
@@ -223,7 +257,7 @@ public class StringRecord extends AbstractTaggableRecord {
 		setCapacity(len, false);
 		System.arraycopy(utf8, start, bytes, 0, len);
 		this.length = len;
-		this.hash = 0;
+		invalidateCaches();
 	}
 
 	/**
@@ -240,7 +274,7 @@ public class StringRecord extends AbstractTaggableRecord {
 		setCapacity(length + len, true);
 		System.arraycopy(utf8, start, bytes, length, len);
 		this.length += len;
-		this.hash = 0;
+		invalidateCaches();
 	}
 
 	/**
@@ -248,7 +282,7 @@ public class StringRecord extends AbstractTaggableRecord {
 	 */
 	public void clear() {
 		this.length = 0;
-		this.hash = 0;
+		invalidateCaches();
 	}
 
 	/*
@@ -292,7 +326,7 @@ public class StringRecord extends AbstractTaggableRecord {
 		setCapacity(newLength, false);
 		in.readFully(this.bytes, 0, newLength);
 		this.length = newLength;
-		this.hash = 0;
+		invalidateCaches();
 	}
 
 	/** Skips over one Text in the input. */
@@ -340,6 +374,11 @@ public class StringRecord extends AbstractTaggableRecord {
 			return false;
 		}
 
+		// Both hash codes are known to be correct if they are non-zero
+		if (this.hash != 0 && sr.hash != 0 && this.hash != sr.hash) {
+			return false;
+		}
+
 		if (this.bytes.length == this.length && sr.bytes.length == sr.length) {
 
 			return Arrays.equals(this.bytes, sr.bytes);
@@ -377,7 +416,216 @@ public class StringRecord extends AbstractTaggableRecord {
 
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void copyTo(final StringRecord target) {
+
+		target.set(this);
+		copyTagTo(target);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public StringRecord createCopy() {
+
+		final StringRecord copy = new StringRecord(this);
+		copyTagTo(copy);
+
+		return copy;
+	}
+
+	/**
+	 * Compares this record to the given one by the unsigned values of their UTF-8 bytes. The first
+	 * {@link #NORMALIZED_KEY_LENGTH} bytes are compared through the cached normalized keys of both records.
+	 * 
+	 * @param other
+	 *        the record to compare to
+	 * @return a negative number, zero or a positive number if this record is less than, equal to or greater than the
+	 *         given record
+	 */
+	@Override
+	public int compareTo(final StringRecord other) {
+
+		final long key1 = getNormalizedKey();
+		final long key2 = other.getNormalizedKey();
+		if (key1 != key2) {
+			// Flip the sign bits to compare the keys as unsigned values
+			return (key1 ^ Long.MIN_VALUE) < (key2 ^ Long.MIN_VALUE) ? -1 : 1;
+		}
+
+		// With equal keys, a record not longer than the key is a prefix of the other one
+		if (this.length <= NORMALIZED_KEY_LENGTH || other.length <= NORMALIZED_KEY_LENGTH) {
+			return this.length - other.length;
+		}
+
+		return compareBytes(this.bytes, NORMALIZED_KEY_LENGTH, this.length, other.bytes, NORMALIZED_KEY_LENGTH,
+			other.length);
+	}
+
+	/**
+	 * Returns the normalized key of this record. The normalized key consists of the first
+	 * {@link #NORMALIZED_KEY_LENGTH} bytes of the UTF-8 representation in big endian order, padded with zeros. If the
+	 * normalized keys of two records interpreted as unsigned numbers differ, the records compare in the same order.
+	 * If they are equal, the remaining bytes and the lengths decide.
+	 * 
+	 * @return the normalized key of this record
+	 */
+	public long getNormalizedKey() {
+
+		if (!this.normalizedKeyValid) {
+			long key = 0L;
+			final int len = Math.min(this.length, NORMALIZED_KEY_LENGTH);
+			for (int i = 0; i < len; ++i) {
+				key |= ((long) (this.bytes[i] & 0xff)) << ((NORMALIZED_KEY_LENGTH - 1 - i) << 3);
+			}
+			this.normalizedKey = key;
+			this.normalizedKeyValid = true;
+		}
+
+		return this.normalizedKey;
+	}
+
+	/**
+	 * Writes a normalized key of the given length to the given memory segment. Comparing the written keys of two
+	 * records byte by byte with {@link MemorySegment#compare(MemorySegment, MemorySegment, int, int, int)} yields their
+	 * order unless the keys are equal, in which case the records have to be compared completely.
+	 * 
+	 * @param target
+	 *        the memory segment to write the key to
+	 * @param offset
+	 *        the offset in the memory segment to write the key at
+	 * @param numBytes
+	 *        the length of the key in bytes
+	 */
+	public void copyNormalizedKey(final MemorySegment target, final int offset, final int numBytes) {
+
+		final int len = Math.min(this.length, numBytes);
+		target.put(offset, this.bytes, 0, len);
+		for (int i = len; i < numBytes; ++i) {
+			target.put(offset + i, (byte) 0);
+		}
+	}
+
+	/**
+	 * Resets the cached hash code and normalized key after a modification of the encapsulated string.
+	 */
+	private void invalidateCaches() {
+
+		this.hash = 0;
+		this.normalizedKeyValid = false;
+	}
+
 	// / STATIC UTILITIES FROM HERE DOWN
+
+	/**
+	 * Compares two byte ranges by the unsigned values of their bytes, a shorter range being less than a longer one
+	 * with the same prefix.
+	 */
+	private static int compareBytes(final byte[] b1, final int start1, final int end1, final byte[] b2,
+			final int start2, final int end2) {
+
+		int i1 = start1;
+		int i2 = start2;
+		while (i1 < end1 && i2 < end2) {
+			final int cmp = (b1[i1++] & 0xff) - (b2[i2++] & 0xff);
+			if (cmp != 0) {
+				return cmp;
+			}
+		}
+
+		return (end1 - i1) - (end2 - i2);
+	}
+
+	/**
+	 * Compares two serialized string records in place, without deserializing them. The result has the same sign as
+	 * {@link #compareTo(StringRecord)} on the deserialized records. The records must have been serialized without a
+	 * tag.
+	 * 
+	 * @param segment1
+	 *        the memory segment containing the first record
+	 * @param offset1
+	 *        the offset of the first record in its memory segment
+	 * @param segment2
+	 *        the memory segment containing the second record
+	 * @param offset2
+	 *        the offset of the second record in its memory segment
+	 * @return a negative number, zero or a positive number if the first record is less than, equal to or greater than
+	 *         the second record
+	 * @throws IllegalArgumentException
+	 *         thrown if one of the records carries a tag
+	 */
+	public static int compareSerialized(final MemorySegment segment1, final int offset1,
+			final MemorySegment segment2, final int offset2) {
+
+		final int length1 = getSerializedLength(segment1, offset1);
+		final int length2 = getSerializedLength(segment2, offset2);
+
+		final int cmp = MemorySegment.compare(segment1, segment2, offset1 + SERIALIZED_DATA_OFFSET, offset2
+			+ SERIALIZED_DATA_OFFSET, Math.min(length1, length2));
+		if (cmp != 0) {
+			return cmp;
+		}
+
+		return length1 - length2;
+	}
+
+	/**
+	 * Computes the hash code of a serialized string record in place, without deserializing it. The result equals
+	 * {@link #hashCode()} of the deserialized record. The record must have been serialized without a tag.
+	 * 
+	 * @param segment
+	 *        the memory segment containing the record
+	 * @param offset
+	 *        the offset of the record in the memory segment
+	 * @return the hash code of the record
+	 * @throws IllegalArgumentException
+	 *         thrown if the record carries a tag
+	 */
+	public static int hashSerialized(final MemorySegment segment, final int offset) {
+
+		final int length = getSerializedLength(segment, offset);
+		final int start = offset + SERIALIZED_DATA_OFFSET;
+
+		int h = 0;
+		for (int i = 0; i < length; ++i) {
+			h = 31 * h + segment.get(start + i);
+		}
+
+		return h;
+	}
+
+	/**
+	 * Returns the number of bytes a string record occupies in its serialized representation, without deserializing it.
+	 * The record must have been serialized without a tag.
+	 * 
+	 * @param segment
+	 *        the memory segment containing the record
+	 * @param offset
+	 *        the offset of the record in the memory segment
+	 * @return the number of bytes of the serialized record
+	 * @throws IllegalArgumentException
+	 *         thrown if the record carries a tag
+	 */
+	public static int getSerializedSize(final MemorySegment segment, final int offset) {
+
+		return SERIALIZED_DATA_OFFSET + getSerializedLength(segment, offset);
+	}
+
+	/**
+	 * Reads the length of the UTF-8 representation from a serialized string record.
+	 */
+	private static int getSerializedLength(final MemorySegment segment, final int offset) {
+
+		if (segment.get(offset) != 0) {
+			throw new IllegalArgumentException("Serialized string record at offset " + offset + " carries a tag");
+		}
+
+		return segment.getIntBigEndian(offset + SERIALIZED_LENGTH_OFFSET);
+	}
 	/**
 	 * Converts the provided byte array to a String using the UTF-8 encoding. If
 	 * the input is malformed, replace by a default value.
@@ -0,0 +1,278 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.types;
+
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import eu.stratosphere.nephele.util.StringUtils;
+
+/**
+ * The tag registry maps the {@link Tag} types to small integer IDs, so {@link AbstractTaggableRecord} objects can
+ * encode the type of their tag in a single byte instead of its class name. The IDs are chosen by the component which
+ * registers the tag type, so sender and receiver agree on them without further coordination. Tags of unregistered
+ * types are still transmitted with their class name.
+ * <p>
+ * In addition, the registry caches the default constructors of all tag types it has seen, so tags can be instantiated
+ * without a class lookup per record.
+ * <p>
+ * This class is thread-safe.
+ */
+public final class TagRegistry {
+
+	/**
+	 * The smallest ID which can be assigned to a tag type.
+	 */
+	public static final int MIN_TAG_TYPE_ID = 1;
+
+	/**
+	 * The largest ID which can be assigned to a tag type.
+	 */
+	public static final int MAX_TAG_TYPE_ID = 254;
+
+	/**
+	 * The registered tag types, indexed by their ID.
+	 */
+	private static final AtomicReferenceArray<Constructor<?>> REGISTERED_CONSTRUCTORS = new AtomicReferenceArray<Constructor<?>>(
+		MAX_TAG_TYPE_ID + 1);
+
+	/**
+	 * Maps the registered tag types to their IDs.
+	 */
+	private static final ConcurrentMap<Class<?>, Integer> TAG_TYPE_IDS = new ConcurrentHashMap<Class<?>, Integer>();
+
+	/**
+	 * Caches the constructors of unregistered tag types by their class name.
+	 */
+	private static final ConcurrentMap<String, Constructor<?>> UNREGISTERED_CONSTRUCTORS = new ConcurrentHashMap<String, Constructor<?>>();
+
+	/**
+	 * Private constructor to prevent instantiation.
+	 */
+	private TagRegistry() {
+	}
+
+	/**
+	 * Registers the given tag type under the given ID. Registering the same type under the same ID again has no
+	 * effect, so the method can be called during the setup of every job.
+	 * 
+	 * @param tagType
+	 *        the tag type to register
+	 * @param tagTypeID
+	 *        the ID to register the tag type under, must be between {@link #MIN_TAG_TYPE_ID} and
+	 *        {@link #MAX_TAG_TYPE_ID}
+	 * @throws IllegalArgumentException
+	 *         thrown if the ID is out of range, the tag type cannot be instantiated or either the ID or the tag type
+	 *         has already been registered differently
+	 */
+	public static synchronized void registerTagType(final Class<? extends Tag> tagType, final int tagTypeID) {
+
+		if (tagType == null) {
+			throw new IllegalArgumentException("Argument tagType must not be null");
+		}
+
+		if (tagTypeID < MIN_TAG_TYPE_ID || tagTypeID > MAX_TAG_TYPE_ID) {
+			throw new IllegalArgumentException("Tag type ID " + tagTypeID + " is out of range");
+		}
+
+		final Integer registeredID = TAG_TYPE_IDS.get(tagType);
+		if (registeredID != null) {
+			if (registeredID.intValue() != tagTypeID) {
+				throw new IllegalArgumentException(tagType.getName() + " is already registered with ID "
+					+ registeredID);
+			}
+			return;
+		}
+
+		final Constructor<?> assigned = REGISTERED_CONSTRUCTORS.get(tagTypeID);
+		if (assigned != null) {
+			throw new IllegalArgumentException("Tag type ID " + tagTypeID + " is already assigned to "
+				+ assigned.getDeclaringClass().getName());
+		}
+
+		final Constructor<?> constructor;
+		try {
+			constructor = getDefaultConstructor(tagType);
+		} catch (IOException e) {
+			throw new IllegalArgumentException(e.getMessage());
+		}
+
+		REGISTERED_CONSTRUCTORS.set(tagTypeID, constructor);
+		TAG_TYPE_IDS.put(tagType, Integer.valueOf(tagTypeID));
+	}
+
+	/**
+	 * Returns the ID the given tag type has been registered with.
+	 * 
+	 * @param tagType
+	 *        the tag type to look up
+	 * @return the ID of the tag type or <code>0</code> if the tag type has not been registered
+	 */
+	public static int getTagTypeID(final Class<? extends Tag> tagType) {
+
+		final Integer tagTypeID = TAG_TYPE_IDS.get(tagType);
+		if (tagTypeID == null) {
+			return 0;
+		}
+
+		return tagTypeID.intValue();
+	}
+
+	/**
+	 * Returns the tag type registered with the given ID.
+	 * 
+	 * @param tagTypeID
+	 *        the ID to look up
+	 * @return the registered tag type or <code>null</code> if no tag type has been registered with the given ID
+	 */
+	@SuppressWarnings("unchecked")
+	public static Class<? extends Tag> getTagType(final int tagTypeID) {
+
+		final Constructor<?> constructor = getRegisteredConstructor(tagTypeID);
+		if (constructor == null) {
+			return null;
+		}
+
+		return (Class<? extends Tag>) constructor.getDeclaringClass();
+	}
+
+	/**
+	 * Creates a new tag of the type registered with the given ID.
+	 * 
+	 * @param tagTypeID
+	 *        the ID of the tag type
+	 * @return the new tag
+	 * @throws IOException
+	 *         thrown if no tag type is registered with the given ID or the tag cannot be instantiated
+	 */
+	static Tag createTag(final int tagTypeID) throws IOException {
+
+		final Constructor<?> constructor = getRegisteredConstructor(tagTypeID);
+		if (constructor == null) {
+			throw new IOException("No tag type is registered with ID " + tagTypeID);
+		}
+
+		return newInstance(constructor);
+	}
+
+	/**
+	 * Creates a new tag of the type with the given class name.
+	 * 
+	 * @param className
+	 *        the class name of the tag type
+	 * @return the new tag
+	 * @throws IOException
+	 *         thrown if the class cannot be found or the tag cannot be instantiated
+	 */
+	static Tag createTag(final String className) throws IOException {
+
+		Constructor<?> constructor = UNREGISTERED_CONSTRUCTORS.get(className);
+		if (constructor == null) {
+
+			final Class<?> clazz;
+			try {
+				clazz = Class.forName(className);
+			} catch (ClassNotFoundException e) {
+				throw new IOException(StringUtils.stringifyException(e));
+			}
+
+			if (!Tag.class.isAssignableFrom(clazz)) {
+				throw new IOException(className + " does not implement the tag interface");
+			}
+
+			constructor = getDefaultConstructor(clazz);
+			UNREGISTERED_CONSTRUCTORS.put(className, constructor);
+		}
+
+		return newInstance(constructor);
+	}
+
+	/**
+	 * Creates a new tag of the given type.
+	 * 
+	 * @param tagType
+	 *        the tag type
+	 * @return the new tag
+	 * @throws IOException
+	 *         thrown if the tag cannot be instantiated
+	 */
+	static <T extends Tag> T createTag(final Class<T> tagType) throws IOException {
+
+		final int tagTypeID = getTagTypeID(tagType);
+		if (tagTypeID != 0) {
+			return tagType.cast(createTag(tagTypeID));
+		}
+
+		return tagType.cast(createTag(tagType.getName()));
+	}
+
+	/**
+	 * Returns the constructor of the tag type registered with the given ID.
+	 * 
+	 * @param tagTypeID
+	 *        the ID to look up
+	 * @return the constructor or <code>null</code> if no tag type has been registered with the given ID
+	 */
+	private static Constructor<?> getRegisteredConstructor(final int tagTypeID) {
+
+		if (tagTypeID < MIN_TAG_TYPE_ID || tagTypeID > MAX_TAG_TYPE_ID) {
+			return null;
+		}
+
+		return REGISTERED_CONSTRUCTORS.get(tagTypeID);
+	}
+
+	/**
+	 * Returns the accessible default constructor of the given class.
+	 * 
+	 * @param clazz
+	 *        the class to return the default constructor for
+	 * @return the default constructor of the class
+	 * @throws IOException
+	 *         thrown if the class does not have a default constructor
+	 */
+	private static Constructor<?> getDefaultConstructor(final Class<?> clazz) throws IOException {
+
+		try {
+			final Constructor<?> constructor = clazz.getDeclaredConstructor();
+			constructor.setAccessible(true);
+			return constructor;
+		} catch (Exception e) {
+			throw new IOException("Tag type " + clazz.getName() + " does not have a default constructor");
+		}
+	}
+
+	/**
+	 * Instantiates a tag with the given constructor.
+	 * 
+	 * @param constructor
+	 *        the constructor to use
+	 * @return the new tag
+	 * @throws IOException
+	 *         thrown if the constructor fails
+	 */
+	private static Tag newInstance(final Constructor<?> constructor) throws IOException {
+
+		try {
+			return (Tag) constructor.newInstance();
+		} catch (Exception e) {
+			throw new IOException(StringUtils.stringifyException(e));
+		}
+	}
+}
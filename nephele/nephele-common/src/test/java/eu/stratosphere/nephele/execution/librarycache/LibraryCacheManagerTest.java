@@ -0,0 +1,163 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.execution.librarycache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.util.Random;
+
+import org.junit.Test;
+
+import eu.stratosphere.nephele.fs.Path;
+import eu.stratosphere.nephele.jobgraph.JobID;
+import eu.stratosphere.nephele.util.CommonTestUtils;
+import eu.stratosphere.nephele.util.StringUtils;
+
+/**
+ * This class contains tests for the chunked library transfer of the {@link LibraryCacheManager}.
+ */
+public class LibraryCacheManagerTest {
+
+	/**
+	 * The size of the test library in bytes.
+	 */
+	private static final int LIBRARY_SIZE = 100000;
+
+	/**
+	 * The maximum size of a chunk in bytes.
+	 */
+	private static final int CHUNK_SIZE = 16384;
+
+	/**
+	 * Adds a library with random content to the library cache and returns its cache name.
+	 */
+	private static String addRandomLibrary(final byte[] data) throws Exception {
+
+		new Random().nextBytes(data);
+
+		final MessageDigest md = MessageDigest.getInstance("SHA-1");
+		final String cacheName = StringUtils.byteToHexString(md.digest(data)) + ".jar";
+
+		LibraryCacheManager.addLibrary(new JobID(), new Path("file:///test.jar"), data.length, new DataInputStream(
+			new ByteArrayInputStream(data)));
+		assertNotNull(LibraryCacheManager.contains(cacheName));
+
+		return cacheName;
+	}
+
+	/**
+	 * Checks that a library is split into compressed chunks which are reassembled and verified by the receiver.
+	 */
+	@Test
+	public void testChunkedTransfer() throws Exception {
+
+		final byte[] data = new byte[LIBRARY_SIZE];
+		final String cacheName = addRandomLibrary(data);
+
+		final ByteArrayOutputStream received = new ByteArrayOutputStream();
+		long offset = 0L;
+		int numberOfChunks = 0;
+		LibraryCacheChunk chunk;
+		do {
+			chunk = CommonTestUtils.createCopy(LibraryCacheManager.readLibraryChunk(cacheName, offset, CHUNK_SIZE));
+			assertEquals(cacheName, chunk.getLibraryFileName());
+			assertEquals(offset, chunk.getOffset());
+			received.write(chunk.getData());
+			LibraryCacheManager.writeLibraryChunk(chunk);
+			offset += chunk.getData().length;
+			++numberOfChunks;
+		} while (!chunk.isLast());
+
+		assertEquals((LIBRARY_SIZE + CHUNK_SIZE - 1) / CHUNK_SIZE, numberOfChunks);
+		assertArrayEquals(data, received.toByteArray());
+		assertNotNull(LibraryCacheManager.contains(cacheName));
+	}
+
+	/**
+	 * Checks that chunks at unexpected offsets and libraries whose checksum does not match their name are rejected.
+	 */
+	@Test
+	public void testInvalidTransfer() throws Exception {
+
+		final byte[] data = new byte[LIBRARY_SIZE];
+		final String cacheName = addRandomLibrary(data);
+
+		final LibraryCacheChunk first = LibraryCacheManager.readLibraryChunk(cacheName, 0L, CHUNK_SIZE);
+		assertFalse(first.isLast());
+		LibraryCacheManager.writeLibraryChunk(first);
+
+		try {
+			LibraryCacheManager.writeLibraryChunk(LibraryCacheManager.readLibraryChunk(cacheName, 2L * CHUNK_SIZE,
+				CHUNK_SIZE));
+			fail("Chunk at unexpected offset has been accepted");
+		} catch (IOException ioe) {
+		}
+
+		// A library with corrupted data must not be added to the cache
+		final String wrongName = StringUtils.byteToHexString(new byte[20]) + ".jar";
+		final LibraryCacheChunk corrupted = new LibraryCacheChunk(wrongName, 0L, true, data);
+		try {
+			LibraryCacheManager.writeLibraryChunk(corrupted);
+			fail("Library with wrong checksum has been accepted");
+		} catch (IOException ioe) {
+		}
+
+		assertNull(LibraryCacheManager.contains(wrongName));
+	}
+
+	/**
+	 * Checks that a library manifest accepts the original chunks of a library and rejects modified ones.
+	 */
+	@Test
+	public void testManifestVerification() throws Exception {
+
+		final byte[] data = new byte[LIBRARY_SIZE];
+		final String cacheName = addRandomLibrary(data);
+
+		final LibraryManifest manifest = CommonTestUtils.createCopy(LibraryCacheManager.createLibraryManifest(
+			cacheName, CHUNK_SIZE));
+		assertEquals(LIBRARY_SIZE, manifest.getLength());
+		assertEquals((LIBRARY_SIZE + CHUNK_SIZE - 1) / CHUNK_SIZE, manifest.getNumberOfChunks());
+
+		for (int i = 0; i < manifest.getNumberOfChunks(); ++i) {
+			manifest.verifyChunk(LibraryCacheManager.readLibraryChunk(cacheName, (long) i * CHUNK_SIZE, CHUNK_SIZE));
+		}
+
+		final LibraryCacheChunk chunk = LibraryCacheManager.readLibraryChunk(cacheName, CHUNK_SIZE, CHUNK_SIZE);
+		chunk.getData()[0]++;
+		try {
+			manifest.verifyChunk(chunk);
+			fail("Modified chunk has been accepted");
+		} catch (IOException ioe) {
+		}
+
+		try {
+			manifest.verifyChunk(LibraryCacheManager.readLibraryChunk(cacheName, 1L, CHUNK_SIZE));
+			fail("Unaligned chunk has been accepted");
+		} catch (IOException ioe) {
+		}
+	}
+}
@@ -21,6 +21,8 @@ import static org.junit.Assert.fail;
 
 import java.io.File;
 import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.Test;
 
@@ -79,4 +81,105 @@ public class LineReaderTest {
 
 	}
 
+	/**
+	 * Writes lines of different lengths, including empty lines and lines terminated by CR LF, to the given file.
+	 */
+	private static List<String> writeLines(final File testfile) throws Exception {
+
+		final List<String> lines = new ArrayList<String>();
+		final PrintWriter pw = new PrintWriter(testfile, "UTF8");
+		for (int i = 0; i < 50; i++) {
+			final StringBuilder sb = new StringBuilder();
+			for (int j = 0; j < (i * 7) % 23; j++) {
+				sb.append((char) ('a' + j));
+			}
+			lines.add(sb.toString());
+			pw.append(sb);
+			pw.append((i % 5 == 0) ? "\r\n" : "\n");
+		}
+		pw.close();
+
+		return lines;
+	}
+
+	/**
+	 * Reads all lines of the given range of the given file.
+	 */
+	private static void readRange(final Path path, final long start, final long length, final List<String> lines)
+			throws Exception {
+
+		final LineReader lr = new LineReader(new LocalFileSystem().open(path), start, length, 16);
+		byte[] buffer;
+		while ((buffer = lr.readLine()) != null) {
+			lines.add(new String(buffer, "UTF8"));
+		}
+		lr.close();
+	}
+
+	/**
+	 * Checks that two adjacent ranges read every line exactly once, regardless of where the boundary between the ranges
+	 * lies. Only the first range of a file starts at the beginning of the file.
+	 */
+	@Test
+	public void testAdjacentRanges() throws Exception {
+
+		final File testfile = new File(CommonTestUtils.getTempDir() + File.separator
+			+ CommonTestUtils.getRandomFilename());
+		final Path pathtotestfile = new Path(testfile.toURI().getPath());
+
+		try {
+			final List<String> expected = writeLines(testfile);
+			final long length = testfile.length();
+
+			for (long boundary = 1; boundary <= length; ++boundary) {
+				final List<String> lines = new ArrayList<String>();
+				readRange(pathtotestfile, 0, boundary, lines);
+				readRange(pathtotestfile, boundary, length - boundary, lines);
+				assertEquals("Boundary " + boundary, expected, lines);
+			}
+		} finally {
+			testfile.delete();
+		}
+	}
+
+	/**
+	 * Checks that a reader whose end is moved backwards while it is in use and a reader starting at the new end read
+	 * every line exactly once.
+	 */
+	@Test
+	public void testMovedEnd() throws Exception {
+
+		final File testfile = new File(CommonTestUtils.getTempDir() + File.separator
+			+ CommonTestUtils.getRandomFilename());
+		final Path pathtotestfile = new Path(testfile.toURI().getPath());
+
+		try {
+			final List<String> expected = writeLines(testfile);
+			final long length = testfile.length();
+
+			for (int linesBeforeMove = 0; linesBeforeMove < expected.size(); ++linesBeforeMove) {
+				for (long offset = -1; offset < 30; offset += 3) {
+
+					final List<String> lines = new ArrayList<String>();
+					final LineReader lr = new LineReader(new LocalFileSystem().open(pathtotestfile), 0, length, 16);
+					for (int i = 0; i < linesBeforeMove; ++i) {
+						lines.add(new String(lr.readLine(), "UTF8"));
+					}
+
+					final long newEnd = Math.max(1, Math.min(length, lr.getPosition() + offset));
+					lr.setEnd(newEnd);
+					byte[] buffer;
+					while ((buffer = lr.readLine()) != null) {
+						lines.add(new String(buffer, "UTF8"));
+					}
+					lr.close();
+
+					readRange(pathtotestfile, newEnd, length - newEnd, lines);
+					assertEquals(expected, lines);
+				}
+			}
+		} finally {
+			testfile.delete();
+		}
+	}
 }
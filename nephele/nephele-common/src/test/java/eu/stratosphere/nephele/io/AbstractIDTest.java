@@ -16,8 +16,12 @@
 package eu.stratosphere.nephele.io;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
 
 import org.junit.Test;
 
@@ -45,6 +49,27 @@ public class AbstractIDTest {
 		assertEquals(id1, id2);
 	}
 
+	/**
+	 * Tests that channel IDs derived from a common seed have distinct hash codes, although they only differ in the
+	 * source and channel indices encoded in their lower part.
+	 */
+	@Test
+	public void testDerivedIDHashCodes() {
+
+		final ChannelID seed = new ChannelID();
+		final Set<Integer> hashCodes = new HashSet<Integer>();
+
+		for (int i = 0; i < 100; ++i) {
+			for (int j = 0; j < 100; ++j) {
+				hashCodes.add(Integer.valueOf(ChannelID.derive(seed, i, j, false).hashCode()));
+				hashCodes.add(Integer.valueOf(ChannelID.derive(seed, i, j, true).hashCode()));
+			}
+		}
+
+		// Allow for a few random collisions
+		assertTrue(hashCodes.size() > 19990);
+	}
+
 	/**
 	 * Tests the serialization/deserialization of an abstract ID.
 	 */
@@ -62,4 +87,27 @@ public class AbstractIDTest {
 			e.printStackTrace();
 		}
 	}
+
+	/**
+	 * Tests that channel IDs derived from a common seed can be traced back to their indices.
+	 */
+	@Test
+	public void testDerivedIDs() {
+
+		final ChannelID seed = ChannelID.generateSeed();
+
+		for (int i = 0; i < 100; ++i) {
+			for (int j = 0; j < 100; ++j) {
+
+				final ChannelID outputID = ChannelID.derive(seed, i, j, false);
+				final ChannelID inputID = ChannelID.derive(seed, i, j, true);
+
+				assertEquals(seed.getSeedKey(), outputID.getSeedKey());
+				assertEquals(seed.getSeedKey(), inputID.getSeedKey());
+				assertFalse(outputID.isDerivedInputChannelID());
+				assertTrue(inputID.isDerivedInputChannelID());
+				assertEquals(((long) i << 32) | j, inputID.getDerivationOffset(seed));
+			}
+		}
+	}
 }
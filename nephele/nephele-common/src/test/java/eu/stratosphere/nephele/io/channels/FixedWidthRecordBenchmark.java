@@ -0,0 +1,187 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.io.channels;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+import eu.stratosphere.nephele.types.LongPairRecord;
+import eu.stratosphere.nephele.types.LongRecord;
+import eu.stratosphere.nephele.types.Record;
+
+/**
+ * Compares the throughput of numeric records which write themselves with a length prefix against the built-in
+ * {@link eu.stratosphere.nephele.types.FixedWidthRecord} types. Each record is serialized by a
+ * {@link SerializationBuffer} and deserialized again by a {@link DefaultDeserializer}, as on a channel.
+ */
+public class FixedWidthRecordBenchmark {
+
+	private static final int NUMBER_OF_RECORDS = 1000000;
+
+	private static final int WARMUP_ROUNDS = 10;
+
+	private static final int MEASURED_ROUNDS = 20;
+
+	private static final int CHANNEL_CAPACITY = 64 * 1024 * 1024;
+
+	/**
+	 * A record with a single long value which writes itself.
+	 */
+	public static final class VariableLongRecord implements Record {
+
+		long value;
+
+		@Override
+		public void write(final DataOutput out) throws IOException {
+			out.writeLong(this.value);
+		}
+
+		@Override
+		public void read(final DataInput in) throws IOException {
+			this.value = in.readLong();
+		}
+	}
+
+	/**
+	 * A record with two long values which writes itself.
+	 */
+	public static final class VariableLongPairRecord implements Record {
+
+		long first;
+
+		long second;
+
+		@Override
+		public void write(final DataOutput out) throws IOException {
+			out.writeLong(this.first);
+			out.writeLong(this.second);
+		}
+
+		@Override
+		public void read(final DataInput in) throws IOException {
+			this.first = in.readLong();
+			this.second = in.readLong();
+		}
+	}
+
+	/**
+	 * An in-memory channel the records are written to and read from.
+	 */
+	private static final class MemoryChannel implements WritableByteChannel, ReadableByteChannel {
+
+		private final ByteBuffer buffer = ByteBuffer.allocate(CHANNEL_CAPACITY);
+
+		@Override
+		public boolean isOpen() {
+			return true;
+		}
+
+		@Override
+		public void close() {
+		}
+
+		@Override
+		public int write(final ByteBuffer src) {
+			final int length = src.remaining();
+			this.buffer.put(src);
+			return length;
+		}
+
+		@Override
+		public int read(final ByteBuffer dst) {
+			final int length = Math.min(dst.remaining(), this.buffer.remaining());
+			final int limit = this.buffer.limit();
+			this.buffer.limit(this.buffer.position() + length);
+			dst.put(this.buffer);
+			this.buffer.limit(limit);
+			return length;
+		}
+	}
+
+	public static void main(final String[] args) throws IOException {
+
+		final Record[] variableLongs = new Record[NUMBER_OF_RECORDS];
+		final Record[] fixedLongs = new Record[NUMBER_OF_RECORDS];
+		final Record[] variablePairs = new Record[NUMBER_OF_RECORDS];
+		final Record[] fixedPairs = new Record[NUMBER_OF_RECORDS];
+
+		for (int i = 0; i < NUMBER_OF_RECORDS; ++i) {
+			final VariableLongRecord vl = new VariableLongRecord();
+			vl.value = i * 31L;
+			variableLongs[i] = vl;
+			fixedLongs[i] = new LongRecord(vl.value);
+
+			final VariableLongPairRecord vp = new VariableLongPairRecord();
+			vp.first = i;
+			vp.second = -i;
+			variablePairs[i] = vp;
+			fixedPairs[i] = new LongPairRecord(vp.first, vp.second);
+		}
+
+		run("long (length prefixed)", variableLongs, new VariableLongRecord(), LengthPrefixEncoding.FIXED_INT);
+		run("long (fixed width)", fixedLongs, new LongRecord(), LengthPrefixEncoding.NONE);
+		run("long pair (length prefixed)", variablePairs, new VariableLongPairRecord(), LengthPrefixEncoding.FIXED_INT);
+		run("long pair (fixed width)", fixedPairs, new LongPairRecord(), LengthPrefixEncoding.NONE);
+	}
+
+	private static void run(final String name, final Record[] records, final Record target,
+			final LengthPrefixEncoding encoding) throws IOException {
+
+		final MemoryChannel channel = new MemoryChannel();
+		final SerializationBuffer<Record> serializationBuffer = new SerializationBuffer<Record>();
+		serializationBuffer.setLengthPrefixEncoding(encoding);
+		final DefaultDeserializer<Record> deserializer = new DefaultDeserializer<Record>(null);
+		deserializer.setLengthPrefixEncoding(encoding);
+
+		long serializationTime = 0L;
+		long deserializationTime = 0L;
+		long bytes = 0L;
+
+		for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; ++round) {
+
+			channel.buffer.clear();
+			final long start = System.nanoTime();
+			for (int i = 0; i < records.length; ++i) {
+				serializationBuffer.serialize(records[i]);
+				serializationBuffer.read(channel);
+			}
+			final long serialized = System.nanoTime();
+
+			bytes = channel.buffer.position();
+			channel.buffer.flip();
+			for (int i = 0; i < records.length; ++i) {
+				if (deserializer.readData(target, channel) == null) {
+					throw new IllegalStateException("Record " + i + " could not be deserialized");
+				}
+			}
+			final long deserialized = System.nanoTime();
+
+			if (round >= WARMUP_ROUNDS) {
+				serializationTime += serialized - start;
+				deserializationTime += deserialized - serialized;
+			}
+		}
+
+		final long numberOfRecords = (long) records.length * MEASURED_ROUNDS;
+		System.out.println(name + ": serialization " + (serializationTime / numberOfRecords)
+			+ " ns/record, deserialization " + (deserializationTime / numberOfRecords) + " ns/record, "
+			+ (bytes / records.length) + " bytes/record");
+	}
+}
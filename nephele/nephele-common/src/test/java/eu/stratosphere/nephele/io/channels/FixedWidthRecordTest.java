@@ -0,0 +1,195 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.io.channels;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+import org.junit.Test;
+
+import eu.stratosphere.nephele.types.DoublePairRecord;
+import eu.stratosphere.nephele.types.LongDoublePairRecord;
+import eu.stratosphere.nephele.types.LongRecord;
+import eu.stratosphere.nephele.types.Record;
+import eu.stratosphere.nephele.types.StringRecord;
+
+/**
+ * This class checks the transfer of {@link eu.stratosphere.nephele.types.FixedWidthRecord} objects through the
+ * {@link SerializationBuffer} and the {@link DefaultDeserializer}.
+ */
+public class FixedWidthRecordTest {
+
+	/**
+	 * An in-memory channel which provides at most a given number of bytes per read, so records are split across
+	 * several reads like across buffer boundaries.
+	 */
+	private static final class ChunkedChannel implements WritableByteChannel, ReadableByteChannel {
+
+		private final ByteBuffer buffer = ByteBuffer.allocate(4096);
+
+		private final int chunkSize;
+
+		private ChunkedChannel(final int chunkSize) {
+			this.chunkSize = chunkSize;
+		}
+
+		@Override
+		public boolean isOpen() {
+			return true;
+		}
+
+		@Override
+		public void close() {
+		}
+
+		@Override
+		public int write(final ByteBuffer src) {
+			final int length = src.remaining();
+			this.buffer.put(src);
+			return length;
+		}
+
+		@Override
+		public int read(final ByteBuffer dst) {
+			final int length = Math.min(Math.min(dst.remaining(), this.buffer.remaining()), this.chunkSize);
+			final int limit = this.buffer.limit();
+			this.buffer.limit(this.buffer.position() + length);
+			dst.put(this.buffer);
+			this.buffer.limit(limit);
+			return length;
+		}
+	}
+
+	/**
+	 * Checks that fixed-width records are transferred without a length prefix and survive being split.
+	 */
+	@Test
+	public void testImmutableTransfer() throws IOException {
+
+		final ChunkedChannel channel = new ChunkedChannel(5);
+		final SerializationBuffer<LongRecord> serializationBuffer = new SerializationBuffer<LongRecord>();
+		serializationBuffer.setLengthPrefixEncoding(LengthPrefixEncoding.NONE);
+
+		for (int i = 0; i < 10; ++i) {
+			serializationBuffer.serialize(new LongRecord(Long.MAX_VALUE - i));
+			serializationBuffer.read(channel);
+		}
+
+		assertEquals(10 * LongRecord.WIDTH, channel.buffer.position());
+		channel.buffer.flip();
+
+		final DefaultDeserializer<LongRecord> deserializer = new DefaultDeserializer<LongRecord>(LongRecord.class);
+		deserializer.setLengthPrefixEncoding(LengthPrefixEncoding.NONE);
+		LongRecord previous = null;
+		for (int i = 0; i < 10; ++i) {
+			LongRecord record;
+			while ((record = deserializer.readData(null, channel)) == null) {
+			}
+			assertEquals(Long.MAX_VALUE - i, record.getValue());
+			assertNotSame(previous, record);
+			previous = record;
+		}
+
+		assertFalse(deserializer.hasUnfinishedData());
+		assertNull(deserializer.readData(null, channel));
+	}
+
+	/**
+	 * Checks that fixed-width records are read into reused target objects.
+	 */
+	@Test
+	public void testMutableTransfer() throws IOException {
+
+		final ChunkedChannel channel = new ChunkedChannel(3);
+		final SerializationBuffer<Record> serializationBuffer = new SerializationBuffer<Record>();
+		serializationBuffer.setLengthPrefixEncoding(LengthPrefixEncoding.NONE);
+		final Record[] records = { new DoublePairRecord(1.5, -2.5), new LongDoublePairRecord(7L, Double.NaN) };
+
+		for (final Record record : records) {
+			serializationBuffer.serialize(record);
+			serializationBuffer.read(channel);
+		}
+		channel.buffer.flip();
+
+		final DefaultDeserializer<Record> deserializer = new DefaultDeserializer<Record>(null);
+		deserializer.setLengthPrefixEncoding(LengthPrefixEncoding.NONE);
+		final Record[] targets = { new DoublePairRecord(), new LongDoublePairRecord() };
+		for (int i = 0; i < records.length; ++i) {
+			Record record;
+			while ((record = deserializer.readData(targets[i], channel)) == null) {
+				assertTrue(deserializer.hasUnfinishedData());
+			}
+			assertSame(targets[i], record);
+			assertEquals(records[i], record);
+		}
+	}
+
+	/**
+	 * Checks a gate whose declared record type is not fixed-width. Its fixed-width records are length prefixed like
+	 * all other records, independent of the record types seen by the writer and the reader.
+	 */
+	@Test
+	public void testPolymorphicGate() throws IOException {
+
+		final ChunkedChannel channel = new ChunkedChannel(3);
+		final SerializationBuffer<Record> serializationBuffer = new SerializationBuffer<Record>();
+		final Record[] records = { new LongRecord(11L), new StringRecord("variable"), new LongRecord(12L) };
+
+		serializationBuffer.serialize(records[0]);
+		serializationBuffer.read(channel);
+		assertEquals(4 + LongRecord.WIDTH, channel.buffer.position());
+
+		for (int i = 1; i < records.length; ++i) {
+			serializationBuffer.serialize(records[i]);
+			serializationBuffer.read(channel);
+		}
+		channel.buffer.flip();
+
+		final DefaultDeserializer<Record> deserializer = new DefaultDeserializer<Record>(null);
+		final Record[] targets = { new LongRecord(), new StringRecord(), new LongRecord() };
+		for (int i = 0; i < records.length; ++i) {
+			Record record;
+			while ((record = deserializer.readData(targets[i], channel)) == null) {
+				assertTrue(deserializer.hasUnfinishedData());
+			}
+			assertSame(targets[i], record);
+			assertEquals(records[i], record);
+		}
+
+		// A reader which declares a fixed-width type still follows the encoding of the writer
+		final ChunkedChannel longChannel = new ChunkedChannel(3);
+		serializationBuffer.serialize(new LongRecord(13L));
+		serializationBuffer.read(longChannel);
+		longChannel.buffer.flip();
+
+		final DefaultDeserializer<LongRecord> longDeserializer = new DefaultDeserializer<LongRecord>(
+			LongRecord.class);
+		LongRecord longRecord;
+		while ((longRecord = longDeserializer.readData(new LongRecord(), longChannel)) == null) {
+		}
+		assertEquals(13L, longRecord.getValue());
+		assertFalse(longDeserializer.hasUnfinishedData());
+	}
+}
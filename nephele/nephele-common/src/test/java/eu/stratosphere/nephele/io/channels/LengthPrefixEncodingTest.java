@@ -0,0 +1,197 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+
+package eu.stratosphere.nephele.io.channels;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import eu.stratosphere.nephele.io.channels.bytebuffered.LengthPrefixEncodingEvent;
+import eu.stratosphere.nephele.types.StringRecord;
+
+/**
+ * This class checks the {@link LengthPrefixEncoding} support of the {@link SerializationBuffer} and the
+ * {@link DefaultDeserializer}.
+ */
+public class LengthPrefixEncodingTest {
+
+	/**
+	 * The lengths of the test strings, chosen around the boundaries of the variable-length encoding.
+	 */
+	private static final int[] STRING_LENGTHS = { 0, 1, 122, 123, 200, 16378, 16379, 20000 };
+
+	/**
+	 * An in-memory channel which provides at most a given number of bytes per read, so length prefixes are split
+	 * across several reads like across buffer boundaries.
+	 */
+	private static final class ChunkedChannel implements WritableByteChannel, ReadableByteChannel {
+
+		private final ByteBuffer buffer = ByteBuffer.allocate(128 * 1024);
+
+		private final int chunkSize;
+
+		private ChunkedChannel(final int chunkSize) {
+			this.chunkSize = chunkSize;
+		}
+
+		@Override
+		public boolean isOpen() {
+			return true;
+		}
+
+		@Override
+		public void close() {
+		}
+
+		@Override
+		public int write(final ByteBuffer src) {
+			final int length = src.remaining();
+			this.buffer.put(src);
+			return length;
+		}
+
+		@Override
+		public int read(final ByteBuffer dst) {
+			final int length = Math.min(Math.min(dst.remaining(), this.buffer.remaining()), this.chunkSize);
+			final int limit = this.buffer.limit();
+			this.buffer.limit(this.buffer.position() + length);
+			dst.put(this.buffer);
+			this.buffer.limit(limit);
+			return length;
+		}
+	}
+
+	/**
+	 * Creates a string of the given length.
+	 */
+	private static String createString(final int length) {
+
+		final char[] chars = new char[length];
+		Arrays.fill(chars, 'x');
+		return new String(chars);
+	}
+
+	/**
+	 * Serializes the test strings with the given encoding into the given channel.
+	 */
+	private static void serialize(final ChunkedChannel channel, final LengthPrefixEncoding encoding)
+			throws IOException {
+
+		final SerializationBuffer<StringRecord> serializationBuffer = new SerializationBuffer<StringRecord>();
+		serializationBuffer.setLengthPrefixEncoding(encoding);
+
+		for (final int length : STRING_LENGTHS) {
+			serializationBuffer.serialize(new StringRecord(createString(length)));
+			while (serializationBuffer.dataLeftFromPreviousSerialization()) {
+				serializationBuffer.read(channel);
+			}
+		}
+
+		channel.buffer.flip();
+	}
+
+	/**
+	 * Checks that records with variable-length prefixes are restored when the prefixes are read byte by byte.
+	 */
+	@Test
+	public void testSplitVarintPrefixes() throws IOException {
+
+		final ChunkedChannel channel = new ChunkedChannel(1);
+		serialize(channel, LengthPrefixEncoding.VARINT);
+
+		final DefaultDeserializer<StringRecord> deserializer = new DefaultDeserializer<StringRecord>(
+			StringRecord.class);
+		deserializer.setLengthPrefixEncoding(LengthPrefixEncoding.VARINT);
+
+		final StringRecord target = new StringRecord();
+		for (final int length : STRING_LENGTHS) {
+			StringRecord record;
+			boolean split = false;
+			while ((record = deserializer.readData(target, channel)) == null) {
+				assertTrue(deserializer.hasUnfinishedData());
+				split = true;
+			}
+			assertTrue(split);
+			assertEquals(createString(length), record.toString());
+		}
+
+		assertFalse(deserializer.hasUnfinishedData());
+		assertNull(deserializer.readData(target, channel));
+	}
+
+	/**
+	 * Checks that the variable-length prefixes take less space than the fixed ones for short records.
+	 */
+	@Test
+	public void testPrefixSize() throws IOException {
+
+		final ChunkedChannel fixedChannel = new ChunkedChannel(Integer.MAX_VALUE);
+		serialize(fixedChannel, LengthPrefixEncoding.FIXED_INT);
+
+		final ChunkedChannel varintChannel = new ChunkedChannel(Integer.MAX_VALUE);
+		serialize(varintChannel, LengthPrefixEncoding.VARINT);
+
+		// A serialized string takes five bytes more than its characters, so the prefixes take 1, 1, 1, 2, 2, 2, 3 and
+		// 3 bytes instead of 4 bytes each
+		final int saved = 3 + 3 + 3 + 2 + 2 + 2 + 1 + 1;
+		assertEquals(fixedChannel.buffer.limit() - saved, varintChannel.buffer.limit());
+	}
+
+	/**
+	 * Checks that switching the encoding is refused within a record.
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void testSwitchWithinRecord() throws IOException {
+
+		final ChunkedChannel channel = new ChunkedChannel(1);
+		serialize(channel, LengthPrefixEncoding.VARINT);
+
+		final DefaultDeserializer<StringRecord> deserializer = new DefaultDeserializer<StringRecord>(
+			StringRecord.class);
+		deserializer.setLengthPrefixEncoding(LengthPrefixEncoding.VARINT);
+		assertNull(deserializer.readData(new StringRecord(), channel));
+
+		deserializer.setLengthPrefixEncoding(LengthPrefixEncoding.FIXED_INT);
+	}
+
+	/**
+	 * Checks that the announcement of the encoding survives serialization.
+	 */
+	@Test
+	public void testEncodingEvent() throws IOException {
+
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		new LengthPrefixEncodingEvent(LengthPrefixEncoding.VARINT).write(new DataOutputStream(baos));
+
+		final LengthPrefixEncodingEvent event = new LengthPrefixEncodingEvent();
+		event.read(new DataInputStream(new ByteArrayInputStream(baos.toByteArray())));
+		assertEquals(LengthPrefixEncoding.VARINT, event.getEncoding());
+	}
+}
@@ -0,0 +1,172 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.io.channels.bytebuffered;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import eu.stratosphere.nephele.event.task.AbstractEvent;
+import eu.stratosphere.nephele.io.OutputGate;
+import eu.stratosphere.nephele.io.channels.Buffer;
+import eu.stratosphere.nephele.io.channels.ChannelID;
+import eu.stratosphere.nephele.io.channels.LengthPrefixEncoding;
+import eu.stratosphere.nephele.types.LongRecord;
+import eu.stratosphere.nephele.types.Record;
+import eu.stratosphere.nephele.types.StringRecord;
+
+/**
+ * This class contains tests for the throttling and the length prefix announcement of the
+ * {@link NetworkOutputChannel}.
+ */
+public class NetworkOutputChannelTest {
+
+	/**
+	 * The number of bytes each released buffer is reported to contain.
+	 */
+	private static final int BUFFER_SIZE = 1000;
+
+	/**
+	 * Checks that a throttled writer waits without holding the channel's monitor and is woken up as soon as the
+	 * channel is unthrottled.
+	 */
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testThrottledWriterReleasesMonitor() throws Exception {
+
+		final NetworkOutputChannel<StringRecord> channel = new NetworkOutputChannel<StringRecord>(
+			mock(OutputGate.class), 0, new ChannelID(), new ChannelID());
+		channel.setByteBufferedOutputChannelBroker(createBroker());
+
+		// Allow one buffer per second, so the second record has to wait
+		channel.processEvent(new NetworkThrottleEvent(BUFFER_SIZE, 60000));
+		channel.writeRecord(new StringRecord("first"));
+
+		final Throwable[] error = new Throwable[1];
+		final Thread writer = new Thread() {
+
+			@Override
+			public void run() {
+
+				try {
+					channel.writeRecord(new StringRecord("second"));
+				} catch (Throwable t) {
+					error[0] = t;
+				}
+			}
+		};
+		writer.start();
+
+		Thread.sleep(200L);
+		assertTrue(writer.isAlive());
+
+		// The monitor must be available to other threads while the writer waits
+		final Thread monitorUser = new Thread() {
+
+			@Override
+			public void run() {
+
+				synchronized (channel) {
+				}
+			}
+		};
+		monitorUser.start();
+		monitorUser.join(200L);
+		if (monitorUser.isAlive()) {
+			fail("Throttled writer holds the channel's monitor");
+		}
+
+		channel.processEvent(NetworkThrottleEvent.createUnthrottleEvent());
+		writer.join(200L);
+		assertFalse(writer.isAlive());
+		assertNull(error[0]);
+	}
+
+	/**
+	 * Checks that the records of a gate with a fixed-width declared record type are announced to be written without
+	 * length prefix, while a gate with a polymorphic declared record type keeps the length prefixes.
+	 */
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testFixedWidthAnnouncement() throws Exception {
+
+		final OutputGate<Record> polymorphicGate = mock(OutputGate.class);
+		when(polymorphicGate.getType()).thenReturn(Record.class);
+		when(polymorphicGate.getLengthPrefixEncoding()).thenReturn(LengthPrefixEncoding.FIXED_INT);
+
+		final ByteBufferedOutputChannelBroker polymorphicBroker = createBroker();
+		final NetworkOutputChannel<Record> polymorphicChannel = new NetworkOutputChannel<Record>(polymorphicGate, 0,
+			new ChannelID(), new ChannelID());
+		polymorphicChannel.setByteBufferedOutputChannelBroker(polymorphicBroker);
+		polymorphicChannel.writeRecord(new LongRecord(1L));
+		verify(polymorphicBroker, never()).transferEventToInputChannel(any(AbstractEvent.class));
+
+		final OutputGate<LongRecord> fixedWidthGate = mock(OutputGate.class);
+		when(fixedWidthGate.getType()).thenReturn(LongRecord.class);
+		when(fixedWidthGate.getLengthPrefixEncoding()).thenReturn(LengthPrefixEncoding.FIXED_INT);
+
+		final ByteBufferedOutputChannelBroker fixedWidthBroker = createBroker();
+		final NetworkOutputChannel<LongRecord> fixedWidthChannel = new NetworkOutputChannel<LongRecord>(
+			fixedWidthGate, 0, new ChannelID(), new ChannelID());
+		fixedWidthChannel.setByteBufferedOutputChannelBroker(fixedWidthBroker);
+		fixedWidthChannel.writeRecord(new LongRecord(2L));
+
+		final ArgumentCaptor<AbstractEvent> event = ArgumentCaptor.forClass(AbstractEvent.class);
+		verify(fixedWidthBroker).transferEventToInputChannel(event.capture());
+		assertEquals(LengthPrefixEncoding.NONE, ((LengthPrefixEncodingEvent) event.getValue()).getEncoding());
+	}
+
+	/**
+	 * Creates a mocked output channel broker which hands out a buffer that accepts any data and reports to contain
+	 * {@link #BUFFER_SIZE} bytes when it is released.
+	 */
+	private static ByteBufferedOutputChannelBroker createBroker() throws Exception {
+
+		final Buffer buffer = mock(Buffer.class);
+		when(buffer.write(any(ByteBuffer.class))).thenAnswer(new Answer<Integer>() {
+
+			@Override
+			public Integer answer(final InvocationOnMock invocation) {
+
+				final ByteBuffer src = (ByteBuffer) invocation.getArguments()[0];
+				final int numberOfBytes = src.remaining();
+				src.position(src.limit());
+				return Integer.valueOf(numberOfBytes);
+			}
+		});
+		when(buffer.remaining()).thenReturn(Integer.valueOf(0));
+		when(buffer.position()).thenReturn(Integer.valueOf(BUFFER_SIZE));
+
+		final ByteBufferedOutputChannelBroker broker = mock(ByteBufferedOutputChannelBroker.class);
+		when(broker.requestEmptyWriteBuffer()).thenReturn(buffer);
+
+		return broker;
+	}
+}
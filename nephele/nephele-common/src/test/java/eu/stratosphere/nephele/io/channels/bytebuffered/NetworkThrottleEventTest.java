@@ -0,0 +1,57 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.io.channels.bytebuffered;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+import eu.stratosphere.nephele.util.CommonTestUtils;
+
+/**
+ * This class contains tests for the {@link NetworkThrottleEvent}.
+ */
+public class NetworkThrottleEventTest {
+
+	/**
+	 * This test checks the serialization/deserialization of {@link NetworkThrottleEvent} objects.
+	 */
+	@Test
+	public void testSerialization() throws IOException {
+
+		final NetworkThrottleEvent orig = new NetworkThrottleEvent(5000000000L, 3000);
+		final NetworkThrottleEvent copy = CommonTestUtils.createCopy(orig);
+
+		assertEquals(orig.getTargetRate(), copy.getTargetRate());
+		assertEquals(orig.getDuration(), copy.getDuration());
+		assertFalse(copy.isUnthrottleEvent());
+	}
+
+	/**
+	 * This test checks that unthrottle events are recognized after serialization/deserialization.
+	 */
+	@Test
+	public void testUnthrottleEvent() throws IOException {
+
+		final NetworkThrottleEvent copy = CommonTestUtils.createCopy(NetworkThrottleEvent.createUnthrottleEvent());
+
+		assertTrue(copy.isUnthrottleEvent());
+	}
+}
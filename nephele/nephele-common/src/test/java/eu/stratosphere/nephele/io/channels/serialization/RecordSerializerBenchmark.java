@@ -0,0 +1,282 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.io.channels.serialization;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+import eu.stratosphere.nephele.io.channels.DefaultDeserializer;
+import eu.stratosphere.nephele.io.channels.SerializationBuffer;
+import eu.stratosphere.nephele.types.Record;
+import eu.stratosphere.nephele.types.StringRecord;
+
+/**
+ * Compares the throughput of records which write themselves with records transferred by a generated
+ * {@link RecordSerializer}, for a {@link StringRecord} and a POJO with ten fields. Each record is serialized by a
+ * {@link SerializationBuffer} and deserialized again by a {@link DefaultDeserializer}, as on a channel.
+ */
+public class RecordSerializerBenchmark {
+
+	private static final int NUMBER_OF_RECORDS = 200000;
+
+	private static final int WARMUP_ROUNDS = 10;
+
+	private static final int MEASURED_ROUNDS = 20;
+
+	private static final int CHANNEL_CAPACITY = 64 * 1024 * 1024;
+
+	/**
+	 * A record with a single string, transferred by a generated serializer.
+	 */
+	public static final class GeneratedStringRecord implements Record {
+
+		@SerializedField(0)
+		String value;
+
+		@Override
+		public void write(final DataOutput out) {
+			throw new IllegalStateException("write called");
+		}
+
+		@Override
+		public void read(final DataInput in) {
+			throw new IllegalStateException("read called");
+		}
+	}
+
+	/**
+	 * A POJO with ten fields which writes itself.
+	 */
+	public static final class HandWrittenPojo implements Record {
+
+		int f0;
+
+		int f1;
+
+		long f2;
+
+		long f3;
+
+		double f4;
+
+		float f5;
+
+		short f6;
+
+		boolean f7;
+
+		String f8;
+
+		String f9;
+
+		@Override
+		public void write(final DataOutput out) throws IOException {
+			out.writeInt(this.f0);
+			out.writeInt(this.f1);
+			out.writeLong(this.f2);
+			out.writeLong(this.f3);
+			out.writeDouble(this.f4);
+			out.writeFloat(this.f5);
+			out.writeShort(this.f6);
+			out.writeBoolean(this.f7);
+			StringRecord.writeString(out, this.f8);
+			StringRecord.writeString(out, this.f9);
+		}
+
+		@Override
+		public void read(final DataInput in) throws IOException {
+			this.f0 = in.readInt();
+			this.f1 = in.readInt();
+			this.f2 = in.readLong();
+			this.f3 = in.readLong();
+			this.f4 = in.readDouble();
+			this.f5 = in.readFloat();
+			this.f6 = in.readShort();
+			this.f7 = in.readBoolean();
+			this.f8 = StringRecord.readString(in);
+			this.f9 = StringRecord.readString(in);
+		}
+	}
+
+	/**
+	 * The same POJO, transferred by a generated serializer.
+	 */
+	public static final class GeneratedPojo implements Record {
+
+		@SerializedField(0)
+		int f0;
+
+		@SerializedField(1)
+		int f1;
+
+		@SerializedField(2)
+		long f2;
+
+		@SerializedField(3)
+		long f3;
+
+		@SerializedField(4)
+		double f4;
+
+		@SerializedField(5)
+		float f5;
+
+		@SerializedField(6)
+		short f6;
+
+		@SerializedField(7)
+		boolean f7;
+
+		@SerializedField(8)
+		String f8;
+
+		@SerializedField(9)
+		String f9;
+
+		@Override
+		public void write(final DataOutput out) {
+			throw new IllegalStateException("write called");
+		}
+
+		@Override
+		public void read(final DataInput in) {
+			throw new IllegalStateException("read called");
+		}
+	}
+
+	/**
+	 * An in-memory channel the records are written to and read from.
+	 */
+	private static final class MemoryChannel implements WritableByteChannel, ReadableByteChannel {
+
+		private final ByteBuffer buffer = ByteBuffer.allocate(CHANNEL_CAPACITY);
+
+		@Override
+		public boolean isOpen() {
+			return true;
+		}
+
+		@Override
+		public void close() {
+		}
+
+		@Override
+		public int write(final ByteBuffer src) {
+			final int length = src.remaining();
+			this.buffer.put(src);
+			return length;
+		}
+
+		@Override
+		public int read(final ByteBuffer dst) {
+			final int length = Math.min(dst.remaining(), this.buffer.remaining());
+			final int limit = this.buffer.limit();
+			this.buffer.limit(this.buffer.position() + length);
+			dst.put(this.buffer);
+			this.buffer.limit(limit);
+			return length;
+		}
+	}
+
+	public static void main(final String[] args) throws IOException {
+
+		final Record[] stringRecords = new Record[NUMBER_OF_RECORDS];
+		final Record[] generatedStringRecords = new Record[NUMBER_OF_RECORDS];
+		final Record[] handWrittenPojos = new Record[NUMBER_OF_RECORDS];
+		final Record[] generatedPojos = new Record[NUMBER_OF_RECORDS];
+
+		for (int i = 0; i < NUMBER_OF_RECORDS; ++i) {
+			final String s = "record number " + i;
+			stringRecords[i] = new StringRecord(s);
+			final GeneratedStringRecord gsr = new GeneratedStringRecord();
+			gsr.value = s;
+			generatedStringRecords[i] = gsr;
+
+			final HandWrittenPojo hwp = new HandWrittenPojo();
+			hwp.f0 = i;
+			hwp.f1 = -i;
+			hwp.f2 = i * 31L;
+			hwp.f3 = Long.MAX_VALUE - i;
+			hwp.f4 = i / 3.0;
+			hwp.f5 = i / 7.0f;
+			hwp.f6 = (short) i;
+			hwp.f7 = (i % 2 == 0);
+			hwp.f8 = s;
+			hwp.f9 = "constant";
+			handWrittenPojos[i] = hwp;
+
+			final GeneratedPojo gp = new GeneratedPojo();
+			gp.f0 = hwp.f0;
+			gp.f1 = hwp.f1;
+			gp.f2 = hwp.f2;
+			gp.f3 = hwp.f3;
+			gp.f4 = hwp.f4;
+			gp.f5 = hwp.f5;
+			gp.f6 = hwp.f6;
+			gp.f7 = hwp.f7;
+			gp.f8 = hwp.f8;
+			gp.f9 = hwp.f9;
+			generatedPojos[i] = gp;
+		}
+
+		run("StringRecord (hand-written)", stringRecords, new StringRecord());
+		run("String field (generated)", generatedStringRecords, new GeneratedStringRecord());
+		run("10-field POJO (hand-written)", handWrittenPojos, new HandWrittenPojo());
+		run("10-field POJO (generated)", generatedPojos, new GeneratedPojo());
+	}
+
+	private static void run(final String name, final Record[] records, final Record target) throws IOException {
+
+		final MemoryChannel channel = new MemoryChannel();
+		final SerializationBuffer<Record> serializationBuffer = new SerializationBuffer<Record>();
+		final DefaultDeserializer<Record> deserializer = new DefaultDeserializer<Record>(null);
+
+		long serializationTime = 0L;
+		long deserializationTime = 0L;
+
+		for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; ++round) {
+
+			channel.buffer.clear();
+			final long start = System.nanoTime();
+			for (int i = 0; i < records.length; ++i) {
+				serializationBuffer.serialize(records[i]);
+				serializationBuffer.read(channel);
+			}
+			final long serialized = System.nanoTime();
+
+			channel.buffer.flip();
+			for (int i = 0; i < records.length; ++i) {
+				if (deserializer.readData(target, channel) == null) {
+					throw new IllegalStateException("Record " + i + " could not be deserialized");
+				}
+			}
+			final long deserialized = System.nanoTime();
+
+			if (round >= WARMUP_ROUNDS) {
+				serializationTime += serialized - start;
+				deserializationTime += deserialized - serialized;
+			}
+		}
+
+		final long numberOfRecords = (long) records.length * MEASURED_ROUNDS;
+		System.out.println(name + ": serialization " + (serializationTime / numberOfRecords)
+			+ " ns/record, deserialization " + (deserializationTime / numberOfRecords) + " ns/record");
+	}
+}
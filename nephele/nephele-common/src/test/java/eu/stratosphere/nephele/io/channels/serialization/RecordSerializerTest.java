@@ -0,0 +1,345 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.io.channels.serialization;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import eu.stratosphere.nephele.io.channels.DefaultDeserializer;
+import eu.stratosphere.nephele.io.channels.SerializationBuffer;
+import eu.stratosphere.nephele.types.AbstractTaggableRecord;
+import eu.stratosphere.nephele.types.IntegerRecord;
+import eu.stratosphere.nephele.types.Record;
+import eu.stratosphere.nephele.types.StringRecord;
+import eu.stratosphere.nephele.types.Tag;
+
+/**
+ * This class contains tests for the generated {@link RecordSerializer} objects.
+ */
+public class RecordSerializerTest {
+
+	/**
+	 * A record whose content is transferred entirely by a generated serializer. The hand-written methods must never
+	 * be called by the channel layer.
+	 */
+	public static final class AnnotatedRecord extends AbstractTaggableRecord {
+
+		@SerializedField(0)
+		boolean booleanValue;
+
+		@SerializedField(1)
+		byte byteValue;
+
+		@SerializedField(2)
+		short shortValue;
+
+		@SerializedField(3)
+		char charValue;
+
+		@SerializedField(4)
+		int intValue;
+
+		@SerializedField(5)
+		long longValue;
+
+		@SerializedField(6)
+		float floatValue;
+
+		@SerializedField(7)
+		double doubleValue;
+
+		@SerializedField(8)
+		String stringValue;
+
+		@SerializedField(9)
+		byte[] byteArray;
+
+		@SerializedField(10)
+		int[] intArray;
+
+		@SerializedField(11)
+		String[] stringArray;
+
+		@SerializedField(12)
+		LinkedRecord linkedRecord;
+
+		@SerializedField(13)
+		IntegerRecord integerRecord;
+
+		@SerializedField(14)
+		LinkedRecord[] linkedArray;
+
+		int notTransferred;
+
+		@Override
+		public void write(final DataOutput out) {
+			throw new IllegalStateException("write called");
+		}
+
+		@Override
+		public void read(final DataInput in) {
+			throw new IllegalStateException("read called");
+		}
+	}
+
+	/**
+	 * A recursive record type.
+	 */
+	public static final class LinkedRecord implements Record {
+
+		@SerializedField(1)
+		LinkedRecord next;
+
+		@SerializedField(0)
+		int value;
+
+		@Override
+		public void write(final DataOutput out) {
+			throw new IllegalStateException("write called");
+		}
+
+		@Override
+		public void read(final DataInput in) {
+			throw new IllegalStateException("read called");
+		}
+	}
+
+	/**
+	 * A record with an annotated field the generated serializer cannot access.
+	 */
+	public static final class InaccessibleRecord implements Record {
+
+		@SerializedField(0)
+		private int value;
+
+		@Override
+		public void write(final DataOutput out) throws IOException {
+			out.writeInt(this.value);
+		}
+
+		@Override
+		public void read(final DataInput in) throws IOException {
+			this.value = in.readInt();
+		}
+	}
+
+	/**
+	 * A simple tag.
+	 */
+	public static final class TestTag implements Tag {
+
+		int value;
+
+		@Override
+		public void write(final DataOutput out) throws IOException {
+			out.writeInt(this.value);
+		}
+
+		@Override
+		public void read(final DataInput in) throws IOException {
+			this.value = in.readInt();
+		}
+	}
+
+	/**
+	 * Checks that all supported field types survive a round trip through the serialization buffer and the default
+	 * deserializer.
+	 */
+	@Test
+	public void testRoundTrip() throws IOException {
+
+		final AnnotatedRecord record = new AnnotatedRecord();
+		record.booleanValue = true;
+		record.byteValue = -3;
+		record.shortValue = 1234;
+		record.charValue = '\u20ac';
+		record.intValue = -12345678;
+		record.longValue = Long.MAX_VALUE - 7;
+		record.floatValue = 3.5f;
+		record.doubleValue = -2.25;
+		record.stringValue = "A\u00e4\u20ac\ud83d\ude00";
+		record.byteArray = new byte[] { 1, 2, 3 };
+		record.intArray = new int[] { 4, 5 };
+		record.stringArray = new String[] { "x", null, "z" };
+		record.linkedRecord = new LinkedRecord();
+		record.linkedRecord.value = 1;
+		record.linkedRecord.next = new LinkedRecord();
+		record.linkedRecord.next.value = 2;
+		record.integerRecord = new IntegerRecord(42);
+		record.linkedArray = new LinkedRecord[] { null, new LinkedRecord() };
+		record.linkedArray[1].value = 3;
+		record.notTransferred = 99;
+
+		final TestTag tag = new TestTag();
+		tag.value = 17;
+		record.setTag(tag);
+
+		final List<Record> result = roundTrip(record);
+		assertEquals(1, result.size());
+		final AnnotatedRecord copy = (AnnotatedRecord) result.get(0);
+
+		assertEquals(record.booleanValue, copy.booleanValue);
+		assertEquals(record.byteValue, copy.byteValue);
+		assertEquals(record.shortValue, copy.shortValue);
+		assertEquals(record.charValue, copy.charValue);
+		assertEquals(record.intValue, copy.intValue);
+		assertEquals(record.longValue, copy.longValue);
+		assertEquals(record.floatValue, copy.floatValue, 0.0f);
+		assertEquals(record.doubleValue, copy.doubleValue, 0.0);
+		assertEquals(record.stringValue, copy.stringValue);
+		assertArrayEquals(record.byteArray, copy.byteArray);
+		assertArrayEquals(record.intArray, copy.intArray);
+		assertArrayEquals(record.stringArray, copy.stringArray);
+		assertEquals(1, copy.linkedRecord.value);
+		assertEquals(2, copy.linkedRecord.next.value);
+		assertNull(copy.linkedRecord.next.next);
+		assertEquals(record.integerRecord, copy.integerRecord);
+		assertEquals(2, copy.linkedArray.length);
+		assertNull(copy.linkedArray[0]);
+		assertEquals(3, copy.linkedArray[1].value);
+		assertEquals(0, copy.notTransferred);
+		assertEquals(17, ((TestTag) copy.getTag()).value);
+	}
+
+	/**
+	 * Checks that records with generated serializers and records which write themselves can be sent over the same
+	 * channel.
+	 */
+	@Test
+	public void testMixedRecords() throws IOException {
+
+		final LinkedRecord linkedRecord = new LinkedRecord();
+		linkedRecord.value = 5;
+
+		final List<Record> result = roundTrip(new StringRecord("first"), linkedRecord, new IntegerRecord(7),
+			new LinkedRecord());
+
+		assertEquals(4, result.size());
+		assertEquals(new StringRecord("first"), result.get(0));
+		assertEquals(5, ((LinkedRecord) result.get(1)).value);
+		assertEquals(new IntegerRecord(7), result.get(2));
+		assertEquals(0, ((LinkedRecord) result.get(3)).value);
+	}
+
+	/**
+	 * Checks that the serializers are cached and only generated for records with annotated fields.
+	 */
+	@Test
+	public void testSerializerLookup() {
+
+		final RecordSerializer<Record> serializer = RecordSerializers.getSerializer(LinkedRecord.class);
+		assertNotNull(serializer);
+		assertSame(serializer, RecordSerializers.getSerializer(LinkedRecord.class));
+		assertTrue(serializer.createInstance() instanceof LinkedRecord);
+
+		assertNull(RecordSerializers.getSerializer(IntegerRecord.class));
+		assertNull(RecordSerializers.getSerializer(Record.class));
+		assertNull(RecordSerializers.getSerializer(String.class));
+
+		try {
+			RecordSerializers.getSerializer(InaccessibleRecord.class);
+			fail("Expected IllegalArgumentException for private annotated field");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * Checks that the output view produces the same bytes as a {@link DataOutputStream}.
+	 */
+	@Test
+	public void testOutputViewCompatibility() throws IOException {
+
+		final String[] strings = { "", "plain", "\u00e4\u00f6\u00fc", "\u20ac\ud83d\ude00", "broken\ud83d" };
+
+		final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		final DataOutputStream dos = new DataOutputStream(expected);
+		final MemorySegmentOutputView view = new MemorySegmentOutputView(4);
+
+		for (final String s : strings) {
+			StringRecord.writeString(dos, s);
+			view.writeString(s);
+			dos.writeUTF(s);
+			view.writeUTF(s);
+		}
+		StringRecord.writeString(dos, null);
+		view.writeString(null);
+		dos.writeShort(-2);
+		view.writeShort(-2);
+		dos.writeChar('\u20ac');
+		view.writeChar('\u20ac');
+		dos.writeLong(-1234567890123L);
+		view.writeLong(-1234567890123L);
+		dos.writeDouble(Math.PI);
+		view.writeDouble(Math.PI);
+		dos.writeBytes("bytes");
+		view.writeBytes("bytes");
+		dos.writeChars("chars");
+		view.writeChars("chars");
+		dos.flush();
+
+		final byte[] actual = new byte[view.getLength()];
+		view.getData().get(actual);
+		assertArrayEquals(expected.toByteArray(), actual);
+	}
+
+	/**
+	 * Serializes the given records and deserializes them again.
+	 */
+	private static List<Record> roundTrip(final Record... records) throws IOException {
+
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		final WritableByteChannel out = Channels.newChannel(baos);
+		final SerializationBuffer<Record> serializationBuffer = new SerializationBuffer<Record>();
+
+		for (final Record record : records) {
+			serializationBuffer.serialize(record);
+			while (serializationBuffer.dataLeftFromPreviousSerialization()) {
+				serializationBuffer.read(out);
+			}
+		}
+
+		final ReadableByteChannel in = Channels.newChannel(new ByteArrayInputStream(baos.toByteArray()));
+		final List<Record> result = new ArrayList<Record>();
+		for (final Record record : records) {
+			final DefaultDeserializer<Record> deserializer = new DefaultDeserializer<Record>(record.getClass());
+			final Record copy = deserializer.readData(null, in);
+			assertNotNull(copy);
+			result.add(copy);
+		}
+
+		return result;
+	}
+}
@@ -16,6 +16,7 @@
 package eu.stratosphere.nephele.io.library;
 
 import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -121,6 +122,7 @@ public class FileLineReadWriteTest {
 			this.file.length(), null);
 		when(this.environment.getInputSplitProvider()).thenReturn(this.inputSplitProvider);
 		when(this.inputSplitProvider.getNextInputSplit()).thenReturn(split, (FileInputSplit) null);
+		when(this.inputSplitProvider.reportInputSplitProgress(anyLong())).thenReturn(Long.MAX_VALUE);
 
 		FileLineReader reader = new FileLineReader();
 		Whitebox.setInternalState(reader, "environment", this.environment);
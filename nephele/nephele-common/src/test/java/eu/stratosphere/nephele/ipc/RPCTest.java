@@ -0,0 +1,328 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+
+package eu.stratosphere.nephele.ipc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import eu.stratosphere.nephele.io.DataOutputBuffer;
+import eu.stratosphere.nephele.io.IOReadableWritable;
+import eu.stratosphere.nephele.protocols.VersionedProtocol;
+import eu.stratosphere.nephele.types.IntegerRecord;
+import eu.stratosphere.nephele.types.StringRecord;
+
+/**
+ * This class contains tests for the method tables and the proxies of the {@link RPC} mechanism.
+ */
+public class RPCTest {
+
+	/**
+	 * The protocol used during the tests.
+	 */
+	public static interface CalculatorProtocol extends VersionedProtocol {
+
+		IntegerRecord add(IntegerRecord first, IntegerRecord second) throws IOException;
+
+		StringRecord concat(StringRecord first, StringRecord second) throws IOException;
+
+		void reset() throws IOException;
+	}
+
+	/**
+	 * A protocol with the same methods declared in a different order.
+	 */
+	public static interface ReorderedCalculatorProtocol extends VersionedProtocol {
+
+		void reset() throws IOException;
+
+		StringRecord concat(StringRecord first, StringRecord second) throws IOException;
+
+		IntegerRecord add(IntegerRecord first, IntegerRecord second) throws IOException;
+	}
+
+	/**
+	 * A protocol with a different method.
+	 */
+	public static interface ExtendedCalculatorProtocol extends VersionedProtocol {
+
+		IntegerRecord add(IntegerRecord first, IntegerRecord second) throws IOException;
+
+		StringRecord concat(StringRecord first, StringRecord second) throws IOException;
+
+		void reset(IntegerRecord value) throws IOException;
+	}
+
+	/**
+	 * The asynchronous counterpart of the test protocol.
+	 */
+	public static interface AsyncCalculatorProtocol {
+
+		Future<IntegerRecord> add(IntegerRecord first, IntegerRecord second) throws IOException;
+
+		Future<Void> reset() throws IOException;
+	}
+
+	/**
+	 * An asynchronous interface with a method the test protocol does not have.
+	 */
+	public static interface InvalidAsyncCalculatorProtocol {
+
+		Future<IntegerRecord> subtract(IntegerRecord first, IntegerRecord second) throws IOException;
+	}
+
+	/**
+	 * The implementation of the test protocol.
+	 */
+	private static final class Calculator implements CalculatorProtocol {
+
+		@Override
+		public IntegerRecord add(final IntegerRecord first, final IntegerRecord second) {
+			return new IntegerRecord(first.getValue() + second.getValue());
+		}
+
+		@Override
+		public StringRecord concat(final StringRecord first, final StringRecord second) {
+			return new StringRecord(first.toString() + (second == null ? "null" : second.toString()));
+		}
+
+		@Override
+		public void reset() {
+		}
+	}
+
+	/**
+	 * Checks that the method IDs are derived from the signatures independently of the declaration order.
+	 */
+	@Test
+	public void testMethodTable() throws Exception {
+
+		final MethodTable table = MethodTable.getMethodTable(CalculatorProtocol.class);
+		assertSame(table, MethodTable.getMethodTable(CalculatorProtocol.class));
+
+		final MethodTable reordered = MethodTable.getMethodTable(ReorderedCalculatorProtocol.class);
+		assertEquals(table.getFingerprint(), reordered.getFingerprint());
+		assertTrue(table.getFingerprint() != MethodTable.getMethodTable(ExtendedCalculatorProtocol.class)
+			.getFingerprint());
+
+		final Method add = CalculatorProtocol.class.getMethod("add", IntegerRecord.class, IntegerRecord.class);
+		final int addID = table.getMethodID(add);
+		assertEquals(add, table.getMethod(addID));
+		assertEquals(addID, reordered.getMethodID(ReorderedCalculatorProtocol.class.getMethod("add",
+			IntegerRecord.class, IntegerRecord.class)));
+		assertEquals(add, table.getMethod("add", new Class<?>[] { IntegerRecord.class, IntegerRecord.class }));
+
+		assertEquals(-1, table.getMethodID(Object.class.getMethod("toString")));
+		assertNull(table.getMethod(3));
+		assertNull(table.getMethod("add", new Class<?>[] { IntegerRecord.class }));
+	}
+
+	/**
+	 * Checks that calls reach the server through a proxy, both before and after the method table is acknowledged.
+	 */
+	@Test
+	public void testCall() throws Exception {
+
+		final RPC.Server server = RPC.getServer(new Calculator(), "localhost", 0, 1);
+		server.start();
+		final CalculatorProtocol proxy = RPC.getProxy(CalculatorProtocol.class, server.getListenerAddress());
+		try {
+			assertEquals(42, proxy.add(new IntegerRecord(40), new IntegerRecord(2)).getValue());
+			assertEquals("ab", proxy.concat(new StringRecord("a"), new StringRecord("b")).toString());
+			assertEquals("anull", proxy.concat(new StringRecord("a"), null).toString());
+			proxy.reset();
+		} finally {
+			RPC.stopProxy(proxy);
+			server.stop();
+		}
+	}
+
+	/**
+	 * Checks that the server acknowledges a matching method table and accepts calls encoded by method ID afterwards.
+	 */
+	@Test
+	public void testMethodTableAcknowledgment() throws Exception {
+
+		final RPC.Server server = RPC.getServer(new Calculator(), "localhost", 0, 1);
+		server.start();
+		final Socket socket = new Socket("localhost", server.getListenerAddress().getPort());
+		try {
+			final DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+			final DataInputStream in = new DataInputStream(socket.getInputStream());
+			writeHeader(out, new ConnectionHeader(CalculatorProtocol.class.getName(), MethodTable.getMethodTable(
+				CalculatorProtocol.class).getFingerprint()));
+
+			assertEquals(Client.METHOD_TABLE_ACK_ID, in.readInt());
+
+			final DataOutputBuffer call = new DataOutputBuffer();
+			createAddInvocation(CalculatorProtocol.class).write(call, true);
+			assertEquals(42, sendAddCall(out, in, 1, call));
+		} finally {
+			socket.close();
+			server.stop();
+		}
+	}
+
+	/**
+	 * Checks that a client whose method table does not match the server's is not acknowledged and can still call
+	 * methods by name.
+	 */
+	@Test
+	public void testMismatchedMethodTable() throws Exception {
+
+		final RPC.Server server = RPC.getServer(new Calculator(), "localhost", 0, 1);
+		server.start();
+		final Socket socket = new Socket("localhost", server.getListenerAddress().getPort());
+		try {
+			final DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+			final DataInputStream in = new DataInputStream(socket.getInputStream());
+			writeHeader(out, new ConnectionHeader(CalculatorProtocol.class.getName(), MethodTable.getMethodTable(
+				ExtendedCalculatorProtocol.class).getFingerprint()));
+
+			// Without acknowledgment, the first response is the one to the call
+			final DataOutputBuffer call = new DataOutputBuffer();
+			createAddInvocation(ExtendedCalculatorProtocol.class).write(call, false);
+			assertEquals(42, sendAddCall(out, in, 1, call));
+		} finally {
+			socket.close();
+			server.stop();
+		}
+	}
+
+	/**
+	 * Checks that a client which announces no method table can send invocations without encoding prefix.
+	 */
+	@Test
+	public void testClientWithoutMethodTable() throws Exception {
+
+		final RPC.Server server = RPC.getServer(new Calculator(), "localhost", 0, 1);
+		server.start();
+		final Socket socket = new Socket("localhost", server.getListenerAddress().getPort());
+		try {
+			final DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+			final DataInputStream in = new DataInputStream(socket.getInputStream());
+
+			// Such clients end their header after the protocol name
+			final DataOutputBuffer header = new DataOutputBuffer();
+			StringRecord.writeString(header, CalculatorProtocol.class.getName());
+			out.write(Server.HEADER.array());
+			out.writeInt(header.getLength());
+			out.write(header.getData().array(), 0, header.getLength());
+
+			final DataOutputBuffer call = new DataOutputBuffer();
+			createAddInvocation(CalculatorProtocol.class).write(call);
+			assertEquals(42, sendAddCall(out, in, 1, call));
+		} finally {
+			socket.close();
+			server.stop();
+		}
+	}
+
+	/**
+	 * Writes the connection preamble with the given header.
+	 */
+	private static void writeHeader(final DataOutputStream out, final ConnectionHeader header) throws IOException {
+
+		final DataOutputBuffer buf = new DataOutputBuffer();
+		header.write(buf);
+		out.write(Server.HEADER.array());
+		out.writeInt(buf.getLength());
+		out.write(buf.getData().array(), 0, buf.getLength());
+	}
+
+	/**
+	 * Creates an invocation of the protocol's <code>add</code> method which adds 40 and 2.
+	 */
+	private static RPC.Invocation createAddInvocation(final Class<?> protocol) throws Exception {
+
+		final Method add = protocol.getMethod("add", IntegerRecord.class, IntegerRecord.class);
+		return new RPC.Invocation(add, MethodTable.getMethodTable(protocol).getMethodID(add),
+			new IOReadableWritable[] { new IntegerRecord(40), new IntegerRecord(2) });
+	}
+
+	/**
+	 * Sends the serialized <code>add</code> invocation with the given call ID and returns the result of the call.
+	 */
+	private static int sendAddCall(final DataOutputStream out, final DataInputStream in, final int callID,
+			final DataOutputBuffer invocation) throws IOException {
+
+		out.writeInt(4 + invocation.getLength());
+		out.writeInt(callID);
+		out.write(invocation.getData().array(), 0, invocation.getLength());
+		out.flush();
+
+		assertEquals(callID, in.readInt());
+		assertEquals(Status.SUCCESS.state, in.readInt());
+		assertTrue(in.readBoolean());
+		assertEquals(IntegerRecord.class.getName(), StringRecord.readString(in));
+		final IntegerRecord result = new IntegerRecord();
+		result.read(in);
+
+		return result.getValue();
+	}
+
+	/**
+	 * Checks that several asynchronous calls can be in flight on the same connection.
+	 */
+	@Test
+	public void testAsyncCall() throws Exception {
+
+		final RPC.Server server = RPC.getServer(new Calculator(), "localhost", 0, 4);
+		server.start();
+		final AsyncCalculatorProtocol proxy = RPC.getAsyncProxy(AsyncCalculatorProtocol.class,
+			CalculatorProtocol.class, server.getListenerAddress());
+		try {
+			final List<Future<IntegerRecord>> futures = new ArrayList<Future<IntegerRecord>>();
+			for (int i = 0; i < 32; ++i) {
+				futures.add(proxy.add(new IntegerRecord(i), new IntegerRecord(i)));
+			}
+			final Future<Void> reset = proxy.reset();
+
+			for (int i = 0; i < futures.size(); ++i) {
+				assertEquals(2 * i, futures.get(i).get().getValue());
+			}
+			assertNull(reset.get());
+			assertTrue(reset.isDone());
+		} finally {
+			RPC.stopAsyncProxy(proxy);
+			server.stop();
+		}
+	}
+
+	/**
+	 * Checks that an asynchronous interface must match the protocol.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidAsyncProtocol() {
+
+		RPC.getAsyncProxy(InvalidAsyncCalculatorProtocol.class, CalculatorProtocol.class, new InetSocketAddress(
+			"localhost", 0));
+	}
+}
@@ -0,0 +1,168 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.types;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.junit.Test;
+
+/**
+ * This class contains tests for the {@link RecordCopier} and the {@link CopyableRecord} implementations.
+ */
+public class RecordCopierTest {
+
+	/**
+	 * A record which does not implement {@link CopyableRecord}.
+	 */
+	public static final class PlainRecord extends AbstractTaggableRecord {
+
+		private long value;
+
+		@Override
+		public void write(final DataOutput out) throws IOException {
+			super.write(out);
+			out.writeLong(this.value);
+		}
+
+		@Override
+		public void read(final DataInput in) throws IOException {
+			super.read(in);
+			this.value = in.readLong();
+		}
+	}
+
+	/**
+	 * A subclass of a copyable record which does not override the copy methods.
+	 */
+	public static final class ExtendedStringRecord extends StringRecord {
+	}
+
+	/**
+	 * A subclass of a copyable record which adds state but does not override the copy methods.
+	 */
+	public static final class LabeledStringRecord extends StringRecord {
+
+		private int label;
+
+		@Override
+		public void write(final DataOutput out) throws IOException {
+			super.write(out);
+			out.writeInt(this.label);
+		}
+
+		@Override
+		public void read(final DataInput in) throws IOException {
+			super.read(in);
+			this.label = in.readInt();
+		}
+	}
+
+	/**
+	 * A simple tag used during the tests.
+	 */
+	public static final class CounterTag implements Tag {
+
+		private int counter;
+
+		@Override
+		public void write(final DataOutput out) throws IOException {
+			out.writeInt(this.counter);
+		}
+
+		@Override
+		public void read(final DataInput in) throws IOException {
+			this.counter = in.readInt();
+		}
+	}
+
+	/**
+	 * Checks the copies of the built-in record types, including their tags.
+	 */
+	@Test
+	public void testCopyableRecords() throws IOException {
+
+		final StringRecord string = new StringRecord("copy me");
+		string.reuseTag(CounterTag.class).counter = 3;
+		final StringRecord stringCopy = RecordCopier.createCopy(string);
+		assertEquals(string, stringCopy);
+		assertNotSame(string.getBytes(), stringCopy.getBytes());
+		assertNotSame(string.getTag(), stringCopy.getTag());
+		assertEquals(3, ((CounterTag) stringCopy.getTag()).counter);
+
+		// Copying into an existing record reuses its tag object
+		final Tag previousTag = stringCopy.getTag();
+		string.set("changed");
+		((CounterTag) string.getTag()).counter = 4;
+		RecordCopier.copy(string, stringCopy);
+		assertEquals(string, stringCopy);
+		assertSame(previousTag, stringCopy.getTag());
+		assertEquals(4, ((CounterTag) stringCopy.getTag()).counter);
+
+		final IntegerRecord integer = new IntegerRecord(42);
+		final IntegerRecord integerCopy = RecordCopier.createCopy(integer);
+		assertEquals(42, integerCopy.getValue());
+		assertNull(integerCopy.getTag());
+
+		final FileRecord file = new FileRecord("file");
+		file.append(new byte[] { 1, 2, 3 }, 0, 3);
+		final FileRecord fileCopy = RecordCopier.createCopy(file);
+		assertEquals(file.getFileName(), fileCopy.getFileName());
+		assertArrayEquals(file.getDataBuffer(), fileCopy.getDataBuffer());
+		assertNotSame(file.getDataBuffer(), fileCopy.getDataBuffer());
+	}
+
+	/**
+	 * Checks the serialization copy which serves as fallback for records without a copy contract.
+	 */
+	@Test
+	public void testSerializationCopy() throws IOException {
+
+		final PlainRecord plain = new PlainRecord();
+		plain.value = 17L;
+		plain.reuseTag(CounterTag.class).counter = 5;
+
+		final PlainRecord plainCopy = RecordCopier.createCopy(plain);
+		assertEquals(17L, plainCopy.value);
+		assertEquals(5, ((CounterTag) plainCopy.getTag()).counter);
+
+		plain.value = 18L;
+		RecordCopier.copy(plain, plainCopy);
+		assertEquals(18L, plainCopy.value);
+
+		final ExtendedStringRecord extended = new ExtendedStringRecord();
+		extended.set("extended");
+		final ExtendedStringRecord extendedCopy = RecordCopier.createCopy(extended);
+		assertEquals(ExtendedStringRecord.class, extendedCopy.getClass());
+		assertEquals("extended", extendedCopy.toString());
+
+		// The inherited copyTo method would drop the state added by the subclass
+		final LabeledStringRecord labeled = new LabeledStringRecord();
+		labeled.set("labeled");
+		labeled.label = 7;
+		final LabeledStringRecord labeledCopy = new LabeledStringRecord();
+		RecordCopier.copy(labeled, labeledCopy);
+		assertEquals("labeled", labeledCopy.toString());
+		assertEquals(7, labeledCopy.label);
+	}
+}
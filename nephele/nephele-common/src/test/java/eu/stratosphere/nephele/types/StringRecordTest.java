@@ -24,13 +24,16 @@ import static org.junit.Assert.fail;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 
+import java.io.ByteArrayOutputStream;
 import java.io.DataInput;
+import java.io.DataOutputStream;
 import java.io.IOException;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
 
+import eu.stratosphere.nephele.services.memorymanager.MemorySegment;
 import eu.stratosphere.nephele.util.CommonTestUtils;
 
 
@@ -105,4 +108,80 @@ public class StringRecordTest {
 
 		fail("StringRecord.readString did not throw an IOException for negative length of string");		
 	}
+
+	/**
+	 * Checks that the comparison on UTF-8 bytes, the normalized keys and the in-place comparison of serialized records
+	 * agree with the code point order of the strings.
+	 */
+	@Test
+	public void testBinaryComparison() throws IOException {
+
+		final String[] strings = { "", "a", "a\u0000", "ab", "abcdefgh", "abcdefgh\u0000", "abcdefghi",
+			"abcdefghj", "b", "\u00e4", "\u20ac", "\ud83d\ude00", "zzzzzzzzzzzz" };
+
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		final DataOutputStream dos = new DataOutputStream(baos);
+		final int[] offsets = new int[strings.length];
+		final StringRecord[] records = new StringRecord[strings.length];
+		for (int i = 0; i < strings.length; ++i) {
+			records[i] = new StringRecord(strings[i]);
+			offsets[i] = dos.size();
+			records[i].write(dos);
+		}
+		dos.flush();
+		final MemorySegment segment = new MemorySegment(baos.toByteArray());
+
+		final MemorySegment key1 = new MemorySegment(new byte[4]);
+		final MemorySegment key2 = new MemorySegment(new byte[4]);
+
+		for (int i = 0; i < strings.length; ++i) {
+
+			assertEquals(records[i].hashCode(), StringRecord.hashSerialized(segment, offsets[i]));
+			records[i].copyNormalizedKey(key1, 0, 4);
+
+			for (int j = 0; j < strings.length; ++j) {
+
+				final int expected = Integer.signum(compareCodePoints(strings[i], strings[j]));
+				assertEquals(expected, Integer.signum(records[i].compareTo(records[j])));
+				assertEquals(expected, Integer.signum(StringRecord.compareSerialized(segment, offsets[i], segment,
+					offsets[j])));
+
+				records[j].copyNormalizedKey(key2, 0, 4);
+				final int keyCmp = Integer.signum(MemorySegment.compare(key1, key2, 0, 0, 4));
+				if (keyCmp != 0) {
+					assertEquals(expected, keyCmp);
+				}
+			}
+		}
+
+		// The cached hash code and normalized key must follow modifications
+		final StringRecord record = new StringRecord("abcdefgh");
+		final int hash = record.hashCode();
+		final long key = record.getNormalizedKey();
+		record.set("abcdefgx");
+		assertEquals(new StringRecord("abcdefgx").hashCode(), record.hashCode());
+		assertThat(record.hashCode() == hash, is(false));
+		assertThat(record.getNormalizedKey() == key, is(false));
+		assertThat(record.equals(new StringRecord("abcdefgh")), is(false));
+	}
+
+	/**
+	 * Compares two strings by their code points.
+	 */
+	private static int compareCodePoints(final String s1, final String s2) {
+
+		int i1 = 0;
+		int i2 = 0;
+		while (i1 < s1.length() && i2 < s2.length()) {
+			final int c1 = s1.codePointAt(i1);
+			final int c2 = s2.codePointAt(i2);
+			if (c1 != c2) {
+				return c1 - c2;
+			}
+			i1 += Character.charCount(c1);
+			i2 += Character.charCount(c2);
+		}
+
+		return (s1.length() - i1) - (s2.length() - i2);
+	}
 }
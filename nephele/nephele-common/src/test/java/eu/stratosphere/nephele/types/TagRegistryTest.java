@@ -0,0 +1,160 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.types;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+/**
+ * This class contains tests for the {@link TagRegistry} and the tag handling of {@link AbstractTaggableRecord}.
+ */
+public class TagRegistryTest {
+
+	/**
+	 * The ID the registered test tag type uses.
+	 */
+	private static final int TEST_TAG_TYPE_ID = 200;
+
+	/**
+	 * A tag type which is registered during the tests.
+	 */
+	public static final class RegisteredTag implements Tag {
+
+		private long value;
+
+		@Override
+		public void write(final DataOutput out) throws IOException {
+			out.writeLong(this.value);
+		}
+
+		@Override
+		public void read(final DataInput in) throws IOException {
+			this.value = in.readLong();
+		}
+	}
+
+	/**
+	 * A tag type which is never registered.
+	 */
+	public static final class UnregisteredTag implements Tag {
+
+		private int value;
+
+		@Override
+		public void write(final DataOutput out) throws IOException {
+			out.writeInt(this.value);
+		}
+
+		@Override
+		public void read(final DataInput in) throws IOException {
+			this.value = in.readInt();
+		}
+	}
+
+	/**
+	 * A minimal taggable record without any content.
+	 */
+	private static final class TaggableRecord extends AbstractTaggableRecord {
+	}
+
+	private static byte[] serialize(final AbstractTaggableRecord record) throws IOException {
+
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		final DataOutputStream dos = new DataOutputStream(baos);
+		record.write(dos);
+		dos.flush();
+
+		return baos.toByteArray();
+	}
+
+	private static void deserialize(final AbstractTaggableRecord record, final byte[] data) throws IOException {
+
+		record.read(new DataInputStream(new ByteArrayInputStream(data)));
+	}
+
+	/**
+	 * Checks that registered tags are encoded with a single byte and that tag objects are reused on deserialization.
+	 */
+	@Test
+	public void testRegisteredTag() throws IOException {
+
+		TagRegistry.registerTagType(RegisteredTag.class, TEST_TAG_TYPE_ID);
+		// Registering the same type again must be tolerated
+		TagRegistry.registerTagType(RegisteredTag.class, TEST_TAG_TYPE_ID);
+		assertEquals(TEST_TAG_TYPE_ID, TagRegistry.getTagTypeID(RegisteredTag.class));
+		assertSame(RegisteredTag.class, TagRegistry.getTagType(TEST_TAG_TYPE_ID));
+
+		final TaggableRecord orig = new TaggableRecord();
+		final RegisteredTag tag = orig.reuseTag(RegisteredTag.class);
+		tag.value = 42L;
+
+		final byte[] data = serialize(orig);
+		assertEquals(1 + 8, data.length);
+
+		final TaggableRecord copy = new TaggableRecord();
+		deserialize(copy, data);
+		final RegisteredTag received = (RegisteredTag) copy.getTag();
+		assertEquals(42L, received.value);
+
+		// A record without a tag clears the tag, but the tag object is kept for reuse
+		deserialize(copy, serialize(new TaggableRecord()));
+		assertNull(copy.getTag());
+		deserialize(copy, data);
+		assertSame(received, copy.getTag());
+		assertSame(received, copy.reuseTag(RegisteredTag.class));
+
+		try {
+			TagRegistry.registerTagType(UnregisteredTag.class, TEST_TAG_TYPE_ID);
+			fail("Expected IllegalArgumentException for an ID which is already assigned");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	/**
+	 * Checks that tags of unregistered types are still transmitted with their class name.
+	 */
+	@Test
+	public void testUnregisteredTag() throws IOException {
+
+		final TaggableRecord orig = new TaggableRecord();
+		final UnregisteredTag tag = new UnregisteredTag();
+		tag.value = 7;
+		orig.setTag(tag);
+
+		final byte[] data = serialize(orig);
+		assertEquals(0, TagRegistry.getTagTypeID(UnregisteredTag.class));
+
+		final TaggableRecord copy = new TaggableRecord();
+		deserialize(copy, data);
+		final UnregisteredTag received = (UnregisteredTag) copy.getTag();
+		assertEquals(7, received.value);
+
+		deserialize(copy, data);
+		assertSame(received, copy.getTag());
+	}
+}
@@ -18,15 +18,16 @@ package eu.stratosphere.nephele.example.speedtest;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
-import eu.stratosphere.nephele.types.Record;
+import eu.stratosphere.nephele.types.FixedWidthRecord;
 
 /**
  * This class implements the record type used for the speed test.
  * 
  * @author warneke
  */
-public final class SpeedTestRecord implements Record {
+public final class SpeedTestRecord implements FixedWidthRecord {
 
 	/**
 	 * The size of a single record in bytes.
@@ -48,6 +49,33 @@ public final class SpeedTestRecord implements Record {
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getWidth() {
+
+		return RECORD_SIZE;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeFixed(final ByteBuffer target) {
+
+		target.put(this.buf);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void readFixed(final ByteBuffer source) {
+
+		source.get(this.buf);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
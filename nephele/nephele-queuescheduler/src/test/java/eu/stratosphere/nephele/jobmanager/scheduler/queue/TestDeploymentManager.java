@@ -62,6 +62,13 @@ public class TestDeploymentManager implements DeploymentManager {
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void instanceDied(final AbstractInstance instance) {
+	}
+
 	/**
 	 * Returns the ID of the last deployed job.
 	 */
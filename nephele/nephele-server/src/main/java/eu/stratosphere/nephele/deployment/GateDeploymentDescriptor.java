@@ -19,11 +19,13 @@ import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 
 import eu.stratosphere.nephele.io.GateID;
 import eu.stratosphere.nephele.io.IOReadableWritable;
+import eu.stratosphere.nephele.io.channels.ChannelID;
 import eu.stratosphere.nephele.io.channels.ChannelType;
 import eu.stratosphere.nephele.util.EnumUtils;
 
@@ -31,6 +33,12 @@ import eu.stratosphere.nephele.util.EnumUtils;
  * A gate deployment descriptor contains all the information necessary to deploy either an input or an output gate as
  * part of a task on a task manager.
  * <p>
+ * The channels of a gate can either be given as an explicit list of channel deployment descriptors or in a compact
+ * form, in which the channel IDs are derived from a seed with {@link ChannelID#derive(ChannelID, int, int, boolean)}.
+ * In the compact form, the pairs of source index and channel index are stored as runs of arithmetic progressions, so
+ * the gates of a bipartite connection are described by a constant number of bytes regardless of the number of
+ * channels. The channel deployment descriptors are only created when they are requested.
+ * <p>
  * This class is not thread-safe in general.
  * 
  * @author warneke
@@ -48,10 +56,35 @@ public final class GateDeploymentDescriptor implements IOReadableWritable {
 	private ChannelType channelType;
 
 	/**
-	 * The list of channel deployment descriptors attached to this gate.
+	 * The list of channel deployment descriptors attached to this gate if the channels are given explicitly.
 	 */
 	private final List<ChannelDeploymentDescriptor> channels;
 
+	/**
+	 * The seed the channel IDs are derived from or <code>null</code> if the channels are given explicitly.
+	 */
+	private ChannelID channelSeed;
+
+	/**
+	 * The number of channels described in compact form.
+	 */
+	private int numberOfChannels;
+
+	/**
+	 * The index of the first channel of each run.
+	 */
+	private int[] runStarts;
+
+	/**
+	 * The first source index, the source index step, the first channel index and the channel index step of each run.
+	 */
+	private int[] runs;
+
+	/**
+	 * The sorted indices of the channels whose counterparts are suspended.
+	 */
+	private int[] suspendedChannels;
+
 	/**
 	 * Constructs a new gate deployment descriptor
 	 * 
@@ -82,6 +115,99 @@ public final class GateDeploymentDescriptor implements IOReadableWritable {
 		this.gateID = gateID;
 		this.channelType = channelType;
 		this.channels = channels;
+		this.channelSeed = null;
+	}
+
+	/**
+	 * Constructs a new gate deployment descriptor whose channel IDs are derived from the given seed.
+	 * 
+	 * @param gateID
+	 *        the ID of the gate
+	 * @param channelType
+	 *        the channel type of the gate
+	 * @param channelSeed
+	 *        the seed the channel IDs are derived from
+	 * @param sourceIndices
+	 *        the source index of each channel
+	 * @param channelIndices
+	 *        the channel index of each channel
+	 * @param suspended
+	 *        stores for each channel whether its counterpart is suspended
+	 */
+	public GateDeploymentDescriptor(final GateID gateID, final ChannelType channelType, final ChannelID channelSeed,
+			final int[] sourceIndices, final int[] channelIndices, final boolean[] suspended) {
+
+		if (gateID == null) {
+			throw new IllegalArgumentException("Argument gateID must no be null");
+		}
+
+		if (channelType == null) {
+			throw new IllegalArgumentException("Argument channelType must no be null");
+		}
+
+		if (channelSeed == null) {
+			throw new IllegalArgumentException("Argument channelSeed must no be null");
+		}
+
+		if (sourceIndices == null || channelIndices == null || suspended == null
+			|| sourceIndices.length != channelIndices.length || sourceIndices.length != suspended.length) {
+			throw new IllegalArgumentException("Arguments sourceIndices, channelIndices and suspended must be arrays "
+				+ "of equal length");
+		}
+
+		this.gateID = gateID;
+		this.channelType = channelType;
+		this.channels = new ArrayList<ChannelDeploymentDescriptor>(0);
+		this.channelSeed = channelSeed;
+		this.numberOfChannels = sourceIndices.length;
+
+		// Compress the indices into runs of arithmetic progressions
+		final int[] starts = new int[this.numberOfChannels];
+		final int[] progressions = new int[4 * this.numberOfChannels];
+		int numberOfRuns = 0;
+		int i = 0;
+		while (i < this.numberOfChannels) {
+
+			int sourceStep = 0;
+			int channelStep = 0;
+			int end = i + 1;
+			if (end < this.numberOfChannels) {
+				sourceStep = sourceIndices[end] - sourceIndices[i];
+				channelStep = channelIndices[end] - channelIndices[i];
+				while (end + 1 < this.numberOfChannels
+					&& sourceIndices[end + 1] - sourceIndices[end] == sourceStep
+					&& channelIndices[end + 1] - channelIndices[end] == channelStep) {
+					++end;
+				}
+				++end;
+			}
+
+			starts[numberOfRuns] = i;
+			progressions[4 * numberOfRuns] = sourceIndices[i];
+			progressions[4 * numberOfRuns + 1] = sourceStep;
+			progressions[4 * numberOfRuns + 2] = channelIndices[i];
+			progressions[4 * numberOfRuns + 3] = channelStep;
+			++numberOfRuns;
+			i = end;
+		}
+
+		this.runStarts = Arrays.copyOf(starts, numberOfRuns);
+		this.runs = Arrays.copyOf(progressions, 4 * numberOfRuns);
+
+		int numberOfSuspendedChannels = 0;
+		for (i = 0; i < suspended.length; ++i) {
+			if (suspended[i]) {
+				++numberOfSuspendedChannels;
+			}
+		}
+
+		this.suspendedChannels = new int[numberOfSuspendedChannels];
+		numberOfSuspendedChannels = 0;
+		for (i = 0; i < suspended.length; ++i) {
+			if (suspended[i]) {
+				this.suspendedChannels[numberOfSuspendedChannels++] = i;
+			}
+		}
 	}
 
 	/**
@@ -92,6 +218,7 @@ public final class GateDeploymentDescriptor implements IOReadableWritable {
 		this.gateID = new GateID();
 		this.channelType = null;
 		this.channels = new ArrayList<ChannelDeploymentDescriptor>();
+		this.channelSeed = null;
 	}
 
 	/**
@@ -102,6 +229,26 @@ public final class GateDeploymentDescriptor implements IOReadableWritable {
 
 		this.gateID.write(out);
 		EnumUtils.writeEnum(out, channelType);
+
+		if (this.channelSeed != null) {
+			out.writeBoolean(true);
+			this.channelSeed.write(out);
+			out.writeInt(this.numberOfChannels);
+			out.writeInt(this.runStarts.length);
+			for (int i = 0; i < this.runStarts.length; ++i) {
+				out.writeInt(this.runStarts[i]);
+			}
+			for (int i = 0; i < this.runs.length; ++i) {
+				out.writeInt(this.runs[i]);
+			}
+			out.writeInt(this.suspendedChannels.length);
+			for (int i = 0; i < this.suspendedChannels.length; ++i) {
+				out.writeInt(this.suspendedChannels[i]);
+			}
+			return;
+		}
+
+		out.writeBoolean(false);
 		out.writeInt(this.channels.size());
 		final Iterator<ChannelDeploymentDescriptor> it = this.channels.iterator();
 		while (it.hasNext()) {
@@ -117,6 +264,27 @@ public final class GateDeploymentDescriptor implements IOReadableWritable {
 
 		this.gateID.read(in);
 		this.channelType = EnumUtils.readEnum(in, ChannelType.class);
+
+		if (in.readBoolean()) {
+			this.channelSeed = new ChannelID();
+			this.channelSeed.read(in);
+			this.numberOfChannels = in.readInt();
+			final int numberOfRuns = in.readInt();
+			this.runStarts = new int[numberOfRuns];
+			for (int i = 0; i < numberOfRuns; ++i) {
+				this.runStarts[i] = in.readInt();
+			}
+			this.runs = new int[4 * numberOfRuns];
+			for (int i = 0; i < this.runs.length; ++i) {
+				this.runs[i] = in.readInt();
+			}
+			this.suspendedChannels = new int[in.readInt()];
+			for (int i = 0; i < this.suspendedChannels.length; ++i) {
+				this.suspendedChannels[i] = in.readInt();
+			}
+			return;
+		}
+
 		final int nocdd = in.readInt();
 		for (int i = 0; i < nocdd; ++i) {
 			final ChannelDeploymentDescriptor cdd = new ChannelDeploymentDescriptor();
@@ -152,11 +320,42 @@ public final class GateDeploymentDescriptor implements IOReadableWritable {
 	 */
 	public int getNumberOfChannelDescriptors() {
 
+		if (this.channelSeed != null) {
+			return this.numberOfChannels;
+		}
+
 		return this.channels.size();
 	}
 
+	/**
+	 * Returns the channel deployment descriptor with the given index. If the channels are described in compact form,
+	 * the descriptor is created by this call.
+	 * 
+	 * @param index
+	 *        the index of the channel deployment descriptor
+	 * @return the channel deployment descriptor with the given index
+	 */
 	public ChannelDeploymentDescriptor getChannelDescriptor(final int index) {
 
-		return this.channels.get(index);
+		if (this.channelSeed == null) {
+			return this.channels.get(index);
+		}
+
+		if (index < 0 || index >= this.numberOfChannels) {
+			throw new IndexOutOfBoundsException("Index " + index + " is out of range " + this.numberOfChannels);
+		}
+
+		int run = Arrays.binarySearch(this.runStarts, index);
+		if (run < 0) {
+			run = -run - 2;
+		}
+
+		final int offset = index - this.runStarts[run];
+		final int sourceIndex = this.runs[4 * run] + offset * this.runs[4 * run + 1];
+		final int channelIndex = this.runs[4 * run + 2] + offset * this.runs[4 * run + 3];
+
+		return new ChannelDeploymentDescriptor(ChannelID.derive(this.channelSeed, sourceIndex, channelIndex, false),
+			ChannelID.derive(this.channelSeed, sourceIndex, channelIndex, true),
+			Arrays.binarySearch(this.suspendedChannels, index) >= 0);
 	}
 }
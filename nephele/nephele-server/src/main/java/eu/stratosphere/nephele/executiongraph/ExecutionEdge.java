@@ -37,19 +37,24 @@ public final class ExecutionEdge {
 
 	private final ChannelID inputChannelID;
 
+	private final ChannelID channelSeed;
+
+	private final int sourceIndex;
+
 	private final int outputGateIndex;
 
 	private final int inputGateIndex;
 
 	ExecutionEdge(final ExecutionGate outputGate, final ExecutionGate inputGate, final ExecutionGroupEdge groupEdge,
-			final ChannelID outputChannelID, final ChannelID inputChannelID, final int outputGateIndex,
-			final int inputGateIndex) {
+			final ChannelID channelSeed, final int sourceIndex, final int outputGateIndex, final int inputGateIndex) {
 
 		this.outputGate = outputGate;
 		this.inputGate = inputGate;
 		this.groupEdge = groupEdge;
-		this.outputChannelID = outputChannelID;
-		this.inputChannelID = inputChannelID;
+		this.channelSeed = channelSeed;
+		this.sourceIndex = sourceIndex;
+		this.outputChannelID = ChannelID.derive(channelSeed, sourceIndex, outputGateIndex, false);
+		this.inputChannelID = ChannelID.derive(channelSeed, sourceIndex, outputGateIndex, true);
 		this.outputGateIndex = outputGateIndex;
 		this.inputGateIndex = inputGateIndex;
 	}
@@ -74,6 +79,27 @@ public final class ExecutionEdge {
 		return this.inputChannelID;
 	}
 
+	/**
+	 * Returns the seed the IDs of the edge's channels have been derived from.
+	 * 
+	 * @return the seed the IDs of the edge's channels have been derived from
+	 */
+	public ChannelID getChannelSeed() {
+
+		return this.channelSeed;
+	}
+
+	/**
+	 * Returns the index of the source vertex within its group at the time the edge has been created. Together with
+	 * the channel seed and the output gate index it determines the IDs of the edge's channels.
+	 * 
+	 * @return the index of the source vertex within its group
+	 */
+	public int getSourceIndex() {
+
+		return this.sourceIndex;
+	}
+
 	public int getOutputGateIndex() {
 
 		return this.outputGateIndex;
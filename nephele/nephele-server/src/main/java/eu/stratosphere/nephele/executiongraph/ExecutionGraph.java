@@ -26,8 +26,6 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -35,6 +33,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import eu.stratosphere.nephele.configuration.Configuration;
+import eu.stratosphere.nephele.configuration.GlobalConfiguration;
 import eu.stratosphere.nephele.execution.ExecutionListener;
 import eu.stratosphere.nephele.execution.ExecutionState;
 import eu.stratosphere.nephele.instance.AllocatedResource;
@@ -52,7 +51,6 @@ import eu.stratosphere.nephele.jobgraph.JobFileOutputVertex;
 import eu.stratosphere.nephele.jobgraph.JobGraph;
 import eu.stratosphere.nephele.jobgraph.JobID;
 import eu.stratosphere.nephele.jobgraph.JobVertexID;
-import eu.stratosphere.nephele.taskmanager.runtime.ExecutorThreadFactory;
 import eu.stratosphere.nephele.template.AbstractInputTask;
 import eu.stratosphere.nephele.template.AbstractInvokable;
 import eu.stratosphere.nephele.template.IllegalConfigurationException;
@@ -71,6 +69,16 @@ import eu.stratosphere.nephele.util.StringUtils;
  */
 public class ExecutionGraph implements ExecutionListener {
 
+	/**
+	 * The key to retrieve the number of shards whose vertex state changes are processed concurrently.
+	 */
+	public static final String COMMAND_SHARDS_KEY = "jobmanager.executiongraph.commandshards";
+
+	/**
+	 * The default number of shards whose vertex state changes are processed concurrently.
+	 */
+	public static final int DEFAULT_COMMAND_SHARDS = 4;
+
 	/**
 	 * The log object used for debugging.
 	 */
@@ -93,10 +101,9 @@ public class ExecutionGraph implements ExecutionListener {
 		1024);
 
 	/**
-	 * Mapping of channel IDs to edges.
+	 * Mapping of channel seed keys to the edges whose channel IDs have been derived from the respective seed.
 	 */
-	private final ConcurrentMap<ChannelID, ExecutionEdge> edgeMap = new ConcurrentHashMap<ChannelID, ExecutionEdge>(
-		1024 * 1024);
+	private final ConcurrentMap<Long, EdgeTable> edgeTables = new ConcurrentHashMap<Long, EdgeTable>();
 
 	/**
 	 * List of stages in the graph.
@@ -104,9 +111,15 @@ public class ExecutionGraph implements ExecutionListener {
 	private final CopyOnWriteArrayList<ExecutionStage> stages = new CopyOnWriteArrayList<ExecutionStage>();
 
 	/**
-	 * The executor service to asynchronously perform update operations to this graph.
+	 * The executor to asynchronously perform update operations to this graph.
+	 */
+	private final ShardedCommandExecutor commandExecutor = new ShardedCommandExecutor(Math.max(1,
+		GlobalConfiguration.getInteger(COMMAND_SHARDS_KEY, DEFAULT_COMMAND_SHARDS)));
+
+	/**
+	 * Lock to serialize stage switches and job status updates triggered by vertices of different shards.
 	 */
-	private final ExecutorService executorService = Executors.newSingleThreadExecutor(ExecutorThreadFactory.INSTANCE);
+	private final Object coordinationLock = new Object();
 
 	/**
 	 * Index to the current execution stage.
@@ -301,10 +314,21 @@ public class ExecutionGraph implements ExecutionListener {
 		final ExecutionGroupVertex target = groupEdge.getTargetVertex();
 		final int indexOfInputGate = groupEdge.getIndexOfInputGate();
 
-		final Map<GateID, List<ExecutionEdge>> inputChannelMap = new HashMap<GateID, List<ExecutionEdge>>();
+		final int currentNumberOfSourceNodes = source.getCurrentNumberOfGroupMembers();
+		final int currentNumberOfTargetNodes = target.getCurrentNumberOfGroupMembers();
+
+		// The input channels of each target vertex, addressed by the index of the target vertex
+		final List<List<ExecutionEdge>> inputChannelLists = new ArrayList<List<ExecutionEdge>>(
+			currentNumberOfTargetNodes);
+		for (int j = 0; j < currentNumberOfTargetNodes; ++j) {
+			inputChannelLists.add(new ArrayList<ExecutionEdge>());
+		}
+
+		// The IDs of all channels created by this call are derived from a common seed
+		final EdgeTable edgeTable = registerEdgeTable(currentNumberOfSourceNodes);
+		final ChannelID channelSeed = edgeTable.channelSeed;
 
 		// Unwire the respective gate of the source vertices
-		final int currentNumberOfSourceNodes = source.getCurrentNumberOfGroupMembers();
 		for (int i = 0; i < currentNumberOfSourceNodes; ++i) {
 
 			final ExecutionVertex sourceVertex = source.getGroupMember(i);
@@ -319,7 +343,6 @@ public class ExecutionGraph implements ExecutionListener {
 					+ "), but number of output channels is " + outputGate.getNumberOfEdges() + "!");
 			}
 
-			final int currentNumberOfTargetNodes = target.getCurrentNumberOfGroupMembers();
 			final List<ExecutionEdge> outputChannels = new ArrayList<ExecutionEdge>();
 
 			for (int j = 0; j < currentNumberOfTargetNodes; ++j) {
@@ -340,20 +363,10 @@ public class ExecutionGraph implements ExecutionListener {
 				if (DistributionPatternProvider.createWire(groupEdge.getDistributionPattern(),
 					i, j, currentNumberOfSourceNodes, currentNumberOfTargetNodes)) {
 
-					final ChannelID outputChannelID = new ChannelID();
-					final ChannelID inputChannelID = new ChannelID();
-					
-					List<ExecutionEdge> inputChannels = inputChannelMap.get(inputGate.getGateID());
-					if (inputChannels == null) {
-						inputChannels = new ArrayList<ExecutionEdge>();
-						inputChannelMap.put(inputGate.getGateID(), inputChannels);
-					}
-					
-					final ExecutionEdge edge = new ExecutionEdge(outputGate, inputGate, groupEdge, outputChannelID,
-							inputChannelID, outputChannels.size(), inputChannels.size());
+					final List<ExecutionEdge> inputChannels = inputChannelLists.get(j);
 
-					this.edgeMap.put(outputChannelID, edge);
-					this.edgeMap.put(inputChannelID, edge);
+					final ExecutionEdge edge = new ExecutionEdge(outputGate, inputGate, groupEdge, channelSeed, i,
+							outputChannels.size(), inputChannels.size());
 
 					outputChannels.add(edge);
 					inputChannels.add(edge);
@@ -361,24 +374,39 @@ public class ExecutionGraph implements ExecutionListener {
 			}
 
 			outputGate.replaceAllEdges(outputChannels);
+			edgeTable.edges[i] = outputChannels.toArray(new ExecutionEdge[outputChannels.size()]);
 		}
 
 		// Finally, set the channels for the input gates
-		final int currentNumberOfTargetNodes = target.getCurrentNumberOfGroupMembers();
-		for (int i = 0; i < currentNumberOfTargetNodes; ++i) {
+		for (int j = 0; j < currentNumberOfTargetNodes; ++j) {
 
-			final ExecutionVertex targetVertex = target.getGroupMember(i);
+			final ExecutionVertex targetVertex = target.getGroupMember(j);
 			final ExecutionGate inputGate = targetVertex.getInputGate(indexOfInputGate);
 
-			final List<ExecutionEdge> inputChannels = inputChannelMap.get(inputGate.getGateID());
-			if (inputChannels == null) {
-				LOG.error("Cannot find input channels for gate ID " + inputGate.getGateID());
-				continue;
-			}
-
-			inputGate.replaceAllEdges(inputChannels);
+			inputGate.replaceAllEdges(inputChannelLists.get(j));
 		}
 
+		// Publish the filled table to threads looking up edges by their channel IDs
+		this.edgeTables.put(Long.valueOf(channelSeed.getSeedKey()), edgeTable);
+	}
+
+	/**
+	 * Generates a new channel seed and registers an empty edge table for it. The seed is regenerated until its key is
+	 * not used by any other table of this graph.
+	 * 
+	 * @param numberOfSources
+	 *        the number of source vertices whose edges the table shall hold
+	 * @return the registered edge table
+	 */
+	private EdgeTable registerEdgeTable(final int numberOfSources) {
+
+		while (true) {
+
+			final EdgeTable edgeTable = new EdgeTable(ChannelID.generateSeed(), numberOfSources);
+			if (this.edgeTables.putIfAbsent(Long.valueOf(edgeTable.channelSeed.getSeedKey()), edgeTable) == null) {
+				return edgeTable;
+			}
+		}
 	}
 
 	/**
@@ -799,7 +827,7 @@ public class ExecutionGraph implements ExecutionListener {
 	 */
 	public ExecutionVertex getVertexByChannelID(final ChannelID id) {
 
-		final ExecutionEdge edge = this.edgeMap.get(id);
+		final ExecutionEdge edge = getEdgeByID(id);
 		if (edge == null) {
 			return null;
 		}
@@ -820,7 +848,29 @@ public class ExecutionGraph implements ExecutionListener {
 	 */
 	public ExecutionEdge getEdgeByID(final ChannelID id) {
 
-		return this.edgeMap.get(id);
+		final EdgeTable edgeTable = this.edgeTables.get(Long.valueOf(id.getSeedKey()));
+		if (edgeTable == null) {
+			return null;
+		}
+
+		// The source index and the output gate index address the edge within the table
+		final long offset = id.getDerivationOffset(edgeTable.channelSeed);
+		final int sourceIndex = (int) (offset >>> 32);
+		final int outputGateIndex = (int) offset;
+		if (sourceIndex < 0 || sourceIndex >= edgeTable.edges.length) {
+			return null;
+		}
+
+		final ExecutionEdge[] outputEdges = edgeTable.edges[sourceIndex];
+		if (outputEdges == null || outputGateIndex < 0 || outputGateIndex >= outputEdges.length) {
+			return null;
+		}
+
+		final ExecutionEdge edge = outputEdges[outputGateIndex];
+		final ChannelID channelID = id.isDerivedInputChannelID() ? edge.getInputChannelID() : edge
+			.getOutputChannelID();
+
+		return id.equals(channelID) ? edge : null;
 	}
 
 	/**
@@ -1239,27 +1289,31 @@ public class ExecutionGraph implements ExecutionListener {
 			return;
 		}
 
-		final ExecutionState actualExecutionState = vertex.getExecutionState();
+		// Vertices of different shards may change their state concurrently
+		synchronized (this.coordinationLock) {
+
+			final ExecutionState actualExecutionState = vertex.getExecutionState();
 
-		final InternalJobStatus newJobStatus = determineNewJobStatus(this, actualExecutionState);
+			final InternalJobStatus newJobStatus = determineNewJobStatus(this, actualExecutionState);
 
-		if (actualExecutionState == ExecutionState.FINISHED) {
-			// It is worth checking if the current stage has complete
-			if (this.isCurrentStageCompleted()) {
-				// Increase current execution stage
-				++this.indexToCurrentExecutionStage;
+			if (actualExecutionState == ExecutionState.FINISHED) {
+				// It is worth checking if the current stage has complete
+				if (this.isCurrentStageCompleted()) {
+					// Increase current execution stage
+					++this.indexToCurrentExecutionStage;
 
-				if (this.indexToCurrentExecutionStage < this.stages.size()) {
-					final Iterator<ExecutionStageListener> it = this.executionStageListeners.iterator();
-					final ExecutionStage nextExecutionStage = getCurrentExecutionStage();
-					while (it.hasNext()) {
-						it.next().nextExecutionStageEntered(jobID, nextExecutionStage);
+					if (this.indexToCurrentExecutionStage < this.stages.size()) {
+						final Iterator<ExecutionStageListener> it = this.executionStageListeners.iterator();
+						final ExecutionStage nextExecutionStage = getCurrentExecutionStage();
+						while (it.hasNext()) {
+							it.next().nextExecutionStageEntered(jobID, nextExecutionStage);
+						}
 					}
 				}
 			}
-		}
 
-		updateJobStatus(newJobStatus, optionalMessage);
+			updateJobStatus(newJobStatus, optionalMessage);
+		}
 	}
 
 	/**
@@ -1454,25 +1508,88 @@ public class ExecutionGraph implements ExecutionListener {
 
 
 	/**
-	 * Performs an asynchronous update operation to this execution graph.
+	 * Performs an asynchronous update operation to this execution graph. The operation runs while no other update
+	 * operation is running.
 	 * 
 	 * @param command
 	 *        the update command to be asynchronously executed on this graph
 	 */
 	public Future<?> executeCommand(final Runnable command) {
-		Runnable wrapper = new Runnable() {
-			
+
+		return this.commandExecutor.submit(wrapCommand(command));
+	}
+
+	/**
+	 * Performs an asynchronous update operation which concerns the given vertex. Operations concerning vertices of
+	 * the same group vertex run in the order of their submission, operations concerning different group vertices may
+	 * run concurrently unless coordination is required.
+	 * 
+	 * @param vertex
+	 *        the vertex the update command concerns
+	 * @param command
+	 *        the update command to be asynchronously executed on this graph
+	 * @param requiresCoordination
+	 *        <code>true</code> if the command must run while no other update operation is running, <code>false</code>
+	 *        otherwise
+	 */
+	public Future<?> executeCommand(final ExecutionVertex vertex, final Runnable command,
+			final boolean requiresCoordination) {
+
+		return this.commandExecutor.submit(vertex.getGroupVertex().getJobVertexID().hashCode(), wrapCommand(command),
+			requiresCoordination);
+	}
+
+	/**
+	 * Wraps the given update command so exceptions thrown by it are logged.
+	 * 
+	 * @param command
+	 *        the update command to wrap
+	 * @return the wrapped command
+	 */
+	private static Runnable wrapCommand(final Runnable command) {
+
+		return new Runnable() {
+
 			@Override
 			public void run() {
 				try {
 					command.run();
-				} catch(Exception e) {
+				} catch (Exception e) {
 					LOG.error("Exception while performing operation on execution graph", e);
 					throw new RuntimeException(e);
 				}
 			}
 		};
+	}
 
-		return this.executorService.submit(wrapper);
+	/**
+	 * An edge table holds the edges created for a group edge in a single call to wire its group vertices. The edges
+	 * are addressed by the index of their source vertex and their output gate index, which can both be recovered from
+	 * the IDs of the edges' channels.
+	 */
+	private static final class EdgeTable {
+
+		/**
+		 * The seed the channel IDs of all edges in the table have been derived from.
+		 */
+		private final ChannelID channelSeed;
+
+		/**
+		 * The edges, addressed by the index of their source vertex and their output gate index.
+		 */
+		private final ExecutionEdge[][] edges;
+
+		/**
+		 * Constructs a new edge table.
+		 * 
+		 * @param channelSeed
+		 *        the seed the channel IDs of all edges in the table are derived from
+		 * @param numberOfSources
+		 *        the number of source vertices whose edges the table holds
+		 */
+		private EdgeTable(final ChannelID channelSeed, final int numberOfSources) {
+			this.channelSeed = channelSeed;
+			this.edges = new ExecutionEdge[numberOfSources][];
+		}
 	}
 }
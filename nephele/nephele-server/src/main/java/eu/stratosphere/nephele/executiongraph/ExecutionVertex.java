@@ -25,6 +25,10 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
@@ -43,6 +47,7 @@ import eu.stratosphere.nephele.instance.AllocationID;
 import eu.stratosphere.nephele.io.DistributionPattern;
 import eu.stratosphere.nephele.io.GateID;
 import eu.stratosphere.nephele.io.IOReadableWritable;
+import eu.stratosphere.nephele.io.channels.ChannelID;
 import eu.stratosphere.nephele.plugins.PluginID;
 import eu.stratosphere.nephele.taskmanager.AbstractTaskResult;
 import eu.stratosphere.nephele.taskmanager.AbstractTaskResult.ReturnCode;
@@ -334,7 +339,13 @@ public final class ExecutionVertex {
 			}
 		};
 
-		this.executionGraph.executeCommand(command);
+		// Final states release resources, switch stages and trigger recovery across group vertices. A finishing
+		// pipeline may span several group vertices and hands its resource over to a waiting pipeline.
+		final boolean requiresCoordination = (newExecutionState == ExecutionState.FINISHING
+			|| newExecutionState == ExecutionState.FINISHED || newExecutionState == ExecutionState.CANCELED
+			|| newExecutionState == ExecutionState.FAILED);
+
+		this.executionGraph.executeCommand(this, command, requiresCoordination);
 	}
 
 	/**
@@ -889,25 +900,56 @@ public final class ExecutionVertex {
 	 */
 	public TaskCancelResult cancelTask() {
 
+		final CancelFuture future = cancelTaskAsynchronously();
+
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					return future.get();
+				} catch (InterruptedException e) {
+					// Like a synchronous RPC call, wait for the response and restore the interrupt flag afterwards
+					interrupted = true;
+				}
+			}
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Cancels and removes the task represented by this vertex from the instance it is currently running on without
+	 * waiting for the response of the instance. This allows to cancel the tasks of several vertices concurrently. If
+	 * the task is not currently running, its execution state is simply updated to <code>CANCELLED</code>.
+	 * <p>
+	 * The <code>get</code> methods of the returned future do not throw {@link ExecutionException}, errors are reported
+	 * as a result with the return code {@link ReturnCode#IPC_ERROR}.
+	 * 
+	 * @return the future for the result of the task cancel attempt
+	 */
+	public CancelFuture cancelTaskAsynchronously() {
+
 		while (true) {
 
 			final ExecutionState previousState = this.executionState.get();
 
 			if (previousState == ExecutionState.CANCELED) {
-				return new TaskCancelResult(getID(), AbstractTaskResult.ReturnCode.SUCCESS);
+				return new CancelFuture(new TaskCancelResult(getID(), AbstractTaskResult.ReturnCode.SUCCESS));
 			}
 
 			if (previousState == ExecutionState.FAILED) {
-				return new TaskCancelResult(getID(), AbstractTaskResult.ReturnCode.SUCCESS);
+				return new CancelFuture(new TaskCancelResult(getID(), AbstractTaskResult.ReturnCode.SUCCESS));
 			}
 
 			if (previousState == ExecutionState.FINISHED) {
-				return new TaskCancelResult(getID(), AbstractTaskResult.ReturnCode.SUCCESS);
+				return new CancelFuture(new TaskCancelResult(getID(), AbstractTaskResult.ReturnCode.SUCCESS));
 			}
 
 			// The vertex has already received a cancel request
 			if (previousState == ExecutionState.CANCELING) {
-				return new TaskCancelResult(getID(), ReturnCode.SUCCESS);
+				return new CancelFuture(new TaskCancelResult(getID(), ReturnCode.SUCCESS));
 			}
 
 			// Do not trigger the cancel request when vertex is in state STARTING, this might cause a race between RPC
@@ -922,7 +964,7 @@ public final class ExecutionVertex {
 					continue;
 				}
 
-				return new TaskCancelResult(getID(), AbstractTaskResult.ReturnCode.SUCCESS);
+				return new CancelFuture(new TaskCancelResult(getID(), AbstractTaskResult.ReturnCode.SUCCESS));
 			}
 
 			// Check if we had a race. If state change is accepted, send cancel request
@@ -931,13 +973,13 @@ public final class ExecutionVertex {
 				if (this.groupVertex.getStageNumber() != this.executionGraph.getIndexOfCurrentExecutionStage()) {
 					// Set to canceled directly
 					updateExecutionState(ExecutionState.CANCELED, null);
-					return new TaskCancelResult(getID(), AbstractTaskResult.ReturnCode.SUCCESS);
+					return new CancelFuture(new TaskCancelResult(getID(), AbstractTaskResult.ReturnCode.SUCCESS));
 				}
 
 				if (previousState != ExecutionState.RUNNING && previousState != ExecutionState.FINISHING) {
 					// Set to canceled directly
 					updateExecutionState(ExecutionState.CANCELED, null);
-					return new TaskCancelResult(getID(), AbstractTaskResult.ReturnCode.SUCCESS);
+					return new CancelFuture(new TaskCancelResult(getID(), AbstractTaskResult.ReturnCode.SUCCESS));
 				}
 
 				final AllocatedResource ar = this.allocatedResource.get();
@@ -946,22 +988,148 @@ public final class ExecutionVertex {
 					final TaskCancelResult result = new TaskCancelResult(getID(),
 						AbstractTaskResult.ReturnCode.NO_INSTANCE);
 					result.setDescription("Assigned instance of vertex " + this.toString() + " is null!");
-					return result;
+					return new CancelFuture(result);
 				}
 
 				try {
-					return ar.getInstance().cancelTask(this.vertexID);
+					return new CancelFuture(getID(), ar.getInstance().cancelTaskAsynchronously(this.vertexID));
 
 				} catch (IOException e) {
-					final TaskCancelResult result = new TaskCancelResult(getID(),
-						AbstractTaskResult.ReturnCode.IPC_ERROR);
-					result.setDescription(StringUtils.stringifyException(e));
-					return result;
+					return new CancelFuture(createIPCErrorResult(getID(), e));
 				}
 			}
 		}
 	}
 
+	/**
+	 * Creates the result of a cancel attempt which failed due to an error during the remote procedure call.
+	 * 
+	 * @param vertexID
+	 *        the ID of the vertex whose task was to be canceled
+	 * @param t
+	 *        the error which occurred during the remote procedure call
+	 * @return the result of the failed cancel attempt
+	 */
+	private static TaskCancelResult createIPCErrorResult(final ExecutionVertexID vertexID, final Throwable t) {
+
+		final TaskCancelResult result = new TaskCancelResult(vertexID, AbstractTaskResult.ReturnCode.IPC_ERROR);
+		result.setDescription(StringUtils.stringifyException(t));
+		return result;
+	}
+
+	/**
+	 * The future for the result of a task cancel attempt. It either holds the result of a cancel attempt which did not
+	 * require a remote procedure call or wraps the future of the outstanding remote procedure call. Errors during the
+	 * remote procedure call are converted into a result with the return code {@link ReturnCode#IPC_ERROR}.
+	 * <p>
+	 * This class is thread-safe.
+	 */
+	public static final class CancelFuture implements Future<TaskCancelResult> {
+
+		/**
+		 * The ID of the vertex whose task is to be canceled.
+		 */
+		private final ExecutionVertexID vertexID;
+
+		/**
+		 * The result of the cancel attempt or <code>null</code> if the result is still outstanding.
+		 */
+		private volatile TaskCancelResult result;
+
+		/**
+		 * The future of the outstanding remote procedure call or <code>null</code> if no call has been made.
+		 */
+		private final Future<TaskCancelResult> rpcFuture;
+
+		/**
+		 * Constructs a completed future.
+		 * 
+		 * @param result
+		 *        the result of the cancel attempt
+		 */
+		private CancelFuture(final TaskCancelResult result) {
+			this.vertexID = result.getVertexID();
+			this.result = result;
+			this.rpcFuture = null;
+		}
+
+		/**
+		 * Constructs a future for the result of an outstanding remote procedure call.
+		 * 
+		 * @param vertexID
+		 *        the ID of the vertex whose task is to be canceled
+		 * @param rpcFuture
+		 *        the future of the outstanding remote procedure call
+		 */
+		private CancelFuture(final ExecutionVertexID vertexID, final Future<TaskCancelResult> rpcFuture) {
+			this.vertexID = vertexID;
+			this.result = null;
+			this.rpcFuture = rpcFuture;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean cancel(final boolean mayInterruptIfRunning) {
+
+			return false;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean isCancelled() {
+
+			return false;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean isDone() {
+
+			return this.result != null || this.rpcFuture.isDone();
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public TaskCancelResult get() throws InterruptedException {
+
+			if (this.result == null) {
+				try {
+					this.result = this.rpcFuture.get();
+				} catch (ExecutionException e) {
+					this.result = createIPCErrorResult(this.vertexID, e.getCause());
+				}
+			}
+
+			return this.result;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public TaskCancelResult get(final long timeout, final TimeUnit unit) throws InterruptedException,
+				TimeoutException {
+
+			if (this.result == null) {
+				try {
+					this.result = this.rpcFuture.get(timeout, unit);
+				} catch (ExecutionException e) {
+					this.result = createIPCErrorResult(this.vertexID, e.getCause());
+				}
+			}
+
+			return this.result;
+		}
+	}
+
 	/**
 	 * Returns the {@link ExecutionGraph} this vertex belongs to.
 	 * 
@@ -1136,6 +1304,53 @@ public final class ExecutionVertex {
 		return this.attachedPluginData.remove(pluginID);
 	}
 
+	/**
+	 * Constructs a gate deployment descriptor for the given gate. If the IDs of all the gate's channels have been
+	 * derived from the same seed, the descriptor describes the channels in compact form.
+	 * 
+	 * @param eg
+	 *        the gate to construct the deployment descriptor for
+	 * @param isInputGate
+	 *        <code>true</code> if the gate is an input gate, <code>false</code> if it is an output gate
+	 * @return the gate deployment descriptor
+	 */
+	private static GateDeploymentDescriptor constructGateDeploymentDescriptor(final ExecutionGate eg,
+			final boolean isInputGate) {
+
+		final int numberOfChannels = eg.getNumberOfEdges();
+		final int[] sourceIndices = new int[numberOfChannels];
+		final int[] channelIndices = new int[numberOfChannels];
+		final boolean[] suspended = new boolean[numberOfChannels];
+		final ChannelID channelSeed = (numberOfChannels > 0) ? eg.getEdge(0).getChannelSeed() : null;
+		boolean isCompact = (channelSeed != null);
+
+		for (int i = 0; i < numberOfChannels; ++i) {
+
+			final ExecutionEdge ee = eg.getEdge(i);
+			final ExecutionGate counterpart = isInputGate ? ee.getOutputGate() : ee.getInputGate();
+			sourceIndices[i] = ee.getSourceIndex();
+			channelIndices[i] = ee.getOutputGateIndex();
+			suspended[i] = counterpart.getVertex().getExecutionState() == ExecutionState.SUSPENDED;
+			if (!ee.getChannelSeed().equals(channelSeed)) {
+				isCompact = false;
+			}
+		}
+
+		if (isCompact) {
+			return new GateDeploymentDescriptor(eg.getGateID(), eg.getChannelType(), channelSeed, sourceIndices,
+				channelIndices, suspended);
+		}
+
+		final List<ChannelDeploymentDescriptor> cdd = new ArrayList<ChannelDeploymentDescriptor>(numberOfChannels);
+		for (int i = 0; i < numberOfChannels; ++i) {
+
+			final ExecutionEdge ee = eg.getEdge(i);
+			cdd.add(new ChannelDeploymentDescriptor(ee.getOutputChannelID(), ee.getInputChannelID(), suspended[i]));
+		}
+
+		return new GateDeploymentDescriptor(eg.getGateID(), eg.getChannelType(), cdd);
+	}
+
 	/**
 	 * Constructs a new task deployment descriptor for this vertex.
 	 * 
@@ -1146,37 +1361,13 @@ public final class ExecutionVertex {
 		final SerializableArrayList<GateDeploymentDescriptor> ogd = new SerializableArrayList<GateDeploymentDescriptor>(
 			this.outputGates.length);
 		for (int i = 0; i < this.outputGates.length; ++i) {
-
-			final ExecutionGate eg = this.outputGates[i];
-			final List<ChannelDeploymentDescriptor> cdd = new ArrayList<ChannelDeploymentDescriptor>(
-				eg.getNumberOfEdges());
-			final int numberOfOutputChannels = eg.getNumberOfEdges();
-			for (int j = 0; j < numberOfOutputChannels; ++j) {
-
-				final ExecutionEdge ee = eg.getEdge(j);
-				boolean isSuspended = ee.getInputGate().getVertex().getExecutionState() == ExecutionState.SUSPENDED;
-				cdd.add(new ChannelDeploymentDescriptor(ee.getOutputChannelID(), ee.getInputChannelID(), isSuspended));
-			}
-
-			ogd.add(new GateDeploymentDescriptor(eg.getGateID(), eg.getChannelType(), cdd));
+			ogd.add(constructGateDeploymentDescriptor(this.outputGates[i], false));
 		}
 
 		final SerializableArrayList<GateDeploymentDescriptor> igd = new SerializableArrayList<GateDeploymentDescriptor>(
 			this.inputGates.length);
 		for (int i = 0; i < this.inputGates.length; ++i) {
-
-			final ExecutionGate eg = this.inputGates[i];
-			final List<ChannelDeploymentDescriptor> cdd = new ArrayList<ChannelDeploymentDescriptor>(
-				eg.getNumberOfEdges());
-			final int numberOfInputChannels = eg.getNumberOfEdges();
-			for (int j = 0; j < numberOfInputChannels; ++j) {
-
-				final ExecutionEdge ee = eg.getEdge(j);
-				boolean isSuspended = ee.getOutputGate().getVertex().getExecutionState() == ExecutionState.SUSPENDED;
-				cdd.add(new ChannelDeploymentDescriptor(ee.getOutputChannelID(), ee.getInputChannelID(), isSuspended));
-			}
-
-			igd.add(new GateDeploymentDescriptor(eg.getGateID(), eg.getChannelType(), cdd));
+			igd.add(constructGateDeploymentDescriptor(this.inputGates[i], true));
 		}
 
 		SerializableHashMap<PluginID, IOReadableWritable> pluginData = new SerializableHashMap<PluginID, IOReadableWritable>();
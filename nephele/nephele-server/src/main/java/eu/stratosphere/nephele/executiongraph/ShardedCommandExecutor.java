@@ -0,0 +1,200 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.executiongraph;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import eu.stratosphere.nephele.taskmanager.runtime.ExecutorThreadFactory;
+
+/**
+ * The sharded command executor runs the update operations of an {@link ExecutionGraph}. Global commands run one at a
+ * time on a dedicated thread and exclude all other commands while they run. Shard commands are assigned to one of
+ * several shards by a key, each shard runs its commands one at a time and in the order of their submission, and
+ * commands of different shards run concurrently. A shard command which requires global coordination is handed over to
+ * the global thread, and its shard waits for it to complete, so the order of commands within the shard is preserved.
+ * <p>
+ * Idle threads are terminated after a while, so an executor of a finished job does not hold on to any threads.
+ * <p>
+ * This class is thread-safe.
+ */
+final class ShardedCommandExecutor {
+
+	/**
+	 * The time in seconds after which an idle thread is terminated.
+	 */
+	private static final long KEEP_ALIVE_TIME = 60L;
+
+	/**
+	 * Lock held shared by running shard commands and exclusively by running global commands.
+	 */
+	private final ReentrantReadWriteLock commandLock = new ReentrantReadWriteLock();
+
+	/**
+	 * The executor running the global commands.
+	 */
+	private final ThreadPoolExecutor globalExecutor;
+
+	/**
+	 * The executors running the shard commands, one per shard.
+	 */
+	private final ThreadPoolExecutor[] shardExecutors;
+
+	/**
+	 * Constructs a new sharded command executor.
+	 *
+	 * @param numberOfShards
+	 *        the number of shards whose commands may run concurrently
+	 */
+	ShardedCommandExecutor(final int numberOfShards) {
+
+		if (numberOfShards <= 0) {
+			throw new IllegalArgumentException("Argument numberOfShards must be greater than 0");
+		}
+
+		this.globalExecutor = createSingleThreadExecutor();
+		this.shardExecutors = new ThreadPoolExecutor[numberOfShards];
+		for (int i = 0; i < numberOfShards; ++i) {
+			this.shardExecutors[i] = createSingleThreadExecutor();
+		}
+	}
+
+	/**
+	 * Creates an executor with a single thread which is terminated when it has been idle for a while.
+	 *
+	 * @return the created executor
+	 */
+	private static ThreadPoolExecutor createSingleThreadExecutor() {
+
+		final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, KEEP_ALIVE_TIME, TimeUnit.SECONDS,
+			new LinkedBlockingQueue<Runnable>(), ExecutorThreadFactory.INSTANCE);
+		executor.allowCoreThreadTimeOut(true);
+
+		return executor;
+	}
+
+	/**
+	 * Returns the number of shards of this executor.
+	 *
+	 * @return the number of shards of this executor
+	 */
+	int getNumberOfShards() {
+
+		return this.shardExecutors.length;
+	}
+
+	/**
+	 * Submits a global command. The command runs after all previously submitted global commands and while no other
+	 * command is running.
+	 *
+	 * @param command
+	 *        the command to run
+	 * @return the future representing the result of the command
+	 */
+	Future<?> submit(final Runnable command) {
+
+		return this.globalExecutor.submit(new Runnable() {
+
+			/**
+			 * {@inheritDoc}
+			 */
+			@Override
+			public void run() {
+
+				runLocked(commandLock.writeLock(), command);
+			}
+		});
+	}
+
+	/**
+	 * Submits a shard command. The command runs after all previously submitted commands of the same shard.
+	 *
+	 * @param shardKey
+	 *        the key which determines the shard of the command
+	 * @param command
+	 *        the command to run
+	 * @param requiresCoordination
+	 *        <code>true</code> if the command must not run concurrently with any other command, <code>false</code>
+	 *        if it only needs to be ordered with respect to the other commands of its shard
+	 * @return the future representing the result of the command
+	 */
+	Future<?> submit(final int shardKey, final Runnable command, final boolean requiresCoordination) {
+
+		final ThreadPoolExecutor shardExecutor = this.shardExecutors[(shardKey & Integer.MAX_VALUE)
+			% this.shardExecutors.length];
+
+		if (!requiresCoordination) {
+
+			return shardExecutor.submit(new Runnable() {
+
+				/**
+				 * {@inheritDoc}
+				 */
+				@Override
+				public void run() {
+
+					runLocked(commandLock.readLock(), command);
+				}
+			});
+		}
+
+		return shardExecutor.submit(new Runnable() {
+
+			/**
+			 * {@inheritDoc}
+			 */
+			@Override
+			public void run() {
+
+				// Block the shard until the command has run exclusively, the shard does not hold the lock meanwhile
+				try {
+					submit(command).get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new RuntimeException(e);
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof RuntimeException) {
+						throw (RuntimeException) e.getCause();
+					}
+					throw new RuntimeException(e.getCause());
+				}
+			}
+		});
+	}
+
+	/**
+	 * Runs the given command while holding the given lock.
+	 *
+	 * @param lock
+	 *        the lock to hold while the command runs
+	 * @param command
+	 *        the command to run
+	 */
+	private static void runLocked(final Lock lock, final Runnable command) {
+
+		lock.lock();
+		try {
+			command.run();
+		} finally {
+			lock.unlock();
+		}
+	}
+}
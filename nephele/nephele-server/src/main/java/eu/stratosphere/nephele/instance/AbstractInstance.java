@@ -19,12 +19,15 @@ import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Future;
 
+import eu.stratosphere.nephele.configuration.GlobalConfiguration;
 import eu.stratosphere.nephele.deployment.TaskDeploymentDescriptor;
+import eu.stratosphere.nephele.execution.librarycache.LibraryCacheChunk;
 import eu.stratosphere.nephele.execution.librarycache.LibraryCacheManager;
 import eu.stratosphere.nephele.execution.librarycache.LibraryCacheProfileRequest;
 import eu.stratosphere.nephele.execution.librarycache.LibraryCacheProfileResponse;
-import eu.stratosphere.nephele.execution.librarycache.LibraryCacheUpdate;
+import eu.stratosphere.nephele.execution.librarycache.LibraryManifest;
 import eu.stratosphere.nephele.executiongraph.ExecutionVertexID;
 import eu.stratosphere.nephele.io.IOReadableWritable;
 import eu.stratosphere.nephele.io.channels.ChannelID;
@@ -32,6 +35,7 @@ import eu.stratosphere.nephele.ipc.RPC;
 import eu.stratosphere.nephele.jobgraph.JobID;
 import eu.stratosphere.nephele.net.NetUtils;
 import eu.stratosphere.nephele.plugins.PluginID;
+import eu.stratosphere.nephele.protocols.AsyncTaskOperationProtocol;
 import eu.stratosphere.nephele.protocols.PluginCommunicationProtocol;
 import eu.stratosphere.nephele.protocols.TaskOperationProtocol;
 import eu.stratosphere.nephele.taskmanager.TaskCancelResult;
@@ -48,6 +52,16 @@ import eu.stratosphere.nephele.topology.NetworkTopology;
  */
 public abstract class AbstractInstance extends NetworkNode {
 
+	/**
+	 * The key to retrieve the maximum size of the chunks in which libraries are transferred to the instance.
+	 */
+	public static final String LIBRARY_CHUNK_SIZE_KEY = "jobmanager.library.chunksize";
+
+	/**
+	 * The default maximum size of the chunks in which libraries are transferred to the instance in bytes.
+	 */
+	public static final int DEFAULT_LIBRARY_CHUNK_SIZE = 1024 * 1024;
+
 	/**
 	 * The type of the instance.
 	 */
@@ -68,6 +82,11 @@ public abstract class AbstractInstance extends NetworkNode {
 	 */
 	private TaskOperationProtocol taskManager = null;
 
+	/**
+	 * Stores the asynchronous RPC stub object for the instance's task manager.
+	 */
+	private AsyncTaskOperationProtocol asyncTaskManager = null;
+
 	/**
 	 * Stores the RPC stub object for the instance's task manager plugin component.
 	 */
@@ -126,6 +145,34 @@ public abstract class AbstractInstance extends NetworkNode {
 		}
 	}
 
+	/**
+	 * Creates or returns the asynchronous RPC stub object for the instance's task manager.
+	 * 
+	 * @return the asynchronous RPC stub object for the instance's task manager
+	 */
+	private AsyncTaskOperationProtocol getAsyncTaskManagerProxy() {
+
+		if (this.asyncTaskManager == null) {
+
+			this.asyncTaskManager = RPC.getAsyncProxy(AsyncTaskOperationProtocol.class, TaskOperationProtocol.class,
+				new InetSocketAddress(getInstanceConnectionInfo().getAddress(),
+					getInstanceConnectionInfo().getIPCPort()));
+		}
+
+		return this.asyncTaskManager;
+	}
+
+	/**
+	 * Destroys and removes the asynchronous RPC stub object for this instance's task manager.
+	 */
+	private void destroyAsyncTaskManagerProxy() {
+
+		if (this.asyncTaskManager != null) {
+			RPC.stopAsyncProxy(this.asyncTaskManager);
+			this.asyncTaskManager = null;
+		}
+	}
+
 	/**
 	 * Creates or returns the RPC stub object for the instance's task manager plugin component.
 	 * 
@@ -184,37 +231,58 @@ public abstract class AbstractInstance extends NetworkNode {
 	}
 
 	/**
-	 * Checks if all the libraries required to run the job with the given
-	 * job ID are available on this instance. Any libary that is missing
-	 * is transferred to the instance as a result of this call.
+	 * Queries the instance's {@link eu.stratosphere.nephele.taskmanager.TaskManager} which of the libraries included in
+	 * the request are available in its library cache.
 	 * 
-	 * @param jobID
-	 *        the ID of the job whose libraries are to be checked for
+	 * @param request
+	 *        the request containing the names of the libraries to check for
+	 * @return the cache status of each library included in the request
 	 * @throws IOException
-	 *         thrown if an error occurs while checking for the libraries
+	 *         thrown if an error occurs while querying the library cache
 	 */
-	public synchronized void checkLibraryAvailability(final JobID jobID) throws IOException {
+	public synchronized LibraryCacheProfileResponse getLibraryCacheProfile(final LibraryCacheProfileRequest request)
+			throws IOException {
 
-		// Now distribute the required libraries for the job
-		String[] requiredLibraries = LibraryCacheManager.getRequiredJarFiles(jobID);
+		return getTaskManagerProxy().getLibraryCacheProfile(request);
+	}
+
+	/**
+	 * Transfers the library with the given cache name from the local library cache to the instance. The library is
+	 * transferred in chunks whose maximum size is read from the configuration.
+	 * 
+	 * @param libraryFileName
+	 *        the cache name of the library to transfer
+	 * @throws IOException
+	 *         thrown if an error occurs while transferring the library
+	 */
+	public synchronized void transferLibrary(final String libraryFileName) throws IOException {
 
-		if (requiredLibraries == null)
-			throw new IOException("No entry of required libraries for job " + jobID);
+		final int chunkSize = GlobalConfiguration.getInteger(LIBRARY_CHUNK_SIZE_KEY, DEFAULT_LIBRARY_CHUNK_SIZE);
 
-		LibraryCacheProfileRequest request = new LibraryCacheProfileRequest();
-		request.setRequiredLibraries(requiredLibraries);
+		long offset = 0L;
+		LibraryCacheChunk chunk;
+		do {
+			chunk = LibraryCacheManager.readLibraryChunk(libraryFileName, offset, chunkSize);
+			getTaskManagerProxy().transferLibraryChunk(chunk);
+			offset += chunk.getData().length;
+		} while (!chunk.isLast());
+	}
 
-		// Send the request
-		LibraryCacheProfileResponse response = null;
-		response = getTaskManagerProxy().getLibraryCacheProfile(request);
+	/**
+	 * Advises the instance's {@link eu.stratosphere.nephele.taskmanager.TaskManager} to fetch the library described
+	 * by the given manifest from another instance which already holds it in its library cache.
+	 * 
+	 * @param manifest
+	 *        the manifest of the library to fetch
+	 * @param source
+	 *        the instance to fetch the library from
+	 * @throws IOException
+	 *         thrown if an error occurs while fetching the library
+	 */
+	public synchronized void fetchLibrary(final LibraryManifest manifest, final AbstractInstance source)
+			throws IOException {
 
-		// Check response and transfer libraries if necessary
-		for (int k = 0; k < requiredLibraries.length; k++) {
-			if (!response.isCached(k)) {
-				LibraryCacheUpdate update = new LibraryCacheUpdate(requiredLibraries[k]);
-				getTaskManagerProxy().updateLibraryCache(update);
-			}
-		}
+		getTaskManagerProxy().fetchLibrary(manifest, source.getInstanceConnectionInfo());
 	}
 
 	/**
@@ -247,6 +315,22 @@ public abstract class AbstractInstance extends NetworkNode {
 		return getTaskManagerProxy().cancelTask(id);
 	}
 
+	/**
+	 * Sends a request to cancel the task identified by the given ID to the instance's
+	 * {@link eu.stratosphere.nephele.taskmanager.TaskManager} without waiting for the response.
+	 * 
+	 * @param id
+	 *        the ID identifying the task to be canceled
+	 * @throws IOException
+	 *         thrown if an error occurs while transmitting the request
+	 * @return the future for the result of the cancel attempt
+	 */
+	public synchronized Future<TaskCancelResult> cancelTaskAsynchronously(final ExecutionVertexID id)
+			throws IOException {
+
+		return getAsyncTaskManagerProxy().cancelTask(id);
+	}
+
 	/**
 	 * Kills the task identified by the given ID at the instance's
 	 * {@link eu.stratosphere.nephele.taskmanager.TaskManager}.
@@ -322,6 +406,19 @@ public abstract class AbstractInstance extends NetworkNode {
 		getTaskManagerProxy().logBufferUtilization();
 	}
 
+	/**
+	 * Triggers the remote task manager to print out the current utilization of its read and write buffers to its logs
+	 * without waiting for the request to be processed.
+	 * 
+	 * @throws IOException
+	 *         thrown if an error occurs while transmitting the request
+	 * @return the future which is completed once the task manager has processed the request
+	 */
+	public synchronized Future<Void> logBufferUtilizationAsynchronously() throws IOException {
+
+		return getAsyncTaskManagerProxy().logBufferUtilization();
+	}
+
 	/**
 	 * Kills the task manager running on this instance. This method is mainly intended to test and debug Nephele's fault
 	 * tolerance mechanisms.
@@ -385,6 +482,7 @@ public abstract class AbstractInstance extends NetworkNode {
 	public synchronized void destroyProxies() {
 
 		destroyTaskManagerProxy();
+		destroyAsyncTaskManagerProxy();
 		destroyTaskManagerPluginProxy();
 
 	}
@@ -106,19 +106,15 @@ public class RuntimeInputGate<T extends Record> extends AbstractGate<T>
 	}
 
 	/**
-	 * Adds a new input channel to the input gate.
+	 * Adds a new input channel to the input gate. Every channel is created with the next free index, so it is stored
+	 * at the position of its index and no channel can be added twice.
 	 * 
 	 * @param inputChannel
 	 *            the input channel to be added.
 	 */
 	private void addInputChannel(AbstractInputChannel<T> inputChannel) {
-		// in high DOPs, this can be a serious performance issue, as adding all
-		// channels and checking linearly has a
-		// quadratic complexity!
-		if (!this.inputChannels.contains(inputChannel)) {
-			this.inputChannels.add(inputChannel);
-			this.activeInputChannels++;
-		}
+		this.inputChannels.add(inputChannel);
+		this.activeInputChannels++;
 	}
 
 	@Override
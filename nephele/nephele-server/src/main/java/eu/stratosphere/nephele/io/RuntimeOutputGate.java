@@ -20,6 +20,7 @@ import eu.stratosphere.nephele.execution.Environment;
 import eu.stratosphere.nephele.io.channels.AbstractOutputChannel;
 import eu.stratosphere.nephele.io.channels.ChannelID;
 import eu.stratosphere.nephele.io.channels.ChannelType;
+import eu.stratosphere.nephele.io.channels.LengthPrefixEncoding;
 import eu.stratosphere.nephele.io.channels.bytebuffered.InMemoryOutputChannel;
 import eu.stratosphere.nephele.io.channels.bytebuffered.NetworkOutputChannel;
 import eu.stratosphere.nephele.jobgraph.JobID;
@@ -66,6 +67,11 @@ public class RuntimeOutputGate<T extends Record> extends AbstractGate<T> impleme
 	 * Stores whether all records passed to this output gate shall be transmitted through all connected output channels.
 	 */
 	private final boolean isBroadcast;
+
+	/**
+	 * The encoding of the length prefixes of the records written through this output gate.
+	 */
+	private volatile LengthPrefixEncoding lengthPrefixEncoding = LengthPrefixEncoding.FIXED_INT;
 	
 	/**
 	 * Queue with indices of channels that have pending events.
@@ -118,16 +124,15 @@ public class RuntimeOutputGate<T extends Record> extends AbstractGate<T> impleme
 	}
 
 	/**
-	 * Adds a new output channel to the output gate.
+	 * Adds a new output channel to the output gate. Every channel is created with the next free index, so it is stored
+	 * at the position of its index and no channel can be added twice.
 	 * 
 	 * @param outputChannel
 	 *        the output channel to be added.
 	 */
 	private void addOutputChannel(AbstractOutputChannel<T> outputChannel) {
-		if (!this.outputChannels.contains(outputChannel)) {
-			this.outputChannels.add(outputChannel);
-			this.activeOutputChannels++;
-		}
+		this.outputChannels.add(outputChannel);
+		this.activeOutputChannels++;
 	}
 
 	/**
@@ -323,6 +328,28 @@ public class RuntimeOutputGate<T extends Record> extends AbstractGate<T> impleme
 		return this.isBroadcast;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setLengthPrefixEncoding(final LengthPrefixEncoding lengthPrefixEncoding) {
+
+		if (lengthPrefixEncoding == null) {
+			throw new IllegalArgumentException("Argument lengthPrefixEncoding must not be null");
+		}
+
+		this.lengthPrefixEncoding = lengthPrefixEncoding;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public LengthPrefixEncoding getLengthPrefixEncoding() {
+
+		return this.lengthPrefixEncoding;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -0,0 +1,324 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.jobmanager;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import eu.stratosphere.nephele.configuration.GlobalConfiguration;
+import eu.stratosphere.nephele.deployment.TaskDeploymentDescriptor;
+import eu.stratosphere.nephele.execution.ExecutionState;
+import eu.stratosphere.nephele.executiongraph.ExecutionVertex;
+import eu.stratosphere.nephele.executiongraph.ExecutionVertexID;
+import eu.stratosphere.nephele.instance.AbstractInstance;
+import eu.stratosphere.nephele.jobgraph.JobID;
+import eu.stratosphere.nephele.taskmanager.AbstractTaskResult;
+import eu.stratosphere.nephele.taskmanager.TaskSubmissionResult;
+import eu.stratosphere.nephele.taskmanager.runtime.ExecutorThreadFactory;
+import eu.stratosphere.nephele.util.SerializableArrayList;
+import eu.stratosphere.nephele.util.StringUtils;
+
+/**
+ * The deployment coordinator deploys the vertices of a job to their instances. The deployments to different instances
+ * run in parallel with a bounded number of threads. For every instance, the libraries of the job are checked for and
+ * transferred while the deployment descriptors are constructed. The coordinator also measures the time each vertex
+ * takes from being ready to running and collects these latencies in a histogram per job.
+ * <p>
+ * This class is thread-safe.
+ */
+final class DeploymentCoordinator {
+
+	/**
+	 * The key to retrieve the maximum number of instances tasks are deployed to concurrently.
+	 */
+	public static final String MAX_CONCURRENT_DEPLOYMENTS_KEY = "jobmanager.deployment.maxconcurrent";
+
+	/**
+	 * The default maximum number of instances tasks are deployed to concurrently.
+	 */
+	public static final int DEFAULT_MAX_CONCURRENT_DEPLOYMENTS = 32;
+
+	/**
+	 * The log object used for debugging.
+	 */
+	private static final Log LOG = LogFactory.getLog(DeploymentCoordinator.class);
+
+	/**
+	 * The library distributor used to check for and transfer the libraries of a job.
+	 */
+	private final LibraryDistributor libraryDistributor;
+
+	/**
+	 * The executor running the deployments with a bounded number of threads.
+	 */
+	private final ThreadPoolExecutor deploymentExecutor;
+
+	/**
+	 * The executor running the library checks alongside the deployments.
+	 */
+	private final ExecutorService libraryExecutor = Executors.newCachedThreadPool(ExecutorThreadFactory.INSTANCE);
+
+	/**
+	 * The points in time the vertices being deployed have been ready, accessible via the vertex ID.
+	 */
+	private final ConcurrentMap<ExecutionVertexID, Long> readyTimestamps = new ConcurrentHashMap<ExecutionVertexID, Long>();
+
+	/**
+	 * The histograms of the deployment latencies, accessible via the job ID.
+	 */
+	private final ConcurrentMap<JobID, LatencyHistogram> histograms = new ConcurrentHashMap<JobID, LatencyHistogram>();
+
+	/**
+	 * Constructs a new deployment coordinator.
+	 *
+	 * @param libraryDistributor
+	 *        the library distributor used to check for and transfer the libraries of a job
+	 * @param maximumNumberOfDeployments
+	 *        the maximum number of instances tasks are deployed to concurrently
+	 */
+	DeploymentCoordinator(final LibraryDistributor libraryDistributor, final int maximumNumberOfDeployments) {
+
+		if (maximumNumberOfDeployments <= 0) {
+			throw new IllegalArgumentException("Argument maximumNumberOfDeployments must be greater than 0");
+		}
+
+		this.libraryDistributor = libraryDistributor;
+		this.deploymentExecutor = new ThreadPoolExecutor(maximumNumberOfDeployments, maximumNumberOfDeployments,
+			60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), ExecutorThreadFactory.INSTANCE);
+		this.deploymentExecutor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Constructs a new deployment coordinator whose maximum number of concurrent deployments is read from the global
+	 * configuration.
+	 *
+	 * @param libraryDistributor
+	 *        the library distributor used to check for and transfer the libraries of a job
+	 */
+	DeploymentCoordinator(final LibraryDistributor libraryDistributor) {
+		this(libraryDistributor, Math.max(1, GlobalConfiguration.getInteger(MAX_CONCURRENT_DEPLOYMENTS_KEY,
+			DEFAULT_MAX_CONCURRENT_DEPLOYMENTS)));
+	}
+
+	/**
+	 * Switches the given vertices to the state <code>STARTING</code> and deploys them to the given instance
+	 * asynchronously.
+	 *
+	 * @param jobID
+	 *        the ID of the job the vertices belong to
+	 * @param instance
+	 *        the instance to deploy the vertices to
+	 * @param verticesToBeDeployed
+	 *        the vertices to deploy
+	 */
+	void deploy(final JobID jobID, final AbstractInstance instance, final List<ExecutionVertex> verticesToBeDeployed) {
+
+		final Long now = Long.valueOf(System.nanoTime());
+
+		for (final ExecutionVertex vertex : verticesToBeDeployed) {
+
+			// Check vertex state
+			if (vertex.getExecutionState() != ExecutionState.READY) {
+				LOG.error("Expected vertex " + vertex + " to be in state READY but it is in state "
+					+ vertex.getExecutionState());
+			}
+
+			this.readyTimestamps.put(vertex.getID(), now);
+			vertex.updateExecutionState(ExecutionState.STARTING, null);
+		}
+
+		this.deploymentExecutor.execute(new Runnable() {
+
+			/**
+			 * {@inheritDoc}
+			 */
+			@Override
+			public void run() {
+				deployToInstance(jobID, instance, verticesToBeDeployed);
+			}
+		});
+	}
+
+	/**
+	 * Checks for the required libraries and submits the given vertices to the given instance.
+	 *
+	 * @param jobID
+	 *        the ID of the job the vertices belong to
+	 * @param instance
+	 *        the instance to deploy the vertices to
+	 * @param verticesToBeDeployed
+	 *        the vertices to deploy
+	 */
+	private void deployToInstance(final JobID jobID, final AbstractInstance instance,
+			final List<ExecutionVertex> verticesToBeDeployed) {
+
+		// Check if all required libraries are available on the instance while the descriptors are constructed
+		final Future<Void> libraryCheck = this.libraryExecutor.submit(new Callable<Void>() {
+
+			/**
+			 * {@inheritDoc}
+			 */
+			@Override
+			public Void call() throws IOException {
+
+				libraryDistributor.distributeLibraries(instance, jobID);
+				return null;
+			}
+		});
+
+		final List<TaskDeploymentDescriptor> submissionList = new SerializableArrayList<TaskDeploymentDescriptor>();
+
+		for (final ExecutionVertex vertex : verticesToBeDeployed) {
+
+			submissionList.add(vertex.constructDeploymentDescriptor());
+
+			LOG.info("Starting task " + vertex + " on " + vertex.getAllocatedResource().getInstance());
+		}
+
+		try {
+			libraryCheck.get();
+		} catch (ExecutionException e) {
+			LOG.error("Cannot check library availability: " + StringUtils.stringifyException(e.getCause()));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			LOG.error("Interrupted while checking library availability on " + instance);
+		}
+
+		List<TaskSubmissionResult> submissionResultList = null;
+
+		try {
+			submissionResultList = instance.submitTasks(submissionList);
+		} catch (final IOException ioe) {
+			final String errorMsg = StringUtils.stringifyException(ioe);
+			for (final ExecutionVertex vertex : verticesToBeDeployed) {
+				this.readyTimestamps.remove(vertex.getID());
+				vertex.updateExecutionStateAsynchronously(ExecutionState.FAILED, errorMsg);
+			}
+			return;
+		}
+
+		if (verticesToBeDeployed.size() != submissionResultList.size()) {
+			LOG.error("size of submission result list does not match size of list with vertices to be deployed");
+		}
+
+		int count = 0;
+		for (final TaskSubmissionResult tsr : submissionResultList) {
+
+			ExecutionVertex vertex = verticesToBeDeployed.get(count++);
+			if (!vertex.getID().equals(tsr.getVertexID())) {
+				LOG.error("Expected different order of objects in task result list");
+				vertex = null;
+				for (final ExecutionVertex candVertex : verticesToBeDeployed) {
+					if (tsr.getVertexID().equals(candVertex.getID())) {
+						vertex = candVertex;
+						break;
+					}
+				}
+
+				if (vertex == null) {
+					LOG.error("Cannot find execution vertex for vertex ID " + tsr.getVertexID());
+					continue;
+				}
+			}
+
+			if (tsr.getReturnCode() != AbstractTaskResult.ReturnCode.SUCCESS) {
+				// Change the execution state to failed and let the scheduler deal with the rest
+				this.readyTimestamps.remove(vertex.getID());
+				vertex.updateExecutionStateAsynchronously(ExecutionState.FAILED, tsr.getDescription());
+			}
+		}
+	}
+
+	/**
+	 * Records the deployment latency of the given vertex when a task manager reports it has switched to the state
+	 * <code>RUNNING</code>. Other states end the measurement without recording a latency.
+	 *
+	 * @param jobID
+	 *        the ID of the job the vertex belongs to
+	 * @param vertexID
+	 *        the ID of the vertex whose state has changed
+	 * @param executionState
+	 *        the new execution state of the vertex
+	 */
+	void reportExecutionState(final JobID jobID, final ExecutionVertexID vertexID,
+			final ExecutionState executionState) {
+
+		if (executionState == ExecutionState.STARTING) {
+			return;
+		}
+
+		final Long readyTimestamp = this.readyTimestamps.remove(vertexID);
+		if (readyTimestamp == null || executionState != ExecutionState.RUNNING) {
+			return;
+		}
+
+		LatencyHistogram histogram = this.histograms.get(jobID);
+		if (histogram == null) {
+			final LatencyHistogram newHistogram = new LatencyHistogram();
+			histogram = this.histograms.putIfAbsent(jobID, newHistogram);
+			if (histogram == null) {
+				histogram = newHistogram;
+			}
+		}
+
+		histogram.record((System.nanoTime() - readyTimestamp.longValue()) / 1000000L);
+	}
+
+	/**
+	 * Removes and returns the histogram of the deployment latencies of the job with the given ID.
+	 *
+	 * @param jobID
+	 *        the ID of the job
+	 * @return the histogram of the deployment latencies or <code>null</code> if no latency has been recorded
+	 */
+	LatencyHistogram removeHistogram(final JobID jobID) {
+
+		return this.histograms.remove(jobID);
+	}
+
+	/**
+	 * Forgets about the libraries the given instance holds, so it is no longer asked to serve them to its peers.
+	 *
+	 * @param instance
+	 *        the instance which has died
+	 */
+	void instanceDied(final AbstractInstance instance) {
+
+		this.libraryDistributor.removeInstance(instance);
+	}
+
+	/**
+	 * Stops the threads of the deployment coordinator.
+	 */
+	void shutdown() {
+
+		this.deploymentExecutor.shutdown();
+		this.libraryExecutor.shutdown();
+	}
+}
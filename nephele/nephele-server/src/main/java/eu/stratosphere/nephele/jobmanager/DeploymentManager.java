@@ -42,4 +42,13 @@ public interface DeploymentManager {
 	 *        the list of vertices to be deployed
 	 */
 	void deploy(JobID jobID, AbstractInstance instance, List<ExecutionVertex> verticesToBeDeployed);
+
+	/**
+	 * Called if the given {@link AbstractInstance} has died unexpectedly, for example because its heartbeat has been
+	 * lost.
+	 * 
+	 * @param instance
+	 *        the instance which has died
+	 */
+	void instanceDied(AbstractInstance instance);
 }
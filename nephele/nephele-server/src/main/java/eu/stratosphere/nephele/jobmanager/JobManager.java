@@ -39,14 +39,17 @@ import java.io.InputStream;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -72,7 +75,6 @@ import eu.stratosphere.nephele.client.JobSubmissionResult;
 import eu.stratosphere.nephele.configuration.ConfigConstants;
 import eu.stratosphere.nephele.configuration.Configuration;
 import eu.stratosphere.nephele.configuration.GlobalConfiguration;
-import eu.stratosphere.nephele.deployment.TaskDeploymentDescriptor;
 import eu.stratosphere.nephele.discovery.DiscoveryException;
 import eu.stratosphere.nephele.discovery.DiscoveryService;
 import eu.stratosphere.nephele.event.job.AbstractEvent;
@@ -130,12 +132,13 @@ import eu.stratosphere.nephele.taskmanager.AbstractTaskResult;
 import eu.stratosphere.nephele.taskmanager.TaskCancelResult;
 import eu.stratosphere.nephele.taskmanager.TaskExecutionState;
 import eu.stratosphere.nephele.taskmanager.TaskKillResult;
-import eu.stratosphere.nephele.taskmanager.TaskSubmissionResult;
 import eu.stratosphere.nephele.taskmanager.bytebuffered.ConnectionInfoLookupResponse;
 import eu.stratosphere.nephele.taskmanager.bytebuffered.RemoteReceiver;
 import eu.stratosphere.nephele.taskmanager.runtime.ExecutorThreadFactory;
+import eu.stratosphere.nephele.template.InputSplit;
 import eu.stratosphere.nephele.topology.NetworkTopology;
 import eu.stratosphere.nephele.types.IntegerRecord;
+import eu.stratosphere.nephele.types.LongRecord;
 import eu.stratosphere.nephele.types.StringRecord;
 import eu.stratosphere.nephele.util.SerializableArrayList;
 import eu.stratosphere.nephele.util.StringUtils;
@@ -182,6 +185,11 @@ public class JobManager implements DeploymentManager, ExtendedManagementProtocol
 
 	private final ExecutorService executorService = Executors.newCachedThreadPool(ExecutorThreadFactory.INSTANCE);
 
+	/**
+	 * Deploys tasks to their instances and measures the deployment latencies.
+	 */
+	private final DeploymentCoordinator deploymentCoordinator;
+
 	private final static int SLEEPINTERVAL = 1000;
 
 	private final static int FAILURERETURNCODE = 1;
@@ -223,6 +231,9 @@ public class JobManager implements DeploymentManager, ExtendedManagementProtocol
 		this.recommendedClientPollingInterval = GlobalConfiguration.getInteger(
 			ConfigConstants.JOBCLIENT_POLLING_INTERVAL_KEY, ConfigConstants.DEFAULT_JOBCLIENT_POLLING_INTERVAL);
 
+		// Create the deployment coordinator
+		this.deploymentCoordinator = new DeploymentCoordinator(new LibraryDistributor());
+
 		// Load the job progress collector
 		this.eventCollector = new EventCollector(this.recommendedClientPollingInterval);
 		
@@ -352,6 +363,9 @@ public class JobManager implements DeploymentManager, ExtendedManagementProtocol
 			this.jobManagerServer.stop();
 		}
 
+		// Stop the deployment coordinator
+		this.deploymentCoordinator.shutdown();
+
 		// Stop the executor service
 		if (this.executorService != null) {
 			this.executorService.shutdown();
@@ -778,10 +792,31 @@ public class JobManager implements DeploymentManager, ExtendedManagementProtocol
 			return;
 		}
 
+		this.deploymentCoordinator.reportExecutionState(executionState.getJobID(), executionState.getID(),
+			executionState.getExecutionState());
+
 		// Asynchronously update execute state of vertex
 		vertex.updateExecutionStateAsynchronously(executionState.getExecutionState(), executionState.getDescription());
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void updateTaskExecutionStates(final List<TaskExecutionState> executionStates) throws IOException {
+
+		// Ignore calls with executionStates == null
+		if (executionStates == null) {
+			LOG.error("Received call to updateTaskExecutionStates with executionStates == null");
+			return;
+		}
+
+		// The updates are queued in the order of the list, so the updates of each vertex remain ordered
+		for (final TaskExecutionState executionState : executionStates) {
+			updateTaskExecutionState(executionState);
+		}
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -828,19 +863,37 @@ public class JobManager implements DeploymentManager, ExtendedManagementProtocol
 		TaskCancelResult errorResult = null;
 
 		/**
-		 * Cancel all nodes in the current and upper execution stages.
+		 * Cancel all nodes in the current and upper execution stages. The cancel requests are sent to the task managers
+		 * first, so they are processed concurrently, and the results are collected afterwards.
 		 */
+		final List<ExecutionVertex.CancelFuture> cancelFutures = new ArrayList<ExecutionVertex.CancelFuture>();
 		final Iterator<ExecutionVertex> it = new ExecutionGraphIterator(eg, eg.getIndexOfCurrentExecutionStage(),
 			false, true);
 		while (it.hasNext()) {
+			cancelFutures.add(it.next().cancelTaskAsynchronously());
+		}
+
+		boolean interrupted = false;
+		for (final ExecutionVertex.CancelFuture cancelFuture : cancelFutures) {
+
+			TaskCancelResult result = null;
+			while (result == null) {
+				try {
+					result = cancelFuture.get();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
 
-			final ExecutionVertex vertex = it.next();
-			final TaskCancelResult result = vertex.cancelTask();
 			if (result.getReturnCode() != AbstractTaskResult.ReturnCode.SUCCESS) {
 				errorResult = result;
 			}
 		}
 
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+
 		return errorResult;
 	}
 
@@ -1173,6 +1226,11 @@ public class JobManager implements DeploymentManager, ExtendedManagementProtocol
 			|| newJobStatus == InternalJobStatus.FINISHED) {
 			// Unregister job for Nephele's monitoring, optimization components, and dynamic input split assignment
 			unregisterJob(executionGraph);
+
+			final LatencyHistogram histogram = this.deploymentCoordinator.removeHistogram(executionGraph.getJobID());
+			if (histogram != null) {
+				LOG.info("Deployment latency of job " + executionGraph.getJobID() + ": " + histogram);
+			}
 		}
 	}
 
@@ -1213,14 +1271,26 @@ public class JobManager implements DeploymentManager, ExtendedManagementProtocol
 			@Override
 			public void run() {
 
+				// Send all requests before waiting for the first response
+				final List<Future<Void>> futures = new ArrayList<Future<Void>>(allocatedInstance.size());
 				final Iterator<AbstractInstance> it2 = allocatedInstance.iterator();
+				while (it2.hasNext()) {
+					try {
+						futures.add(it2.next().logBufferUtilizationAsynchronously());
+					} catch (IOException ioe) {
+						LOG.error(StringUtils.stringifyException(ioe));
+					}
+				}
 
-				try {
-					while (it2.hasNext()) {
-						it2.next().logBufferUtilization();
+				for (final Future<Void> future : futures) {
+					try {
+						future.get();
+					} catch (ExecutionException e) {
+						LOG.error(StringUtils.stringifyException(e.getCause()));
+					} catch (InterruptedException e) {
+						LOG.debug(StringUtils.stringifyException(e));
+						break;
 					}
-				} catch (IOException ioe) {
-					LOG.error(StringUtils.stringifyException(ioe));
 				}
 
 			}
@@ -1242,109 +1312,113 @@ public class JobManager implements DeploymentManager, ExtendedManagementProtocol
 			return;
 		}
 
-		for (final ExecutionVertex vertex : verticesToBeDeployed) {
+		this.deploymentCoordinator.deploy(jobID, instance, verticesToBeDeployed);
+	}
 
-			// Check vertex state
-			if (vertex.getExecutionState() != ExecutionState.READY) {
-				LOG.error("Expected vertex " + vertex + " to be in state READY but it is in state "
-					+ vertex.getExecutionState());
-			}
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void instanceDied(final AbstractInstance instance) {
 
-			vertex.updateExecutionState(ExecutionState.STARTING, null);
-		}
+		this.deploymentCoordinator.instanceDied(instance);
+	}
 
-		// Create a new runnable and pass it the executor service
-		final Runnable deploymentRunnable = new Runnable() {
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public InputSplitWrapper requestNextInputSplit(final JobID jobID, final ExecutionVertexID vertexID,
+			final IntegerRecord sequenceNumber) throws IOException {
 
-			/**
-			 * {@inheritDoc}
-			 */
-			@Override
-			public void run() {
+		final ExecutionGraph graph = this.scheduler.getExecutionGraphByID(jobID);
+		if (graph == null) {
+			LOG.error("Cannot find execution graph to job ID " + jobID);
+			return null;
+		}
 
-				// Check if all required libraries are available on the instance
-				try {
-					instance.checkLibraryAvailability(jobID);
-				} catch (IOException ioe) {
-					LOG.error("Cannot check library availability: " + StringUtils.stringifyException(ioe));
-				}
+		final ExecutionVertex vertex = graph.getVertexByID(vertexID);
+		if (vertex == null) {
+			LOG.error("Cannot find execution vertex for vertex ID " + vertexID);
+			return null;
+		}
 
-				final List<TaskDeploymentDescriptor> submissionList = new SerializableArrayList<TaskDeploymentDescriptor>();
+		return new InputSplitWrapper(jobID, this.inputSplitManager.getNextInputSplit(vertex, sequenceNumber.getValue()));
+	}
 
-				// Check the consistency of the call
-				for (final ExecutionVertex vertex : verticesToBeDeployed) {
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<InputSplitWrapper> requestNextInputSplits(final JobID jobID, final ExecutionVertexID vertexID,
+			final IntegerRecord sequenceNumber, final IntegerRecord maximumNumberOfInputSplits) throws IOException {
 
-					submissionList.add(vertex.constructDeploymentDescriptor());
+		final List<InputSplitWrapper> wrappers = new SerializableArrayList<InputSplitWrapper>();
 
-					LOG.info("Starting task " + vertex + " on " + vertex.getAllocatedResource().getInstance());
-				}
+		final ExecutionGraph graph = this.scheduler.getExecutionGraphByID(jobID);
+		if (graph == null) {
+			LOG.error("Cannot find execution graph to job ID " + jobID);
+			return wrappers;
+		}
 
-				List<TaskSubmissionResult> submissionResultList = null;
+		final ExecutionVertex vertex = graph.getVertexByID(vertexID);
+		if (vertex == null) {
+			LOG.error("Cannot find execution vertex for vertex ID " + vertexID);
+			return wrappers;
+		}
 
-				try {
-					submissionResultList = instance.submitTasks(submissionList);
-				} catch (final IOException ioe) {
-					final String errorMsg = StringUtils.stringifyException(ioe);
-					for (final ExecutionVertex vertex : verticesToBeDeployed) {
-						vertex.updateExecutionStateAsynchronously(ExecutionState.FAILED, errorMsg);
-					}
-				}
+		final List<InputSplit> inputSplits = this.inputSplitManager.getNextInputSplits(vertex,
+			sequenceNumber.getValue(), maximumNumberOfInputSplits.getValue());
+		for (final InputSplit inputSplit : inputSplits) {
+			wrappers.add(new InputSplitWrapper(jobID, inputSplit));
+		}
 
-				if (verticesToBeDeployed.size() != submissionResultList.size()) {
-					LOG.error("size of submission result list does not match size of list with vertices to be deployed");
-				}
+		return wrappers;
+	}
 
-				int count = 0;
-				for (final TaskSubmissionResult tsr : submissionResultList) {
-
-					ExecutionVertex vertex = verticesToBeDeployed.get(count++);
-					if (!vertex.getID().equals(tsr.getVertexID())) {
-						LOG.error("Expected different order of objects in task result list");
-						vertex = null;
-						for (final ExecutionVertex candVertex : verticesToBeDeployed) {
-							if (tsr.getVertexID().equals(candVertex.getID())) {
-								vertex = candVertex;
-								break;
-							}
-						}
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void returnInputSplits(final JobID jobID, final ExecutionVertexID vertexID,
+			final IntegerRecord numberOfConsumedInputSplits) throws IOException {
 
-						if (vertex == null) {
-							LOG.error("Cannot find execution vertex for vertex ID " + tsr.getVertexID());
-							continue;
-						}
-					}
+		final ExecutionGraph graph = this.scheduler.getExecutionGraphByID(jobID);
+		if (graph == null) {
+			LOG.error("Cannot find execution graph to job ID " + jobID);
+			return;
+		}
 
-					if (tsr.getReturnCode() != AbstractTaskResult.ReturnCode.SUCCESS) {
-						// Change the execution state to failed and let the scheduler deal with the rest
-						vertex.updateExecutionStateAsynchronously(ExecutionState.FAILED, tsr.getDescription());
-					}
-				}
-			}
-		};
+		final ExecutionVertex vertex = graph.getVertexByID(vertexID);
+		if (vertex == null) {
+			LOG.error("Cannot find execution vertex for vertex ID " + vertexID);
+			return;
+		}
 
-		this.executorService.execute(deploymentRunnable);
+		this.inputSplitManager.returnInputSplits(vertex, numberOfConsumedInputSplits.getValue());
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
-	public InputSplitWrapper requestNextInputSplit(final JobID jobID, final ExecutionVertexID vertexID,
-			final IntegerRecord sequenceNumber) throws IOException {
+	public LongRecord reportInputSplitProgress(final JobID jobID, final ExecutionVertexID vertexID,
+			final IntegerRecord sequenceNumber, final LongRecord position) throws IOException {
 
 		final ExecutionGraph graph = this.scheduler.getExecutionGraphByID(jobID);
 		if (graph == null) {
 			LOG.error("Cannot find execution graph to job ID " + jobID);
-			return null;
+			return new LongRecord(Long.MAX_VALUE);
 		}
 
 		final ExecutionVertex vertex = graph.getVertexByID(vertexID);
 		if (vertex == null) {
 			LOG.error("Cannot find execution vertex for vertex ID " + vertexID);
-			return null;
+			return new LongRecord(Long.MAX_VALUE);
 		}
 
-		return new InputSplitWrapper(jobID, this.inputSplitManager.getNextInputSplit(vertex, sequenceNumber.getValue()));
+		return new LongRecord(this.inputSplitManager.reportInputSplitProgress(vertex, sequenceNumber.getValue(),
+			position.getValue()));
 	}
 	
 	/**
@@ -0,0 +1,145 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.jobmanager;
+
+/**
+ * A latency histogram counts latencies in buckets whose bounds grow by powers of two. Bucket <code>0</code> counts
+ * latencies below one millisecond, bucket <code>i</code> counts latencies of at least <code>2^(i-1)</code> and less
+ * than <code>2^i</code> milliseconds.
+ * <p>
+ * This class is thread-safe.
+ */
+final class LatencyHistogram {
+
+	/**
+	 * The number of buckets of the histogram.
+	 */
+	static final int NUMBER_OF_BUCKETS = 32;
+
+	/**
+	 * The number of latencies counted in each bucket.
+	 */
+	private final long[] buckets = new long[NUMBER_OF_BUCKETS];
+
+	/**
+	 * The total number of recorded latencies.
+	 */
+	private long count = 0L;
+
+	/**
+	 * The largest recorded latency in milliseconds.
+	 */
+	private long maximum = 0L;
+
+	/**
+	 * Records the given latency.
+	 *
+	 * @param latency
+	 *        the latency in milliseconds
+	 */
+	synchronized void record(final long latency) {
+
+		++this.buckets[getBucket(latency)];
+		++this.count;
+		this.maximum = Math.max(this.maximum, latency);
+	}
+
+	/**
+	 * Returns the total number of recorded latencies.
+	 *
+	 * @return the total number of recorded latencies
+	 */
+	synchronized long getCount() {
+
+		return this.count;
+	}
+
+	/**
+	 * Returns the number of latencies counted in the bucket with the given index.
+	 *
+	 * @param bucket
+	 *        the index of the bucket
+	 * @return the number of latencies counted in the bucket
+	 */
+	synchronized long getBucketCount(final int bucket) {
+
+		return this.buckets[bucket];
+	}
+
+	/**
+	 * Returns an upper bound for the given percentile of the recorded latencies, i.e. the upper bound of the bucket
+	 * which contains the percentile.
+	 *
+	 * @param percentile
+	 *        the percentile between <code>0</code> and <code>100</code>
+	 * @return an upper bound for the percentile in milliseconds or <code>0</code> if no latency has been recorded
+	 */
+	synchronized long getPercentile(final double percentile) {
+
+		if (this.count == 0L) {
+			return 0L;
+		}
+
+		final long rank = (long) Math.ceil(this.count * percentile / 100.0);
+		long seen = 0L;
+		for (int i = 0; i < NUMBER_OF_BUCKETS; ++i) {
+			seen += this.buckets[i];
+			if (seen >= rank && seen > 0L) {
+				return Math.min(1L << i, this.maximum);
+			}
+		}
+
+		return this.maximum;
+	}
+
+	/**
+	 * Returns the index of the bucket the given latency falls into.
+	 *
+	 * @param latency
+	 *        the latency in milliseconds
+	 * @return the index of the bucket
+	 */
+	static int getBucket(final long latency) {
+
+		if (latency < 1L) {
+			return 0;
+		}
+
+		return Math.min(NUMBER_OF_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(latency));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized String toString() {
+
+		final StringBuilder sb = new StringBuilder();
+		sb.append("count=").append(this.count);
+		sb.append(", p50<=").append(getPercentile(50.0)).append("ms");
+		sb.append(", p90<=").append(getPercentile(90.0)).append("ms");
+		sb.append(", p99<=").append(getPercentile(99.0)).append("ms");
+		sb.append(", max=").append(this.maximum).append("ms");
+
+		for (int i = 0; i < NUMBER_OF_BUCKETS; ++i) {
+			if (this.buckets[i] > 0L) {
+				sb.append(", <").append(1L << i).append("ms: ").append(this.buckets[i]);
+			}
+		}
+
+		return sb.toString();
+	}
+}
@@ -0,0 +1,382 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.jobmanager;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import eu.stratosphere.nephele.configuration.GlobalConfiguration;
+import eu.stratosphere.nephele.execution.librarycache.LibraryCacheManager;
+import eu.stratosphere.nephele.execution.librarycache.LibraryCacheProfileRequest;
+import eu.stratosphere.nephele.execution.librarycache.LibraryCacheProfileResponse;
+import eu.stratosphere.nephele.execution.librarycache.LibraryManifest;
+import eu.stratosphere.nephele.instance.AbstractInstance;
+import eu.stratosphere.nephele.jobgraph.JobID;
+import eu.stratosphere.nephele.util.StringUtils;
+
+/**
+ * The library distributor makes sure the libraries required by a job are available on the instances the job is
+ * deployed to. The job manager itself transfers libraries to a bounded number of instances at a time. If peer-to-peer
+ * distribution is enabled, every instance which holds a library also serves it to one other instance at a time, so
+ * the number of sources doubles with every round of transfers and a library reaches all instances in a number of
+ * rounds which is logarithmic in the number of instances. Instances verify every chunk they fetch from a peer against
+ * the {@link LibraryManifest} created by the job manager. If a transfer from a peer fails, the job manager transfers
+ * the library itself and the peer is no longer asked to serve any library, just like an instance whose heartbeat has
+ * been lost.
+ * <p>
+ * This class is thread-safe.
+ */
+final class LibraryDistributor {
+
+	/**
+	 * The key to retrieve the maximum number of instances the job manager transfers libraries to concurrently.
+	 */
+	public static final String LIBRARY_TRANSFERS_KEY = "jobmanager.library.maxconcurrenttransfers";
+
+	/**
+	 * The default maximum number of instances the job manager transfers libraries to concurrently.
+	 */
+	public static final int DEFAULT_LIBRARY_TRANSFERS = 8;
+
+	/**
+	 * The key to retrieve whether instances shall fetch libraries from other instances which already hold them.
+	 */
+	public static final String PEER_TO_PEER_KEY = "jobmanager.library.peertopeer";
+
+	/**
+	 * The default setting for peer-to-peer distribution of libraries.
+	 */
+	public static final boolean DEFAULT_PEER_TO_PEER = false;
+
+	/**
+	 * The log object used for debugging.
+	 */
+	private static final Log LOG = LogFactory.getLog(LibraryDistributor.class);
+
+	/**
+	 * Stores whether instances shall fetch libraries from other instances.
+	 */
+	private final boolean peerToPeer;
+
+	/**
+	 * The number of additional instances the job manager can currently transfer libraries to.
+	 */
+	private int availableTransfers;
+
+	/**
+	 * The instances which are currently serving or receiving a library.
+	 */
+	private final Set<AbstractInstance> busyInstances = new HashSet<AbstractInstance>();
+
+	/**
+	 * The instances known to hold a library, accessible via the cache name of the library.
+	 */
+	private final Map<String, Set<AbstractInstance>> holders = new HashMap<String, Set<AbstractInstance>>();
+
+	/**
+	 * The manifests of the libraries distributed so far, accessible via the cache name of the library.
+	 */
+	private final Map<String, LibraryManifest> manifests = new HashMap<String, LibraryManifest>();
+
+	/**
+	 * Constructs a new library distributor.
+	 *
+	 * @param maximumNumberOfTransfers
+	 *        the maximum number of instances the job manager transfers libraries to concurrently
+	 * @param peerToPeer
+	 *        <code>true</code> if instances shall fetch libraries from other instances, <code>false</code> otherwise
+	 */
+	LibraryDistributor(final int maximumNumberOfTransfers, final boolean peerToPeer) {
+
+		if (maximumNumberOfTransfers <= 0) {
+			throw new IllegalArgumentException("Argument maximumNumberOfTransfers must be greater than 0");
+		}
+
+		this.availableTransfers = maximumNumberOfTransfers;
+		this.peerToPeer = peerToPeer;
+	}
+
+	/**
+	 * Constructs a new library distributor whose settings are read from the global configuration.
+	 */
+	LibraryDistributor() {
+		this(Math.max(1, GlobalConfiguration.getInteger(LIBRARY_TRANSFERS_KEY, DEFAULT_LIBRARY_TRANSFERS)),
+			GlobalConfiguration.getBoolean(PEER_TO_PEER_KEY, DEFAULT_PEER_TO_PEER));
+	}
+
+	/**
+	 * Checks if all the libraries required to run the job with the given ID are available on the given instance and
+	 * transfers any library that is missing. The method blocks until all libraries have been transferred.
+	 *
+	 * @param instance
+	 *        the instance to check
+	 * @param jobID
+	 *        the ID of the job whose libraries are to be checked for
+	 * @throws IOException
+	 *         thrown if an error occurs while checking for or transferring the libraries
+	 */
+	void distributeLibraries(final AbstractInstance instance, final JobID jobID) throws IOException {
+
+		final String[] requiredLibraries = LibraryCacheManager.getRequiredJarFiles(jobID);
+		if (requiredLibraries == null) {
+			throw new IOException("No entry of required libraries for job " + jobID);
+		}
+
+		final LibraryCacheProfileRequest request = new LibraryCacheProfileRequest();
+		request.setRequiredLibraries(requiredLibraries);
+		final LibraryCacheProfileResponse response = instance.getLibraryCacheProfile(request);
+
+		for (int i = 0; i < requiredLibraries.length; ++i) {
+
+			if (response.isCached(i)) {
+				addHolder(requiredLibraries[i], instance);
+			} else {
+				distributeLibrary(instance, requiredLibraries[i]);
+			}
+		}
+	}
+
+	/**
+	 * Transfers the library with the given cache name to the given instance, preferably from a peer.
+	 *
+	 * @param instance
+	 *        the instance to transfer the library to
+	 * @param libraryFileName
+	 *        the cache name of the library
+	 * @throws IOException
+	 *         thrown if an error occurs while transferring the library
+	 */
+	private void distributeLibrary(final AbstractInstance instance, final String libraryFileName)
+			throws IOException {
+
+		final LibraryManifest manifest = this.peerToPeer ? getManifest(libraryFileName) : null;
+
+		final AbstractInstance source = acquireSource(instance, libraryFileName, this.peerToPeer);
+		if (source != null) {
+
+			boolean success = false;
+			try {
+				instance.fetchLibrary(manifest, source);
+				success = true;
+			} catch (IOException ioe) {
+				LOG.warn("Cannot fetch library " + libraryFileName + " from " + source + ", transferring it from "
+					+ "the job manager: " + StringUtils.stringifyException(ioe));
+			} finally {
+				releaseSource(instance, libraryFileName, source, success);
+			}
+
+			if (success) {
+				return;
+			}
+
+			acquireSource(instance, libraryFileName, false);
+		}
+
+		// Transfer the library from the job manager
+		boolean success = false;
+		try {
+			instance.transferLibrary(libraryFileName);
+			success = true;
+		} finally {
+			releaseSource(instance, libraryFileName, null, success);
+		}
+	}
+
+	/**
+	 * Waits until the given instance is not busy and either an idle peer holding the library or the job manager can
+	 * serve the library, and marks the instance and the selected source as busy.
+	 *
+	 * @param instance
+	 *        the instance to transfer the library to
+	 * @param libraryFileName
+	 *        the cache name of the library
+	 * @param allowPeers
+	 *        <code>true</code> if a peer may be selected as source, <code>false</code> to use the job manager
+	 * @return the selected peer or <code>null</code> if the job manager shall transfer the library
+	 * @throws IOException
+	 *         thrown if the calling thread is interrupted while waiting for a source
+	 */
+	synchronized AbstractInstance acquireSource(final AbstractInstance instance, final String libraryFileName,
+			final boolean allowPeers) throws IOException {
+
+		while (true) {
+
+			if (!this.busyInstances.contains(instance)) {
+
+				if (allowPeers) {
+					final Set<AbstractInstance> libraryHolders = this.holders.get(libraryFileName);
+					if (libraryHolders != null) {
+						for (final AbstractInstance holder : libraryHolders) {
+							if (!this.busyInstances.contains(holder) && !holder.equals(instance)) {
+								this.busyInstances.add(holder);
+								this.busyInstances.add(instance);
+								return holder;
+							}
+						}
+					}
+				}
+
+				// Prefer a busy peer over the job manager as long as other instances still wait for the library
+				if (this.availableTransfers > 0 && (!allowPeers || !hasHolders(libraryFileName, instance))) {
+					--this.availableTransfers;
+					this.busyInstances.add(instance);
+					return null;
+				}
+			}
+
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while waiting to transfer library " + libraryFileName);
+			}
+		}
+	}
+
+	/**
+	 * Marks the given instance and source as idle again after a transfer has been finished.
+	 *
+	 * @param instance
+	 *        the instance the library has been transferred to
+	 * @param libraryFileName
+	 *        the cache name of the library
+	 * @param source
+	 *        the peer the library has been transferred from or <code>null</code> if the job manager has transferred it
+	 * @param success
+	 *        <code>true</code> if the transfer has been successful, <code>false</code> otherwise
+	 */
+	synchronized void releaseSource(final AbstractInstance instance, final String libraryFileName,
+			final AbstractInstance source, final boolean success) {
+
+		this.busyInstances.remove(instance);
+
+		if (source == null) {
+			++this.availableTransfers;
+		} else {
+			this.busyInstances.remove(source);
+			if (!success) {
+				// Do not ask the failed peer again, the job manager remains a reliable source
+				removeInstance(source);
+			}
+		}
+
+		if (success) {
+			addHolder(libraryFileName, instance);
+		}
+
+		notifyAll();
+	}
+
+	/**
+	 * Records that the given instance holds the library with the given cache name.
+	 *
+	 * @param libraryFileName
+	 *        the cache name of the library
+	 * @param instance
+	 *        the instance holding the library
+	 */
+	synchronized void addHolder(final String libraryFileName, final AbstractInstance instance) {
+
+		if (!this.peerToPeer) {
+			return;
+		}
+
+		Set<AbstractInstance> libraryHolders = this.holders.get(libraryFileName);
+		if (libraryHolders == null) {
+			libraryHolders = new LinkedHashSet<AbstractInstance>();
+			this.holders.put(libraryFileName, libraryHolders);
+		}
+
+		if (libraryHolders.add(instance)) {
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Removes the given instance from the holders of all libraries, so it is no longer selected as a source.
+	 *
+	 * @param instance
+	 *        the instance to remove
+	 */
+	synchronized void removeInstance(final AbstractInstance instance) {
+
+		final Iterator<Set<AbstractInstance>> it = this.holders.values().iterator();
+		while (it.hasNext()) {
+			final Set<AbstractInstance> libraryHolders = it.next();
+			libraryHolders.remove(instance);
+			if (libraryHolders.isEmpty()) {
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Checks whether any instance other than the given one holds the library with the given cache name.
+	 *
+	 * @param libraryFileName
+	 *        the cache name of the library
+	 * @param instance
+	 *        the instance to ignore
+	 * @return <code>true</code> if another instance holds the library, <code>false</code> otherwise
+	 */
+	private boolean hasHolders(final String libraryFileName, final AbstractInstance instance) {
+
+		final Set<AbstractInstance> libraryHolders = this.holders.get(libraryFileName);
+		if (libraryHolders == null) {
+			return false;
+		}
+
+		for (final AbstractInstance holder : libraryHolders) {
+			if (!holder.equals(instance)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Returns the manifest of the library with the given cache name and creates it if necessary.
+	 *
+	 * @param libraryFileName
+	 *        the cache name of the library
+	 * @return the manifest of the library
+	 * @throws IOException
+	 *         thrown if an error occurs while creating the manifest
+	 */
+	private LibraryManifest getManifest(final String libraryFileName) throws IOException {
+
+		synchronized (this.manifests) {
+
+			LibraryManifest manifest = this.manifests.get(libraryFileName);
+			if (manifest == null) {
+				manifest = LibraryCacheManager.createLibraryManifest(libraryFileName, GlobalConfiguration.getInteger(
+					AbstractInstance.LIBRARY_CHUNK_SIZE_KEY, AbstractInstance.DEFAULT_LIBRARY_CHUNK_SIZE));
+				this.manifests.put(libraryFileName, manifest);
+			}
+
+			return manifest;
+		}
+	}
+}
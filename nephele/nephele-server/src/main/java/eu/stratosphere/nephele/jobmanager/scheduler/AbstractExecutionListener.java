@@ -87,6 +87,9 @@ public abstract class AbstractExecutionListener implements ExecutionListener {
 					return;
 				}
 			}
+
+			// No other vertex of the group waits for a resource, so the resource may be used by another group
+			this.scheduler.deployOnFinishingResource(this.executionVertex);
 		}
 
 		if (newExecutionState == ExecutionState.CANCELED || newExecutionState == ExecutionState.FINISHED) {
@@ -30,6 +30,7 @@ import java.util.concurrent.ExecutionException;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import eu.stratosphere.nephele.configuration.GlobalConfiguration;
 import eu.stratosphere.nephele.execution.ExecutionState;
 import eu.stratosphere.nephele.executiongraph.ExecutionEdge;
 import eu.stratosphere.nephele.executiongraph.ExecutionGate;
@@ -74,6 +75,18 @@ public abstract class AbstractScheduler implements InstanceListener {
 	 */
 	protected static final Log LOG = LogFactory.getLog(AbstractScheduler.class);
 
+	/**
+	 * The key to retrieve from the configuration whether the resources of finishing pipelines are handed to waiting
+	 * vertices of other group vertices.
+	 */
+	public static final String REUSE_FINISHING_RESOURCES_KEY = "jobmanager.scheduler.reusefinishingresources";
+
+	/**
+	 * The default setting whether the resources of finishing pipelines are handed to waiting vertices of other group
+	 * vertices.
+	 */
+	public static final boolean DEFAULT_REUSE_FINISHING_RESOURCES = false;
+
 	/**
 	 * The instance manager assigned to this scheduler.
 	 */
@@ -89,6 +102,11 @@ public abstract class AbstractScheduler implements InstanceListener {
 	 */
 	private final Map<ExecutionVertexID, ExecutionVertex> verticesToBeRestarted = new ConcurrentHashMap<ExecutionVertexID, ExecutionVertex>();
 
+	/**
+	 * Stores whether the resources of finishing pipelines are handed to waiting vertices of other group vertices.
+	 */
+	private final boolean reuseFinishingResources;
+
 	/**
 	 * Constructs a new abstract scheduler.
 	 * 
@@ -102,6 +120,8 @@ public abstract class AbstractScheduler implements InstanceListener {
 		this.deploymentManager = deploymentManager;
 		this.instanceManager = instanceManager;
 		this.instanceManager.setInstanceListener(this);
+		this.reuseFinishingResources = GlobalConfiguration.getBoolean(REUSE_FINISHING_RESOURCES_KEY,
+			DEFAULT_REUSE_FINISHING_RESOURCES);
 	}
 
 	/**
@@ -303,6 +323,108 @@ public abstract class AbstractScheduler implements InstanceListener {
 		}
 	}
 
+	/**
+	 * Hands the allocated resource of the given vertex, whose pipeline is finishing, to a vertex of another group vertex
+	 * of the current execution stage which is waiting for a resource and deploys the pipeline of that vertex, so the
+	 * resource does not idle while the rest of the stage finishes. Vertices whose predecessors have completed are
+	 * preferred over vertices whose predecessors are still running, and vertices whose predecessors have not started
+	 * yet are not considered. As only resources allocated for the job are reused, the job never occupies more instances
+	 * than requested. Nothing happens unless the reuse of finishing resources is enabled in the configuration.
+	 * 
+	 * @param finishingVertex
+	 *        the vertex whose pipeline is finishing
+	 */
+	void deployOnFinishingResource(final ExecutionVertex finishingVertex) {
+
+		if (!this.reuseFinishingResources) {
+			return;
+		}
+
+		final ExecutionGraph executionGraph = finishingVertex.getExecutionGraph();
+		final AllocatedResource allocatedResource = finishingVertex.getAllocatedResource();
+		final InstanceType instanceType = allocatedResource.getInstanceType();
+
+		final ExecutionVertex vertex = findVertexToBeDeployed(executionGraph, instanceType);
+		if (vertex == null
+			|| !vertex.compareAndUpdateExecutionState(ExecutionState.SCHEDULED, ExecutionState.ASSIGNED)) {
+			return;
+		}
+
+		LOG.info("Deploying " + vertex + " on " + allocatedResource.getInstance() + " released by " + finishingVertex);
+
+		final ExecutionPipeline pipelineToBeDeployed = vertex.getExecutionPipeline();
+		pipelineToBeDeployed.setAllocatedResource(allocatedResource);
+		pipelineToBeDeployed.updateExecutionState(ExecutionState.ASSIGNED);
+
+		deployAssignedPipeline(pipelineToBeDeployed);
+	}
+
+	/**
+	 * Finds a vertex of the current execution stage which is in state <code>SCHEDULED</code>, waits for a resource of
+	 * the given instance type and whose predecessors have at least started to produce its input.
+	 * 
+	 * @param executionGraph
+	 *        the execution graph to find the vertex in
+	 * @param instanceType
+	 *        the instance type the vertex requires
+	 * @return a vertex whose predecessors have completed, otherwise a vertex whose predecessors are running, or
+	 *         <code>null</code> if no such vertex exists
+	 */
+	private static ExecutionVertex findVertexToBeDeployed(final ExecutionGraph executionGraph,
+			final InstanceType instanceType) {
+
+		ExecutionVertex consumerOfRunningVertices = null;
+
+		final ExecutionGraphIterator it = new ExecutionGraphIterator(executionGraph,
+			executionGraph.getIndexOfCurrentExecutionStage(), true, true);
+		while (it.hasNext()) {
+
+			final ExecutionVertex vertex = it.next();
+			if (vertex.getExecutionState() != ExecutionState.SCHEDULED) {
+				continue;
+			}
+
+			final AllocatedResource allocatedResource = vertex.getAllocatedResource();
+			if (!(allocatedResource.getInstance() instanceof DummyInstance)
+				|| !instanceType.equals(allocatedResource.getInstanceType())) {
+				continue;
+			}
+
+			boolean predecessorsCompleted = true;
+			boolean predecessorsStarted = true;
+			final int numberOfPredecessors = vertex.getNumberOfPredecessors();
+			for (int i = 0; i < numberOfPredecessors; ++i) {
+
+				final ExecutionVertex predecessor = vertex.getPredecessor(i);
+				if (predecessor.getExecutionPipeline() == vertex.getExecutionPipeline()) {
+					continue;
+				}
+
+				final ExecutionState state = predecessor.getExecutionState();
+				if (state == ExecutionState.RUNNING) {
+					predecessorsCompleted = false;
+				} else if (state != ExecutionState.FINISHING && state != ExecutionState.FINISHED) {
+					predecessorsStarted = false;
+					break;
+				}
+			}
+
+			if (!predecessorsStarted) {
+				continue;
+			}
+
+			if (predecessorsCompleted) {
+				return vertex;
+			}
+
+			if (consumerOfRunningVertices == null) {
+				consumerOfRunningVertices = vertex;
+			}
+		}
+
+		return consumerOfRunningVertices;
+	}
+
 	/**
 	 * Collects all execution vertices with the state ASSIGNED starting from the given collection of start vertices and
 	 * deploys them on the assigned {@link AllocatedResource} objects.
@@ -605,6 +727,10 @@ public abstract class AbstractScheduler implements InstanceListener {
 	@Override
 	public void allocatedResourcesDied(final JobID jobID, final List<AllocatedResource> allocatedResources) {
 
+		for (final AllocatedResource allocatedResource : allocatedResources) {
+			this.deploymentManager.instanceDied(allocatedResource.getInstance());
+		}
+
 		final ExecutionGraph eg = getExecutionGraphByID(jobID);
 
 		if (eg == null) {
@@ -104,4 +104,34 @@ public class DefaultInputSplitAssigner implements InputSplitAssigner {
 
 		return nextSplit;
 	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void returnInputSplit(final ExecutionVertex vertex, final InputSplit inputSplit) {
+
+		final Queue<InputSplit> queue = this.splitMap.get(vertex.getGroupVertex());
+		if (queue == null) {
+			final JobID jobID = vertex.getExecutionGraph().getJobID();
+			LOG.error("Cannot find split queue for vertex " + vertex.getGroupVertex() + " (job " + jobID + ")");
+			return;
+		}
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("Split " + inputSplit.getSplitNumber() + " returned by " + vertex);
+		}
+
+		queue.add(inputSplit);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long reportInputSplitProgress(final ExecutionVertex vertex, final InputSplit inputSplit,
+			final long position) {
+
+		return Long.MAX_VALUE;
+	}
 }
@@ -53,4 +53,31 @@ public interface InputSplitAssigner {
 	 *         vertex
 	 */
 	InputSplit getNextInputSplit(ExecutionVertex vertex);
+
+	/**
+	 * Returns an input split which has been assigned to the given vertex but has not been consumed, so it can be
+	 * assigned again.
+	 * 
+	 * @param vertex
+	 *        the vertex the input split has been assigned to
+	 * @param inputSplit
+	 *        the input split to return
+	 */
+	void returnInputSplit(ExecutionVertex vertex, InputSplit inputSplit);
+
+	/**
+	 * Reports that the given vertex has consumed the given input split up to the given position and determines how far
+	 * the vertex may continue to consume it. Assigners which do not hand the remainders of input splits to other
+	 * vertices let the vertex consume the entire input split.
+	 * 
+	 * @param vertex
+	 *        the vertex consuming the input split
+	 * @param inputSplit
+	 *        the input split the vertex is consuming
+	 * @param position
+	 *        the position of the first record of the input split which has not been consumed yet
+	 * @return the position of the last record the vertex may consume before reporting its progress again. A position
+	 *         before the reported one indicates that the vertex shall stop consuming the input split
+	 */
+	long reportInputSplitProgress(ExecutionVertex vertex, InputSplit inputSplit, long position);
 }
@@ -15,8 +15,10 @@
 
 package eu.stratosphere.nephele.jobmanager.splitassigner;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -43,7 +45,8 @@ import eu.stratosphere.nephele.util.StringUtils;
  * Before passed on to the {@link AbstractScheduler}, an {@link ExecutionGraph} is registered with the input split
  * manager and all included input vertices of the graph register their generated input splits with the manager. Each
  * type of input split can be assigned to a specific {@link InputSplitAssigner} which is loaded by the input split
- * manager at runtime.
+ * manager at runtime. While the input splits are consumed, the tasks report their progress, which allows the assigners
+ * to hand the remainders of input splits consumed by slow tasks to idle ones.
  * <p>
  * This class is thread-safe.
  */
@@ -198,6 +201,102 @@ public final class InputSplitManager {
 		return nextInputSplit;
 	}
 
+	/**
+	 * Returns up to the given number of input splits the given vertex shall consume next. The input splits are
+	 * determined as if they were requested one by one, starting with the given sequence number.
+	 * 
+	 * @param vertex
+	 *        the vertex for which the next input splits are to be determined
+	 * @param sequenceNumber
+	 *        the sequence number of the first requested input split
+	 * @param maximumNumberOfInputSplits
+	 *        the maximum number of input splits to return
+	 * @return the next input splits to consume, ordered by their sequence number. The list contains less than the
+	 *         requested number of input splits if the vertex shall consume no more input splits afterwards
+	 */
+	public List<InputSplit> getNextInputSplits(final ExecutionVertex vertex, final int sequenceNumber,
+			final int maximumNumberOfInputSplits) {
+
+		final List<InputSplit> inputSplits = new ArrayList<InputSplit>(maximumNumberOfInputSplits);
+		for (int i = 0; i < maximumNumberOfInputSplits; ++i) {
+
+			final InputSplit inputSplit = getNextInputSplit(vertex, sequenceNumber + i);
+			if (inputSplit == null) {
+				break;
+			}
+			inputSplits.add(inputSplit);
+		}
+
+		return inputSplits;
+	}
+
+	/**
+	 * Returns the input splits which have been handed out to the given vertex but have not been consumed by it to
+	 * the responsible {@link InputSplitAssigner}, so they can be assigned to other vertices. The returned input splits
+	 * are removed from the vertex's log, so they are not replayed if the vertex is restarted.
+	 * 
+	 * @param vertex
+	 *        the vertex which returns its unconsumed input splits
+	 * @param numberOfConsumedInputSplits
+	 *        the number of input splits the vertex has consumed, i.e. the sequence number of the first unconsumed
+	 *        input split
+	 */
+	public void returnInputSplits(final ExecutionVertex vertex, final int numberOfConsumedInputSplits) {
+
+		final List<InputSplit> unconsumedInputSplits = this.inputSplitTracker.truncateLog(vertex,
+			numberOfConsumedInputSplits);
+		if (unconsumedInputSplits.isEmpty()) {
+			return;
+		}
+
+		final ExecutionGroupVertex groupVertex = vertex.getGroupVertex();
+		final InputSplitAssigner inputSplitAssigner = this.assignerCache.get(groupVertex);
+		if (inputSplitAssigner == null) {
+			final JobID jobID = groupVertex.getExecutionStage().getExecutionGraph().getJobID();
+			LOG.error("Cannot find input assigner for group vertex " + groupVertex.getName() + " (job " + jobID + ")");
+			return;
+		}
+
+		for (final InputSplit inputSplit : unconsumedInputSplits) {
+			LOG.info(vertex + " returns input split " + inputSplit.getSplitNumber());
+			inputSplitAssigner.returnInputSplit(vertex, inputSplit);
+		}
+	}
+
+	/**
+	 * Reports that the given vertex has consumed the input split with the given sequence number up to the given
+	 * position and determines how far the vertex may continue to consume it. The responsible
+	 * {@link InputSplitAssigner} may hand the remainder of the input split to an idle vertex, so the vertex may only
+	 * consume the input split up to the returned position before reporting its progress again.
+	 * 
+	 * @param vertex
+	 *        the vertex which reports its progress
+	 * @param sequenceNumber
+	 *        the sequence number of the input split the vertex is consuming
+	 * @param position
+	 *        the position of the first record of the input split which has not been consumed yet
+	 * @return the position of the last record the vertex may consume before reporting its progress again. A position
+	 *         before the reported one indicates that the vertex shall stop consuming the input split
+	 */
+	public long reportInputSplitProgress(final ExecutionVertex vertex, final int sequenceNumber, final long position) {
+
+		final InputSplit inputSplit = this.inputSplitTracker.getInputSplitFromLog(vertex, sequenceNumber);
+		if (inputSplit == null) {
+			LOG.error("Cannot find input split with sequence number " + sequenceNumber + " for vertex " + vertex);
+			return Long.MAX_VALUE;
+		}
+
+		final ExecutionGroupVertex groupVertex = vertex.getGroupVertex();
+		final InputSplitAssigner inputSplitAssigner = this.assignerCache.get(groupVertex);
+		if (inputSplitAssigner == null) {
+			final JobID jobID = groupVertex.getExecutionStage().getExecutionGraph().getJobID();
+			LOG.error("Cannot find input assigner for group vertex " + groupVertex.getName() + " (job " + jobID + ")");
+			return Long.MAX_VALUE;
+		}
+
+		return inputSplitAssigner.reportInputSplitProgress(vertex, inputSplit, position);
+	}
+
 	/**
 	 * Returns the {@link InputSplitAssigner} which is defined for the given type of input split.
 	 * 
@@ -161,4 +161,36 @@ final class InputSplitTracker {
 			inputSplitLog.add(inputSplit);
 		}
 	}
+
+	/**
+	 * Removes all entries from the vertex's log whose sequence number is equal to or greater than the given sequence
+	 * number.
+	 * 
+	 * @param vertex
+	 *        the vertex whose log shall be truncated
+	 * @param sequenceNumber
+	 *        the sequence number of the first log entry to be removed
+	 * @return the input splits which have been removed from the log, ordered by their sequence number
+	 */
+	List<InputSplit> truncateLog(final ExecutionVertex vertex, final int sequenceNumber) {
+
+		final List<InputSplit> removedInputSplits = new ArrayList<InputSplit>();
+
+		final List<InputSplit> inputSplitLog = this.splitMap.get(vertex.getID());
+		if (inputSplitLog == null) {
+			LOG.error("Cannot find input split log for vertex " + vertex + " (" + vertex.getID() + ")");
+			return removedInputSplits;
+		}
+
+		synchronized (inputSplitLog) {
+
+			if (sequenceNumber < inputSplitLog.size()) {
+				final List<InputSplit> tail = inputSplitLog.subList(Math.max(0, sequenceNumber), inputSplitLog.size());
+				removedInputSplits.addAll(tail);
+				tail.clear();
+			}
+		}
+
+		return removedInputSplits;
+	}
 }
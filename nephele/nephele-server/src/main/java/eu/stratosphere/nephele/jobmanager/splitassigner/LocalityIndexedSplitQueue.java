@@ -0,0 +1,270 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.jobmanager.splitassigner;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import eu.stratosphere.nephele.instance.AbstractInstance;
+import eu.stratosphere.nephele.template.InputSplit;
+import eu.stratosphere.nephele.topology.NetworkNode;
+import eu.stratosphere.nephele.topology.NetworkTopology;
+
+/**
+ * The locality indexed split queue stores the input splits of an input vertex which are still expected to be consumed
+ * and hands them out with respect to data locality. The splits are indexed by the hosts which store them and, once
+ * the network topology is known, by the racks of these hosts. A requesting {@link AbstractInstance} receives a split
+ * stored on the instance itself if possible, otherwise a split stored in the same rack, and otherwise any remaining
+ * split. Splits handed out through one index are not removed from the other indices immediately but skipped when
+ * they are encountered later, so every split is handed out in constant amortized time.
+ * <p>
+ * This class is not thread-safe.
+ *
+ * @param <T>
+ *        the type of input splits stored in the queue
+ */
+public final class LocalityIndexedSplitQueue<T extends InputSplit> {
+
+	/**
+	 * The logging object which is used to report information and errors.
+	 */
+	private static final Log LOG = LogFactory.getLog(LocalityIndexedSplitQueue.class);
+
+	/**
+	 * The splits which still must be consumed in the order they have been added.
+	 */
+	private final Set<T> remainingSplits = new LinkedHashSet<T>();
+
+	/**
+	 * The splits stored on each host, accessible via the name of the host.
+	 */
+	private final Map<String, Queue<T>> hostIndex = new HashMap<String, Queue<T>>();
+
+	/**
+	 * The splits stored in each rack, accessible via the network node representing the rack.
+	 */
+	private final Map<NetworkNode, Queue<T>> rackIndex = new HashMap<NetworkNode, Queue<T>>();
+
+	/**
+	 * The racks of the hosts resolved so far, accessible via the name of the host.
+	 */
+	private final Map<String, NetworkNode> hostRacks = new HashMap<String, NetworkNode>();
+
+	/**
+	 * The network topology used to determine the racks of the hosts or <code>null</code> if it is not known yet.
+	 */
+	private NetworkTopology networkTopology = null;
+
+	/**
+	 * Adds the given input split to the splits to be consumed.
+	 *
+	 * @param split
+	 *        the input split to be added
+	 * @param hostNames
+	 *        the names of the hosts storing the split, possibly <code>null</code>
+	 * @return <code>true</code> if the split has been added, <code>false</code> if it is already to be consumed
+	 */
+	public boolean add(final T split, final String[] hostNames) {
+
+		if (!this.remainingSplits.add(split)) {
+			return false;
+		}
+
+		if (hostNames == null) {
+			return true;
+		}
+
+		for (int i = 0; i < hostNames.length; ++i) {
+
+			addToIndex(this.hostIndex, hostNames[i], split);
+
+			if (this.networkTopology != null) {
+				final NetworkNode rack = getRack(hostNames[i]);
+				if (rack != null) {
+					addToIndex(this.rackIndex, rack, split);
+				}
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns the next input split to be consumed by the given instance. Splits stored on the instance itself are
+	 * preferred over splits stored in the same rack, which are preferred over all other splits.
+	 *
+	 * @param instance
+	 *        the instance requesting the next input split
+	 * @return the next input split to be consumed by the given instance or <code>null</code> if all input splits have
+	 *         already been consumed
+	 */
+	public T poll(final AbstractInstance instance) {
+
+		if (this.remainingSplits.isEmpty()) {
+			return null;
+		}
+
+		T split = pollFromIndex(this.hostIndex, instance.getName());
+		if (split != null) {
+			if (LOG.isInfoEnabled()) {
+				LOG.info(instance + " receives local input split");
+			}
+			return split;
+		}
+
+		if (this.networkTopology == null && instance.getNetworkTopology() != null) {
+			buildRackIndex(instance.getNetworkTopology());
+		}
+
+		final NetworkNode rack = instance.getParentNode();
+		if (rack != null && this.networkTopology != null) {
+			split = pollFromIndex(this.rackIndex, rack);
+			if (split != null) {
+				if (LOG.isInfoEnabled()) {
+					LOG.info(instance + " receives rack-local input split");
+				}
+				return split;
+			}
+		}
+
+		final Iterator<T> it = this.remainingSplits.iterator();
+		split = it.next();
+		it.remove();
+
+		if (LOG.isInfoEnabled()) {
+			LOG.info(instance + " receives remote input split");
+		}
+
+		return split;
+	}
+
+	/**
+	 * Checks whether all input splits have been consumed.
+	 *
+	 * @return <code>true</code> if all input splits have been consumed, <code>false</code> otherwise
+	 */
+	public boolean isEmpty() {
+
+		return this.remainingSplits.isEmpty();
+	}
+
+	/**
+	 * Polls the index queue with the given key until it yields a split which is still to be consumed. Consumed splits
+	 * encountered on the way are dropped from the queue, an exhausted queue is dropped from the index.
+	 *
+	 * @param index
+	 *        the index to poll
+	 * @param key
+	 *        the key of the queue to poll
+	 * @return a split which is still to be consumed or <code>null</code> if the queue holds no such split
+	 */
+	private <K> T pollFromIndex(final Map<K, Queue<T>> index, final K key) {
+
+		final Queue<T> queue = index.get(key);
+		if (queue == null) {
+			return null;
+		}
+
+		while (true) {
+
+			final T split = queue.poll();
+			if (split == null) {
+				index.remove(key);
+				return null;
+			}
+
+			if (this.remainingSplits.remove(split)) {
+				return split;
+			}
+		}
+	}
+
+	/**
+	 * Builds the rack index from the host index once the network topology is known.
+	 *
+	 * @param topology
+	 *        the network topology used to determine the racks of the hosts
+	 */
+	private void buildRackIndex(final NetworkTopology topology) {
+
+		this.networkTopology = topology;
+
+		final Iterator<Map.Entry<String, Queue<T>>> it = this.hostIndex.entrySet().iterator();
+		while (it.hasNext()) {
+
+			final Map.Entry<String, Queue<T>> entry = it.next();
+			final NetworkNode rack = getRack(entry.getKey());
+			if (rack == null) {
+				continue;
+			}
+
+			for (final T split : entry.getValue()) {
+				if (this.remainingSplits.contains(split)) {
+					addToIndex(this.rackIndex, rack, split);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the rack of the host with the given name, i.e. the parent of the host's node in the network topology.
+	 *
+	 * @param hostName
+	 *        the name of the host
+	 * @return the rack of the host or <code>null</code> if the host is not part of the network topology
+	 */
+	private NetworkNode getRack(final String hostName) {
+
+		if (this.hostRacks.containsKey(hostName)) {
+			return this.hostRacks.get(hostName);
+		}
+
+		final NetworkNode node = this.networkTopology.getNodeByName(hostName);
+		final NetworkNode rack = (node == null) ? null : node.getParentNode();
+		this.hostRacks.put(hostName, rack);
+
+		return rack;
+	}
+
+	/**
+	 * Appends the given split to the index queue with the given key and creates the queue if necessary.
+	 *
+	 * @param index
+	 *        the index to add the split to
+	 * @param key
+	 *        the key of the queue
+	 * @param split
+	 *        the split to append
+	 */
+	private static <K, T> void addToIndex(final Map<K, Queue<T>> index, final K key, final T split) {
+
+		Queue<T> queue = index.get(key);
+		if (queue == null) {
+			queue = new ArrayDeque<T>();
+			index.put(key, queue);
+		}
+
+		queue.add(split);
+	}
+}
@@ -133,4 +133,33 @@ public final class LocatableInputSplitAssigner implements InputSplitAssigner {
 		return splitStore.getNextInputSplit(instance);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void returnInputSplit(final ExecutionVertex vertex, final InputSplit inputSplit) {
+
+		final LocatableInputSplitList splitStore = this.vertexMap.get(vertex.getGroupVertex());
+		if (splitStore == null) {
+			return;
+		}
+
+		if (!(inputSplit instanceof LocatableInputSplit)) {
+			LOG.error("Input split " + inputSplit.getSplitNumber() + " returned by " + vertex + " is of type "
+				+ inputSplit.getClass() + ", ignoring split...");
+			return;
+		}
+
+		splitStore.returnSplit((LocatableInputSplit) inputSplit);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long reportInputSplitProgress(final ExecutionVertex vertex, final InputSplit inputSplit,
+			final long position) {
+
+		return Long.MAX_VALUE;
+	}
 }
@@ -21,6 +21,7 @@ import java.util.concurrent.ConcurrentMap;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import eu.stratosphere.nephele.configuration.GlobalConfiguration;
 import eu.stratosphere.nephele.executiongraph.ExecutionGroupVertex;
 import eu.stratosphere.nephele.executiongraph.ExecutionVertex;
 import eu.stratosphere.nephele.fs.FileInputSplit;
@@ -34,7 +35,9 @@ import eu.stratosphere.nephele.template.InputSplit;
  * The file input split assigner is a specific implementation of the {@link InputSplitAssigner} interface for
  * {@link FileInputSplit} objects. The file input split assigner offers to take the storage location of the individual
  * file input splits into account. It attempts to always assign the splits to vertices in a way that the data locality
- * is preserved as well as possible.
+ * is preserved as well as possible. The sizes of the assigned splits adapt to the amount of remaining data, and the
+ * unread remainders of splits consumed by slow tasks, in particular by stragglers far slower than the other tasks, are
+ * assigned to idle tasks.
  * <p>
  * This class is thread-safe.
  * 
@@ -47,8 +50,65 @@ public final class FileInputSplitAssigner implements InputSplitAssigner {
 	 */
 	private static final Log LOG = LogFactory.getLog(FileInputSplitAssigner.class);
 
+	/**
+	 * The key to retrieve the minimum size of an input split created by subdividing another one from the configuration.
+	 */
+	public static final String MINIMUM_SPLIT_SIZE_KEY = "jobmanager.inputsplit.minsize";
+
+	/**
+	 * The default minimum size of an input split created by subdividing another one in bytes.
+	 */
+	public static final long DEFAULT_MINIMUM_SPLIT_SIZE = 16L * 1024L * 1024L;
+
+	/**
+	 * The key to retrieve the number of bytes a task may consume before it must report its progress again from the
+	 * configuration.
+	 */
+	public static final String LEASE_SIZE_KEY = "jobmanager.inputsplit.leasesize";
+
+	/**
+	 * The default number of bytes a task may consume before it must report its progress again.
+	 */
+	public static final long DEFAULT_LEASE_SIZE = 4L * 1024L * 1024L;
+
+	/**
+	 * The key to retrieve the fraction of the median progress rate below which a task is considered a straggler from
+	 * the configuration.
+	 */
+	public static final String STRAGGLER_RATIO_KEY = "jobmanager.inputsplit.stragglerratio";
+
+	/**
+	 * The default fraction of the median progress rate below which a task is considered a straggler.
+	 */
+	public static final float DEFAULT_STRAGGLER_RATIO = 0.5f;
+
 	private final ConcurrentMap<ExecutionGroupVertex, FileInputSplitList> vertexMap = new ConcurrentHashMap<ExecutionGroupVertex, FileInputSplitList>();
 
+	/**
+	 * The minimum size of an input split created by subdividing another one in bytes.
+	 */
+	private final long minimumSplitSize;
+
+	/**
+	 * The number of bytes a task may consume before it must report its progress again.
+	 */
+	private final long leaseSize;
+
+	/**
+	 * The fraction of the median progress rate below which a task is considered a straggler.
+	 */
+	private final float stragglerRatio;
+
+	/**
+	 * Constructs a new file input split assigner.
+	 */
+	public FileInputSplitAssigner() {
+
+		this.minimumSplitSize = GlobalConfiguration.getLong(MINIMUM_SPLIT_SIZE_KEY, DEFAULT_MINIMUM_SPLIT_SIZE);
+		this.leaseSize = GlobalConfiguration.getLong(LEASE_SIZE_KEY, DEFAULT_LEASE_SIZE);
+		this.stragglerRatio = GlobalConfiguration.getFloat(STRAGGLER_RATIO_KEY, DEFAULT_STRAGGLER_RATIO);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -81,7 +141,8 @@ public final class FileInputSplitAssigner implements InputSplitAssigner {
 			return;
 		}
 
-		final FileInputSplitList splitStore = new FileInputSplitList();
+		final FileInputSplitList splitStore = new FileInputSplitList(this.minimumSplitSize, this.leaseSize,
+			this.stragglerRatio);
 		if (this.vertexMap.putIfAbsent(groupVertex, splitStore) != null) {
 			LOG.error(groupVertex.getName()
 				+ " appears to be already registered with the file input split assigner, ignoring vertex...");
@@ -132,7 +193,48 @@ public final class FileInputSplitAssigner implements InputSplitAssigner {
 			return null;
 		}
 
-		return splitStore.getNextInputSplit(instance);
+		return splitStore.getNextInputSplit(instance, groupVertex.getCurrentNumberOfGroupMembers());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void returnInputSplit(final ExecutionVertex vertex, final InputSplit inputSplit) {
+
+		final FileInputSplitList splitStore = this.vertexMap.get(vertex.getGroupVertex());
+		if (splitStore == null) {
+			return;
+		}
+
+		if (!(inputSplit instanceof FileInputSplit)) {
+			LOG.error("Input split " + inputSplit.getSplitNumber() + " returned by " + vertex + " is of type "
+				+ inputSplit.getClass() + ", ignoring split...");
+			return;
+		}
+
+		splitStore.returnSplit((FileInputSplit) inputSplit);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long reportInputSplitProgress(final ExecutionVertex vertex, final InputSplit inputSplit,
+			final long position) {
+
+		final FileInputSplitList splitStore = this.vertexMap.get(vertex.getGroupVertex());
+		if (splitStore == null) {
+			return Long.MAX_VALUE;
+		}
+
+		if (!(inputSplit instanceof FileInputSplit)) {
+			LOG.error("Input split " + inputSplit.getSplitNumber() + " consumed by " + vertex + " is of type "
+				+ inputSplit.getClass() + ", ignoring progress...");
+			return Long.MAX_VALUE;
+		}
+
+		return splitStore.reportProgress((FileInputSplit) inputSplit, position);
 	}
 
 }
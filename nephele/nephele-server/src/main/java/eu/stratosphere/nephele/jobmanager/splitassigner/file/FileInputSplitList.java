@@ -15,29 +15,36 @@
 
 package eu.stratosphere.nephele.jobmanager.splitassigner.file;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Map;
-import java.util.PriorityQueue;
-import java.util.Queue;
 import java.util.Set;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
-import eu.stratosphere.nephele.fs.FileInputSplit;
+import eu.stratosphere.nephele.jobmanager.splitassigner.LocalityIndexedSplitQueue;
 import eu.stratosphere.nephele.instance.AbstractInstance;
+import eu.stratosphere.nephele.fs.FileInputSplit;
 
 /**
  * The file input split list stores the file input splits for an input vertex that are still expected to be consumed.
- * Besides simply storing the splits, the file input split list also computes the distance all {@link AbstractInstance}
- * objects which request a input split and its nearest storage location with respect to the underlying network topology.
- * That way input splits are always given to consuming vertices in a way that data locality is preserved as well as
- * possible.
+ * The splits are indexed by the hosts storing them and by the racks of these hosts, so input splits are given to
+ * consuming vertices in a way that data locality is preserved as well as possible at constant amortized cost per
+ * split.
  * <p>
- * This class is not thread-safe.
- * 
+ * The sizes of the handed out input splits adapt to the amount of remaining data. As long as plenty of data remains,
+ * input splits are handed out as they have been computed. As the remaining data shrinks, input splits are subdivided,
+ * so the consuming vertices finish at about the same time. Once all input splits have been handed out, an idle vertex
+ * receives the unread remainder of an input split which is still being consumed by another vertex. To this end,
+ * consuming vertices report their progress and only consume their input split up to the position granted by the
+ * list. Only the data beyond this position is handed to other vertices. Usually, an idle vertex receives half of the
+ * unread data. If a vertex progresses far slower than the median of the vertices consuming the list, e.g. because of a
+ * degraded disk, an idle vertex receives all of its unread data beyond the granted position instead.
+ * <p>
+ * This class is thread-safe.
+ *
  * @author warneke
  */
 public final class FileInputSplitList {
@@ -48,161 +55,345 @@ public final class FileInputSplitList {
 	private static final Log LOG = LogFactory.getLog(FileInputSplitList.class);
 
 	/**
-	 * The set containing all the file input splits that still must be consumed.
+	 * The amount of remaining data is divided by this factor times the number of consuming vertices to determine the
+	 * size of the next input split.
 	 */
-	private Set<FileInputSplit> masterSet = new HashSet<FileInputSplit>();
+	private static final int SUBDIVISION_FACTOR = 2;
 
 	/**
-	 * The map caching the specific file input split lists for each {@link AbstractInstance}.
+	 * The file input splits that still must be consumed, indexed by their storage locations.
 	 */
-	private Map<AbstractInstance, Queue<QueueElem>> instanceMap = new HashMap<AbstractInstance, Queue<QueueElem>>();
+	private final LocalityIndexedSplitQueue<FileInputSplit> splitQueue = new LocalityIndexedSplitQueue<FileInputSplit>();
 
 	/**
-	 * This is an auxiliary class to store the minimum distance between a file input split's storage locations and an
-	 * {@link AbstractInstance}.
-	 * 
-	 * @author warneke
+	 * The progress of the input splits whose consumers have reported their progress, accessible via the input split.
 	 */
-	private final class QueueElem implements Comparable<QueueElem> {
+	private final Map<FileInputSplit, SplitProgress> splitProgress = new HashMap<FileInputSplit, SplitProgress>();
 
-		/**
-		 * The file input split the distance applies to.
-		 */
-		final FileInputSplit inputSplit;
+	/**
+	 * The input splits which are being consumed and whose remainders may be handed to other vertices.
+	 */
+	private final Set<SplitProgress> stealableSplits = new HashSet<SplitProgress>();
 
-		/**
-		 * The minimum distance between the file input split's storage locations and the instance this object has been
-		 * created for.
-		 */
-		final int distance;
+	/**
+	 * The minimum size of an input split created by subdividing another one in bytes.
+	 */
+	private final long minimumSplitSize;
 
-		/**
-		 * Creates a new queue element.
-		 * 
-		 * @param inputSplit
-		 *        the file input split to be stored
-		 * @param distance
-		 *        the minimum distance between the stored input split's storage locations and the instance this object
-		 *        has been created for
-		 */
-		private QueueElem(final FileInputSplit inputSplit, final int distance) {
-			this.inputSplit = inputSplit;
-			this.distance = distance;
-		}
+	/**
+	 * The number of bytes a vertex may consume after reporting its progress before it must report its progress again.
+	 */
+	private final long leaseSize;
 
-		/**
-		 * Returns the file input split stored within this object.
-		 * 
-		 * @return the file input split
-		 */
-		private FileInputSplit getInputSplit() {
-			return this.inputSplit;
-		}
+	/**
+	 * A vertex whose progress rate is below this fraction of the median progress rate is considered a straggler.
+	 */
+	private final float stragglerRatio;
 
-		/**
-		 * {@inheritDoc}
-		 */
-		@Override
-		public int compareTo(final QueueElem o) {
+	/**
+	 * The total number of bytes of the input splits in the queue.
+	 */
+	private long remainingBytes = 0L;
+
+	/**
+	 * The number to assign to the next input split created by subdividing another one.
+	 */
+	private int nextSplitNumber = 0;
+
+	/**
+	 * Constructs a new file input split list.
+	 *
+	 * @param minimumSplitSize
+	 *        the minimum size of an input split created by subdividing another one in bytes
+	 * @param leaseSize
+	 *        the number of bytes a vertex may consume after reporting its progress before it must report its progress
+	 *        again
+	 * @param stragglerRatio
+	 *        a vertex whose progress rate is below this fraction of the median progress rate is considered a straggler
+	 */
+	FileInputSplitList(final long minimumSplitSize, final long leaseSize, final float stragglerRatio) {
 
-			return (this.distance - o.distance);
+		if (minimumSplitSize <= 0L) {
+			throw new IllegalArgumentException("Argument minimumSplitSize must be greater than 0");
 		}
 
+		if (leaseSize <= 0L) {
+			throw new IllegalArgumentException("Argument leaseSize must be greater than 0");
+		}
+
+		this.minimumSplitSize = minimumSplitSize;
+		this.leaseSize = leaseSize;
+		this.stragglerRatio = stragglerRatio;
 	}
 
 	/**
 	 * Adds the given file input split to the set of file input splits to be consumed.
-	 * 
+	 *
 	 * @param fileInputSplit
 	 *        the file input split to be added
 	 */
 	synchronized void addSplit(final FileInputSplit fileInputSplit) {
 
-		this.masterSet.add(fileInputSplit);
+		if (this.splitQueue.add(fileInputSplit, fileInputSplit.getHostNames())) {
+			this.remainingBytes += fileInputSplit.getLength();
+			this.nextSplitNumber = Math.max(this.nextSplitNumber, fileInputSplit.getSplitNumber() + 1);
+		}
 	}
 
 	/**
-	 * Returns the next file input split to be consumed by the given instance. The returned input split is selected in a
-	 * way that the distance between the split's storage location and the requesting {@link AbstractInstance} is as
-	 * short as possible.
-	 * 
+	 * Returns the next file input split to be consumed by the given instance. Input splits stored on the requesting
+	 * {@link AbstractInstance} itself are preferred over input splits stored in the same rack, which are preferred over
+	 * all other input splits. If no input split is left, the unread remainder of an input split which is still being
+	 * consumed is returned.
+	 *
 	 * @param instance
 	 *        the instance requesting the next file input split
+	 * @param numberOfConsumers
+	 *        the number of vertices consuming the input splits of this list
 	 * @return the next input split to be consumed by the given instance or <code>null</code> if all input splits have
 	 *         already been consumed.
 	 */
-	synchronized FileInputSplit getNextInputSplit(final AbstractInstance instance) {
+	synchronized FileInputSplit getNextInputSplit(final AbstractInstance instance, final int numberOfConsumers) {
+
+		final FileInputSplit fileInputSplit = this.splitQueue.poll(instance);
+		if (fileInputSplit == null) {
+			return stealRemainder();
+		}
+
+		this.remainingBytes -= fileInputSplit.getLength();
+
+		// Subdivide the input split if the remaining data is not enough to keep the consumers busy for long
+		final long pieceSize = Math.max(this.minimumSplitSize, (this.remainingBytes + fileInputSplit.getLength())
+			/ (SUBDIVISION_FACTOR * Math.max(1, numberOfConsumers)));
+		if (fileInputSplit.getLength() - pieceSize < this.minimumSplitSize) {
+			return fileInputSplit;
+		}
+
+		addSplit(new FileInputSplit(this.nextSplitNumber, fileInputSplit.getPath(), fileInputSplit.getStart()
+			+ pieceSize, fileInputSplit.getLength() - pieceSize, fileInputSplit.getHostNames()));
+
+		return new FileInputSplit(fileInputSplit.getSplitNumber(), fileInputSplit.getPath(),
+			fileInputSplit.getStart(), pieceSize, fileInputSplit.getHostNames());
+	}
+
+	/**
+	 * Returns an input split which has been handed out by this list but has not been consumed. The input split is added
+	 * to the set of file input splits to be consumed again.
+	 *
+	 * @param fileInputSplit
+	 *        the file input split to be returned
+	 */
+	synchronized void returnSplit(final FileInputSplit fileInputSplit) {
+
+		final SplitProgress progress = this.splitProgress.remove(fileInputSplit);
+		if (progress == null) {
+			addSplit(fileInputSplit);
+			return;
+		}
+
+		// The remainder of the input split may have been handed to another vertex meanwhile
+		this.stealableSplits.remove(progress);
+		addSplit(new FileInputSplit(fileInputSplit.getSplitNumber(), fileInputSplit.getPath(), fileInputSplit
+			.getStart(), progress.end - fileInputSplit.getStart(), fileInputSplit.getHostNames()));
+	}
+
+	/**
+	 * Records that the given input split has been consumed up to the given position and determines how far its
+	 * consumer may continue to consume it.
+	 *
+	 * @param fileInputSplit
+	 *        the input split being consumed
+	 * @param position
+	 *        the position of the first line of the input split which has not been consumed yet
+	 * @return the position of the last line the consumer may consume before reporting its progress again, a position
+	 *         before the given one if the input split is finished
+	 */
+	synchronized long reportProgress(final FileInputSplit fileInputSplit, final long position) {
+
+		SplitProgress progress = this.splitProgress.get(fileInputSplit);
+		if (progress == null) {
+			progress = new SplitProgress(fileInputSplit, position, System.currentTimeMillis());
+			this.splitProgress.put(fileInputSplit, progress);
+		}
+
+		if (position > progress.end) {
+			this.stealableSplits.remove(progress);
+			return progress.end;
+		}
+
+		// The granted position never decreases, the consumer may already have read up to it
+		progress.position = position;
+		progress.lease = Math.max(progress.lease, Math.min(progress.end, position + this.leaseSize));
+
+		if (progress.lease < progress.end) {
+			this.stealableSplits.add(progress);
+		} else {
+			this.stealableSplits.remove(progress);
+		}
+
+		return progress.lease;
+	}
+
+	/**
+	 * Hands out the unread remainder of an input split which is being consumed. The remainders of input splits consumed
+	 * by stragglers are preferred and handed out entirely beyond the position granted to their consumers. Otherwise,
+	 * the larger half of the unread data of the input split with the most unread data is handed out.
+	 *
+	 * @return the remainder of an input split which is being consumed or <code>null</code> if no input split has a
+	 *         remainder worth to be handed out
+	 */
+	private FileInputSplit stealRemainder() {
 
-		final Queue<QueueElem> instanceSplitList = getInstanceSplitList(instance);
+		final long now = System.currentTimeMillis();
+		final double medianRate = getMedianRate(now);
 
-		while (true) {
+		SplitProgress victim = null;
+		boolean victimIsStraggler = false;
+		long bestStart = 0L;
+		long bestLength = 0L;
 
-			final QueueElem candidate = instanceSplitList.poll();
-			if (candidate == null) {
-				return null;
+		for (final SplitProgress progress : this.stealableSplits) {
+
+			final double rate = progress.getRate(now);
+			final boolean isStraggler = rate >= 0.0 && rate < medianRate * this.stragglerRatio;
+			if (victimIsStraggler && !isStraggler) {
+				continue;
 			}
 
-			if (this.masterSet.remove(candidate.getInputSplit())) {
-				if (LOG.isInfoEnabled()) {
-					if (candidate.distance == 0) {
-						LOG.info(instance + " receives local file input split");
-					} else {
-						LOG.info(instance + " receives remote file input split (distance " + candidate.distance + ")");
-					}
-				}
-				return candidate.getInputSplit();
+			final long start = isStraggler ? progress.lease : Math.max(progress.lease, progress.position
+				+ (progress.end - progress.position) / 2L);
+			final long length = progress.end - start;
+			if (length >= this.minimumSplitSize && (length > bestLength || (isStraggler && !victimIsStraggler))) {
+				victim = progress;
+				victimIsStraggler = isStraggler;
+				bestStart = start;
+				bestLength = length;
 			}
+		}
+
+		if (victim == null) {
+			return null;
+		}
+
+		victim.end = bestStart;
+		if (victim.lease >= victim.end) {
+			this.stealableSplits.remove(victim);
+		}
+
+		final FileInputSplit split = victim.fileInputSplit;
+		final FileInputSplit remainder = new FileInputSplit(this.nextSplitNumber++, split.getPath(), bestStart,
+			bestLength, split.getHostNames());
 
-			if (this.masterSet.isEmpty()) {
-				return null;
+		if (LOG.isInfoEnabled()) {
+			if (victimIsStraggler) {
+				LOG.info("Consumer of input split " + split + " progresses at " + victim.getRate(now)
+					+ " bytes/ms while the median is " + medianRate + " bytes/ms, handing out remainder " + remainder);
+			} else {
+				LOG.info("Handing out remainder " + remainder + " of input split " + split);
 			}
 		}
+
+		return remainder;
 	}
 
 	/**
-	 * Returns a list of file input splits specifically ordered for the given {@link AbstractInstance}. When the list is
-	 * initially created, it contains all the unconsumed file input splits at that point in time, ascendingly ordered by
-	 * the minimum distance between the input splits' storage locations and the given {@link AbstractInstance}.
-	 * 
-	 * @param instance
-	 *        the instance for which the file input split list has been computed
-	 * @return the list of file input splits ordered specifically for the given instance
-	 */
-	private Queue<QueueElem> getInstanceSplitList(final AbstractInstance instance) {
-
-		Queue<QueueElem> instanceSplitList = this.instanceMap.get(instance);
-		if (instanceSplitList == null) {
-
-			// Create and populate instance specific split list
-			instanceSplitList = new PriorityQueue<FileInputSplitList.QueueElem>();
-			final Iterator<FileInputSplit> it = this.masterSet.iterator();
-			while (it.hasNext()) {
-
-				final FileInputSplit split = it.next();
-				final String[] hostNames = split.getHostNames();
-				if (hostNames == null) {
-					instanceSplitList.add(new QueueElem(split, Integer.MAX_VALUE));
-
-				} else {
-
-					int minDistance = Integer.MAX_VALUE;
-					for (int i = 0; i < hostNames.length; ++i) {
-						final int distance = instance.getDistance(hostNames[i]);
-						if (LOG.isDebugEnabled()) {
-							LOG.debug("Distance between " + instance + " and " + hostNames[i] + " is " + distance);
-						}
-						if (distance < minDistance) {
-							minDistance = distance;
-						}
-					}
-
-					instanceSplitList.add(new QueueElem(split, minDistance));
-				}
+	 * Returns the median progress rate of the vertices consuming the input splits whose remainders may be handed out.
+	 *
+	 * @param now
+	 *        the current time in milliseconds
+	 * @return the median progress rate in bytes per millisecond or <code>0.0</code> if no progress rate is known
+	 */
+	private double getMedianRate(final long now) {
+
+		final double[] rates = new double[this.stealableSplits.size()];
+		int numberOfRates = 0;
+		for (final SplitProgress progress : this.stealableSplits) {
+			final double rate = progress.getRate(now);
+			if (rate >= 0.0) {
+				rates[numberOfRates++] = rate;
 			}
+		}
+
+		if (numberOfRates == 0) {
+			return 0.0;
+		}
+
+		Arrays.sort(rates, 0, numberOfRates);
+
+		return rates[numberOfRates / 2];
+	}
+
+	/**
+	 * Stores the progress of a vertex consuming a file input split.
+	 */
+	private static final class SplitProgress {
+
+		/**
+		 * The file input split being consumed.
+		 */
+		private final FileInputSplit fileInputSplit;
+
+		/**
+		 * The position of the last line the consumer may consume. Lines beyond have been handed to another vertex.
+		 */
+		private long end;
+
+		/**
+		 * The position of the first line not consumed yet as last reported by the consumer.
+		 */
+		private long position;
+
+		/**
+		 * The position up to which the consumer may consume lines without reporting its progress again.
+		 */
+		private long lease;
 
-			this.instanceMap.put(instance, instanceSplitList);
+		/**
+		 * The position reported by the consumer in its first progress report.
+		 */
+		private final long initialPosition;
+
+		/**
+		 * The time of the consumer's first progress report in milliseconds.
+		 */
+		private final long initialTime;
+
+		/**
+		 * Constructs a new split progress object.
+		 *
+		 * @param fileInputSplit
+		 *        the file input split being consumed
+		 * @param initialPosition
+		 *        the position reported by the consumer in its first progress report
+		 * @param initialTime
+		 *        the time of the consumer's first progress report in milliseconds
+		 */
+		private SplitProgress(final FileInputSplit fileInputSplit, final long initialPosition, final long initialTime) {
+
+			this.fileInputSplit = fileInputSplit;
+			this.end = fileInputSplit.getStart() + fileInputSplit.getLength();
+			this.position = fileInputSplit.getStart();
+			this.lease = fileInputSplit.getStart();
+			this.initialPosition = initialPosition;
+			this.initialTime = initialTime;
 		}
 
-		return instanceSplitList;
+		/**
+		 * Returns the rate at which the consumer has progressed since its first progress report. A consumer which stops
+		 * reporting its progress is considered to make no progress meanwhile.
+		 *
+		 * @param now
+		 *        the current time in milliseconds
+		 * @return the progress rate in bytes per millisecond or <code>-1.0</code> if the rate is not known yet
+		 */
+		private double getRate(final long now) {
+
+			final long elapsed = now - this.initialTime;
+			if (elapsed <= 0L) {
+				return -1.0;
+			}
+
+			return (double) Math.max(0L, this.position - this.initialPosition) / (double) elapsed;
+		}
 	}
 }
@@ -23,6 +23,7 @@ import eu.stratosphere.nephele.io.OutputGate;
 import eu.stratosphere.nephele.io.channels.AbstractOutputChannel;
 import eu.stratosphere.nephele.io.channels.ChannelID;
 import eu.stratosphere.nephele.io.channels.ChannelType;
+import eu.stratosphere.nephele.io.channels.LengthPrefixEncoding;
 import eu.stratosphere.nephele.io.channels.bytebuffered.InMemoryOutputChannel;
 import eu.stratosphere.nephele.io.channels.bytebuffered.NetworkOutputChannel;
 import eu.stratosphere.nephele.jobgraph.JobID;
@@ -228,6 +229,24 @@ public abstract class AbstractOutputGateWrapper<T extends Record> implements Out
 		return this.wrappedOutputGate.isBroadcast();
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setLengthPrefixEncoding(final LengthPrefixEncoding lengthPrefixEncoding) {
+
+		this.wrappedOutputGate.setLengthPrefixEncoding(lengthPrefixEncoding);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public LengthPrefixEncoding getLengthPrefixEncoding() {
+
+		return this.wrappedOutputGate.getLengthPrefixEncoding();
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -0,0 +1,51 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.protocols;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import eu.stratosphere.nephele.executiongraph.ExecutionVertexID;
+import eu.stratosphere.nephele.jobgraph.JobID;
+import eu.stratosphere.nephele.jobmanager.splitassigner.InputSplitWrapper;
+import eu.stratosphere.nephele.types.IntegerRecord;
+
+/**
+ * The asynchronous counterpart of the {@link InputSplitProviderProtocol}. It allows a task manager to request the next
+ * input splits of a task while the task is still consuming its current input splits.
+ */
+public interface AsyncInputSplitProviderProtocol {
+
+	/**
+	 * Requests up to the given number of input splits to be consumed next by the task with the given execution vertex
+	 * ID.
+	 * 
+	 * @param jobID
+	 *        the ID of the job the task to retrieve the next input splits for belongs to
+	 * @param vertexID
+	 *        the ID of the task to retrieve the next input splits for
+	 * @param sequenceNumber
+	 *        the sequence number of the first requested input split
+	 * @param maximumNumberOfInputSplits
+	 *        the maximum number of input splits to return
+	 * @return the future for the list of wrappers containing the next input splits
+	 * @throws IOException
+	 *         thrown if an error occurs while transmitting the request
+	 */
+	Future<List<InputSplitWrapper>> requestNextInputSplits(JobID jobID, ExecutionVertexID vertexID,
+			IntegerRecord sequenceNumber, IntegerRecord maximumNumberOfInputSplits) throws IOException;
+}
@@ -0,0 +1,78 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.protocols;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import eu.stratosphere.nephele.deployment.TaskDeploymentDescriptor;
+import eu.stratosphere.nephele.executiongraph.ExecutionVertexID;
+import eu.stratosphere.nephele.taskmanager.TaskCancelResult;
+import eu.stratosphere.nephele.taskmanager.TaskKillResult;
+import eu.stratosphere.nephele.taskmanager.TaskSubmissionResult;
+
+/**
+ * The asynchronous counterpart of the {@link TaskOperationProtocol}. Its methods are invoked through an asynchronous
+ * proxy created by {@link eu.stratosphere.nephele.ipc.RPC#getAsyncProxy(Class, Class, java.net.InetSocketAddress)}.
+ * They return as soon as the request has been sent to the task manager, so the job manager can have several requests
+ * in flight on the same connection. Errors which occur after the request has been sent are reported as the cause of
+ * the {@link java.util.concurrent.ExecutionException} thrown by the returned futures.
+ */
+public interface AsyncTaskOperationProtocol {
+
+	/**
+	 * Submits a list of tasks to the task manager.
+	 * 
+	 * @param tasks
+	 *        the tasks to be submitted
+	 * @return the future for the result of the task submission
+	 * @throws IOException
+	 *         thrown if an error occurs while transmitting the request
+	 */
+	Future<List<TaskSubmissionResult>> submitTasks(List<TaskDeploymentDescriptor> tasks) throws IOException;
+
+	/**
+	 * Advises the task manager to cancel the task with the given ID.
+	 * 
+	 * @param id
+	 *        the ID of the task to cancel
+	 * @return the future for the result of the task cancel attempt
+	 * @throws IOException
+	 *         thrown if an error occurs while transmitting the request
+	 */
+	Future<TaskCancelResult> cancelTask(ExecutionVertexID id) throws IOException;
+
+	/**
+	 * Advises the task manager to kill the task with the given ID.
+	 * 
+	 * @param id
+	 *        the ID of the task to kill
+	 * @return the future for the result of the task kill attempt
+	 * @throws IOException
+	 *         thrown if an error occurs while transmitting the request
+	 */
+	Future<TaskKillResult> killTask(ExecutionVertexID id) throws IOException;
+
+	/**
+	 * Triggers the task manager to write the current utilization of its read and write buffers to its logs.
+	 * 
+	 * @return the future which is completed once the task manager has processed the request
+	 * @throws IOException
+	 *         thrown if an error occurs while transmitting the request
+	 */
+	Future<Void> logBufferUtilization() throws IOException;
+}
@@ -16,11 +16,13 @@
 package eu.stratosphere.nephele.protocols;
 
 import java.io.IOException;
+import java.util.List;
 
 import eu.stratosphere.nephele.executiongraph.ExecutionVertexID;
 import eu.stratosphere.nephele.jobgraph.JobID;
 import eu.stratosphere.nephele.jobmanager.splitassigner.InputSplitWrapper;
 import eu.stratosphere.nephele.types.IntegerRecord;
+import eu.stratosphere.nephele.types.LongRecord;
 
 /**
  * The input split provider protocol is used to facilitate RPC calls related to the lazy split assignment which Nephele
@@ -46,4 +48,64 @@ public interface InputSplitProviderProtocol extends VersionedProtocol {
 	 */
 	InputSplitWrapper requestNextInputSplit(JobID jobID, ExecutionVertexID vertexID, IntegerRecord sequenceNumber)
 			throws IOException;
+
+	/**
+	 * Requests up to the given number of input splits to be consumed next by the task with the given execution vertex
+	 * ID. The result is the same as for the corresponding sequence of calls to
+	 * {@link #requestNextInputSplit(JobID, ExecutionVertexID, IntegerRecord)}.
+	 * 
+	 * @param jobID
+	 *        the ID of the job the task to retrieve the next input splits for belongs to
+	 * @param vertexID
+	 *        the ID of the task to retrieve the next input splits for
+	 * @param sequenceNumber
+	 *        the sequence number of the first requested input split
+	 * @param maximumNumberOfInputSplits
+	 *        the maximum number of input splits to return
+	 * @return a list of wrappers containing the next input splits, ordered by their sequence number. The list contains
+	 *         less than the requested number of input splits if no more input splits shall be consumed by the task
+	 *         afterwards
+	 * @throws IOException
+	 *         thrown if an I/O error occurs while retrieving the new input splits
+	 */
+	List<InputSplitWrapper> requestNextInputSplits(JobID jobID, ExecutionVertexID vertexID,
+			IntegerRecord sequenceNumber, IntegerRecord maximumNumberOfInputSplits) throws IOException;
+
+	/**
+	 * Returns the input splits which have been handed out to the task with the given execution vertex ID but have not
+	 * been consumed, so they can be assigned to other tasks. A restarted task will not receive these input splits
+	 * again.
+	 * 
+	 * @param jobID
+	 *        the ID of the job the task belongs to
+	 * @param vertexID
+	 *        the ID of the task which returns its unconsumed input splits
+	 * @param numberOfConsumedInputSplits
+	 *        the number of input splits the task has consumed, i.e. the sequence number of its first unconsumed input
+	 *        split
+	 * @throws IOException
+	 *         thrown if an I/O error occurs while returning the input splits
+	 */
+	void returnInputSplits(JobID jobID, ExecutionVertexID vertexID, IntegerRecord numberOfConsumedInputSplits)
+			throws IOException;
+
+	/**
+	 * Reports that the task with the given execution vertex ID has consumed one of its input splits up to the given
+	 * position and determines how far the task may continue to consume it.
+	 * 
+	 * @param jobID
+	 *        the ID of the job the task belongs to
+	 * @param vertexID
+	 *        the ID of the task which reports its progress
+	 * @param sequenceNumber
+	 *        the sequence number of the input split the task is consuming
+	 * @param position
+	 *        the position of the first record of the input split which has not been consumed yet
+	 * @return the position of the last record the task may consume before reporting its progress again. A position
+	 *         before the reported one indicates that the task shall stop consuming the input split
+	 * @throws IOException
+	 *         thrown if an I/O error occurs while reporting the progress
+	 */
+	LongRecord reportInputSplitProgress(JobID jobID, ExecutionVertexID vertexID, IntegerRecord sequenceNumber,
+			LongRecord position) throws IOException;
 }
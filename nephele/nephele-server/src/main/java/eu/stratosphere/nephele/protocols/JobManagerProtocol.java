@@ -16,6 +16,7 @@
 package eu.stratosphere.nephele.protocols;
 
 import java.io.IOException;
+import java.util.List;
 
 import eu.stratosphere.nephele.instance.HardwareDescription;
 import eu.stratosphere.nephele.instance.InstanceConnectionInfo;
@@ -52,4 +53,15 @@ public interface JobManagerProtocol extends VersionedProtocol {
 	 *         thrown if an error occurs during this remote procedure call
 	 */
 	void updateTaskExecutionState(TaskExecutionState taskExecutionState) throws IOException;
+
+	/**
+	 * Reports a batch of updates of task execution states to the job manager. The updates are applied in the order of
+	 * the list.
+	 * 
+	 * @param taskExecutionStates
+	 *        the new task execution states
+	 * @throws IOException
+	 *         thrown if an error occurs during this remote procedure call
+	 */
+	void updateTaskExecutionStates(List<TaskExecutionState> taskExecutionStates) throws IOException;
 }
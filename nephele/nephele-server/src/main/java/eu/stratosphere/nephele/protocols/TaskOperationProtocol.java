@@ -20,15 +20,20 @@ import java.util.List;
 import java.util.Set;
 
 import eu.stratosphere.nephele.deployment.TaskDeploymentDescriptor;
+import eu.stratosphere.nephele.execution.librarycache.LibraryCacheChunk;
 import eu.stratosphere.nephele.execution.librarycache.LibraryCacheProfileRequest;
 import eu.stratosphere.nephele.execution.librarycache.LibraryCacheProfileResponse;
-import eu.stratosphere.nephele.execution.librarycache.LibraryCacheUpdate;
+import eu.stratosphere.nephele.execution.librarycache.LibraryManifest;
 import eu.stratosphere.nephele.executiongraph.ExecutionVertexID;
+import eu.stratosphere.nephele.instance.InstanceConnectionInfo;
 import eu.stratosphere.nephele.io.channels.ChannelID;
 import eu.stratosphere.nephele.taskmanager.TaskCancelResult;
 import eu.stratosphere.nephele.taskmanager.TaskKillResult;
 import eu.stratosphere.nephele.taskmanager.TaskSubmissionResult;
 import eu.stratosphere.nephele.taskmanager.TaskSuspendResult;
+import eu.stratosphere.nephele.types.IntegerRecord;
+import eu.stratosphere.nephele.types.LongRecord;
+import eu.stratosphere.nephele.types.StringRecord;
 
 /**
  * The task submission protocol is implemented by the task manager and allows the job manager
@@ -95,14 +100,48 @@ public interface TaskOperationProtocol extends VersionedProtocol {
 	LibraryCacheProfileResponse getLibraryCacheProfile(LibraryCacheProfileRequest request) throws IOException;
 
 	/**
-	 * Updates the task manager's library cache.
+	 * Transfers a chunk of a library to the task manager's library cache. The chunks of a library must be transferred
+	 * in order, the library is added to the cache once its last chunk has been received and its checksum has been
+	 * verified.
 	 * 
-	 * @param update
-	 *        a {@link LibraryCacheUpdate} object used to transmit the library data
+	 * @param chunk
+	 *        the chunk of the library to transfer
 	 * @throws IOException
-	 *         thrown if an error occurs during this remote procedure call
+	 *         thrown if an error occurs during this remote procedure call or the chunk cannot be added to the cache
+	 */
+	void transferLibraryChunk(LibraryCacheChunk chunk) throws IOException;
+
+	/**
+	 * Reads a chunk of a library from the task manager's library cache, so other task managers can fetch the library
+	 * from this task manager instead of the job manager.
+	 * 
+	 * @param libraryFileName
+	 *        the cache name of the library
+	 * @param offset
+	 *        the offset of the chunk within the library
+	 * @param maximumChunkSize
+	 *        the maximum size of the chunk in bytes
+	 * @return the chunk of the library
+	 * @throws IOException
+	 *         thrown if an error occurs during this remote procedure call or the library is not cached
+	 */
+	LibraryCacheChunk requestLibraryChunk(StringRecord libraryFileName, LongRecord offset,
+			IntegerRecord maximumChunkSize) throws IOException;
+
+	/**
+	 * Advises the task manager to fetch the library described by the given manifest from the task manager identified
+	 * by the given connection info. Every fetched chunk is verified against the manifest before it is added to the
+	 * library cache. The call returns once the library has been fetched completely.
+	 * 
+	 * @param manifest
+	 *        the manifest of the library to fetch
+	 * @param source
+	 *        the connection info of the task manager to fetch the library from
+	 * @throws IOException
+	 *         thrown if an error occurs during this remote procedure call or the library cannot be fetched from the
+	 *         given task manager
 	 */
-	void updateLibraryCache(LibraryCacheUpdate update) throws IOException;
+	void fetchLibrary(LibraryManifest manifest, InstanceConnectionInfo source) throws IOException;
 
 	/**
 	 * Invalidates the entries identified by the given channel IDs from the task manager's receiver lookup cache.
@@ -0,0 +1,232 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+
+package eu.stratosphere.nephele.taskmanager;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import eu.stratosphere.nephele.protocols.JobManagerProtocol;
+import eu.stratosphere.nephele.util.SerializableArrayList;
+import eu.stratosphere.nephele.util.StringUtils;
+
+/**
+ * The task execution state batcher is a component of the task manager which reports the changes of the tasks'
+ * execution states to the job manager. State changes which occur within the batch interval are coalesced into a single
+ * remote procedure call. All updates are transmitted by a single thread in the order they have been reported, so the
+ * order of the updates of each vertex is preserved.
+ * <p>
+ * This class is thread-safe.
+ * 
+ * @author warneke
+ */
+final class TaskExecutionStateBatcher extends Thread {
+
+	/**
+	 * The key for the config parameter defining the interval in milliseconds in which state updates are coalesced. A
+	 * value of 0 disables batching.
+	 */
+	static final String BATCH_INTERVAL_KEY = "taskmanager.rpc.stateupdate.batchinterval";
+
+	/**
+	 * The default batch interval in milliseconds.
+	 */
+	static final int DEFAULT_BATCH_INTERVAL = 5;
+
+	/**
+	 * The interval in milliseconds in which the thread checks whether it has been shut down.
+	 */
+	private static final long SHUTDOWN_CHECK_INTERVAL = 100L;
+
+	/**
+	 * The log object used for debugging.
+	 */
+	private static final Log LOG = LogFactory.getLog(TaskExecutionStateBatcher.class);
+
+	/**
+	 * The job manager to report the state updates to.
+	 */
+	private final JobManagerProtocol jobManager;
+
+	/**
+	 * The interval in milliseconds in which state updates are coalesced.
+	 */
+	private final long batchInterval;
+
+	/**
+	 * The state updates which have not been transmitted yet.
+	 */
+	private final LinkedBlockingQueue<TaskExecutionState> pendingStates = new LinkedBlockingQueue<TaskExecutionState>();
+
+	/**
+	 * Stores whether the batcher has been shut down.
+	 */
+	private volatile boolean isShutDown = false;
+
+	/**
+	 * Lock to guard the shut down against concurrently reported updates.
+	 */
+	private final Object shutdownLock = new Object();
+
+	/**
+	 * Constructs a new task execution state batcher. If batching is enabled, the batcher's thread is started.
+	 * 
+	 * @param jobManager
+	 *        the job manager to report the state updates to
+	 * @param batchInterval
+	 *        the interval in milliseconds in which state updates are coalesced, <code>0</code> to report each update
+	 *        with its own call
+	 */
+	TaskExecutionStateBatcher(final JobManagerProtocol jobManager, final int batchInterval) {
+		super("Task Execution State Batcher");
+
+		this.jobManager = jobManager;
+		this.batchInterval = batchInterval;
+
+		setDaemon(true);
+		if (this.batchInterval > 0L) {
+			start();
+		}
+	}
+
+	/**
+	 * Reports the given state update to the job manager. If batching is enabled, the update is transmitted
+	 * asynchronously, otherwise the method returns after it has been transmitted. Updates reported after the batcher
+	 * has been shut down are transmitted once the batcher's thread has transmitted the pending updates.
+	 * 
+	 * @param taskExecutionState
+	 *        the state update to report
+	 */
+	void report(final TaskExecutionState taskExecutionState) {
+
+		// Updates must not be queued after the thread's final check for pending updates
+		synchronized (this.shutdownLock) {
+			if (this.batchInterval > 0L && !this.isShutDown) {
+				this.pendingStates.add(taskExecutionState);
+				return;
+			}
+		}
+
+		// Do not overtake the updates the thread is still draining
+		if (this.batchInterval > 0L && Thread.currentThread() != this) {
+			awaitTermination();
+		}
+
+		final List<TaskExecutionState> batch = new SerializableArrayList<TaskExecutionState>(1);
+		batch.add(taskExecutionState);
+		transmit(batch);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void run() {
+
+		while (true) {
+
+			TaskExecutionState first;
+			try {
+				first = this.pendingStates.poll(SHUTDOWN_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+				if (first == null) {
+					if (this.isShutDown) {
+						break;
+					}
+					continue;
+				}
+
+				// Give the following state changes the chance to join the batch
+				if (!this.isShutDown) {
+					Thread.sleep(this.batchInterval);
+				}
+			} catch (InterruptedException e) {
+				break;
+			}
+
+			final List<TaskExecutionState> batch = new SerializableArrayList<TaskExecutionState>();
+			batch.add(first);
+			this.pendingStates.drainTo(batch);
+			transmit(batch);
+		}
+
+		// Transmit the updates which have been reported in the meantime
+		final List<TaskExecutionState> batch = new SerializableArrayList<TaskExecutionState>();
+		this.pendingStates.drainTo(batch);
+		if (!batch.isEmpty()) {
+			transmit(batch);
+		}
+	}
+
+	/**
+	 * Transmits the given state updates to the job manager.
+	 * 
+	 * @param batch
+	 *        the state updates to transmit
+	 */
+	private void transmit(final List<TaskExecutionState> batch) {
+
+		// Get lock on the jobManager object and propagate the state changes
+		synchronized (this.jobManager) {
+			try {
+				if (batch.size() == 1) {
+					this.jobManager.updateTaskExecutionState(batch.get(0));
+				} else {
+					this.jobManager.updateTaskExecutionStates(batch);
+				}
+			} catch (IOException e) {
+				LOG.error(StringUtils.stringifyException(e));
+			}
+		}
+	}
+
+	/**
+	 * Shuts the batcher down after all pending state updates have been transmitted. Updates reported afterwards are
+	 * transmitted synchronously.
+	 */
+	void shutdown() {
+
+		synchronized (this.shutdownLock) {
+			this.isShutDown = true;
+		}
+
+		awaitTermination();
+	}
+
+	/**
+	 * Waits until the batcher's thread has transmitted all pending updates and terminated. The interrupted status of
+	 * the calling thread is preserved.
+	 */
+	private void awaitTermination() {
+
+		boolean interrupted = false;
+		while (isAlive()) {
+			try {
+				join();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -16,15 +16,22 @@
 package eu.stratosphere.nephele.taskmanager;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import eu.stratosphere.nephele.executiongraph.ExecutionVertexID;
 import eu.stratosphere.nephele.jobgraph.JobID;
 import eu.stratosphere.nephele.jobmanager.splitassigner.InputSplitWrapper;
+import eu.stratosphere.nephele.protocols.AsyncInputSplitProviderProtocol;
 import eu.stratosphere.nephele.protocols.InputSplitProviderProtocol;
 import eu.stratosphere.nephele.template.InputSplit;
 import eu.stratosphere.nephele.template.InputSplitProvider;
 import eu.stratosphere.nephele.types.IntegerRecord;
+import eu.stratosphere.nephele.types.LongRecord;
 import eu.stratosphere.nephele.util.StringUtils;
 
 /**
@@ -32,12 +39,27 @@ import eu.stratosphere.nephele.util.StringUtils;
  * interface. It is called by a task in order to acquire a new input split to consume. The task input split provider in
  * return will call the global input split provider to retrieve a new input split.
  * <p>
+ * If prefetching is enabled, the task input split provider keeps up to the configured number of input splits buffered
+ * locally. Once the buffer has drained to half of its capacity, the next batch of input splits is requested
+ * asynchronously, so the task does not have to wait for a round trip to the job manager for each input split. If the
+ * task fails or is canceled, the prefetched input splits which have not been consumed are returned to the job manager.
+ * <p>
  * This class is thread-safe.
  * 
  * @author warneke
  */
 public class TaskInputSplitProvider implements InputSplitProvider {
 
+	/**
+	 * The key to retrieve the maximum number of input splits to prefetch from the configuration.
+	 */
+	public static final String PREFETCH_KEY = "taskmanager.inputsplit.prefetch";
+
+	/**
+	 * The default maximum number of input splits to prefetch. By default, prefetching is disabled.
+	 */
+	public static final int DEFAULT_PREFETCH = 0;
+
 	private final JobID jobID;
 
 	private final ExecutionVertexID executionVertexID;
@@ -46,12 +68,91 @@ public class TaskInputSplitProvider implements InputSplitProvider {
 
 	private final AtomicInteger sequenceNumber = new AtomicInteger(0);
 
+	/**
+	 * The sequence number of the input split most recently returned to the task or <code>-1</code> if no input split
+	 * has been returned yet.
+	 */
+	private volatile int currentSequenceNumber = -1;
+
+	/**
+	 * The asynchronous stub of the global input split provider or <code>null</code> if prefetching is disabled.
+	 */
+	private final AsyncInputSplitProviderProtocol asyncGlobalInputSplitProvider;
+
+	/**
+	 * The maximum number of input splits to prefetch.
+	 */
+	private final int prefetch;
+
+	/**
+	 * The input splits which have been prefetched but not yet been consumed by the task.
+	 */
+	private final Queue<InputSplit> prefetchedInputSplits = new ArrayDeque<InputSplit>();
+
+	/**
+	 * The outstanding request for the next batch of input splits or <code>null</code> if no request is outstanding.
+	 */
+	private Future<List<InputSplitWrapper>> pendingRequest = null;
+
+	/**
+	 * The number of input splits requested by the outstanding request.
+	 */
+	private int pendingRequestSize = 0;
+
+	/**
+	 * The sequence number of the first input split of the next request.
+	 */
+	private int nextRequestSequenceNumber = 0;
+
+	/**
+	 * The number of input splits the task has consumed so far.
+	 */
+	private int numberOfConsumedInputSplits = 0;
+
+	/**
+	 * Stores whether the job manager has indicated that the task shall consume no more input splits.
+	 */
+	private boolean isExhausted = false;
+
+	/**
+	 * Constructs a task input split provider which requests the input splits one by one.
+	 * 
+	 * @param jobID
+	 *        the ID of the job the task belongs to
+	 * @param executionVertexID
+	 *        the ID of the task
+	 * @param globalInputSplitProvider
+	 *        the stub of the global input split provider
+	 */
 	TaskInputSplitProvider(final JobID jobID, final ExecutionVertexID executionVertexID,
 			final InputSplitProviderProtocol globalInputSplitProvider) {
 
+		this(jobID, executionVertexID, globalInputSplitProvider, null, 0);
+	}
+
+	/**
+	 * Constructs a task input split provider.
+	 * 
+	 * @param jobID
+	 *        the ID of the job the task belongs to
+	 * @param executionVertexID
+	 *        the ID of the task
+	 * @param globalInputSplitProvider
+	 *        the stub of the global input split provider
+	 * @param asyncGlobalInputSplitProvider
+	 *        the asynchronous stub of the global input split provider, only used if prefetching is enabled
+	 * @param prefetch
+	 *        the maximum number of input splits to prefetch, <code>0</code> to disable prefetching
+	 */
+	TaskInputSplitProvider(final JobID jobID, final ExecutionVertexID executionVertexID,
+			final InputSplitProviderProtocol globalInputSplitProvider,
+			final AsyncInputSplitProviderProtocol asyncGlobalInputSplitProvider, final int prefetch) {
+
 		this.jobID = jobID;
 		this.executionVertexID = executionVertexID;
 		this.globalInputSplitProvider = globalInputSplitProvider;
+		this.asyncGlobalInputSplitProvider = (prefetch > 0) ? asyncGlobalInputSplitProvider : null;
+		this.prefetch = prefetch;
 	}
 
 	/**
@@ -62,9 +163,17 @@ public class TaskInputSplitProvider implements InputSplitProvider {
 
 		try {
 
+			if (this.asyncGlobalInputSplitProvider != null) {
+				return getNextPrefetchedInputSplit();
+			}
+
 			synchronized (this.globalInputSplitProvider) {
+				final int requestSequenceNumber = this.sequenceNumber.getAndIncrement();
 				final InputSplitWrapper wrapper = this.globalInputSplitProvider.requestNextInputSplit(this.jobID,
-					this.executionVertexID, new IntegerRecord(this.sequenceNumber.getAndIncrement()));
+					this.executionVertexID, new IntegerRecord(requestSequenceNumber));
+				if (wrapper.getInputSplit() != null) {
+					this.currentSequenceNumber = requestSequenceNumber;
+				}
 				return wrapper.getInputSplit();
 			}
 
@@ -74,4 +183,147 @@ public class TaskInputSplitProvider implements InputSplitProvider {
 			throw new RuntimeException(StringUtils.stringifyException(ioe));
 		}
 	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long reportInputSplitProgress(final long position) {
+
+		final int sequenceNumber = this.currentSequenceNumber;
+		if (sequenceNumber < 0) {
+			return Long.MAX_VALUE;
+		}
+
+		try {
+			synchronized (this.globalInputSplitProvider) {
+				return this.globalInputSplitProvider.reportInputSplitProgress(this.jobID, this.executionVertexID,
+					new IntegerRecord(sequenceNumber), new LongRecord(position)).getValue();
+			}
+		} catch (IOException ioe) {
+			throw new RuntimeException(StringUtils.stringifyException(ioe));
+		}
+	}
+
+	/**
+	 * Returns the prefetched input splits which have not been consumed by the task to the job manager, so they can be
+	 * assigned to other tasks. This method is called when the task has failed or has been canceled. Afterwards, the
+	 * task will not receive any further input splits.
+	 * 
+	 * @throws IOException
+	 *         thrown if an error occurs while returning the input splits
+	 */
+	synchronized void returnUnconsumedInputSplits() throws IOException {
+
+		if (this.asyncGlobalInputSplitProvider == null) {
+			return;
+		}
+
+		// The outstanding request must be completed, so the job manager does not assign input splits afterwards
+		boolean requestFailed = false;
+		if (this.pendingRequest != null) {
+			try {
+				collectInputSplits();
+			} catch (IOException ioe) {
+				requestFailed = true;
+			}
+		}
+
+		this.prefetchedInputSplits.clear();
+		this.isExhausted = true;
+
+		if (requestFailed || this.nextRequestSequenceNumber > this.numberOfConsumedInputSplits) {
+			synchronized (this.globalInputSplitProvider) {
+				this.globalInputSplitProvider.returnInputSplits(this.jobID, this.executionVertexID, new IntegerRecord(
+					this.numberOfConsumedInputSplits));
+			}
+		}
+	}
+
+	/**
+	 * Returns the next prefetched input split and requests the next batch of input splits if the number of prefetched
+	 * input splits has dropped to half of the configured maximum.
+	 * 
+	 * @return the next input split to consume or <code>null</code> if the task shall consume no more input splits
+	 * @throws IOException
+	 *         thrown if an error occurs while requesting the input splits
+	 */
+	private synchronized InputSplit getNextPrefetchedInputSplit() throws IOException {
+
+		while (this.prefetchedInputSplits.isEmpty()) {
+
+			if (this.pendingRequest == null) {
+				if (this.isExhausted) {
+					return null;
+				}
+				requestInputSplits();
+			}
+
+			collectInputSplits();
+		}
+
+		final InputSplit inputSplit = this.prefetchedInputSplits.poll();
+		this.currentSequenceNumber = this.numberOfConsumedInputSplits++;
+
+		if (this.pendingRequest == null && !this.isExhausted
+			&& this.prefetchedInputSplits.size() <= this.prefetch / 2) {
+			requestInputSplits();
+		}
+
+		return inputSplit;
+	}
+
+	/**
+	 * Asynchronously requests as many input splits as required to fill up the prefetch buffer.
+	 * 
+	 * @throws IOException
+	 *         thrown if an error occurs while transmitting the request
+	 */
+	private void requestInputSplits() throws IOException {
+
+		this.pendingRequestSize = this.prefetch - this.prefetchedInputSplits.size();
+		this.pendingRequest = this.asyncGlobalInputSplitProvider.requestNextInputSplits(this.jobID,
+			this.executionVertexID, new IntegerRecord(this.nextRequestSequenceNumber), new IntegerRecord(
+				this.pendingRequestSize));
+	}
+
+	/**
+	 * Waits for the outstanding request to complete and adds the received input splits to the prefetch buffer.
+	 * 
+	 * @throws IOException
+	 *         thrown if the outstanding request has failed
+	 */
+	private void collectInputSplits() throws IOException {
+
+		final Future<List<InputSplitWrapper>> request = this.pendingRequest;
+		this.pendingRequest = null;
+
+		List<InputSplitWrapper> wrappers = null;
+		boolean interrupted = false;
+		try {
+			while (wrappers == null) {
+				try {
+					wrappers = request.get();
+				} catch (InterruptedException e) {
+					// Like a synchronous RPC call, wait for the response and restore the interrupt flag afterwards
+					interrupted = true;
+				}
+			}
+		} catch (ExecutionException e) {
+			throw new IOException(StringUtils.stringifyException(e.getCause()));
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		for (final InputSplitWrapper wrapper : wrappers) {
+			this.prefetchedInputSplits.add(wrapper.getInputSplit());
+		}
+		this.nextRequestSequenceNumber += wrappers.size();
+
+		if (wrappers.size() < this.pendingRequestSize) {
+			this.isExhausted = true;
+		}
+	}
 }
@@ -52,10 +52,11 @@ import eu.stratosphere.nephele.discovery.DiscoveryService;
 import eu.stratosphere.nephele.execution.Environment;
 import eu.stratosphere.nephele.execution.ExecutionState;
 import eu.stratosphere.nephele.execution.RuntimeEnvironment;
+import eu.stratosphere.nephele.execution.librarycache.LibraryCacheChunk;
 import eu.stratosphere.nephele.execution.librarycache.LibraryCacheManager;
 import eu.stratosphere.nephele.execution.librarycache.LibraryCacheProfileRequest;
 import eu.stratosphere.nephele.execution.librarycache.LibraryCacheProfileResponse;
-import eu.stratosphere.nephele.execution.librarycache.LibraryCacheUpdate;
+import eu.stratosphere.nephele.execution.librarycache.LibraryManifest;
 import eu.stratosphere.nephele.executiongraph.ExecutionVertexID;
 import eu.stratosphere.nephele.instance.HardwareDescription;
 import eu.stratosphere.nephele.instance.HardwareDescriptionFactory;
@@ -72,6 +73,7 @@ import eu.stratosphere.nephele.plugins.PluginManager;
 import eu.stratosphere.nephele.plugins.TaskManagerPlugin;
 import eu.stratosphere.nephele.profiling.ProfilingUtils;
 import eu.stratosphere.nephele.profiling.TaskManagerProfiler;
+import eu.stratosphere.nephele.protocols.AsyncInputSplitProviderProtocol;
 import eu.stratosphere.nephele.protocols.ChannelLookupProtocol;
 import eu.stratosphere.nephele.protocols.InputSplitProviderProtocol;
 import eu.stratosphere.nephele.protocols.JobManagerProtocol;
@@ -84,6 +86,10 @@ import eu.stratosphere.nephele.taskmanager.bytebuffered.ByteBufferedChannelManag
 import eu.stratosphere.nephele.taskmanager.bytebuffered.InsufficientResourcesException;
 import eu.stratosphere.nephele.taskmanager.runtime.ExecutorThreadFactory;
 import eu.stratosphere.nephele.taskmanager.runtime.RuntimeTask;
+import eu.stratosphere.nephele.template.InputSplitProvider;
+import eu.stratosphere.nephele.types.IntegerRecord;
+import eu.stratosphere.nephele.types.LongRecord;
+import eu.stratosphere.nephele.types.StringRecord;
 import eu.stratosphere.nephele.util.SerializableArrayList;
 import eu.stratosphere.nephele.util.StringUtils;
 
@@ -100,8 +106,23 @@ public class TaskManager implements TaskOperationProtocol, PluginCommunicationPr
 
 	private final JobManagerProtocol jobManager;
 
+	/**
+	 * Reports the changes of the tasks' execution states to the job manager.
+	 */
+	private final TaskExecutionStateBatcher executionStateBatcher;
+
 	private final InputSplitProviderProtocol globalInputSplitProvider;
 
+	/**
+	 * The asynchronous stub of the global input split provider, used to prefetch input splits.
+	 */
+	private final AsyncInputSplitProviderProtocol asyncGlobalInputSplitProvider;
+
+	/**
+	 * The maximum number of input splits to prefetch for each task.
+	 */
+	private final int inputSplitPrefetch;
+
 	private final ChannelLookupProtocol lookupService;
 
 	private final PluginCommunicationProtocol pluginCommunicationService;
@@ -213,6 +234,8 @@ public class TaskManager implements TaskOperationProtocol, PluginCommunicationPr
 			throw new Exception("Failed to initialize connection to JobManager: " + e.getMessage(), e);
 		}
 		this.jobManager = jobManager;
+		this.executionStateBatcher = new TaskExecutionStateBatcher(jobManager, GlobalConfiguration.getInteger(
+			TaskExecutionStateBatcher.BATCH_INTERVAL_KEY, TaskExecutionStateBatcher.DEFAULT_BATCH_INTERVAL));
 
 		// Try to create local stub of the global input split provider
 		InputSplitProviderProtocol globalInputSplitProvider = null;
@@ -224,6 +247,10 @@ public class TaskManager implements TaskOperationProtocol, PluginCommunicationPr
 			throw new Exception("Failed to initialize connection to global input split provider: " + e.getMessage(), e);
 		}
 		this.globalInputSplitProvider = globalInputSplitProvider;
+		this.asyncGlobalInputSplitProvider = RPC.getAsyncProxy(AsyncInputSplitProviderProtocol.class,
+			InputSplitProviderProtocol.class, jobManagerAddress);
+		this.inputSplitPrefetch = GlobalConfiguration.getInteger(TaskInputSplitProvider.PREFETCH_KEY,
+			TaskInputSplitProvider.DEFAULT_PREFETCH);
 
 		// Try to create local stub for the lookup service
 		ChannelLookupProtocol lookupService = null;
@@ -484,7 +511,8 @@ public class TaskManager implements TaskOperationProtocol, PluginCommunicationPr
 			RuntimeEnvironment re;
 			try {
 				re = new RuntimeEnvironment(tdd, this.memoryManager, this.ioManager, new TaskInputSplitProvider(jobID,
-					vertexID, this.globalInputSplitProvider));
+					vertexID, this.globalInputSplitProvider, this.asyncGlobalInputSplitProvider,
+					this.inputSplitPrefetch));
 			} catch (Throwable t) {
 				final TaskSubmissionResult result = new TaskSubmissionResult(vertexID,
 					AbstractTaskResult.ReturnCode.DEPLOYMENT_ERROR);
@@ -680,9 +708,49 @@ public class TaskManager implements TaskOperationProtocol, PluginCommunicationPr
 	 * {@inheritDoc}
 	 */
 	@Override
-	public void updateLibraryCache(LibraryCacheUpdate update) throws IOException {
+	public void transferLibraryChunk(final LibraryCacheChunk chunk) throws IOException {
 
-		// Nothing to to here
+		LibraryCacheManager.writeLibraryChunk(chunk);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public LibraryCacheChunk requestLibraryChunk(final StringRecord libraryFileName, final LongRecord offset,
+			final IntegerRecord maximumChunkSize) throws IOException {
+
+		return LibraryCacheManager.readLibraryChunk(libraryFileName.toString(), offset.getValue(),
+			maximumChunkSize.getValue());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void fetchLibrary(final LibraryManifest manifest, final InstanceConnectionInfo source) throws IOException {
+
+		if (LibraryCacheManager.contains(manifest.getLibraryFileName()) != null) {
+			return;
+		}
+
+		final TaskOperationProtocol peer = RPC.getProxy(TaskOperationProtocol.class,
+			new InetSocketAddress(source.getAddress(), source.getIPCPort()), NetUtils.getSocketFactory());
+
+		try {
+			final StringRecord libraryFileName = new StringRecord(manifest.getLibraryFileName());
+			final IntegerRecord chunkSize = new IntegerRecord(manifest.getChunkSize());
+
+			// Verify every chunk before it reaches the cache, the peer might hold a corrupted copy
+			for (int i = 0; i < manifest.getNumberOfChunks(); ++i) {
+				final LibraryCacheChunk chunk = peer.requestLibraryChunk(libraryFileName,
+					new LongRecord((long) i * manifest.getChunkSize()), chunkSize);
+				manifest.verifyChunk(chunk);
+				LibraryCacheManager.writeLibraryChunk(chunk);
+			}
+		} finally {
+			RPC.stopProxy(peer);
+		}
 	}
 
 	public void executionStateChanged(final JobID jobID, final ExecutionVertexID id,
@@ -693,6 +761,11 @@ public class TaskManager implements TaskOperationProtocol, PluginCommunicationPr
 			return;
 		}
 
+		// Hand back prefetched input splits before the job manager learns about the failure and restarts the task
+		if (newExecutionState == ExecutionState.CANCELED || newExecutionState == ExecutionState.FAILED) {
+			returnUnconsumedInputSplits(id);
+		}
+
 		if (newExecutionState == ExecutionState.FINISHED || newExecutionState == ExecutionState.CANCELED
 				|| newExecutionState == ExecutionState.FAILED
 				|| newExecutionState == ExecutionState.SUSPENDED) {
@@ -700,14 +773,34 @@ public class TaskManager implements TaskOperationProtocol, PluginCommunicationPr
 			// Unregister the task (free all buffers, remove all channels, task-specific class loaders, etc...)
 			unregisterTask(id);
 		}
-		// Get lock on the jobManager object and propagate the state change
-		synchronized (this.jobManager) {
-			try {
-				this.jobManager.updateTaskExecutionState(new TaskExecutionState(jobID, id, newExecutionState,
-					optionalDescription));
-			} catch (IOException e) {
-				LOG.error(StringUtils.stringifyException(e));
-			}
+		// Propagate the state change, possibly together with other state changes
+		this.executionStateBatcher.report(new TaskExecutionState(jobID, id, newExecutionState, optionalDescription));
+	}
+
+	/**
+	 * Returns the input splits which have been prefetched for the task with the given ID but have not been consumed
+	 * to the job manager.
+	 * 
+	 * @param id
+	 *        the ID of the task whose unconsumed input splits shall be returned
+	 */
+	private void returnUnconsumedInputSplits(final ExecutionVertexID id) {
+
+		final Task task = this.runningTasks.get(id);
+		if (task == null) {
+			return;
+		}
+
+		final InputSplitProvider inputSplitProvider = task.getEnvironment().getInputSplitProvider();
+		if (!(inputSplitProvider instanceof TaskInputSplitProvider)) {
+			return;
+		}
+
+		try {
+			((TaskInputSplitProvider) inputSplitProvider).returnUnconsumedInputSplits();
+		} catch (IOException ioe) {
+			LOG.error("Cannot return unconsumed input splits of task " + id + ": "
+				+ StringUtils.stringifyException(ioe));
 		}
 	}
 
@@ -722,11 +815,15 @@ public class TaskManager implements TaskOperationProtocol, PluginCommunicationPr
 
 		LOG.info("Shutting down TaskManager");
 
+		// Transmit the pending state changes before the RPC proxy for the job manager is stopped
+		this.executionStateBatcher.shutdown();
+
 		// Stop RPC proxy for the task manager
 		RPC.stopProxy(this.jobManager);
 
 		// Stop RPC proxy for the global input split assigner
 		RPC.stopProxy(this.globalInputSplitProvider);
+		RPC.stopAsyncProxy(this.asyncGlobalInputSplitProvider);
 
 		// Stop RPC proxy for the lookup service
 		RPC.stopProxy(this.lookupService);
@@ -15,8 +15,10 @@
 
 package eu.stratosphere.nephele.taskmanager.bufferprovider;
 
-import java.util.Queue;
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -24,10 +26,28 @@ import org.apache.commons.logging.LogFactory;
 import eu.stratosphere.nephele.configuration.GlobalConfiguration;
 import eu.stratosphere.nephele.services.memorymanager.MemorySegment;
 
+/**
+ * The global buffer pool manages the network buffers of a task manager. To avoid serializing all threads of the task
+ * manager on a single lock, the buffers are kept in a set of lock-free stripes, one per available core, plus a shared
+ * overflow stripe. A thread locks and releases buffers through the stripe its ID maps to and only falls back to the
+ * overflow stripe and the stripes of other threads if its own stripe is exhausted. Local buffer pools are expected to
+ * transfer buffers in batches of {@link #getBatchSize()} segments.
+ * <p>
+ * The pool is elastic: it starts with a minimum number of buffers and allocates additional buffers in chunks whenever
+ * a lock request cannot be served, up to a maximum number of buffers. Chunks of buffers which are no longer needed
+ * are released to the JVM again once no buffer shortage has occurred for a configurable idle time. The pool also reacts
+ * to the heap usage of the JVM: it does not grow if the new chunk would push the heap usage beyond a configurable
+ * fraction of the maximum heap size, and it releases surplus buffers without waiting for the idle time while the heap
+ * usage exceeds that fraction. After a failed attempt to grow, lock requests do not try again until the pool has
+ * shrunk or, if the heap usage was the reason, a short retry interval has passed. If the minimum and the maximum
+ * number of buffers are equal (the default), all buffers are allocated at startup and never released.
+ * <p>
+ * This class is thread-safe.
+ */
 public final class GlobalBufferPool {
 
 	private final static Log LOG = LogFactory.getLog(GlobalBufferPool.class);
-	
+
 	/**
 	 * The singleton instance of the global buffer pool.
 	 */
@@ -44,16 +64,120 @@ public final class GlobalBufferPool {
 	public static final int DEFAULT_BUFFER_SIZE_IN_BYTES = 64 * 1024; // 64k
 
 	/**
-	 * The number of buffers created at startup.
+	 * The default number of buffers transferred between the global and a local buffer pool at a time.
+	 */
+	private static final int DEFAULT_BATCH_SIZE = 8;
+
+	/**
+	 * The default number of buffers allocated at a time when the pool grows.
+	 */
+	private static final int DEFAULT_CHUNK_SIZE = 256;
+
+	/**
+	 * The default time in milliseconds without a buffer shortage after which surplus buffers are released.
+	 */
+	private static final long DEFAULT_IDLE_TIME = 60000L;
+
+	/**
+	 * The default fraction of the maximum heap size beyond which the pool does not grow and releases surplus buffers.
+	 */
+	private static final float DEFAULT_MAXIMUM_HEAP_USAGE = 0.8f;
+
+	/**
+	 * The interval in milliseconds in which the pool checks for surplus buffers to release.
+	 */
+	private static final long SHRINK_CHECK_INTERVAL = 5000L;
+
+	/**
+	 * The time in milliseconds after which the pool attempts to grow again once the heap usage prevented it.
+	 */
+	private static final long GROWTH_RETRY_INTERVAL = 1000L;
+
+	/**
+	 * The number of buffers created at startup and below which the pool never shrinks.
+	 */
+	private final int minimumNumberOfBuffers;
+
+	/**
+	 * The number of buffers the pool may grow to.
+	 */
+	private final int maximumNumberOfBuffers;
+
+	/**
+	 * The number of buffers allocated at a time when the pool grows.
+	 */
+	private final int chunkSize;
+
+	/**
+	 * The time in milliseconds without a buffer shortage after which surplus buffers are released.
+	 */
+	private final long idleTime;
+
+	/**
+	 * The fraction of the maximum heap size beyond which the pool does not grow and releases surplus buffers.
 	 */
-	private final int numberOfBuffers;
+	private final float maximumHeapUsage;
+
+	/**
+	 * The number of buffers currently allocated by this pool, modifications are guarded by <code>resizeLock</code>.
+	 */
+	private volatile int numberOfBuffers;
+
+	/**
+	 * Lock object to serialize growing and shrinking the pool.
+	 */
+	private final Object resizeLock = new Object();
+
+	/**
+	 * The time in milliseconds at which the last buffer shortage or growth of the pool occurred.
+	 */
+	private volatile long lastShortage;
+
+	/**
+	 * The time in milliseconds before which the pool does not attempt to grow, so threads facing a buffer shortage do
+	 * not contend for <code>resizeLock</code> while growing is known to fail.
+	 */
+	private volatile long growthBlockedUntil = 0L;
+
+	/**
+	 * Timer to periodically release surplus buffers, <code>null</code> if the pool is not elastic.
+	 */
+	private final Timer shrinkTimer;
 
 	/**
 	 * The size of read/write buffers in bytes.
 	 */
 	private final int bufferSizeInBytes;
 
-	private final Queue<MemorySegment> buffers;
+	/**
+	 * The number of buffers transferred between the global and a local buffer pool at a time.
+	 */
+	private final int batchSize;
+
+	/**
+	 * The per-core stripes, the array length is always a power of two.
+	 */
+	private final Stripe[] stripes;
+
+	/**
+	 * Bit mask to map a thread ID to its stripe.
+	 */
+	private final int stripeMask;
+
+	/**
+	 * The maximum number of buffers a single stripe holds before released buffers go to the overflow stripe.
+	 */
+	private final int stripeCapacity;
+
+	/**
+	 * The overflow stripe shared among all threads.
+	 */
+	private final Stripe overflow = new Stripe();
+
+	/**
+	 * The number of buffers which are currently available at this pool.
+	 */
+	private final AtomicInteger availableBuffers = new AtomicInteger(0);
 
 	/**
 	 * Returns the singleton instance of the global buffer pool. If the instance does not already exist, it is also
@@ -64,7 +188,19 @@ public final class GlobalBufferPool {
 	public static synchronized GlobalBufferPool getInstance() {
 
 		if (instance == null) {
-			instance = new GlobalBufferPool();
+
+			final int numberOfBuffers = GlobalConfiguration.getInteger("channel.network.numberOfBuffers",
+				DEFAULT_NUMBER_OF_BUFFERS);
+
+			instance = new GlobalBufferPool(
+				GlobalConfiguration.getInteger("channel.network.minNumberOfBuffers", numberOfBuffers),
+				GlobalConfiguration.getInteger("channel.network.maxNumberOfBuffers", numberOfBuffers),
+				GlobalConfiguration.getInteger("channel.network.bufferSizeInBytes", DEFAULT_BUFFER_SIZE_IN_BYTES),
+				GlobalConfiguration.getInteger("channel.network.bufferBatchSize", DEFAULT_BATCH_SIZE),
+				Runtime.getRuntime().availableProcessors(),
+				GlobalConfiguration.getInteger("channel.network.bufferChunkSize", DEFAULT_CHUNK_SIZE),
+				GlobalConfiguration.getLong("channel.network.bufferIdleTime", DEFAULT_IDLE_TIME),
+				GlobalConfiguration.getFloat("channel.network.bufferMaxHeapUsage", DEFAULT_MAXIMUM_HEAP_USAGE));
 		}
 
 		return instance;
@@ -72,26 +208,80 @@ public final class GlobalBufferPool {
 
 	/**
 	 * Constructs the global buffer pool.
+	 * 
+	 * @param minimumNumberOfBuffers
+	 *        the number of buffers to create at startup and below which the pool never shrinks
+	 * @param maximumNumberOfBuffers
+	 *        the number of buffers the pool may grow to
+	 * @param bufferSizeInBytes
+	 *        the size of each buffer in bytes
+	 * @param batchSize
+	 *        the number of buffers transferred between the global and a local buffer pool at a time
+	 * @param numberOfStripes
+	 *        the minimum number of stripes to distribute the buffers over
+	 * @param chunkSize
+	 *        the number of buffers to allocate at a time when the pool grows
+	 * @param idleTime
+	 *        the time in milliseconds without a buffer shortage after which surplus buffers are released
+	 * @param maximumHeapUsage
+	 *        the fraction of the maximum heap size beyond which the pool does not grow and releases surplus buffers
 	 */
-	private GlobalBufferPool() {
+	GlobalBufferPool(final int minimumNumberOfBuffers, final int maximumNumberOfBuffers,
+			final int bufferSizeInBytes, final int batchSize, final int numberOfStripes, final int chunkSize,
+			final long idleTime, final float maximumHeapUsage) {
+
+		if (minimumNumberOfBuffers > maximumNumberOfBuffers) {
+			throw new IllegalArgumentException("Minimum number of buffers " + minimumNumberOfBuffers
+				+ " is larger than maximum number of buffers " + maximumNumberOfBuffers);
+		}
 
-		this.numberOfBuffers = GlobalConfiguration.getInteger("channel.network.numberOfBuffers",
-			DEFAULT_NUMBER_OF_BUFFERS);
-		this.bufferSizeInBytes = GlobalConfiguration.getInteger("channel.network.bufferSizeInBytes",
-			DEFAULT_BUFFER_SIZE_IN_BYTES);
+		this.minimumNumberOfBuffers = minimumNumberOfBuffers;
+		this.maximumNumberOfBuffers = maximumNumberOfBuffers;
+		this.bufferSizeInBytes = bufferSizeInBytes;
+		this.batchSize = Math.max(1, batchSize);
+		this.chunkSize = Math.max(1, chunkSize);
+		this.idleTime = idleTime;
+		this.maximumHeapUsage = maximumHeapUsage;
 
-		this.buffers = new ArrayBlockingQueue<MemorySegment>(this.numberOfBuffers);
+		int stripeCount = 1;
+		while (stripeCount < numberOfStripes) {
+			stripeCount <<= 1;
+		}
+
+		this.stripes = new Stripe[stripeCount];
+		for (int i = 0; i < stripeCount; ++i) {
+			this.stripes[i] = new Stripe();
+		}
+		this.stripeMask = stripeCount - 1;
+		this.stripeCapacity = Math.max(this.batchSize, minimumNumberOfBuffers / stripeCount);
 
 		// Initialize buffers
-		for (int i = 0; i < this.numberOfBuffers; i++) {
+		for (int i = 0; i < minimumNumberOfBuffers; i++) {
 			// allocate byteBuffer
 			final byte[] segMemory = new byte[this.bufferSizeInBytes];
 			final MemorySegment readBuffer = new MemorySegment(segMemory);
-			this.buffers.add(readBuffer);
+			final Stripe stripe = this.stripes[i & this.stripeMask];
+			stripe.push(new Node(readBuffer));
 		}
+		this.numberOfBuffers = minimumNumberOfBuffers;
+		this.availableBuffers.set(minimumNumberOfBuffers);
 
-		LOG.info("Initialized global buffer pool with " + this.numberOfBuffers + " buffers with a size "
-			+ this.bufferSizeInBytes + " bytes each");
+		if (minimumNumberOfBuffers < maximumNumberOfBuffers) {
+			this.shrinkTimer = new Timer("GlobalBufferPool shrinker", true);
+			this.shrinkTimer.schedule(new TimerTask() {
+
+				@Override
+				public void run() {
+					releaseSurplusBuffers(System.currentTimeMillis());
+				}
+			}, SHRINK_CHECK_INTERVAL, SHRINK_CHECK_INTERVAL);
+		} else {
+			this.shrinkTimer = null;
+		}
+
+		LOG.info("Initialized global buffer pool with " + minimumNumberOfBuffers + " buffers (maximum "
+			+ maximumNumberOfBuffers + ") with a size " + this.bufferSizeInBytes + " bytes each in " + stripeCount
+			+ " stripes");
 	}
 
 	/**
@@ -104,6 +294,16 @@ public final class GlobalBufferPool {
 		return this.bufferSizeInBytes;
 	}
 
+	/**
+	 * Returns the number of buffers a local buffer pool should transfer from or to this pool at a time.
+	 * 
+	 * @return the number of buffers a local buffer pool should transfer from or to this pool at a time
+	 */
+	public int getBatchSize() {
+
+		return this.batchSize;
+	}
+
 	/**
 	 * Locks a buffer from the global buffer pool and returns it to the caller of this method.
 	 * 
@@ -111,7 +311,257 @@ public final class GlobalBufferPool {
 	 */
 	public MemorySegment lockGlobalBuffer() {
 
-		return this.buffers.poll();
+		final MemorySegment[] target = new MemorySegment[1];
+		if (lockGlobalBuffers(target, 1) == 0) {
+			return null;
+		}
+
+		return target[0];
+	}
+
+	/**
+	 * Locks up to <code>maximumNumberOfBuffers</code> buffers from the global buffer pool and stores them in the given
+	 * array, starting at index 0.
+	 * 
+	 * @param target
+	 *        the array to store the locked buffers in
+	 * @param maximumNumberOfBuffers
+	 *        the maximum number of buffers to lock, must not exceed the length of <code>target</code>
+	 * @return the number of buffers actually locked, possibly 0
+	 */
+	public int lockGlobalBuffers(final MemorySegment[] target, final int maximumNumberOfBuffers) {
+
+		int count = lockAvailableBuffers(target, maximumNumberOfBuffers);
+
+		while (count < maximumNumberOfBuffers) {
+
+			final long now = System.currentTimeMillis();
+			this.lastShortage = now;
+
+			if (now < this.growthBlockedUntil || !grow(now)) {
+				break;
+			}
+
+			final int additionalBuffers = lockAvailableBuffers(target, count, maximumNumberOfBuffers - count);
+			if (additionalBuffers == 0) {
+				break;
+			}
+
+			count += additionalBuffers;
+		}
+
+		return count;
+	}
+
+	/**
+	 * Locks up to <code>maximumNumberOfBuffers</code> of the currently available buffers without growing the pool.
+	 * 
+	 * @param target
+	 *        the array to store the locked buffers in
+	 * @param maximumNumberOfBuffers
+	 *        the maximum number of buffers to lock
+	 * @return the number of buffers actually locked, possibly 0
+	 */
+	private int lockAvailableBuffers(final MemorySegment[] target, final int maximumNumberOfBuffers) {
+
+		return lockAvailableBuffers(target, 0, maximumNumberOfBuffers);
+	}
+
+	/**
+	 * Locks up to <code>maximumNumberOfBuffers</code> of the currently available buffers without growing the pool.
+	 * 
+	 * @param target
+	 *        the array to store the locked buffers in
+	 * @param offset
+	 *        the index of <code>target</code> to store the first locked buffer at
+	 * @param maximumNumberOfBuffers
+	 *        the maximum number of buffers to lock
+	 * @return the number of buffers actually locked, possibly 0
+	 */
+	private int lockAvailableBuffers(final MemorySegment[] target, final int offset,
+			final int maximumNumberOfBuffers) {
+
+		final int home = stripeIndex();
+		int count = this.stripes[home].pop(target, offset, maximumNumberOfBuffers);
+
+		if (count < maximumNumberOfBuffers) {
+			count += this.overflow.pop(target, offset + count, maximumNumberOfBuffers - count);
+		}
+
+		// Steal from the other stripes as a last resort
+		for (int i = 1; i < this.stripes.length && count < maximumNumberOfBuffers; ++i) {
+			count += this.stripes[(home + i) & this.stripeMask].pop(target, offset + count,
+				maximumNumberOfBuffers - count);
+		}
+
+		if (count > 0) {
+			this.availableBuffers.addAndGet(-count);
+		}
+
+		return count;
+	}
+
+	/**
+	 * Allocates a new chunk of buffers and adds it to the overflow stripe, unless the pool has already reached its
+	 * maximum size or the new chunk would push the heap usage beyond the configured fraction of the maximum heap size.
+	 * 
+	 * @param now
+	 *        the current time in milliseconds
+	 * @return <code>true</code> if buffers may have become available since the last attempt to lock buffers,
+	 *         <code>false</code> if the pool cannot grow any further
+	 */
+	private boolean grow(final long now) {
+
+		final Runtime runtime = Runtime.getRuntime();
+
+		return grow(now, runtime.totalMemory() - runtime.freeMemory(), runtime.maxMemory());
+	}
+
+	/**
+	 * Allocates a new chunk of buffers and adds it to the overflow stripe, unless the pool has already reached its
+	 * maximum size or the new chunk would push the given heap usage beyond the configured fraction of the maximum heap
+	 * size. If the pool cannot grow, further attempts are blocked until the pool shrinks or, if only the heap usage
+	 * prevented the growth, until a retry interval has passed.
+	 * 
+	 * @param now
+	 *        the current time in milliseconds
+	 * @param usedHeap
+	 *        the current heap usage in bytes
+	 * @param maximumHeap
+	 *        the maximum heap size in bytes
+	 * @return <code>true</code> if buffers may have become available since the last attempt to lock buffers,
+	 *         <code>false</code> if the pool cannot grow any further
+	 */
+	boolean grow(final long now, final long usedHeap, final long maximumHeap) {
+
+		synchronized (this.resizeLock) {
+
+			// Another thread may have grown the pool in the meantime
+			if (this.availableBuffers.get() > 0) {
+				return true;
+			}
+
+			final int numberOfNewBuffers = Math.min(this.chunkSize, this.maximumNumberOfBuffers
+				- this.numberOfBuffers);
+			if (numberOfNewBuffers <= 0) {
+				// Only shrinking the pool makes growing possible again
+				this.growthBlockedUntil = Long.MAX_VALUE;
+				return false;
+			}
+
+			if (exceedsMaximumHeapUsage(usedHeap + (long) numberOfNewBuffers * this.bufferSizeInBytes, maximumHeap)) {
+				if (LOG.isDebugEnabled()) {
+					LOG.debug("Not growing global buffer pool beyond " + this.numberOfBuffers
+						+ " buffers due to heap usage of " + usedHeap + " bytes");
+				}
+				this.growthBlockedUntil = now + GROWTH_RETRY_INTERVAL;
+				return false;
+			}
+
+			final MemorySegment[] chunk = new MemorySegment[numberOfNewBuffers];
+			try {
+				for (int i = 0; i < numberOfNewBuffers; ++i) {
+					chunk[i] = new MemorySegment(new byte[this.bufferSizeInBytes]);
+				}
+			} catch (OutOfMemoryError e) {
+				LOG.warn("Cannot grow global buffer pool beyond " + this.numberOfBuffers + " buffers: "
+					+ e.getMessage());
+				this.growthBlockedUntil = now + GROWTH_RETRY_INTERVAL;
+				return false;
+			}
+
+			this.numberOfBuffers += numberOfNewBuffers;
+
+			final Node last = new Node(chunk[0]);
+			Node first = last;
+			for (int i = 1; i < numberOfNewBuffers; ++i) {
+				final Node node = new Node(chunk[i]);
+				node.next = first;
+				first = node;
+			}
+			this.overflow.pushAll(first, last, numberOfNewBuffers);
+			this.availableBuffers.addAndGet(numberOfNewBuffers);
+
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("Grew global buffer pool to " + this.numberOfBuffers + " buffers");
+			}
+
+			return true;
+		}
+	}
+
+	/**
+	 * Checks whether the given heap usage exceeds the configured fraction of the maximum heap size.
+	 * 
+	 * @param usedHeap
+	 *        the heap usage in bytes
+	 * @param maximumHeap
+	 *        the maximum heap size in bytes
+	 * @return <code>true</code> if the heap usage exceeds the configured fraction of the maximum heap size,
+	 *         <code>false</code> otherwise
+	 */
+	private boolean exceedsMaximumHeapUsage(final long usedHeap, final long maximumHeap) {
+
+		return usedHeap > (double) maximumHeap * this.maximumHeapUsage;
+	}
+
+	/**
+	 * Releases a chunk of available buffers to the JVM if the pool is larger than its minimum size and either no
+	 * buffer shortage has occurred for the configured idle time or the heap usage exceeds the configured fraction of
+	 * the maximum heap size.
+	 * 
+	 * @param now
+	 *        the current time in milliseconds
+	 * @return the number of buffers released
+	 */
+	int releaseSurplusBuffers(final long now) {
+
+		final Runtime runtime = Runtime.getRuntime();
+
+		return releaseSurplusBuffers(now, runtime.totalMemory() - runtime.freeMemory(), runtime.maxMemory());
+	}
+
+	/**
+	 * Releases a chunk of available buffers to the JVM if the pool is larger than its minimum size and either no
+	 * buffer shortage has occurred for the configured idle time or the given heap usage exceeds the configured
+	 * fraction of the maximum heap size.
+	 * 
+	 * @param now
+	 *        the current time in milliseconds
+	 * @param usedHeap
+	 *        the current heap usage in bytes
+	 * @param maximumHeap
+	 *        the maximum heap size in bytes
+	 * @return the number of buffers released
+	 */
+	int releaseSurplusBuffers(final long now, final long usedHeap, final long maximumHeap) {
+
+		if (now - this.lastShortage < this.idleTime && !exceedsMaximumHeapUsage(usedHeap, maximumHeap)) {
+			return 0;
+		}
+
+		synchronized (this.resizeLock) {
+
+			final int numberOfSurplusBuffers = Math.min(this.chunkSize, this.numberOfBuffers
+				- this.minimumNumberOfBuffers);
+			if (numberOfSurplusBuffers <= 0) {
+				return 0;
+			}
+
+			// The released segments are simply dropped and left to the garbage collector
+			final int count = lockAvailableBuffers(new MemorySegment[numberOfSurplusBuffers], numberOfSurplusBuffers);
+			this.numberOfBuffers -= count;
+
+			if (count > 0) {
+				this.growthBlockedUntil = 0L;
+			}
+
+			if (count > 0 && LOG.isDebugEnabled()) {
+				LOG.debug("Shrank global buffer pool to " + this.numberOfBuffers + " buffers");
+			}
+
+			return count;
+		}
 	}
 
 	/**
@@ -121,19 +571,139 @@ public final class GlobalBufferPool {
 	 *        the previously locked buffer to be released
 	 */
 	public void releaseGlobalBuffer(final MemorySegment releasedBuffer) {
-		this.buffers.add(releasedBuffer);
+
+		final Node node = new Node(releasedBuffer);
+		pushToStripes(node, node, 1);
+	}
+
+	/**
+	 * Releases the locks on the first <code>numberOfBuffers</code> buffers of the given array and returns the buffers
+	 * to the global pool. The released array entries are set to <code>null</code>.
+	 * 
+	 * @param releasedBuffers
+	 *        the array of previously locked buffers to be released
+	 * @param numberOfBuffers
+	 *        the number of buffers to release
+	 */
+	public void releaseGlobalBuffers(final MemorySegment[] releasedBuffers, final int numberOfBuffers) {
+
+		if (numberOfBuffers == 0) {
+			return;
+		}
+
+		final Node last = new Node(releasedBuffers[0]);
+		releasedBuffers[0] = null;
+		Node first = last;
+		for (int i = 1; i < numberOfBuffers; ++i) {
+			final Node node = new Node(releasedBuffers[i]);
+			releasedBuffers[i] = null;
+			node.next = first;
+			first = node;
+		}
+
+		pushToStripes(first, last, numberOfBuffers);
+	}
+
+	/**
+	 * Pushes the given chain of nodes to the stripe of the calling thread or, if that stripe is already full, to the
+	 * overflow stripe.
+	 * 
+	 * @param first
+	 *        the first node of the chain
+	 * @param last
+	 *        the last node of the chain
+	 * @param length
+	 *        the length of the chain
+	 */
+	private void pushToStripes(final Node first, final Node last, final int length) {
+
+		final Stripe stripe = this.stripes[stripeIndex()];
+		if (stripe.size.get() < this.stripeCapacity) {
+			stripe.pushAll(first, last, length);
+		} else {
+			this.overflow.pushAll(first, last, length);
+		}
+
+		this.availableBuffers.addAndGet(length);
+	}
+
+	/**
+	 * Returns the index of the stripe the calling thread maps to.
+	 * 
+	 * @return the index of the stripe the calling thread maps to
+	 */
+	private int stripeIndex() {
+
+		final long id = Thread.currentThread().getId();
+
+		return (int) (id ^ (id >>> 16)) & this.stripeMask;
 	}
 
 	/**
-	 * Returns the total number of buffers managed by this pool.
+	 * Returns the total number of buffers currently allocated by this pool.
 	 * 
-	 * @return the total number of buffers managed by this pool
+	 * @return the total number of buffers currently allocated by this pool
 	 */
 	public int getTotalNumberOfBuffers() {
 
 		return this.numberOfBuffers;
 	}
 
+	/**
+	 * Returns the number of buffers this pool can still grow to, given the current heap usage. Unlike
+	 * {@link #getMaximumNumberOfBuffers()}, this accounts for the configured fraction of the maximum heap size beyond
+	 * which the pool does not grow.
+	 * 
+	 * @return the number of buffers this pool can still grow to
+	 */
+	public int getReachableNumberOfBuffers() {
+
+		final Runtime runtime = Runtime.getRuntime();
+
+		return getReachableNumberOfBuffers(runtime.totalMemory() - runtime.freeMemory(), runtime.maxMemory());
+	}
+
+	/**
+	 * Returns the number of buffers this pool can still grow to, given the heap usage. This is the current number of
+	 * buffers plus the chunks which can be allocated before the configured fraction of the maximum heap size is
+	 * exceeded.
+	 * 
+	 * @param usedHeap
+	 *        the current heap usage in bytes
+	 * @param maximumHeap
+	 *        the maximum heap size in bytes
+	 * @return the number of buffers this pool can still grow to
+	 */
+	int getReachableNumberOfBuffers(final long usedHeap, final long maximumHeap) {
+
+		int reachableNumberOfBuffers = this.numberOfBuffers;
+		long heap = usedHeap;
+
+		while (reachableNumberOfBuffers < this.maximumNumberOfBuffers) {
+
+			final int numberOfNewBuffers = Math.min(this.chunkSize, this.maximumNumberOfBuffers
+				- reachableNumberOfBuffers);
+			heap += (long) numberOfNewBuffers * this.bufferSizeInBytes;
+			if (exceedsMaximumHeapUsage(heap, maximumHeap)) {
+				break;
+			}
+
+			reachableNumberOfBuffers += numberOfNewBuffers;
+		}
+
+		return reachableNumberOfBuffers;
+	}
+
+	/**
+	 * Returns the maximum number of buffers this pool may grow to.
+	 * 
+	 * @return the maximum number of buffers this pool may grow to
+	 */
+	public int getMaximumNumberOfBuffers() {
+
+		return this.maximumNumberOfBuffers;
+	}
+
 	/**
 	 * Returns the number of buffers which are currently available at this pool.
 	 * 
@@ -141,6 +711,82 @@ public final class GlobalBufferPool {
 	 */
 	public int getCurrentNumberOfBuffers() {
 
-		return this.buffers.size();
+		return this.availableBuffers.get();
+	}
+
+	/**
+	 * A node of a stripe's stack. Nodes are never reused, so the stacks are not subject to the ABA problem.
+	 */
+	private static final class Node {
+
+		private final MemorySegment segment;
+
+		private Node next;
+
+		private Node(final MemorySegment segment) {
+			this.segment = segment;
+		}
+	}
+
+	/**
+	 * A stripe is a lock-free (Treiber) stack of memory segments which supports pushing and popping chains of
+	 * segments with a single compare-and-set operation.
+	 */
+	private static final class Stripe {
+
+		private final AtomicReference<Node> head = new AtomicReference<Node>();
+
+		private final AtomicInteger size = new AtomicInteger(0);
+
+		private void push(final Node node) {
+			pushAll(node, node, 1);
+		}
+
+		private void pushAll(final Node first, final Node last, final int length) {
+
+			while (true) {
+				final Node oldHead = this.head.get();
+				last.next = oldHead;
+				if (this.head.compareAndSet(oldHead, first)) {
+					this.size.addAndGet(length);
+					return;
+				}
+			}
+		}
+
+		private int pop(final MemorySegment[] target, final int offset, final int maximum) {
+
+			if (maximum <= 0) {
+				return 0;
+			}
+
+			while (true) {
+
+				final Node oldHead = this.head.get();
+				if (oldHead == null) {
+					return 0;
+				}
+
+				// Determine the chain to detach, the nodes are not modified while they are part of the stack
+				int count = 1;
+				Node last = oldHead;
+				while (count < maximum && last.next != null) {
+					last = last.next;
+					++count;
+				}
+
+				if (this.head.compareAndSet(oldHead, last.next)) {
+
+					this.size.addAndGet(-count);
+					Node node = oldHead;
+					for (int i = 0; i < count; ++i) {
+						target[offset + i] = node.segment;
+						node = node.next;
+					}
+
+					return count;
+				}
+			}
+		}
 	}
 }
@@ -66,6 +66,12 @@ public final class LocalBufferPool implements BufferProvider {
 
 	private final Queue<MemorySegment> buffers = new ArrayDeque<MemorySegment>();
 
+	/**
+	 * Array to transfer buffers from and to the global buffer pool in batches, guarded by the lock on
+	 * <code>buffers</code>.
+	 */
+	private final MemorySegment[] transferBuffer;
+
 	private final LocalBufferPoolConnector bufferPoolConnector;
 
 	private final Queue<BufferAvailabilityListener> bufferAvailabilityListenerQueue = new ArrayDeque<BufferAvailabilityListener>();
@@ -74,6 +80,7 @@ public final class LocalBufferPool implements BufferProvider {
 
 		this.globalBufferPool = GlobalBufferPool.getInstance();
 		this.maximumBufferSize = this.globalBufferPool.getMaximumBufferSize();
+		this.transferBuffer = new MemorySegment[this.globalBufferPool.getBatchSize()];
 		this.designatedNumberOfBuffers = designatedNumberOfBuffers;
 		this.isShared = isShared;
 		this.bufferPoolConnector = new LocalBufferPoolConnector(this);
@@ -118,26 +125,23 @@ public final class LocalBufferPool implements BufferProvider {
 			synchronized (this.buffers) {
 
 				// Make sure we return excess buffers immediately
-				while (this.requestedNumberOfBuffers > this.designatedNumberOfBuffers) {
-
-					final MemorySegment seg = this.buffers.poll();
-					if (seg == null) {
-						break;
-					}
-
-					this.globalBufferPool.releaseGlobalBuffer(seg);
-					this.requestedNumberOfBuffers--;
-				}
+				returnExcessBuffers();
 
 				while (this.buffers.isEmpty()) {
 
 					// Check if the number of cached buffers matches the number of designated buffers
 					if (this.requestedNumberOfBuffers < this.designatedNumberOfBuffers) {
 
-						final MemorySegment memSeg = this.globalBufferPool.lockGlobalBuffer();
-						if (memSeg != null) {
-							this.buffers.add(memSeg);
-							this.requestedNumberOfBuffers++;
+						final int numberOfBuffersToLock = Math.min(this.transferBuffer.length,
+							this.designatedNumberOfBuffers - this.requestedNumberOfBuffers);
+						final int numberOfLockedBuffers = this.globalBufferPool.lockGlobalBuffers(
+							this.transferBuffer, numberOfBuffersToLock);
+						if (numberOfLockedBuffers > 0) {
+							for (int i = 0; i < numberOfLockedBuffers; ++i) {
+								this.buffers.add(this.transferBuffer[i]);
+								this.transferBuffer[i] = null;
+							}
+							this.requestedNumberOfBuffers += numberOfLockedBuffers;
 							continue;
 						}
 					}
@@ -185,17 +189,33 @@ public final class LocalBufferPool implements BufferProvider {
 			this.designatedNumberOfBuffers = designatedNumberOfBuffers;
 
 			// Make sure we return excess buffers immediately
-			while (this.requestedNumberOfBuffers > this.designatedNumberOfBuffers) {
+			returnExcessBuffers();
+
+			this.buffers.notify();
+		}
+	}
+
+	/**
+	 * Returns cached buffers exceeding the designated number of buffers to the global buffer pool in batches. This
+	 * method must only be called while holding the lock on <code>buffers</code>.
+	 */
+	private void returnExcessBuffers() {
+
+		while (this.requestedNumberOfBuffers > this.designatedNumberOfBuffers && !this.buffers.isEmpty()) {
 
-				if (this.buffers.isEmpty()) {
+			final int numberOfBuffersToReturn = Math.min(this.transferBuffer.length,
+				this.requestedNumberOfBuffers - this.designatedNumberOfBuffers);
+			int count = 0;
+			while (count < numberOfBuffersToReturn) {
+				final MemorySegment seg = this.buffers.poll();
+				if (seg == null) {
 					break;
 				}
-
-				this.globalBufferPool.releaseGlobalBuffer(this.buffers.poll());
-				this.requestedNumberOfBuffers--;
+				this.transferBuffer[count++] = seg;
 			}
 
-			this.buffers.notify();
+			this.globalBufferPool.releaseGlobalBuffers(this.transferBuffer, count);
+			this.requestedNumberOfBuffers -= count;
 		}
 	}
 
@@ -211,7 +231,13 @@ public final class LocalBufferPool implements BufferProvider {
 			this.isDestroyed = true;
 
 			while (!this.buffers.isEmpty()) {
-				this.globalBufferPool.releaseGlobalBuffer(this.buffers.poll());
+
+				int count = 0;
+				while (count < this.transferBuffer.length && !this.buffers.isEmpty()) {
+					this.transferBuffer[count++] = this.buffers.poll();
+				}
+
+				this.globalBufferPool.releaseGlobalBuffers(this.transferBuffer, count);
 			}
 
 			this.requestedNumberOfBuffers = 0;
@@ -22,6 +22,7 @@ import eu.stratosphere.nephele.event.task.AbstractTaskEvent;
 import eu.stratosphere.nephele.io.channels.bytebuffered.ChannelSuspendConfirmEvent;
 import eu.stratosphere.nephele.io.channels.bytebuffered.ChannelSuspendEvent;
 import eu.stratosphere.nephele.io.channels.bytebuffered.ChannelUnsuspendEvent;
+import eu.stratosphere.nephele.io.channels.bytebuffered.NetworkThrottleEvent;
 import eu.stratosphere.nephele.taskmanager.transferenvelope.TransferEnvelope;
 
 public abstract class AbstractOutputChannelContext implements OutputChannelContext {
@@ -53,7 +54,8 @@ public abstract class AbstractOutputChannelContext implements OutputChannelConte
 			if (event instanceof AbstractTaskEvent 
 					|| event instanceof ChannelUnsuspendEvent
 					|| event instanceof ChannelSuspendEvent
-					|| event instanceof ChannelSuspendConfirmEvent) {
+					|| event instanceof ChannelSuspendConfirmEvent
+					|| event instanceof NetworkThrottleEvent) {
 				processEventAsynchronously(event);
 			} else {
 				processEventSynchronously(event);
@@ -21,7 +21,11 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -58,6 +62,21 @@ public final class ByteBufferedChannelManager implements TransferEnvelopeDispatc
 
 	private static final boolean DEFAULT_MERGE_SPILLED_BUFFERS = true;
 
+	/**
+	 * The configuration key to enable the multiplexing of all network channels of a job between two task managers.
+	 */
+	public static final String MULTIPLEXING_ENABLED_KEY = "channel.network.multiplexing.enabled";
+
+	/**
+	 * The default setting for the multiplexing of network channels.
+	 */
+	public static final boolean DEFAULT_MULTIPLEXING_ENABLED = false;
+
+	/**
+	 * The default time in milliseconds after which a partially filled multiplexed buffer is handed over to the network.
+	 */
+	private static final int DEFAULT_MULTIPLEXING_FLUSH_INTERVAL = 5;
+
 	// TODO: Make this configurable
 	private static final int NUMBER_OF_CHANNELS_FOR_MULTICAST = 10;
 
@@ -79,6 +98,34 @@ public final class ByteBufferedChannelManager implements TransferEnvelopeDispatc
 
 	private final boolean multicastEnabled = true;
 
+	private final boolean multiplexingEnabled;
+
+	/**
+	 * The buffer pool for the shared buffers of the channel multiplexers and demultiplexers.
+	 */
+	private final LocalBufferPool multiplexingBufferPool;
+
+	/**
+	 * The channel multiplexers of this task manager, organized by job and remote receiver.
+	 */
+	private final ConcurrentMap<JobID, ConcurrentMap<RemoteReceiver, ChannelMultiplexer>> channelMultiplexers = new ConcurrentHashMap<JobID, ConcurrentMap<RemoteReceiver, ChannelMultiplexer>>();
+
+	/**
+	 * The channel demultiplexers of this task manager, indexed by the ID of the multiplexed channel.
+	 */
+	private final Map<ChannelID, ChannelDemultiplexer> channelDemultiplexers = new ConcurrentHashMap<ChannelID, ChannelDemultiplexer>();
+
+	/**
+	 * The number of registered output channels which do not need to be accounted for because of channel multiplexing.
+	 */
+	private final AtomicInteger numberOfMultiplexedOutputChannels = new AtomicInteger(0);
+
+	/**
+	 * Timer to periodically hand partially filled multiplexed buffers over to the network, <code>null</code> if
+	 * channel multiplexing is disabled.
+	 */
+	private final Timer multiplexingFlushTimer;
+
 	/**
 	 * This map caches transfer envelope receiver lists.
 	 */
@@ -106,9 +153,30 @@ public final class ByteBufferedChannelManager implements TransferEnvelopeDispatc
 		this.mergeSpilledBuffers = GlobalConfiguration.getBoolean("channel.network.mergeSpilledBuffers",
 			DEFAULT_MERGE_SPILLED_BUFFERS);
 
+		this.multiplexingEnabled = GlobalConfiguration.getBoolean(MULTIPLEXING_ENABLED_KEY,
+			DEFAULT_MULTIPLEXING_ENABLED);
+
+		this.multiplexingBufferPool = new LocalBufferPool(1, true);
+
+		if (this.multiplexingEnabled) {
+			final int flushInterval = GlobalConfiguration.getInteger("channel.network.multiplexing.flushInterval",
+				DEFAULT_MULTIPLEXING_FLUSH_INTERVAL);
+			this.multiplexingFlushTimer = new Timer("Channel multiplexing flusher", true);
+			this.multiplexingFlushTimer.schedule(new TimerTask() {
+
+				@Override
+				public void run() {
+					flushChannelMultiplexers(System.currentTimeMillis() - flushInterval);
+				}
+			}, flushInterval, flushInterval);
+		} else {
+			this.multiplexingFlushTimer = null;
+		}
+
 		LOG.info("Initialized byte buffered channel manager with sender-side spilling "
 			+ (this.allowSenderSideSpilling ? "enabled" : "disabled")
-			+ (this.mergeSpilledBuffers ? " and spilled buffer merging enabled" : ""));
+			+ (this.mergeSpilledBuffers ? " and spilled buffer merging enabled" : "")
+			+ (this.multiplexingEnabled ? ", channel multiplexing enabled" : ""));
 	}
 
 	/**
@@ -202,6 +270,10 @@ public final class ByteBufferedChannelManager implements TransferEnvelopeDispatc
 
 		this.localBufferPoolOwner.put(task.getVertexID(), taskContext);
 
+		if (this.multiplexingEnabled) {
+			this.numberOfMultiplexedOutputChannels.addAndGet(getNumberOfMultiplexedOutputChannels(environment));
+		}
+
 		redistributeGlobalBuffers();
 	}
 
@@ -258,6 +330,11 @@ public final class ByteBufferedChannelManager implements TransferEnvelopeDispatc
 			owner.clearLocalBufferPool();
 		}
 
+		if (this.multiplexingEnabled) {
+			this.numberOfMultiplexedOutputChannels.addAndGet(-getNumberOfMultiplexedOutputChannels(environment));
+			closeChannelMultiplexersIfUnused(task.getJobID());
+		}
+
 		redistributeGlobalBuffers();
 	}
 
@@ -266,9 +343,196 @@ public final class ByteBufferedChannelManager implements TransferEnvelopeDispatc
 	 */
 	public void shutdown() {
 
+		if (this.multiplexingFlushTimer != null) {
+			this.multiplexingFlushTimer.cancel();
+		}
+
 		this.networkConnectionManager.shutDown();
 	}
 
+	/**
+	 * Returns the number of output channels of the given environment which do not need to be accounted for when
+	 * channel multiplexing is enabled. With channel multiplexing, the buffers of the output channels are only held
+	 * until their content has been handed over to the channel manager, so each output gate is accounted for as a single
+	 * channel.
+	 * 
+	 * @param environment
+	 *        the environment to compute the number of multiplexed output channels for
+	 * @return the number of output channels which do not need to be accounted for
+	 */
+	private static int getNumberOfMultiplexedOutputChannels(final Environment environment) {
+
+		return Math.max(0, environment.getNumberOfOutputChannels() - environment.getNumberOfOutputGates());
+	}
+
+	/**
+	 * Returns (and possibly creates) the channel multiplexer for the given job and remote receiver.
+	 * 
+	 * @param jobID
+	 *        the ID of the job the multiplexed channels belong to
+	 * @param remoteReceiver
+	 *        the receiver the multiplexed buffers are transmitted to
+	 * @return the channel multiplexer for the given job and remote receiver
+	 */
+	private ChannelMultiplexer getChannelMultiplexer(final JobID jobID, final RemoteReceiver remoteReceiver) {
+
+		ConcurrentMap<RemoteReceiver, ChannelMultiplexer> multiplexers = this.channelMultiplexers.get(jobID);
+		if (multiplexers != null) {
+			final ChannelMultiplexer channelMultiplexer = multiplexers.get(remoteReceiver);
+			if (channelMultiplexer != null) {
+				return channelMultiplexer;
+			}
+		}
+
+		boolean newMultiplexer = false;
+		ChannelMultiplexer channelMultiplexer;
+		synchronized (this.channelMultiplexers) {
+
+			multiplexers = this.channelMultiplexers.get(jobID);
+			if (multiplexers == null) {
+				multiplexers = new ConcurrentHashMap<RemoteReceiver, ChannelMultiplexer>();
+				this.channelMultiplexers.put(jobID, multiplexers);
+			}
+
+			channelMultiplexer = multiplexers.get(remoteReceiver);
+			if (channelMultiplexer == null) {
+				channelMultiplexer = new ChannelMultiplexer(jobID, remoteReceiver, this.networkConnectionManager,
+					this.multiplexingBufferPool);
+				multiplexers.put(remoteReceiver, channelMultiplexer);
+				newMultiplexer = true;
+			}
+		}
+
+		if (newMultiplexer) {
+			redistributeGlobalBuffers();
+		}
+
+		return channelMultiplexer;
+	}
+
+	/**
+	 * Hands the partially filled buffer of the channel multiplexer for the given job and remote receiver over to the
+	 * network, so an envelope which is not multiplexed does not overtake previously multiplexed data.
+	 * 
+	 * @param jobID
+	 *        the ID of the job the envelope belongs to
+	 * @param remoteReceiver
+	 *        the receiver the envelope is transmitted to
+	 */
+	private void flushChannelMultiplexer(final JobID jobID, final RemoteReceiver remoteReceiver) {
+
+		if (!this.multiplexingEnabled) {
+			return;
+		}
+
+		final Map<RemoteReceiver, ChannelMultiplexer> multiplexers = this.channelMultiplexers.get(jobID);
+		if (multiplexers == null) {
+			return;
+		}
+
+		final ChannelMultiplexer channelMultiplexer = multiplexers.get(remoteReceiver);
+		if (channelMultiplexer != null) {
+			channelMultiplexer.flush();
+		}
+	}
+
+	/**
+	 * Hands all multiplexed buffers which have been opened before the given point in time over to the network.
+	 * 
+	 * @param timestamp
+	 *        the point in time in milliseconds
+	 */
+	private void flushChannelMultiplexers(final long timestamp) {
+
+		final Iterator<ConcurrentMap<RemoteReceiver, ChannelMultiplexer>> it = this.channelMultiplexers.values()
+			.iterator();
+		while (it.hasNext()) {
+
+			final Iterator<ChannelMultiplexer> it2 = it.next().values().iterator();
+			while (it2.hasNext()) {
+				it2.next().flushIfOpenedBefore(timestamp);
+			}
+		}
+	}
+
+	/**
+	 * Closes the channel multiplexers of the given job if no more channels of the job are registered with this channel
+	 * manager.
+	 * 
+	 * @param jobID
+	 *        the ID of the job whose channel multiplexers shall be closed
+	 */
+	private void closeChannelMultiplexersIfUnused(final JobID jobID) {
+
+		final Iterator<ChannelContext> it = this.registeredChannels.values().iterator();
+		while (it.hasNext()) {
+			if (jobID.equals(it.next().getJobID())) {
+				return;
+			}
+		}
+
+		final Map<RemoteReceiver, ChannelMultiplexer> multiplexers;
+		synchronized (this.channelMultiplexers) {
+			multiplexers = this.channelMultiplexers.remove(jobID);
+		}
+
+		if (multiplexers == null) {
+			return;
+		}
+
+		final Iterator<ChannelMultiplexer> it2 = multiplexers.values().iterator();
+		while (it2.hasNext()) {
+			it2.next().close();
+		}
+	}
+
+	/**
+	 * Checks whether the given envelope has been sent by a {@link ChannelMultiplexer} and, if so, processes its
+	 * sub-channel declarations and demultiplexes its buffer.
+	 * 
+	 * @param transferEnvelope
+	 *        the envelope to check
+	 * @return <code>true</code> if the envelope has been processed, <code>false</code> if it is a regular envelope
+	 * @throws IOException
+	 *         thrown if an error occurs while demultiplexing the envelope
+	 * @throws InterruptedException
+	 *         thrown if the caller is interrupted while waiting for a buffer
+	 */
+	private boolean processMultiplexedEnvelope(final TransferEnvelope transferEnvelope) throws IOException,
+			InterruptedException {
+
+		final ChannelID multiplexedChannelID = transferEnvelope.getSource();
+		final MultiplexedChannelEvent event = MultiplexedChannelEvent.getMultiplexedChannelEvent(transferEnvelope);
+
+		ChannelDemultiplexer channelDemultiplexer = this.channelDemultiplexers.get(multiplexedChannelID);
+		if (channelDemultiplexer == null) {
+
+			if (event == null) {
+				return false;
+			}
+
+			// The first envelope of a multiplexer announces it
+			channelDemultiplexer = new ChannelDemultiplexer();
+			this.channelDemultiplexers.put(multiplexedChannelID, channelDemultiplexer);
+			redistributeGlobalBuffers();
+		}
+
+		if (event != null) {
+			if (event.isClosing()) {
+				this.channelDemultiplexers.remove(multiplexedChannelID);
+				redistributeGlobalBuffers();
+			} else {
+				channelDemultiplexer.declareSources(event);
+			}
+		}
+
+		if (transferEnvelope.getBuffer() != null) {
+			channelDemultiplexer.demultiplex(transferEnvelope, this, this);
+		}
+
+		return true;
+	}
+
 	public NetworkConnectionManager getNetworkConnectionManager() {
 
 		return this.networkConnectionManager;
@@ -420,6 +684,10 @@ public final class ByteBufferedChannelManager implements TransferEnvelopeDispatc
 				}
 
 				for (final RemoteReceiver remoteReceiver : remoteReceivers) {
+					if (this.multiplexingEnabled
+						&& getChannelMultiplexer(transferEnvelope.getJobID(), remoteReceiver).multiplex(transferEnvelope)) {
+						continue;
+					}
 					TransferEnvelope dup = transferEnvelope.duplicate();
 					this.networkConnectionManager.queueEnvelopeForTransfer(remoteReceiver, dup);
 				}
@@ -463,6 +731,7 @@ public final class ByteBufferedChannelManager implements TransferEnvelopeDispatc
 		while (remoteIt.hasNext()) {
 
 			final RemoteReceiver remoteReceiver = remoteIt.next();
+			flushChannelMultiplexer(transferEnvelope.getJobID(), remoteReceiver);
 			this.networkConnectionManager.queueEnvelopeForTransfer(remoteReceiver, transferEnvelope);
 		}
 	}
@@ -502,6 +771,7 @@ public final class ByteBufferedChannelManager implements TransferEnvelopeDispatc
 		while (remoteIt.hasNext()) {
 
 			final RemoteReceiver rr = remoteIt.next();
+			flushChannelMultiplexer(senderHint.getJobID(), rr);
 			this.networkConnectionManager.queueEnvelopeForTransfer(rr, senderHint);
 		}
 	}
@@ -619,6 +889,11 @@ public final class ByteBufferedChannelManager implements TransferEnvelopeDispatc
 	public void processEnvelopeFromNetwork(final TransferEnvelope transferEnvelope, boolean freeSourceBuffer)
 			throws IOException, InterruptedException {
 
+		// Check if the envelope has been sent by a channel multiplexer
+		if (processMultiplexedEnvelope(transferEnvelope)) {
+			return;
+		}
+
 		// Check if the envelope is the special envelope with the sender hint event
 		if (SenderHintEvent.isSenderHintEvent(transferEnvelope)) {
 
@@ -642,7 +917,10 @@ public final class ByteBufferedChannelManager implements TransferEnvelopeDispatc
 
 		System.out.println("Buffer utilization at " + System.currentTimeMillis());
 
-		System.out.println("\tUnused global buffers: " + GlobalBufferPool.getInstance().getCurrentNumberOfBuffers());
+		final GlobalBufferPool globalBufferPool = GlobalBufferPool.getInstance();
+		System.out.println("\tUnused global buffers: " + globalBufferPool.getCurrentNumberOfBuffers() + " of "
+			+ globalBufferPool.getTotalNumberOfBuffers() + " allocated (maximum "
+			+ globalBufferPool.getMaximumNumberOfBuffers() + ")");
 
 		System.out.println("\tLocal buffer pool status:");
 
@@ -677,6 +955,11 @@ public final class ByteBufferedChannelManager implements TransferEnvelopeDispatc
 	public BufferProvider getBufferProvider(final JobID jobID, final ChannelID sourceChannelID) throws IOException,
 			InterruptedException {
 
+		// Multiplexed buffers are read into the shared multiplexing buffer pool
+		if (this.channelDemultiplexers.containsKey(sourceChannelID)) {
+			return this.multiplexingBufferPool;
+		}
+
 		final TransferEnvelopeReceiverList receiverList = getReceiverList(jobID, sourceChannelID);
 
 		// Receiver could not be determined, use transit buffer pool to read data from channel
@@ -723,15 +1006,15 @@ public final class ByteBufferedChannelManager implements TransferEnvelopeDispatc
 	 */
 	private void checkBufferAvailability(final Task task) throws InsufficientResourcesException {
 
-		final int totalNumberOfBuffers = GlobalBufferPool.getInstance().getTotalNumberOfBuffers();
-		int numberOfAlreadyRegisteredChannels = this.registeredChannels.size();
-		if (this.multicastEnabled) {
-			numberOfAlreadyRegisteredChannels += NUMBER_OF_CHANNELS_FOR_MULTICAST;
-		}
+		final int totalNumberOfBuffers = GlobalBufferPool.getInstance().getReachableNumberOfBuffers();
+		final int numberOfAlreadyRegisteredChannels = getNumberOfChannelsToAccountFor();
 
 		final Environment env = task.getEnvironment();
 
-		final int numberOfNewChannels = env.getNumberOfOutputChannels() + env.getNumberOfInputChannels();
+		int numberOfNewChannels = env.getNumberOfOutputChannels() + env.getNumberOfInputChannels();
+		if (this.multiplexingEnabled) {
+			numberOfNewChannels -= getNumberOfMultiplexedOutputChannels(env);
+		}
 		final int totalNumberOfChannels = numberOfAlreadyRegisteredChannels + numberOfNewChannels;
 
 		final double buffersPerChannel = (double) totalNumberOfBuffers
@@ -756,11 +1039,8 @@ public final class ByteBufferedChannelManager implements TransferEnvelopeDispatc
 	 */
 	private void redistributeGlobalBuffers() {
 
-		final int totalNumberOfBuffers = GlobalBufferPool.getInstance().getTotalNumberOfBuffers();
-		int totalNumberOfChannels = this.registeredChannels.size();
-		if (this.multicastEnabled) {
-			totalNumberOfChannels += NUMBER_OF_CHANNELS_FOR_MULTICAST;
-		}
+		final int totalNumberOfBuffers = GlobalBufferPool.getInstance().getReachableNumberOfBuffers();
+		final int totalNumberOfChannels = getNumberOfChannelsToAccountFor();
 		final double buffersPerChannel = (double) totalNumberOfBuffers / (double) totalNumberOfChannels;
 		if (buffersPerChannel < 1.0) {
 			LOG.warn("System is low on memory buffers. This may result in reduced performance.");
@@ -785,6 +1065,42 @@ public final class ByteBufferedChannelManager implements TransferEnvelopeDispatc
 			this.transitBufferPool.setDesignatedNumberOfBuffers((int) Math.ceil(buffersPerChannel
 				* NUMBER_OF_CHANNELS_FOR_MULTICAST));
 		}
+
+		this.multiplexingBufferPool.setDesignatedNumberOfBuffers((int) Math.ceil(buffersPerChannel
+			* getNumberOfMultiplexedChannels()));
+	}
+
+	/**
+	 * Returns the number of channels the global buffers must currently be distributed among.
+	 * 
+	 * @return the number of channels the global buffers must currently be distributed among
+	 */
+	private int getNumberOfChannelsToAccountFor() {
+
+		int numberOfChannels = this.registeredChannels.size() - this.numberOfMultiplexedOutputChannels.get();
+		if (this.multicastEnabled) {
+			numberOfChannels += NUMBER_OF_CHANNELS_FOR_MULTICAST;
+		}
+
+		return numberOfChannels + getNumberOfMultiplexedChannels();
+	}
+
+	/**
+	 * Returns the number of channel multiplexers and demultiplexers which each require a shared buffer.
+	 * 
+	 * @return the number of channel multiplexers and demultiplexers
+	 */
+	private int getNumberOfMultiplexedChannels() {
+
+		int numberOfMultiplexedChannels = this.channelDemultiplexers.size();
+
+		final Iterator<ConcurrentMap<RemoteReceiver, ChannelMultiplexer>> it = this.channelMultiplexers.values()
+			.iterator();
+		while (it.hasNext()) {
+			numberOfMultiplexedChannels += it.next().size();
+		}
+
+		return numberOfMultiplexedChannels;
 	}
 
 	/**
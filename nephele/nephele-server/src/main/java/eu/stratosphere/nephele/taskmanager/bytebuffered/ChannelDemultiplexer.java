@@ -0,0 +1,140 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.taskmanager.bytebuffered;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import eu.stratosphere.nephele.io.channels.Buffer;
+import eu.stratosphere.nephele.io.channels.ChannelID;
+import eu.stratosphere.nephele.jobgraph.JobID;
+import eu.stratosphere.nephele.taskmanager.bufferprovider.BufferProvider;
+import eu.stratosphere.nephele.taskmanager.bufferprovider.BufferProviderBroker;
+import eu.stratosphere.nephele.taskmanager.transferenvelope.TransferEnvelope;
+import eu.stratosphere.nephele.taskmanager.transferenvelope.TransferEnvelopeDispatcher;
+
+/**
+ * A channel demultiplexer is the receiving counterpart of a {@link ChannelMultiplexer}. It splits the shared buffers
+ * into the frames of the individual source channels and dispatches each frame as a regular {@link TransferEnvelope}
+ * with the original sequence number.
+ * <p>
+ * Each frame is copied into a buffer of the receiving input channel, so the receiver still accounts for its input
+ * channels individually. Multiplexing therefore only reduces the number of buffers on the sending side and the number
+ * of envelopes sent over the network.
+ * <p>
+ * This class is thread-safe.
+ */
+final class ChannelDemultiplexer {
+
+	/**
+	 * The IDs of the declared source channels, indexed by their sub-channel ID.
+	 */
+	private final List<ChannelID> sources = new ArrayList<ChannelID>();
+
+	/**
+	 * Buffer to read the frame headers.
+	 */
+	private final ByteBuffer frameHeader = ByteBuffer.allocate(ChannelMultiplexer.FRAME_HEADER_SIZE);
+
+	/**
+	 * Registers the sub-channel declarations contained in the given event.
+	 *
+	 * @param multiplexedChannelEvent
+	 *        the event containing the sub-channel declarations
+	 * @throws IOException
+	 *         thrown if the declarations do not continue the previously declared sub-channels
+	 */
+	synchronized void declareSources(final MultiplexedChannelEvent multiplexedChannelEvent) throws IOException {
+
+		final List<ChannelID> declaredSources = multiplexedChannelEvent.getSources();
+		if (declaredSources.isEmpty()) {
+			return;
+		}
+
+		if (multiplexedChannelEvent.getFirstSubChannelID() != this.sources.size()) {
+			throw new IOException("Expected declaration of sub-channel " + this.sources.size() + " but received "
+				+ multiplexedChannelEvent.getFirstSubChannelID());
+		}
+
+		this.sources.addAll(declaredSources);
+	}
+
+	/**
+	 * Splits the buffer of the given multiplexed transfer envelope into the frames of the individual source channels
+	 * and dispatches them. The buffer of the multiplexed envelope is recycled afterwards.
+	 *
+	 * @param transferEnvelope
+	 *        the multiplexed transfer envelope
+	 * @param bufferProviderBroker
+	 *        the broker to obtain the buffer providers for the individual source channels from
+	 * @param transferEnvelopeDispatcher
+	 *        the dispatcher to pass the demultiplexed envelopes to
+	 * @throws IOException
+	 *         thrown if the buffer is malformed or an error occurs while dispatching the frames
+	 * @throws InterruptedException
+	 *         thrown if the caller is interrupted while waiting for a buffer
+	 */
+	synchronized void demultiplex(final TransferEnvelope transferEnvelope,
+			final BufferProviderBroker bufferProviderBroker, final TransferEnvelopeDispatcher transferEnvelopeDispatcher)
+			throws IOException, InterruptedException {
+
+		final JobID jobID = transferEnvelope.getJobID();
+		final Buffer buffer = transferEnvelope.getBuffer();
+
+		try {
+			while (buffer.hasRemaining()) {
+
+				this.frameHeader.clear();
+				buffer.read(this.frameHeader);
+				if (this.frameHeader.hasRemaining()) {
+					throw new IOException("Multiplexed buffer ends within a frame header");
+				}
+
+				final int subChannelID = this.frameHeader.getInt(0);
+				final int sequenceNumber = this.frameHeader.getInt(4);
+				final int length = this.frameHeader.getInt(8);
+
+				if (subChannelID < 0 || subChannelID >= this.sources.size()) {
+					throw new IOException("Received frame for undeclared sub-channel " + subChannelID);
+				}
+
+				if (length <= 0 || length > buffer.remaining()) {
+					throw new IOException("Invalid frame length " + length);
+				}
+
+				final ChannelID source = this.sources.get(subChannelID);
+				final BufferProvider bufferProvider = bufferProviderBroker.getBufferProvider(jobID, source);
+				final Buffer frameBuffer = bufferProvider.requestEmptyBufferBlocking(length);
+
+				frameBuffer.write(buffer);
+				if (frameBuffer.hasRemaining()) {
+					frameBuffer.recycleBuffer();
+					throw new IOException("Could not read frame of length " + length + " from multiplexed buffer");
+				}
+				frameBuffer.flip();
+
+				final TransferEnvelope frameEnvelope = new TransferEnvelope(sequenceNumber, jobID, source);
+				frameEnvelope.setBuffer(frameBuffer);
+
+				transferEnvelopeDispatcher.processEnvelopeFromNetwork(frameEnvelope, bufferProvider.isShared());
+			}
+		} finally {
+			buffer.recycleBuffer();
+		}
+	}
+}
@@ -0,0 +1,285 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.taskmanager.bytebuffered;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import eu.stratosphere.nephele.io.channels.Buffer;
+import eu.stratosphere.nephele.io.channels.ChannelID;
+import eu.stratosphere.nephele.jobgraph.JobID;
+import eu.stratosphere.nephele.taskmanager.bufferprovider.BufferProvider;
+import eu.stratosphere.nephele.taskmanager.transferenvelope.TransferEnvelope;
+
+/**
+ * A channel multiplexer packs the buffers of all channels of a job which are headed to the same remote receiver into
+ * shared buffers. Each packed buffer is preceded by a frame header consisting of a compact sub-channel ID, the
+ * sequence number of the original {@link TransferEnvelope} and the length of the data. The mapping from sub-channel
+ * IDs to the source channels is declared to the receiver by {@link MultiplexedChannelEvent} objects which are
+ * attached to the shared buffers.
+ * <p>
+ * The shared buffer is handed over to the network when it cannot take another frame, when an envelope without
+ * multiplexable data is sent to the same receiver, or when it has been open for longer than the flush interval.
+ * <p>
+ * This class is thread-safe.
+ */
+final class ChannelMultiplexer {
+
+	/**
+	 * The size of a frame header in bytes.
+	 */
+	static final int FRAME_HEADER_SIZE = 12;
+
+	/**
+	 * The ID of the job the multiplexed channels belong to.
+	 */
+	private final JobID jobID;
+
+	/**
+	 * The ID under which the shared buffers of this multiplexer are transmitted.
+	 */
+	private final ChannelID multiplexedChannelID = new ChannelID();
+
+	/**
+	 * The receiver the shared buffers are transmitted to.
+	 */
+	private final RemoteReceiver remoteReceiver;
+
+	/**
+	 * The network connection manager used to transmit the shared buffers.
+	 */
+	private final NetworkConnectionManager networkConnectionManager;
+
+	/**
+	 * The buffer provider to obtain the shared buffers from.
+	 */
+	private final BufferProvider bufferProvider;
+
+	/**
+	 * Maps the IDs of the source channels to their sub-channel IDs.
+	 */
+	private final Map<ChannelID, Integer> subChannelIDs = new HashMap<ChannelID, Integer>();
+
+	/**
+	 * The source channels which have been assigned a sub-channel ID but have not been declared to the receiver yet.
+	 */
+	private final List<ChannelID> pendingDeclarations = new ArrayList<ChannelID>();
+
+	/**
+	 * Buffer to assemble the frame headers.
+	 */
+	private final ByteBuffer frameHeader = ByteBuffer.allocate(FRAME_HEADER_SIZE);
+
+	/**
+	 * The sub-channel ID of the first pending declaration.
+	 */
+	private int firstPendingSubChannelID = 0;
+
+	/**
+	 * The sequence number for the next {@link TransferEnvelope} to be created.
+	 */
+	private int sequenceNumber = 0;
+
+	/**
+	 * The shared buffer which is currently filled or <code>null</code> if no buffer is currently open.
+	 */
+	private Buffer currentBuffer = null;
+
+	/**
+	 * The time in milliseconds at which the current buffer has been opened.
+	 */
+	private long currentBufferOpenTime = 0L;
+
+	/**
+	 * Stores whether this multiplexer has been closed.
+	 */
+	private boolean isClosed = false;
+
+	/**
+	 * Constructs a new channel multiplexer and announces it to the receiver.
+	 *
+	 * @param jobID
+	 *        the ID of the job the multiplexed channels belong to
+	 * @param remoteReceiver
+	 *        the receiver the shared buffers are transmitted to
+	 * @param networkConnectionManager
+	 *        the network connection manager used to transmit the shared buffers
+	 * @param bufferProvider
+	 *        the buffer provider to obtain the shared buffers from
+	 */
+	ChannelMultiplexer(final JobID jobID, final RemoteReceiver remoteReceiver,
+			final NetworkConnectionManager networkConnectionManager, final BufferProvider bufferProvider) {
+
+		this.jobID = jobID;
+		this.remoteReceiver = remoteReceiver;
+		this.networkConnectionManager = networkConnectionManager;
+		this.bufferProvider = bufferProvider;
+
+		queueEvent(new MultiplexedChannelEvent(0, new ArrayList<ChannelID>(0), false));
+	}
+
+	/**
+	 * Packs the buffer of the given transfer envelope into the current shared buffer. The buffer of the envelope is
+	 * not modified and must still be recycled by the caller. If the envelope cannot be multiplexed, the current shared
+	 * buffer is handed over to the network first, so the caller can transmit the envelope directly without violating
+	 * the order of the envelopes.
+	 *
+	 * @param transferEnvelope
+	 *        the envelope whose buffer shall be multiplexed
+	 * @return <code>true</code> if the buffer has been multiplexed, <code>false</code> if the envelope must be
+	 *         transmitted directly
+	 * @throws IOException
+	 *         thrown if an I/O error occurs while copying the buffer
+	 * @throws InterruptedException
+	 *         thrown if the caller is interrupted while waiting for a shared buffer
+	 */
+	synchronized boolean multiplex(final TransferEnvelope transferEnvelope) throws IOException, InterruptedException {
+
+		final Buffer buffer = transferEnvelope.getBuffer();
+		final int frameSize = FRAME_HEADER_SIZE + buffer.size();
+
+		if (this.isClosed || !buffer.isBackedByMemory() || transferEnvelope.getEventList() != null
+			|| frameSize > this.bufferProvider.getMaximumBufferSize()) {
+			flush();
+			return false;
+		}
+
+		if (this.currentBuffer != null && this.currentBuffer.remaining() < frameSize) {
+			flush();
+		}
+
+		if (this.currentBuffer == null) {
+			this.currentBuffer = this.bufferProvider.requestEmptyBufferBlocking(this.bufferProvider
+				.getMaximumBufferSize());
+			this.currentBufferOpenTime = System.currentTimeMillis();
+		}
+
+		final ChannelID source = transferEnvelope.getSource();
+		Integer subChannelID = this.subChannelIDs.get(source);
+		if (subChannelID == null) {
+			subChannelID = Integer.valueOf(this.subChannelIDs.size());
+			this.subChannelIDs.put(source, subChannelID);
+			this.pendingDeclarations.add(source);
+		}
+
+		this.frameHeader.clear();
+		this.frameHeader.putInt(subChannelID.intValue());
+		this.frameHeader.putInt(transferEnvelope.getSequenceNumber());
+		this.frameHeader.putInt(buffer.size());
+		this.frameHeader.flip();
+		this.currentBuffer.write(this.frameHeader);
+
+		// Work on a duplicate, so the read position of the original buffer remains untouched
+		final Buffer duplicate = buffer.duplicate();
+		try {
+			while (duplicate.hasRemaining()) {
+				duplicate.writeTo(this.currentBuffer);
+			}
+		} finally {
+			duplicate.recycleBuffer();
+		}
+
+		if (this.currentBuffer.remaining() <= FRAME_HEADER_SIZE) {
+			flush();
+		}
+
+		return true;
+	}
+
+	/**
+	 * Hands the current shared buffer over to the network, together with the declarations of the sub-channels that
+	 * have been used for the first time.
+	 */
+	synchronized void flush() {
+
+		if (this.currentBuffer == null) {
+			return;
+		}
+
+		final TransferEnvelope transferEnvelope = new TransferEnvelope(this.sequenceNumber++, this.jobID,
+			this.multiplexedChannelID);
+
+		if (!this.pendingDeclarations.isEmpty()) {
+			transferEnvelope.addEvent(new MultiplexedChannelEvent(this.firstPendingSubChannelID,
+				new ArrayList<ChannelID>(this.pendingDeclarations), false));
+			this.firstPendingSubChannelID += this.pendingDeclarations.size();
+			this.pendingDeclarations.clear();
+		}
+
+		this.currentBuffer.flip();
+		transferEnvelope.setBuffer(this.currentBuffer);
+		this.currentBuffer = null;
+
+		this.networkConnectionManager.queueEnvelopeForTransfer(this.remoteReceiver, transferEnvelope);
+	}
+
+	/**
+	 * Hands the current shared buffer over to the network if it has been opened before the given point in time.
+	 *
+	 * @param timestamp
+	 *        the point in time in milliseconds
+	 */
+	synchronized void flushIfOpenedBefore(final long timestamp) {
+
+		if (this.currentBuffer != null && this.currentBufferOpenTime <= timestamp) {
+			flush();
+		}
+	}
+
+	/**
+	 * Hands the current shared buffer over to the network and notifies the receiver that this multiplexer will not
+	 * transmit any further data.
+	 */
+	synchronized void close() {
+
+		if (this.isClosed) {
+			return;
+		}
+
+		flush();
+		queueEvent(new MultiplexedChannelEvent(0, new ArrayList<ChannelID>(0), true));
+		this.isClosed = true;
+	}
+
+	/**
+	 * Returns the ID under which the shared buffers of this multiplexer are transmitted.
+	 *
+	 * @return the ID under which the shared buffers of this multiplexer are transmitted
+	 */
+	ChannelID getMultiplexedChannelID() {
+
+		return this.multiplexedChannelID;
+	}
+
+	/**
+	 * Transmits the given event to the receiver without any data.
+	 *
+	 * @param event
+	 *        the event to transmit
+	 */
+	private void queueEvent(final MultiplexedChannelEvent event) {
+
+		final TransferEnvelope transferEnvelope = new TransferEnvelope(this.sequenceNumber++, this.jobID,
+			this.multiplexedChannelID);
+		transferEnvelope.addEvent(event);
+
+		this.networkConnectionManager.queueEnvelopeForTransfer(this.remoteReceiver, transferEnvelope);
+	}
+}
@@ -0,0 +1,167 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.taskmanager.bytebuffered;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import eu.stratosphere.nephele.event.task.AbstractEvent;
+import eu.stratosphere.nephele.event.task.EventList;
+import eu.stratosphere.nephele.io.channels.ChannelID;
+import eu.stratosphere.nephele.taskmanager.transferenvelope.TransferEnvelope;
+
+/**
+ * This event is attached to the transfer envelopes of a {@link ChannelMultiplexer}. It announces the multiplexer to
+ * the receiving task manager, declares the compact sub-channel IDs which identify the individual source channels in
+ * the multiplexed buffers and finally signals that the multiplexer has been closed.
+ */
+public final class MultiplexedChannelEvent extends AbstractEvent {
+
+	/**
+	 * The sub-channel ID of the first declared channel. The following channels have consecutive sub-channel IDs.
+	 */
+	private int firstSubChannelID;
+
+	/**
+	 * The IDs of the source channels which are declared by this event.
+	 */
+	private final List<ChannelID> sources;
+
+	/**
+	 * Stores whether the multiplexer has been closed.
+	 */
+	private boolean isClosing;
+
+	/**
+	 * Constructs a new multiplexed channel event.
+	 *
+	 * @param firstSubChannelID
+	 *        the sub-channel ID of the first declared channel
+	 * @param sources
+	 *        the IDs of the source channels which are declared by this event
+	 * @param isClosing
+	 *        <code>true</code> if the multiplexer has been closed, <code>false</code> otherwise
+	 */
+	MultiplexedChannelEvent(final int firstSubChannelID, final List<ChannelID> sources, final boolean isClosing) {
+
+		if (sources == null) {
+			throw new IllegalArgumentException("Argument sources must not be null");
+		}
+
+		this.firstSubChannelID = firstSubChannelID;
+		this.sources = sources;
+		this.isClosing = isClosing;
+	}
+
+	/**
+	 * Default constructor for serialization/deserialization.
+	 */
+	public MultiplexedChannelEvent() {
+
+		this.firstSubChannelID = 0;
+		this.sources = new ArrayList<ChannelID>();
+		this.isClosing = false;
+	}
+
+	/**
+	 * Returns the sub-channel ID of the first declared channel.
+	 *
+	 * @return the sub-channel ID of the first declared channel
+	 */
+	public int getFirstSubChannelID() {
+
+		return this.firstSubChannelID;
+	}
+
+	/**
+	 * Returns the IDs of the source channels which are declared by this event.
+	 *
+	 * @return the IDs of the source channels which are declared by this event
+	 */
+	public List<ChannelID> getSources() {
+
+		return this.sources;
+	}
+
+	/**
+	 * Checks whether the multiplexer has been closed.
+	 *
+	 * @return <code>true</code> if the multiplexer has been closed, <code>false</code> otherwise
+	 */
+	public boolean isClosing() {
+
+		return this.isClosing;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void write(final DataOutput out) throws IOException {
+
+		out.writeInt(this.firstSubChannelID);
+		out.writeBoolean(this.isClosing);
+		out.writeInt(this.sources.size());
+		for (final ChannelID source : this.sources) {
+			source.write(out);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void read(final DataInput in) throws IOException {
+
+		this.firstSubChannelID = in.readInt();
+		this.isClosing = in.readBoolean();
+		final int numberOfSources = in.readInt();
+		for (int i = 0; i < numberOfSources; ++i) {
+			final ChannelID source = new ChannelID();
+			source.read(in);
+			this.sources.add(source);
+		}
+	}
+
+	/**
+	 * Returns the multiplexed channel event attached to the given transfer envelope.
+	 *
+	 * @param transferEnvelope
+	 *        the transfer envelope to check
+	 * @return the multiplexed channel event attached to the envelope or <code>null</code> if the envelope does not
+	 *         carry such an event
+	 */
+	static MultiplexedChannelEvent getMultiplexedChannelEvent(final TransferEnvelope transferEnvelope) {
+
+		final EventList eventList = transferEnvelope.getEventList();
+		if (eventList == null) {
+			return null;
+		}
+
+		if (eventList.size() != 1) {
+			return null;
+		}
+
+		if (!(eventList.get(0) instanceof MultiplexedChannelEvent)) {
+			return null;
+		}
+
+		return (MultiplexedChannelEvent) eventList.get(0);
+	}
+}
@@ -15,6 +15,7 @@
 
 package eu.stratosphere.nephele.taskmanager.bytebuffered;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
@@ -30,7 +31,9 @@ import eu.stratosphere.nephele.configuration.GlobalConfiguration;
 import eu.stratosphere.nephele.taskmanager.transferenvelope.TransferEnvelope;
 
 /**
- * The network connection manager manages incoming and outgoing network connection from and to other hosts.
+ * The network connection manager manages incoming and outgoing network connection from and to other hosts. If the
+ * shared memory transport is enabled, envelopes for other task managers on the same host are transfered through a
+ * {@link SharedMemoryConnectionThread} instead of a TCP connection.
  * <p>
  * This class is thread-safe.
  * 
@@ -48,6 +51,16 @@ public final class NetworkConnectionManager {
 	 */
 	private static final int DEFAULT_NUMBER_OF_CONNECTION_RETRIES = 10;
 
+	/**
+	 * The default directory to create the ring buffers of shared memory connections in.
+	 */
+	private static final String DEFAULT_SHARED_MEMORY_DIRECTORY = "/dev/shm";
+
+	/**
+	 * The default capacity of a shared memory connection's ring buffer in bytes.
+	 */
+	private static final int DEFAULT_SHARED_MEMORY_RING_SIZE = 4 * 1024 * 1024;
+
 	/**
 	 * List of active threads dealing with outgoing connections.
 	 */
@@ -58,6 +71,12 @@ public final class NetworkConnectionManager {
 	 */
 	private final IncomingConnectionThread incomingConnectionThread;
 
+	/**
+	 * Thread dealing with shared memory connections to other task managers on the same host, possibly
+	 * <code>null</code>.
+	 */
+	private final SharedMemoryConnectionThread sharedMemoryConnectionThread;
+
 	/**
 	 * Map containing currently active outgoing connections.
 	 */
@@ -96,6 +115,19 @@ public final class NetworkConnectionManager {
 
 		this.numberOfConnectionRetries = configuration.getInteger("channel.network.numberOfConnectionRetries",
 			DEFAULT_NUMBER_OF_CONNECTION_RETRIES);
+
+		final File sharedMemoryDirectory = new File(configuration.getString(
+			"channel.network.sharedMemory.directory", DEFAULT_SHARED_MEMORY_DIRECTORY));
+		if (configuration.getBoolean("channel.network.sharedMemory.enabled", false)
+			&& sharedMemoryDirectory.isDirectory()) {
+
+			this.sharedMemoryConnectionThread = new SharedMemoryConnectionThread(this.byteBufferedChannelManager, this,
+				sharedMemoryDirectory, dataPort, configuration.getInteger("channel.network.sharedMemory.ringSizeInBytes",
+					DEFAULT_SHARED_MEMORY_RING_SIZE));
+			this.sharedMemoryConnectionThread.start();
+		} else {
+			this.sharedMemoryConnectionThread = null;
+		}
 	}
 
 	/**
@@ -118,6 +150,24 @@ public final class NetworkConnectionManager {
 	 */
 	public void queueEnvelopeForTransfer(final RemoteReceiver remoteReceiver, final TransferEnvelope transferEnvelope) {
 
+		if (this.sharedMemoryConnectionThread != null
+			&& this.sharedMemoryConnectionThread.queueEnvelope(remoteReceiver, transferEnvelope)) {
+			return;
+		}
+
+		queueEnvelopeForTCPTransfer(remoteReceiver, transferEnvelope);
+	}
+
+	/**
+	 * Queues an envelope for transfer to a particular target host through a TCP connection.
+	 * 
+	 * @param remoteReceiver
+	 *        the address of the remote receiver
+	 * @param transferEnvelope
+	 *        the envelope to be transfered
+	 */
+	void queueEnvelopeForTCPTransfer(final RemoteReceiver remoteReceiver, final TransferEnvelope transferEnvelope) {
+
 		getOutgoingConnection(remoteReceiver).queueEnvelope(transferEnvelope);
 	}
 
@@ -154,6 +204,10 @@ public final class NetworkConnectionManager {
 		// Interrupt the threads we started
 		this.incomingConnectionThread.interrupt();
 
+		if (this.sharedMemoryConnectionThread != null) {
+			this.sharedMemoryConnectionThread.interrupt();
+		}
+
 		final Iterator<OutgoingConnectionThread> it = this.outgoingConnectionThreads.iterator();
 		while (it.hasNext()) {
 			it.next().interrupt();
@@ -172,5 +226,9 @@ public final class NetworkConnectionManager {
 			final Map.Entry<RemoteReceiver, OutgoingConnection> entry = it.next();
 			System.out.println("\t\tOC " + entry.getKey() + ": " + entry.getValue().getNumberOfQueuedWriteBuffers());
 		}
+
+		if (this.sharedMemoryConnectionThread != null) {
+			this.sharedMemoryConnectionThread.logBufferUtilization();
+		}
 	}
 }
@@ -0,0 +1,609 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.taskmanager.bytebuffered;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import eu.stratosphere.nephele.taskmanager.bufferprovider.BufferAvailabilityListener;
+import eu.stratosphere.nephele.taskmanager.transferenvelope.NoBufferAvailableException;
+import eu.stratosphere.nephele.taskmanager.transferenvelope.TransferEnvelope;
+import eu.stratosphere.nephele.util.StringUtils;
+
+/**
+ * The shared memory connection thread transfers envelopes between task managers running on the same host through
+ * {@link SharedMemoryRingBuffer}s instead of loopback TCP connections. For every remote receiver on the same host, the
+ * sending task manager creates a ring buffer file in a shared directory (usually <code>/dev/shm</code>) whose name
+ * encodes the data port of the receiving task manager. The receiving task manager periodically scans the directory for
+ * such files and attaches to them.
+ * <p>
+ * Both sides use the regular transfer envelope serializers, so sequence numbers and event semantics are identical to
+ * TCP connections. Backpressure is provided by the bounded capacity of the ring buffers on the sending side and by
+ * buffer availability listeners on the receiving side. If a receiver does not attach to a ring buffer in time, for
+ * example because it has the shared memory transport disabled, the queued envelopes are handed over to a TCP
+ * connection and the receiver is no longer contacted through shared memory.
+ * <p>
+ * This class is thread-safe.
+ */
+public final class SharedMemoryConnectionThread extends Thread {
+
+	/**
+	 * The log object used to report debug information and possible errors.
+	 */
+	private static final Log LOG = LogFactory.getLog(SharedMemoryConnectionThread.class);
+
+	/**
+	 * The prefix of all ring buffer file names.
+	 */
+	private static final String FILE_PREFIX = "nephele-";
+
+	/**
+	 * The suffix of all ring buffer file names.
+	 */
+	private static final String FILE_SUFFIX = ".ring";
+
+	/**
+	 * The interval in milliseconds in which the shared directory is scanned for new ring buffers.
+	 */
+	private static final long SCAN_INTERVAL = 100L;
+
+	/**
+	 * The interval in milliseconds in which the receiving side signals that it is alive.
+	 */
+	private static final long HEARTBEAT_INTERVAL = 1000L;
+
+	/**
+	 * The time in milliseconds a receiver may take to attach to a new ring buffer before TCP is used instead.
+	 */
+	private static final long ATTACH_TIMEOUT = 10000L;
+
+	/**
+	 * The time in milliseconds without a sign of life after which a receiver is considered to be lost.
+	 */
+	private static final long HEARTBEAT_TIMEOUT = 30000L;
+
+	/**
+	 * The maximum number of consecutive reads from a single incoming ring buffer per round.
+	 */
+	private static final int MAXIMUM_READS_PER_ROUND = 64;
+
+	/**
+	 * The number of idle rounds in which the thread only yields before it starts to park.
+	 */
+	private static final int SPIN_ROUNDS = 64;
+
+	/**
+	 * The maximum time in nanoseconds the thread parks while it is idle.
+	 */
+	private static final long MAXIMUM_PARK_TIME = 1000000L;
+
+	/**
+	 * An incoming connection reading from a ring buffer created by another task manager.
+	 */
+	private static final class IncomingRingBuffer implements BufferAvailabilityListener {
+
+		private final IncomingConnection incomingConnection;
+
+		private final SharedMemoryRingBuffer ringBuffer;
+
+		private final Thread connectionThread;
+
+		private volatile boolean waitingForBuffer = false;
+
+		private IncomingRingBuffer(final IncomingConnection incomingConnection,
+				final SharedMemoryRingBuffer ringBuffer, final Thread connectionThread) {
+
+			this.incomingConnection = incomingConnection;
+			this.ringBuffer = ringBuffer;
+			this.connectionThread = connectionThread;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void bufferAvailable() {
+
+			this.waitingForBuffer = false;
+			LockSupport.unpark(this.connectionThread);
+		}
+	}
+
+	/**
+	 * The byte buffered channel manager which handles and dispatches the received transfer envelopes.
+	 */
+	private final ByteBufferedChannelManager byteBufferedChannelManager;
+
+	/**
+	 * The network connection manager used to fall back to TCP connections.
+	 */
+	private final NetworkConnectionManager networkConnectionManager;
+
+	/**
+	 * The directory to create the ring buffer files in.
+	 */
+	private final File directory;
+
+	/**
+	 * The data port of this task manager which identifies the ring buffers it shall read from.
+	 */
+	private final int localDataPort;
+
+	/**
+	 * The capacity of newly created ring buffers in bytes.
+	 */
+	private final int ringBufferCapacity;
+
+	/**
+	 * The prefix of the file names of ring buffers this task manager shall read from.
+	 */
+	private final String incomingPrefix;
+
+	/**
+	 * Random number generator to create unique ring buffer file names.
+	 */
+	private final Random random = new Random();
+
+	/**
+	 * Map containing currently active outgoing connections.
+	 */
+	private final ConcurrentMap<RemoteReceiver, SharedMemoryOutgoingConnection> outgoingConnections = new ConcurrentHashMap<RemoteReceiver, SharedMemoryOutgoingConnection>();
+
+	/**
+	 * The receivers which turned out not to support shared memory connections.
+	 */
+	private final Set<RemoteReceiver> tcpOnlyReceivers = Collections
+		.newSetFromMap(new ConcurrentHashMap<RemoteReceiver, Boolean>());
+
+	/**
+	 * Cache storing for each address whether it belongs to this host.
+	 */
+	private final ConcurrentMap<InetAddress, Boolean> localAddressCache = new ConcurrentHashMap<InetAddress, Boolean>();
+
+	/**
+	 * The incoming ring buffers, only accessed by this thread.
+	 */
+	private final List<IncomingRingBuffer> incomingRingBuffers = new ArrayList<IncomingRingBuffer>();
+
+	/**
+	 * Stores whether this thread can attach to incoming ring buffers, only accessed by this thread.
+	 */
+	private boolean attachSupported = true;
+
+	/**
+	 * Stores whether this thread is currently parked and needs to be woken up for new envelopes.
+	 */
+	private volatile boolean isParked = false;
+
+	/**
+	 * Constructs a new shared memory connection thread.
+	 *
+	 * @param byteBufferedChannelManager
+	 *        the byte buffered channel manager which handles and dispatches the received transfer envelopes
+	 * @param networkConnectionManager
+	 *        the network connection manager used to fall back to TCP connections
+	 * @param directory
+	 *        the directory to create the ring buffer files in
+	 * @param localDataPort
+	 *        the data port of this task manager
+	 * @param ringBufferCapacity
+	 *        the capacity of newly created ring buffers in bytes
+	 */
+	public SharedMemoryConnectionThread(final ByteBufferedChannelManager byteBufferedChannelManager,
+			final NetworkConnectionManager networkConnectionManager, final File directory, final int localDataPort,
+			final int ringBufferCapacity) {
+		super("Shared Memory Connection Thread");
+
+		this.byteBufferedChannelManager = byteBufferedChannelManager;
+		this.networkConnectionManager = networkConnectionManager;
+		this.directory = directory;
+		this.localDataPort = localDataPort;
+		this.ringBufferCapacity = ringBufferCapacity;
+		this.incomingPrefix = FILE_PREFIX + localDataPort + "-";
+
+		setDaemon(true);
+	}
+
+	/**
+	 * Queues an envelope for transfer to the given receiver through a shared memory connection if the receiver runs on
+	 * the same host.
+	 *
+	 * @param remoteReceiver
+	 *        the receiver of the envelope
+	 * @param transferEnvelope
+	 *        the envelope to be transfered
+	 * @return <code>true</code> if the envelope has been queued, <code>false</code> if it must be transfered through a
+	 *         TCP connection
+	 */
+	public boolean queueEnvelope(final RemoteReceiver remoteReceiver, final TransferEnvelope transferEnvelope) {
+
+		if (!isLocal(remoteReceiver) || this.tcpOnlyReceivers.contains(remoteReceiver)) {
+			return false;
+		}
+
+		while (true) {
+
+			final SharedMemoryOutgoingConnection outgoingConnection = getOutgoingConnection(remoteReceiver);
+			if (outgoingConnection == null) {
+				return false;
+			}
+
+			if (outgoingConnection.queueEnvelope(transferEnvelope)) {
+				if (this.isParked) {
+					LockSupport.unpark(this);
+				}
+				return true;
+			}
+
+			if (outgoingConnection.isAbandoned()) {
+				return false;
+			}
+
+			// The connection has been closed due to an error, try a new one
+			this.outgoingConnections.remove(remoteReceiver, outgoingConnection);
+		}
+	}
+
+	/**
+	 * Checks whether the given receiver is a different task manager on the same host.
+	 *
+	 * @param remoteReceiver
+	 *        the receiver to check
+	 * @return <code>true</code> if the receiver runs on the same host, <code>false</code> otherwise
+	 */
+	private boolean isLocal(final RemoteReceiver remoteReceiver) {
+
+		final InetAddress address = remoteReceiver.getConnectionAddress().getAddress();
+		if (address == null || remoteReceiver.getConnectionAddress().getPort() == this.localDataPort) {
+			return false;
+		}
+
+		Boolean isLocal = this.localAddressCache.get(address);
+		if (isLocal == null) {
+
+			boolean local = address.isLoopbackAddress() || address.isAnyLocalAddress();
+			if (!local) {
+				try {
+					local = (NetworkInterface.getByInetAddress(address) != null);
+				} catch (SocketException e) {
+					LOG.debug("Cannot determine if " + address + " is local: " + e);
+				}
+			}
+
+			isLocal = Boolean.valueOf(local);
+			this.localAddressCache.put(address, isLocal);
+		}
+
+		return isLocal.booleanValue();
+	}
+
+	/**
+	 * Returns (and possibly creates) the outgoing connection for the given receiver.
+	 *
+	 * @param remoteReceiver
+	 *        the receiver to return the outgoing connection for
+	 * @return the outgoing connection or <code>null</code> if the connection could not be created
+	 */
+	private SharedMemoryOutgoingConnection getOutgoingConnection(final RemoteReceiver remoteReceiver) {
+
+		SharedMemoryOutgoingConnection outgoingConnection = this.outgoingConnections.get(remoteReceiver);
+		if (outgoingConnection != null) {
+			return outgoingConnection;
+		}
+
+		synchronized (this.outgoingConnections) {
+
+			// Check again, another thread may have created the connection in the meantime
+			outgoingConnection = this.outgoingConnections.get(remoteReceiver);
+			if (outgoingConnection != null) {
+				return outgoingConnection;
+			}
+
+			final String name;
+			synchronized (this.random) {
+				name = FILE_PREFIX + remoteReceiver.getConnectionAddress().getPort() + "-"
+					+ remoteReceiver.getConnectionIndex() + "-" + this.localDataPort + "-"
+					+ Long.toHexString(this.random.nextLong() & Long.MAX_VALUE) + FILE_SUFFIX;
+			}
+
+			try {
+				final SharedMemoryRingBuffer ringBuffer = SharedMemoryRingBuffer.createForWriting(this.directory,
+					name, this.ringBufferCapacity);
+				outgoingConnection = new SharedMemoryOutgoingConnection(remoteReceiver, ringBuffer);
+			} catch (Throwable t) {
+				// Mapping the ring buffer may also fail with an error, for example if the runtime denies native access
+				LOG.error("Cannot create shared memory connection to " + remoteReceiver + ", using TCP instead: "
+					+ StringUtils.stringifyException(t));
+				this.tcpOnlyReceivers.add(remoteReceiver);
+				return null;
+			}
+
+			this.outgoingConnections.put(remoteReceiver, outgoingConnection);
+		}
+
+		return outgoingConnection;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void run() {
+
+		long lastScan = 0L;
+		long lastHeartbeat = 0L;
+		int idleRounds = 0;
+
+		while (!isInterrupted()) {
+
+			final long now = System.currentTimeMillis();
+
+			if (now - lastScan >= SCAN_INTERVAL) {
+				scanForIncomingRingBuffers();
+				lastScan = now;
+			}
+
+			final boolean sendHeartbeat = (now - lastHeartbeat >= HEARTBEAT_INTERVAL);
+			if (sendHeartbeat) {
+				lastHeartbeat = now;
+			}
+
+			boolean progress = false;
+
+			final Iterator<SharedMemoryOutgoingConnection> it = this.outgoingConnections.values().iterator();
+			while (it.hasNext()) {
+				progress |= processOutgoingConnection(it.next(), now);
+			}
+
+			final Iterator<IncomingRingBuffer> it2 = this.incomingRingBuffers.iterator();
+			while (it2.hasNext()) {
+
+				final IncomingRingBuffer incomingRingBuffer = it2.next();
+				if (sendHeartbeat) {
+					incomingRingBuffer.ringBuffer.heartbeat(now);
+				}
+
+				if (incomingRingBuffer.waitingForBuffer) {
+					continue;
+				}
+
+				try {
+					progress |= readIncomingRingBuffer(incomingRingBuffer);
+				} catch (InterruptedException e) {
+					interrupt();
+				} catch (EOFException eof) {
+					if (incomingRingBuffer.incomingConnection.isCloseUnexpected()) {
+						LOG.error("Shared memory connection " + incomingRingBuffer.ringBuffer.getFile()
+							+ " was closed unexpectedly");
+						incomingRingBuffer.incomingConnection.reportTransmissionProblem(null, eof);
+					} else {
+						incomingRingBuffer.incomingConnection.closeConnection(null);
+					}
+					it2.remove();
+				} catch (IOException ioe) {
+					incomingRingBuffer.incomingConnection.reportTransmissionProblem(null, ioe);
+					it2.remove();
+				}
+			}
+
+			if (progress) {
+				idleRounds = 0;
+			} else {
+				idle(++idleRounds);
+			}
+		}
+
+		// Do cleanup
+		final Iterator<SharedMemoryOutgoingConnection> it = this.outgoingConnections.values().iterator();
+		while (it.hasNext()) {
+			it.next().closeRingBuffer();
+		}
+
+		final Iterator<IncomingRingBuffer> it2 = this.incomingRingBuffers.iterator();
+		while (it2.hasNext()) {
+			it2.next().incomingConnection.closeConnection(null);
+		}
+	}
+
+	/**
+	 * Transmits queued data of the given outgoing connection and checks whether its receiver is still alive.
+	 *
+	 * @param outgoingConnection
+	 *        the outgoing connection to process
+	 * @param now
+	 *        the current time in milliseconds
+	 * @return <code>true</code> if any data has been transmitted, <code>false</code> otherwise
+	 */
+	private boolean processOutgoingConnection(final SharedMemoryOutgoingConnection outgoingConnection,
+			final long now) {
+
+		final RemoteReceiver remoteReceiver = outgoingConnection.getRemoteReceiver();
+
+		if (!outgoingConnection.isReceiverAttached()) {
+
+			if (now - outgoingConnection.getCreationTime() > ATTACH_TIMEOUT
+				&& outgoingConnection.abandon(this.networkConnectionManager)) {
+
+				LOG.warn(remoteReceiver + " did not attach to shared memory connection, using TCP instead");
+				this.tcpOnlyReceivers.add(remoteReceiver);
+				this.outgoingConnections.remove(remoteReceiver, outgoingConnection);
+			}
+
+			// Nothing is written before the receiver has attached, so the envelopes can still be sent through TCP
+			return false;
+
+		} else if (now - outgoingConnection.getReceiverHeartbeat() > HEARTBEAT_TIMEOUT
+			&& outgoingConnection.hasQueuedEnvelopes()) {
+
+			this.outgoingConnections.remove(remoteReceiver, outgoingConnection);
+			outgoingConnection.reportTransmissionProblem(new IOException(remoteReceiver + " has not been alive for "
+				+ (now - outgoingConnection.getReceiverHeartbeat()) + " ms"));
+			return false;
+		}
+
+		try {
+			return outgoingConnection.write();
+		} catch (IOException ioe) {
+			this.outgoingConnections.remove(remoteReceiver, outgoingConnection);
+			outgoingConnection.reportTransmissionProblem(ioe);
+		}
+
+		return false;
+	}
+
+	/**
+	 * Reads and dispatches data from the given incoming ring buffer.
+	 *
+	 * @param incomingRingBuffer
+	 *        the incoming ring buffer to read from
+	 * @return <code>true</code> if any data has been read, <code>false</code> otherwise
+	 * @throws IOException
+	 *         thrown if an error occurs while reading from the ring buffer
+	 * @throws InterruptedException
+	 *         thrown if the thread is interrupted while dispatching an envelope
+	 */
+	private boolean readIncomingRingBuffer(final IncomingRingBuffer incomingRingBuffer) throws IOException,
+			InterruptedException {
+
+		final long startPosition = incomingRingBuffer.ringBuffer.getPosition();
+
+		for (int i = 0; i < MAXIMUM_READS_PER_ROUND; ++i) {
+
+			final long position = incomingRingBuffer.ringBuffer.getPosition();
+
+			try {
+				incomingRingBuffer.incomingConnection.read();
+			} catch (NoBufferAvailableException e) {
+				// There are no buffers available, suspend reading until the buffer provider notifies us
+				incomingRingBuffer.waitingForBuffer = true;
+				if (!e.getBufferProvider().registerBufferAvailabilityListener(incomingRingBuffer)) {
+					// In the meantime, a buffer has become available again
+					incomingRingBuffer.waitingForBuffer = false;
+				}
+				break;
+			}
+
+			if (incomingRingBuffer.ringBuffer.getPosition() == position) {
+				break;
+			}
+		}
+
+		return (incomingRingBuffer.ringBuffer.getPosition() != startPosition);
+	}
+
+	/**
+	 * Scans the shared directory for new ring buffers created for this task manager and attaches to them.
+	 */
+	private void scanForIncomingRingBuffers() {
+
+		if (!this.attachSupported) {
+			return;
+		}
+
+		final String[] names = this.directory.list();
+		if (names == null) {
+			return;
+		}
+
+		for (final String name : names) {
+
+			if (!name.startsWith(this.incomingPrefix) || !name.endsWith(FILE_SUFFIX)) {
+				continue;
+			}
+
+			try {
+				final SharedMemoryRingBuffer ringBuffer = SharedMemoryRingBuffer.openForReading(new File(
+					this.directory, name));
+				if (ringBuffer == null) {
+					continue;
+				}
+
+				final IncomingConnection incomingConnection = new IncomingConnection(this.byteBufferedChannelManager,
+					ringBuffer);
+				this.incomingRingBuffers.add(new IncomingRingBuffer(incomingConnection, ringBuffer, this));
+
+				if (LOG.isDebugEnabled()) {
+					LOG.debug("Attached to shared memory connection " + name);
+				}
+			} catch (LinkageError e) {
+				// The ring buffers cannot be mapped at all, so the writers will time out and use TCP instead
+				LOG.error("Cannot attach to shared memory connections, ignoring them from now on: "
+					+ StringUtils.stringifyException(e));
+				this.attachSupported = false;
+				return;
+			} catch (Throwable t) {
+				LOG.error("Cannot attach to shared memory connection " + name + ": "
+					+ StringUtils.stringifyException(t));
+			}
+		}
+	}
+
+	/**
+	 * Backs off after the given number of rounds without any progress. The thread first yields and then parks for
+	 * exponentially increasing periods of time.
+	 *
+	 * @param idleRounds
+	 *        the number of consecutive rounds without progress
+	 */
+	private void idle(final int idleRounds) {
+
+		if (idleRounds <= SPIN_ROUNDS) {
+			Thread.yield();
+			return;
+		}
+
+		final int shift = Math.min(idleRounds - SPIN_ROUNDS, 20);
+		final long parkTime = Math.min(MAXIMUM_PARK_TIME, 1000L << shift);
+
+		this.isParked = true;
+		LockSupport.parkNanos(parkTime);
+		this.isParked = false;
+	}
+
+	/**
+	 * Writes the utilization of the outgoing shared memory connections to the console.
+	 */
+	public void logBufferUtilization() {
+
+		System.out.println("\tOutgoing shared memory connections:");
+
+		final Iterator<Map.Entry<RemoteReceiver, SharedMemoryOutgoingConnection>> it = this.outgoingConnections
+			.entrySet().iterator();
+
+		while (it.hasNext()) {
+
+			final Map.Entry<RemoteReceiver, SharedMemoryOutgoingConnection> entry = it.next();
+			System.out.println("\t\tSMC " + entry.getKey() + ": " + entry.getValue().getNumberOfQueuedWriteBuffers());
+		}
+	}
+}
@@ -0,0 +1,338 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.taskmanager.bytebuffered;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import eu.stratosphere.nephele.taskmanager.transferenvelope.DefaultSerializer;
+import eu.stratosphere.nephele.taskmanager.transferenvelope.TransferEnvelope;
+
+/**
+ * This class represents an outgoing connection to a task manager on the same host through which
+ * {@link TransferEnvelope} objects are sent. The envelopes are serialized with the same {@link DefaultSerializer} as
+ * for TCP connections, but into a {@link SharedMemoryRingBuffer} instead of a socket. The transmission itself is
+ * driven by the {@link SharedMemoryConnectionThread}.
+ */
+public final class SharedMemoryOutgoingConnection {
+
+	/**
+	 * The log object used to report debug information and possible errors.
+	 */
+	private static final Log LOG = LogFactory.getLog(SharedMemoryOutgoingConnection.class);
+
+	/**
+	 * The receiver this outgoing connection transmits envelopes to.
+	 */
+	private final RemoteReceiver remoteReceiver;
+
+	/**
+	 * The ring buffer the envelopes are written to.
+	 */
+	private final SharedMemoryRingBuffer ringBuffer;
+
+	/**
+	 * The queue of transfer envelopes to be transmitted.
+	 */
+	private final Queue<TransferEnvelope> queuedEnvelopes = new ArrayDeque<TransferEnvelope>();
+
+	/**
+	 * The {@link DefaultSerializer} object used to transform the envelopes into a byte stream.
+	 */
+	private final DefaultSerializer serializer = new DefaultSerializer();
+
+	/**
+	 * The time in milliseconds at which this connection has been created.
+	 */
+	private final long creationTime = System.currentTimeMillis();
+
+	/**
+	 * The {@link TransferEnvelope} that is currently processed. This variable may only be accessed by the
+	 * {@link SharedMemoryConnectionThread}.
+	 */
+	private TransferEnvelope currentEnvelope = null;
+
+	/**
+	 * Stores whether this connection has been closed, either because it has been abandoned in favor of a TCP
+	 * connection or because of a transmission problem. Protected by the monitor of <code>queuedEnvelopes</code>.
+	 */
+	private boolean isClosed = false;
+
+	/**
+	 * Stores whether this connection has been abandoned in favor of a TCP connection. Protected by the monitor of
+	 * <code>queuedEnvelopes</code>.
+	 */
+	private boolean isAbandoned = false;
+
+	/**
+	 * Constructs a new shared memory outgoing connection.
+	 *
+	 * @param remoteReceiver
+	 *        the receiver this connection transmits envelopes to
+	 * @param ringBuffer
+	 *        the ring buffer to write the envelopes to
+	 */
+	SharedMemoryOutgoingConnection(final RemoteReceiver remoteReceiver, final SharedMemoryRingBuffer ringBuffer) {
+
+		this.remoteReceiver = remoteReceiver;
+		this.ringBuffer = ringBuffer;
+	}
+
+	/**
+	 * Adds a new {@link TransferEnvelope} to the queue of envelopes to be transmitted.
+	 *
+	 * @param transferEnvelope
+	 *        the envelope to be added to the transfer queue
+	 * @return <code>true</code> if the envelope has been queued, <code>false</code> if this connection has been
+	 *         closed and the envelope must be queued with another connection
+	 */
+	public boolean queueEnvelope(final TransferEnvelope transferEnvelope) {
+
+		synchronized (this.queuedEnvelopes) {
+
+			if (this.isClosed) {
+				return false;
+			}
+
+			this.queuedEnvelopes.add(transferEnvelope);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Writes as much data from the queued envelopes to the ring buffer as currently fits into it. Nothing is written
+	 * before the receiver has attached to the ring buffer, so all envelopes are still queued if the connection is
+	 * abandoned in favor of a TCP connection.
+	 * <p>
+	 * This method should only be called by the {@link SharedMemoryConnectionThread} object.
+	 *
+	 * @return <code>true</code> if any data has been written to the ring buffer, <code>false</code> otherwise
+	 * @throws IOException
+	 *         thrown if an error occurs while writing to the ring buffer
+	 */
+	boolean write() throws IOException {
+
+		if (!isReceiverAttached()) {
+			return false;
+		}
+
+		final long startPosition = this.ringBuffer.getPosition();
+
+		while (true) {
+
+			if (this.currentEnvelope == null) {
+				synchronized (this.queuedEnvelopes) {
+					if (this.queuedEnvelopes.isEmpty()) {
+						break;
+					}
+					this.currentEnvelope = this.queuedEnvelopes.peek();
+					this.serializer.setTransferEnvelope(this.currentEnvelope);
+				}
+			}
+
+			final long position = this.ringBuffer.getPosition();
+			if (this.serializer.write(this.ringBuffer)) {
+				if (this.ringBuffer.getPosition() == position) {
+					// The ring buffer is full
+					break;
+				}
+				continue;
+			}
+
+			// Make sure we recycle the attached memory or file buffers correctly
+			if (this.currentEnvelope.getBuffer() != null) {
+				this.currentEnvelope.getBuffer().recycleBuffer();
+			}
+
+			synchronized (this.queuedEnvelopes) {
+				this.queuedEnvelopes.poll();
+				this.currentEnvelope = null;
+			}
+		}
+
+		return (this.ringBuffer.getPosition() != startPosition);
+	}
+
+	/**
+	 * Checks whether the receiving task manager has attached to the ring buffer of this connection.
+	 *
+	 * @return <code>true</code> if the receiver has attached to the ring buffer, <code>false</code> otherwise
+	 */
+	boolean isReceiverAttached() {
+
+		return this.ringBuffer.getReaderHeartbeat() != 0L;
+	}
+
+	/**
+	 * Returns the time in milliseconds at which this connection has been created.
+	 *
+	 * @return the time in milliseconds at which this connection has been created
+	 */
+	long getCreationTime() {
+
+		return this.creationTime;
+	}
+
+	/**
+	 * Returns the time of the receiver's last sign of life.
+	 *
+	 * @return the time of the receiver's last sign of life in milliseconds
+	 */
+	long getReceiverHeartbeat() {
+
+		return this.ringBuffer.getReaderHeartbeat();
+	}
+
+	/**
+	 * Checks whether this connection has envelopes left to transmit.
+	 *
+	 * @return <code>true</code> if this connection has envelopes left to transmit, <code>false</code> otherwise
+	 */
+	boolean hasQueuedEnvelopes() {
+
+		synchronized (this.queuedEnvelopes) {
+			return !this.queuedEnvelopes.isEmpty();
+		}
+	}
+
+	/**
+	 * Returns the receiver this connection transmits envelopes to.
+	 *
+	 * @return the receiver this connection transmits envelopes to
+	 */
+	RemoteReceiver getRemoteReceiver() {
+
+		return this.remoteReceiver;
+	}
+
+	/**
+	 * Closes the ring buffer and hands all queued envelopes over to a TCP connection to the same receiver. This is only
+	 * possible as long as the receiver has not attached to the ring buffer. As no envelope is written to the ring
+	 * buffer before the receiver has attached, no envelope is lost. Envelopes queued afterwards are rejected, so the
+	 * original order of the envelopes is preserved.
+	 *
+	 * @param networkConnectionManager
+	 *        the network connection manager to queue the envelopes for TCP transfer with
+	 * @return <code>true</code> if the connection has been abandoned, <code>false</code> if the receiver has attached
+	 *         to the ring buffer in the meantime
+	 */
+	boolean abandon(final NetworkConnectionManager networkConnectionManager) {
+
+		if (!this.ringBuffer.abandon()) {
+			return false;
+		}
+
+		closeRingBuffer();
+
+		synchronized (this.queuedEnvelopes) {
+
+			this.isClosed = true;
+			this.isAbandoned = true;
+			this.currentEnvelope = null;
+
+			while (!this.queuedEnvelopes.isEmpty()) {
+				networkConnectionManager.queueEnvelopeForTCPTransfer(this.remoteReceiver, this.queuedEnvelopes.poll());
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Checks whether this connection has been abandoned in favor of a TCP connection.
+	 *
+	 * @return <code>true</code> if this connection has been abandoned, <code>false</code> otherwise
+	 */
+	boolean isAbandoned() {
+
+		synchronized (this.queuedEnvelopes) {
+			return this.isAbandoned;
+		}
+	}
+
+	/**
+	 * Reports an I/O error which occurred while transmitting data. As a result, the ring buffer is closed, all queued
+	 * envelopes are dropped and their buffers are recycled.
+	 *
+	 * @param ioe
+	 *        the I/O error which occurred
+	 */
+	void reportTransmissionProblem(final IOException ioe) {
+
+		LOG.error("The shared memory connection to " + this.remoteReceiver + " experienced an IOException: " + ioe);
+
+		closeRingBuffer();
+
+		synchronized (this.queuedEnvelopes) {
+
+			this.isClosed = true;
+
+			final Iterator<TransferEnvelope> it = this.queuedEnvelopes.iterator();
+			while (it.hasNext()) {
+				final TransferEnvelope envelope = it.next();
+				it.remove();
+				if (envelope.getBuffer() != null) {
+					envelope.getBuffer().recycleBuffer();
+				}
+			}
+
+			this.currentEnvelope = null;
+		}
+	}
+
+	/**
+	 * Closes the ring buffer of this connection. The receiver will observe the end of the stream once it has consumed
+	 * the remaining data.
+	 */
+	void closeRingBuffer() {
+
+		try {
+			this.ringBuffer.close();
+		} catch (IOException e) {
+			LOG.debug("Error while closing the ring buffer to " + this.remoteReceiver + ": " + e);
+		}
+	}
+
+	/**
+	 * Returns the number of currently queued envelopes which contain a write buffer.
+	 *
+	 * @return the number of currently queued envelopes which contain a write buffer
+	 */
+	public int getNumberOfQueuedWriteBuffers() {
+
+		int retVal = 0;
+
+		synchronized (this.queuedEnvelopes) {
+
+			final Iterator<TransferEnvelope> it = this.queuedEnvelopes.iterator();
+			while (it.hasNext()) {
+
+				final TransferEnvelope envelope = it.next();
+				if (envelope.getBuffer() != null) {
+					++retVal;
+				}
+			}
+		}
+
+		return retVal;
+	}
+}
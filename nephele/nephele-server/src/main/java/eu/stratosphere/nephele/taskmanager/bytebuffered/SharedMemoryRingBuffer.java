@@ -0,0 +1,461 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.taskmanager.bytebuffered;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+
+import eu.stratosphere.nephele.services.memorymanager.MemoryUtils;
+
+/**
+ * A single-producer/single-consumer byte ring buffer which lives in a memory-mapped file and can therefore be shared
+ * between two processes on the same host. The ring buffer is exposed as a non-blocking {@link ByteChannel}, so the
+ * regular transfer envelope serializers and deserializers can operate on it just like on a TCP socket: writes return
+ * <code>0</code> while the ring is full and reads return <code>0</code> while it is empty. Once the writer has closed
+ * the ring and all data has been consumed, reads return <code>-1</code>.
+ * <p>
+ * The file starts with a header of {@link #DATA_OFFSET} bytes. The write and read positions are kept in separate cache
+ * lines and are published with ordered stores, so the data written before a position update is visible to the other
+ * process once it observes the new position.
+ * <p>
+ * Each side of the ring buffer must only be accessed by a single thread.
+ */
+@SuppressWarnings("restriction")
+public final class SharedMemoryRingBuffer implements ByteChannel {
+
+	/**
+	 * Magic number identifying an initialized ring buffer file.
+	 */
+	private static final int MAGIC_NUMBER = 0x4e455048;
+
+	private static final int CAPACITY_OFFSET = 4;
+
+	private static final int WRITE_POSITION_OFFSET = 64;
+
+	private static final int READ_POSITION_OFFSET = 128;
+
+	private static final int READER_HEARTBEAT_OFFSET = 136;
+
+	private static final int WRITER_CLOSED_OFFSET = 192;
+
+	private static final int READER_CLOSED_OFFSET = 196;
+
+	/**
+	 * The offset of the ring's data area inside the file.
+	 */
+	static final int DATA_OFFSET = 256;
+
+	/**
+	 * The suffix of a ring buffer file which has been claimed by a reader.
+	 */
+	private static final String CLAIMED_SUFFIX = ".claimed";
+
+	/**
+	 * The suffix of a ring buffer file which has been withdrawn by its writer.
+	 */
+	private static final String ABANDONED_SUFFIX = ".abandoned";
+
+	/**
+	 * The suffix of a ring buffer file which has been claimed by a reader that failed to attach to it.
+	 */
+	private static final String FAILED_SUFFIX = ".failed";
+
+	private static final sun.misc.Unsafe UNSAFE = MemoryUtils.UNSAFE;
+
+	/**
+	 * The offset of the field holding the native address of a direct buffer.
+	 */
+	private static final long ADDRESS_FIELD_OFFSET = getAddressFieldOffset();
+
+	/**
+	 * The file backing this ring buffer.
+	 */
+	private final File file;
+
+	/**
+	 * The file channel the ring buffer is mapped from.
+	 */
+	private final FileChannel fileChannel;
+
+	/**
+	 * The mapped memory, kept to prevent the mapping from being garbage collected.
+	 */
+	private final MappedByteBuffer mappedBuffer;
+
+	/**
+	 * The view on the data area of the ring buffer.
+	 */
+	private final ByteBuffer data;
+
+	/**
+	 * The native address of the file header.
+	 */
+	private final long headerAddress;
+
+	/**
+	 * The capacity of the data area in bytes, always a power of two.
+	 */
+	private final int capacity;
+
+	/**
+	 * Stores whether this object represents the writing side of the ring buffer.
+	 */
+	private final boolean isWriter;
+
+	/**
+	 * The local copy of this side's position.
+	 */
+	private long position = 0L;
+
+	/**
+	 * Stores whether this side of the ring buffer has been closed.
+	 */
+	private boolean closed = false;
+
+	private SharedMemoryRingBuffer(final File file, final RandomAccessFile raf, final boolean isWriter)
+			throws IOException {
+
+		this.file = file;
+		this.fileChannel = raf.getChannel();
+		this.isWriter = isWriter;
+		this.mappedBuffer = this.fileChannel.map(FileChannel.MapMode.READ_WRITE, 0, raf.length());
+		this.headerAddress = UNSAFE.getLong(this.mappedBuffer, ADDRESS_FIELD_OFFSET);
+
+		if (isWriter) {
+			this.capacity = (int) (raf.length() - DATA_OFFSET);
+		} else {
+			if (UNSAFE.getIntVolatile(null, this.headerAddress) != MAGIC_NUMBER) {
+				this.fileChannel.close();
+				throw new IOException(file + " is not an initialized shared memory ring buffer");
+			}
+			this.capacity = UNSAFE.getInt(this.headerAddress + CAPACITY_OFFSET);
+			this.position = UNSAFE.getLongVolatile(null, this.headerAddress + READ_POSITION_OFFSET);
+		}
+
+		this.mappedBuffer.position(DATA_OFFSET);
+		this.data = this.mappedBuffer.slice();
+	}
+
+	/**
+	 * Determines the offset of the field holding the native address of a direct buffer, so the address can be read
+	 * without relying on JDK-internal classes.
+	 * 
+	 * @return the offset of the address field
+	 */
+	private static long getAddressFieldOffset() {
+
+		try {
+			return UNSAFE.objectFieldOffset(Buffer.class.getDeclaredField("address"));
+		} catch (NoSuchFieldException e) {
+			throw new RuntimeException("The address field of direct buffers was not found.", e);
+		}
+	}
+
+	/**
+	 * Creates a new ring buffer file for writing. The file is first initialized under a temporary name and then
+	 * atomically renamed, so a reader never observes a partially initialized file.
+	 *
+	 * @param directory
+	 *        the directory to create the file in
+	 * @param name
+	 *        the name of the file
+	 * @param capacity
+	 *        the minimum capacity of the ring buffer in bytes, rounded up to the next power of two
+	 * @return the writing side of the new ring buffer
+	 * @throws IOException
+	 *         thrown if the file cannot be created or mapped
+	 */
+	public static SharedMemoryRingBuffer createForWriting(final File directory, final String name, final int capacity)
+			throws IOException {
+
+		int roundedCapacity = 1;
+		while (roundedCapacity < capacity) {
+			roundedCapacity <<= 1;
+		}
+
+		final File tmpFile = new File(directory, name + ".tmp");
+		final File file = new File(directory, name);
+		final RandomAccessFile raf = new RandomAccessFile(tmpFile, "rw");
+		boolean created = false;
+		try {
+			raf.setLength(DATA_OFFSET + roundedCapacity);
+			final SharedMemoryRingBuffer ringBuffer = new SharedMemoryRingBuffer(file, raf, true);
+			UNSAFE.putInt(ringBuffer.headerAddress + CAPACITY_OFFSET, roundedCapacity);
+			UNSAFE.putLong(ringBuffer.headerAddress + WRITE_POSITION_OFFSET, 0L);
+			UNSAFE.putLong(ringBuffer.headerAddress + READ_POSITION_OFFSET, 0L);
+			UNSAFE.putLong(ringBuffer.headerAddress + READER_HEARTBEAT_OFFSET, 0L);
+			UNSAFE.putInt(ringBuffer.headerAddress + WRITER_CLOSED_OFFSET, 0);
+			UNSAFE.putInt(ringBuffer.headerAddress + READER_CLOSED_OFFSET, 0);
+			UNSAFE.putIntVolatile(null, ringBuffer.headerAddress, MAGIC_NUMBER);
+
+			if (!tmpFile.renameTo(file)) {
+				ringBuffer.close();
+				throw new IOException("Cannot rename " + tmpFile + " to " + file);
+			}
+
+			created = true;
+			return ringBuffer;
+		} finally {
+			if (!created) {
+				raf.close();
+				tmpFile.delete();
+			}
+		}
+	}
+
+	/**
+	 * Opens an existing ring buffer file for reading. The reader claims the file by renaming it before it is mapped,
+	 * which races safely with a writer abandoning the file (see {@link #abandon()}). After the file has been mapped,
+	 * it is removed from the file system, so it is neither picked up again nor left behind if one of the processes
+	 * terminates. If the claimed file cannot be mapped, it is marked as failed, so the writer can still withdraw it
+	 * (see {@link #abandon()}).
+	 *
+	 * @param file
+	 *        the ring buffer file to open
+	 * @return the reading side of the ring buffer or <code>null</code> if the file has been claimed or abandoned
+	 *         in the meantime
+	 * @throws IOException
+	 *         thrown if the file cannot be opened or is not a valid ring buffer file
+	 */
+	public static SharedMemoryRingBuffer openForReading(final File file) throws IOException {
+
+		final File claimedFile = new File(file.getParentFile(), file.getName() + CLAIMED_SUFFIX);
+		if (!file.renameTo(claimedFile)) {
+			return null;
+		}
+
+		boolean attached = false;
+		try {
+			final RandomAccessFile raf = new RandomAccessFile(claimedFile, "rw");
+			try {
+				final SharedMemoryRingBuffer ringBuffer = new SharedMemoryRingBuffer(file, raf, false);
+				ringBuffer.heartbeat(System.currentTimeMillis());
+				attached = true;
+				return ringBuffer;
+			} finally {
+				if (!attached) {
+					raf.close();
+				}
+			}
+		} finally {
+			final File failedFile = new File(file.getParentFile(), file.getName() + FAILED_SUFFIX);
+			if (attached || !claimedFile.renameTo(failedFile)) {
+				claimedFile.delete();
+			}
+		}
+	}
+
+	/**
+	 * Attempts to withdraw the ring buffer file before a reader has claimed it or after a reader has failed to attach
+	 * to it. If the withdrawal succeeds, no reader will ever consume data from this ring buffer.
+	 *
+	 * @return <code>true</code> if the file has been withdrawn, <code>false</code> if a reader has already claimed it
+	 */
+	public boolean abandon() {
+
+		final File abandonedFile = new File(this.file.getParentFile(), this.file.getName() + ABANDONED_SUFFIX);
+		if (!this.file.renameTo(abandonedFile)) {
+			return new File(this.file.getParentFile(), this.file.getName() + FAILED_SUFFIX).delete();
+		}
+
+		abandonedFile.delete();
+
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int write(final ByteBuffer src) throws IOException {
+
+		if (!this.isWriter) {
+			throw new IOException("Ring buffer " + this.file + " is opened for reading");
+		}
+
+		if (this.closed) {
+			throw new ClosedChannelException();
+		}
+
+		if (UNSAFE.getIntVolatile(null, this.headerAddress + READER_CLOSED_OFFSET) != 0) {
+			throw new IOException("Reader of ring buffer " + this.file + " has been closed");
+		}
+
+		final long readPosition = UNSAFE.getLongVolatile(null, this.headerAddress + READ_POSITION_OFFSET);
+		final int free = this.capacity - (int) (this.position - readPosition);
+		final int numberOfBytes = Math.min(free, src.remaining());
+		if (numberOfBytes == 0) {
+			return 0;
+		}
+
+		final int index = (int) (this.position & (this.capacity - 1));
+		final int firstPart = Math.min(numberOfBytes, this.capacity - index);
+		final int oldLimit = src.limit();
+
+		src.limit(src.position() + firstPart);
+		this.data.limit(index + firstPart);
+		this.data.position(index);
+		this.data.put(src);
+
+		if (firstPart < numberOfBytes) {
+			src.limit(src.position() + numberOfBytes - firstPart);
+			this.data.limit(numberOfBytes - firstPart);
+			this.data.position(0);
+			this.data.put(src);
+		}
+
+		src.limit(oldLimit);
+
+		this.position += numberOfBytes;
+		UNSAFE.putOrderedLong(null, this.headerAddress + WRITE_POSITION_OFFSET, this.position);
+
+		return numberOfBytes;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int read(final ByteBuffer dst) throws IOException {
+
+		if (this.isWriter) {
+			throw new IOException("Ring buffer " + this.file + " is opened for writing");
+		}
+
+		if (this.closed) {
+			throw new ClosedChannelException();
+		}
+
+		// Read the closed flag before the write position, so no data written before closing can be missed
+		final boolean writerClosed = UNSAFE.getIntVolatile(null, this.headerAddress + WRITER_CLOSED_OFFSET) != 0;
+		final long writePosition = UNSAFE.getLongVolatile(null, this.headerAddress + WRITE_POSITION_OFFSET);
+		final int available = (int) (writePosition - this.position);
+		final int numberOfBytes = Math.min(available, dst.remaining());
+		if (numberOfBytes == 0) {
+			return (available == 0 && writerClosed) ? -1 : 0;
+		}
+
+		final int index = (int) (this.position & (this.capacity - 1));
+		final int firstPart = Math.min(numberOfBytes, this.capacity - index);
+
+		this.data.limit(index + firstPart);
+		this.data.position(index);
+		dst.put(this.data);
+
+		if (firstPart < numberOfBytes) {
+			this.data.limit(numberOfBytes - firstPart);
+			this.data.position(0);
+			dst.put(this.data);
+		}
+
+		this.position += numberOfBytes;
+		UNSAFE.putOrderedLong(null, this.headerAddress + READ_POSITION_OFFSET, this.position);
+
+		return numberOfBytes;
+	}
+
+	/**
+	 * Records a sign of life of the reading side, so the writer can detect a reader that has vanished.
+	 *
+	 * @param now
+	 *        the current time in milliseconds
+	 */
+	public void heartbeat(final long now) {
+
+		UNSAFE.putOrderedLong(null, this.headerAddress + READER_HEARTBEAT_OFFSET, now);
+	}
+
+	/**
+	 * Returns the time of the reader's last sign of life.
+	 *
+	 * @return the time of the reader's last sign of life in milliseconds or <code>0</code> if no reader has attached to
+	 *         the ring buffer yet
+	 */
+	public long getReaderHeartbeat() {
+
+		return UNSAFE.getLongVolatile(null, this.headerAddress + READER_HEARTBEAT_OFFSET);
+	}
+
+	/**
+	 * Returns the number of bytes written to or read from the ring buffer by this side so far.
+	 *
+	 * @return the number of bytes written to or read from the ring buffer by this side so far
+	 */
+	public long getPosition() {
+
+		return this.position;
+	}
+
+	/**
+	 * Returns the file backing this ring buffer.
+	 *
+	 * @return the file backing this ring buffer
+	 */
+	public File getFile() {
+
+		return this.file;
+	}
+
+	/**
+	 * Returns the capacity of the ring buffer in bytes.
+	 *
+	 * @return the capacity of the ring buffer in bytes
+	 */
+	public int getCapacity() {
+
+		return this.capacity;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isOpen() {
+
+		return !this.closed;
+	}
+
+	/**
+	 * Closes this side of the ring buffer. If this is the writing side, the reader will observe the end of the stream
+	 * after it has consumed all remaining data. The writer also removes the file if no reader has claimed it yet.
+	 */
+	@Override
+	public void close() throws IOException {
+
+		if (this.closed) {
+			return;
+		}
+
+		this.closed = true;
+
+		if (this.isWriter) {
+			UNSAFE.putIntVolatile(null, this.headerAddress + WRITER_CLOSED_OFFSET, 1);
+			// Remove the file in case no reader has claimed it
+			abandon();
+		} else {
+			UNSAFE.putIntVolatile(null, this.headerAddress + READER_CLOSED_OFFSET, 1);
+		}
+
+		this.fileChannel.close();
+	}
+}
@@ -31,6 +31,7 @@ import eu.stratosphere.nephele.io.channels.bytebuffered.AbstractByteBufferedInpu
 import eu.stratosphere.nephele.io.channels.bytebuffered.BufferOrEvent;
 import eu.stratosphere.nephele.io.channels.bytebuffered.ByteBufferedInputChannelBroker;
 import eu.stratosphere.nephele.io.channels.bytebuffered.ChannelSuspendConfirmEvent;
+import eu.stratosphere.nephele.io.channels.bytebuffered.NetworkThrottleEvent;
 import eu.stratosphere.nephele.jobgraph.JobID;
 import eu.stratosphere.nephele.taskmanager.bufferprovider.BufferAvailabilityListener;
 import eu.stratosphere.nephele.taskmanager.bytebuffered.InputChannelContext;
@@ -57,6 +58,36 @@ final class RuntimeInputChannelContext implements InputChannelContext, ByteBuffe
 
 	private boolean destroyCalled = false;
 
+	/**
+	 * The number of queued envelopes at which the producer is throttled, a non-positive value disables throttling.
+	 */
+	private final int throttlingHighWaterMark;
+
+	/**
+	 * The number of queued envelopes at which the throttling of the producer is lifted again.
+	 */
+	private final int throttlingLowWaterMark;
+
+	/**
+	 * The interval in milliseconds at which the consumption rate is measured and an active throttling is renewed.
+	 */
+	private final int throttlingInterval;
+
+	/**
+	 * The number of bytes consumed by the task in the current measurement window.
+	 */
+	private long consumedBytes = 0L;
+
+	/**
+	 * The time in milliseconds at which the current measurement window has started.
+	 */
+	private long measurementWindowStart = System.currentTimeMillis();
+
+	/**
+	 * Stores whether the producer is currently throttled by this channel.
+	 */
+	private boolean isThrottling = false;
+
 	RuntimeInputChannelContext(final RuntimeInputGateContext inputGateContext,
 			final TransferEnvelopeDispatcher transferEnvelopeDispatcher,
 			final AbstractByteBufferedInputChannel<?> byteBufferedInputChannel) {
@@ -65,6 +96,10 @@ final class RuntimeInputChannelContext implements InputChannelContext, ByteBuffe
 		this.transferEnvelopeDispatcher = transferEnvelopeDispatcher;
 		this.byteBufferedInputChannel = byteBufferedInputChannel;
 		this.byteBufferedInputChannel.setInputChannelBroker(this);
+
+		this.throttlingHighWaterMark = inputGateContext.getThrottlingHighWaterMark();
+		this.throttlingLowWaterMark = inputGateContext.getThrottlingLowWaterMark();
+		this.throttlingInterval = inputGateContext.getThrottlingInterval();
 	}
 
 
@@ -82,11 +117,20 @@ final class RuntimeInputChannelContext implements InputChannelContext, ByteBuffe
 
 		// if no events are pending, get the next buffer
 		TransferEnvelope nextEnvelope;
+		int numberOfQueuedEnvelopes;
 		synchronized (this.queuedEnvelopes) {
 			if (this.queuedEnvelopes.isEmpty()) {
 				return null;
 			}
 			nextEnvelope = this.queuedEnvelopes.poll();
+			numberOfQueuedEnvelopes = this.queuedEnvelopes.size();
+		}
+
+		if (this.throttlingHighWaterMark > 0) {
+			if (nextEnvelope.getBuffer() != null) {
+				this.consumedBytes += nextEnvelope.getBuffer().size();
+			}
+			checkThrottling(numberOfQueuedEnvelopes);
 		}
 
 		// schedule events as pending, because events come always after the buffer!
@@ -115,6 +159,66 @@ final class RuntimeInputChannelContext implements InputChannelContext, ByteBuffe
 		}
 	}
 
+	/**
+	 * Throttles the producer to the measured consumption rate while the number of queued envelopes is above the high
+	 * water mark and lifts the throttling once the queue has drained to the low water mark. An active throttling is
+	 * renewed once per measurement interval, so the producer recovers on its own if an unthrottle request is lost.
+	 * 
+	 * @param numberOfQueuedEnvelopes
+	 *        the number of envelopes which are still queued
+	 */
+	private void checkThrottling(final int numberOfQueuedEnvelopes) {
+
+		final long now = System.currentTimeMillis();
+		final long elapsed = now - this.measurementWindowStart;
+		final boolean windowCompleted = (elapsed >= this.throttlingInterval);
+
+		NetworkThrottleEvent throttleEvent = null;
+		if (this.isThrottling) {
+			if (numberOfQueuedEnvelopes <= this.throttlingLowWaterMark) {
+				throttleEvent = NetworkThrottleEvent.createUnthrottleEvent();
+				this.isThrottling = false;
+			} else if (windowCompleted) {
+				throttleEvent = createThrottleEvent(elapsed);
+			}
+		} else if (numberOfQueuedEnvelopes >= this.throttlingHighWaterMark) {
+			throttleEvent = createThrottleEvent(elapsed);
+			this.isThrottling = true;
+		}
+
+		if (windowCompleted) {
+			this.consumedBytes = 0L;
+			this.measurementWindowStart = now;
+		}
+
+		if (throttleEvent == null) {
+			return;
+		}
+
+		try {
+			transferEventToOutputChannel(throttleEvent);
+		} catch (IOException ioe) {
+			LOG.warn("Cannot send throttle event from input channel " + getChannelName() + ": "
+				+ ioe.getMessage());
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Creates a throttle event which limits the producer to the consumption rate measured in the current window.
+	 * 
+	 * @param elapsed
+	 *        the time in milliseconds which has elapsed since the start of the current measurement window
+	 * @return the throttle event
+	 */
+	private NetworkThrottleEvent createThrottleEvent(final long elapsed) {
+
+		final long rate = Math.max(1L, (this.consumedBytes * 1000L) / Math.max(1L, elapsed));
+
+		return new NetworkThrottleEvent(rate, 3 * this.throttlingInterval);
+	}
+
 	@Override
 	public void transferEventToOutputChannel(AbstractEvent event) throws IOException, InterruptedException {
 		if (event instanceof ChannelSuspendConfirmEvent) {
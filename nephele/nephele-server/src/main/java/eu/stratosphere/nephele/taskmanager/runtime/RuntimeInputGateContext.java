@@ -17,6 +17,7 @@ package eu.stratosphere.nephele.taskmanager.runtime;
 
 import java.io.IOException;
 
+import eu.stratosphere.nephele.configuration.GlobalConfiguration;
 import eu.stratosphere.nephele.io.GateID;
 import eu.stratosphere.nephele.io.InputGate;
 import eu.stratosphere.nephele.io.channels.AbstractInputChannel;
@@ -34,6 +35,31 @@ import eu.stratosphere.nephele.types.Record;
 
 final class RuntimeInputGateContext implements BufferProvider, InputGateContext, LocalBufferPoolOwner {
 
+	/**
+	 * The configuration key for the number of queued envelopes at which an input channel throttles its producer.
+	 */
+	private static final String THROTTLING_HIGH_WATER_MARK_KEY = "channel.network.throttling.highWaterMark";
+
+	/**
+	 * The configuration key for the number of queued envelopes at which an input channel lifts the throttling again.
+	 */
+	private static final String THROTTLING_LOW_WATER_MARK_KEY = "channel.network.throttling.lowWaterMark";
+
+	/**
+	 * The configuration key for the interval in milliseconds at which the consumption rate is measured.
+	 */
+	private static final String THROTTLING_INTERVAL_KEY = "channel.network.throttling.interval";
+
+	/**
+	 * The default high water mark, throttling is disabled by default.
+	 */
+	private static final int DEFAULT_THROTTLING_HIGH_WATER_MARK = 0;
+
+	/**
+	 * The default interval in milliseconds at which the consumption rate is measured.
+	 */
+	private static final int DEFAULT_THROTTLING_INTERVAL = 1000;
+
 	private final String taskName;
 
 	private final LocalBufferPool localBufferPool;
@@ -42,6 +68,12 @@ final class RuntimeInputGateContext implements BufferProvider, InputGateContext,
 
 	private final InputGate<? extends Record> inputGate;
 
+	private final int throttlingHighWaterMark;
+
+	private final int throttlingLowWaterMark;
+
+	private final int throttlingInterval;
+
 	RuntimeInputGateContext(final String taskName, final TransferEnvelopeDispatcher transferEnvelopeDispatcher,
 			final InputGate<? extends Record> inputGate) {
 
@@ -50,6 +82,44 @@ final class RuntimeInputGateContext implements BufferProvider, InputGateContext,
 
 		this.transferEnvelopeDispatcher = transferEnvelopeDispatcher;
 		this.inputGate = inputGate;
+
+		this.throttlingHighWaterMark = GlobalConfiguration.getInteger(THROTTLING_HIGH_WATER_MARK_KEY,
+			DEFAULT_THROTTLING_HIGH_WATER_MARK);
+		this.throttlingLowWaterMark = Math.min(this.throttlingHighWaterMark,
+			GlobalConfiguration.getInteger(THROTTLING_LOW_WATER_MARK_KEY, this.throttlingHighWaterMark / 2));
+		this.throttlingInterval = Math.max(1,
+			GlobalConfiguration.getInteger(THROTTLING_INTERVAL_KEY, DEFAULT_THROTTLING_INTERVAL));
+	}
+
+	/**
+	 * Returns the number of queued envelopes at which an input channel throttles its producer.
+	 * 
+	 * @return the number of queued envelopes at which an input channel throttles its producer, a non-positive value
+	 *         if throttling is disabled
+	 */
+	int getThrottlingHighWaterMark() {
+
+		return this.throttlingHighWaterMark;
+	}
+
+	/**
+	 * Returns the number of queued envelopes at which an input channel lifts the throttling of its producer again.
+	 * 
+	 * @return the number of queued envelopes at which an input channel lifts the throttling of its producer again
+	 */
+	int getThrottlingLowWaterMark() {
+
+		return this.throttlingLowWaterMark;
+	}
+
+	/**
+	 * Returns the interval in milliseconds at which an input channel measures its consumption rate.
+	 * 
+	 * @return the interval in milliseconds at which an input channel measures its consumption rate
+	 */
+	int getThrottlingInterval() {
+
+		return this.throttlingInterval;
 	}
 	/**
 	 * {@inheritDoc}
@@ -20,6 +20,7 @@ import java.io.IOException;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import eu.stratosphere.nephele.configuration.GlobalConfiguration;
 import eu.stratosphere.nephele.execution.RuntimeEnvironment;
 import eu.stratosphere.nephele.io.AbstractID;
 import eu.stratosphere.nephele.io.GateID;
@@ -29,6 +30,7 @@ import eu.stratosphere.nephele.io.channels.Buffer;
 import eu.stratosphere.nephele.taskmanager.bufferprovider.BufferAvailabilityListener;
 import eu.stratosphere.nephele.taskmanager.bufferprovider.BufferProvider;
 import eu.stratosphere.nephele.taskmanager.bufferprovider.LocalBufferPool;
+import eu.stratosphere.nephele.taskmanager.bytebuffered.ByteBufferedChannelManager;
 import eu.stratosphere.nephele.taskmanager.bytebuffered.InputGateContext;
 import eu.stratosphere.nephele.taskmanager.bytebuffered.OutputGateContext;
 import eu.stratosphere.nephele.taskmanager.bytebuffered.TaskContext;
@@ -54,11 +56,16 @@ public final class RuntimeTaskContext implements BufferProvider, TaskContext {
 
 		final RuntimeEnvironment environment = task.getRuntimeEnvironment();
 
+		// With channel multiplexing, output buffers are only held until their content has been handed over to the
+		// channel manager, so each output gate is accounted for as a single channel
+		final boolean multiplexingEnabled = GlobalConfiguration.getBoolean(
+			ByteBufferedChannelManager.MULTIPLEXING_ENABLED_KEY, ByteBufferedChannelManager.DEFAULT_MULTIPLEXING_ENABLED);
+
 		// Compute number of output input channels
 		int nooc = 0;
 		for (int i = 0; i < environment.getNumberOfOutputGates(); ++i) {
 			final OutputGate<? extends Record> outputGate = environment.getOutputGate(i);
-			if (outputGate.isBroadcast()) {
+			if (outputGate.isBroadcast() || multiplexingEnabled) {
 				++nooc;
 			} else {
 				nooc += outputGate.getNumberOfOutputChannels();
@@ -17,14 +17,18 @@ package eu.stratosphere.nephele.deployment;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.junit.Test;
 
+import eu.stratosphere.nephele.io.DataOutputBuffer;
 import eu.stratosphere.nephele.io.GateID;
 import eu.stratosphere.nephele.io.channels.ChannelID;
 import eu.stratosphere.nephele.io.channels.ChannelType;
@@ -133,4 +137,51 @@ public class GateDeploymentDescriptorTest {
 			.getOutputChannelID());
 		assertEquals(orig.getChannelDescriptor(0).getInputChannelID(), copy.getChannelDescriptor(0).getInputChannelID());
 	}
+
+	/**
+	 * Tests the serialization/deserialization of a {@link GateDeploymentDescriptor} whose channels are described in
+	 * compact form.
+	 */
+	@Test
+	public void testCompactSerialization() throws IOException {
+
+		final int numberOfChannels = 1000;
+		final int targetIndex = 17;
+		final ChannelID channelSeed = new ChannelID();
+
+		// The input gate of a bipartite connection and one irregular channel
+		final int[] sourceIndices = new int[numberOfChannels + 1];
+		final int[] channelIndices = new int[numberOfChannels + 1];
+		final boolean[] suspended = new boolean[numberOfChannels + 1];
+		for (int i = 0; i < numberOfChannels; ++i) {
+			sourceIndices[i] = i;
+			channelIndices[i] = targetIndex;
+		}
+		sourceIndices[numberOfChannels] = 3;
+		channelIndices[numberOfChannels] = 5;
+		suspended[42] = true;
+
+		final GateDeploymentDescriptor orig = new GateDeploymentDescriptor(new GateID(), ChannelType.NETWORK,
+			channelSeed, sourceIndices, channelIndices, suspended);
+
+		final DataOutputBuffer buffer = new DataOutputBuffer();
+		orig.write(buffer);
+		assertTrue(buffer.getLength() < 128);
+
+		final GateDeploymentDescriptor copy = ServerTestUtils.createCopy(orig);
+		assertEquals(numberOfChannels + 1, copy.getNumberOfChannelDescriptors());
+
+		final Set<ChannelID> channelIDs = new HashSet<ChannelID>();
+		for (int i = 0; i <= numberOfChannels; ++i) {
+
+			final ChannelDeploymentDescriptor cdd = copy.getChannelDescriptor(i);
+			assertEquals(ChannelID.derive(channelSeed, sourceIndices[i], channelIndices[i], false),
+				cdd.getOutputChannelID());
+			assertEquals(ChannelID.derive(channelSeed, sourceIndices[i], channelIndices[i], true),
+				cdd.getInputChannelID());
+			assertEquals(suspended[i], cdd.isSuspended());
+			assertTrue(channelIDs.add(cdd.getOutputChannelID()));
+			assertTrue(channelIDs.add(cdd.getInputChannelID()));
+		}
+	}
 }
@@ -0,0 +1,127 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.executiongraph;
+
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+
+import eu.stratosphere.nephele.execution.librarycache.LibraryCacheManager;
+import eu.stratosphere.nephele.fs.Path;
+import eu.stratosphere.nephele.instance.InstanceManager;
+import eu.stratosphere.nephele.instance.InstanceType;
+import eu.stratosphere.nephele.instance.InstanceTypeFactory;
+import eu.stratosphere.nephele.io.DistributionPattern;
+import eu.stratosphere.nephele.io.channels.ChannelType;
+import eu.stratosphere.nephele.io.library.FileLineReader;
+import eu.stratosphere.nephele.io.library.FileLineWriter;
+import eu.stratosphere.nephele.jobgraph.JobFileInputVertex;
+import eu.stratosphere.nephele.jobgraph.JobFileOutputVertex;
+import eu.stratosphere.nephele.jobgraph.JobGraph;
+import eu.stratosphere.nephele.jobgraph.JobTaskVertex;
+import eu.stratosphere.nephele.util.ServerTestUtils;
+
+/**
+ * Measures the time and the heap space it takes to construct an {@link ExecutionGraph} whose input and task vertices
+ * are connected by a bipartite edge. With a degree of parallelism of <code>n</code> the graph contains
+ * <code>n^2 + n</code> execution edges. The degrees of parallelism can be passed as arguments, the defaults result in
+ * graphs of about 10^6, 4 * 10^6 and 10^7 edges. The largest graph requires a heap of several gigabytes.
+ */
+public class ExecutionGraphConstructionBenchmark {
+
+	private static final int[] DEGREES_OF_PARALLELISM = { 1000, 2000, 3163 };
+
+	public static void main(final String[] args) throws Exception {
+
+		int[] degreesOfParallelism = DEGREES_OF_PARALLELISM;
+		if (args.length > 0) {
+			degreesOfParallelism = new int[args.length];
+			for (int i = 0; i < args.length; ++i) {
+				degreesOfParallelism[i] = Integer.parseInt(args[i]);
+			}
+		}
+
+		final InstanceType instanceType = InstanceTypeFactory.construct("test", 4, 4, 1024, 50, 10);
+		final InstanceManager instanceManager = mock(InstanceManager.class);
+		when(instanceManager.getDefaultInstanceType()).thenReturn(instanceType);
+		when(instanceManager.getInstanceTypeByName(anyString())).thenReturn(instanceType);
+
+		final File inputFile = ServerTestUtils.createInputFile(0);
+
+		try {
+			for (final int degreeOfParallelism : degreesOfParallelism) {
+				run(instanceManager, inputFile, degreeOfParallelism);
+			}
+		} finally {
+			inputFile.delete();
+		}
+	}
+
+	private static void run(final InstanceManager instanceManager, final File inputFile,
+			final int degreeOfParallelism) throws Exception {
+
+		final JobGraph jg = new JobGraph("Construction Benchmark");
+
+		final JobFileInputVertex i1 = new JobFileInputVertex("Input 1", jg);
+		i1.setFileInputClass(FileLineReader.class);
+		i1.setFilePath(new Path(inputFile.toURI()));
+		i1.setNumberOfSubtasks(degreeOfParallelism);
+
+		final JobTaskVertex t1 = new JobTaskVertex("Task 1", jg);
+		t1.setTaskClass(ForwardTask1Input1Output.class);
+		t1.setNumberOfSubtasks(degreeOfParallelism);
+
+		final JobFileOutputVertex o1 = new JobFileOutputVertex("Output 1", jg);
+		o1.setFileOutputClass(FileLineWriter.class);
+		o1.setFilePath(new Path(new File(ServerTestUtils.getRandomFilename()).toURI()));
+		o1.setNumberOfSubtasks(degreeOfParallelism);
+
+		i1.connectTo(t1, ChannelType.NETWORK, -1, -1, DistributionPattern.BIPARTITE);
+		t1.connectTo(o1, ChannelType.NETWORK, -1, -1, DistributionPattern.POINTWISE);
+
+		LibraryCacheManager.register(jg.getJobID(), new String[0]);
+
+		try {
+			final long heapBefore = usedHeap();
+			final long startTime = System.currentTimeMillis();
+			final ExecutionGraph eg = new ExecutionGraph(jg, instanceManager);
+			final long time = System.currentTimeMillis() - startTime;
+			final long heap = usedHeap() - heapBefore;
+
+			final long numberOfEdges = (long) degreeOfParallelism * degreeOfParallelism + degreeOfParallelism;
+			System.out.println("Degree of parallelism " + degreeOfParallelism + ", " + numberOfEdges + " edges: "
+				+ time + " ms, " + (heap >> 20) + " MB heap, " + (heap / numberOfEdges) + " bytes per edge");
+
+			// Keep the graph reachable until its footprint has been measured
+			eg.getJobID();
+		} finally {
+			LibraryCacheManager.unregister(jg.getJobID());
+		}
+	}
+
+	private static long usedHeap() throws InterruptedException {
+
+		final Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; ++i) {
+			System.gc();
+			Thread.sleep(100L);
+		}
+
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -22,10 +22,15 @@ import java.io.IOException;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Test;
 
 import eu.stratosphere.nephele.configuration.Configuration;
+import eu.stratosphere.nephele.execution.ExecutionListener;
 import eu.stratosphere.nephele.execution.ExecutionState;
 import eu.stratosphere.nephele.execution.librarycache.LibraryCacheManager;
 import eu.stratosphere.nephele.executiongraph.ExecutionGraph;
@@ -1046,6 +1051,100 @@ public class ExecutionGraphTest {
 		}
 	}
 
+	/**
+	 * Checks that the transitions to <code>FINISHING</code> of two group vertices which are joined by an in-memory
+	 * channel, and hence belong to the same pipeline, are not processed concurrently.
+	 */
+	@Test
+	public void testFinishingPipelineIsCoordinated() throws Exception {
+
+		File inputFile = null;
+		JobID jobID = null;
+
+		try {
+			inputFile = ServerTestUtils.createInputFile(0);
+
+			final JobGraph jg = new JobGraph("Pipeline Job");
+			jobID = jg.getJobID();
+
+			final JobFileInputVertex i1 = new JobFileInputVertex("Input 1", jg);
+			i1.setFileInputClass(FileLineReader.class);
+			i1.setFilePath(new Path(inputFile.toURI()));
+
+			final JobFileOutputVertex o1 = new JobFileOutputVertex("Output 1", jg);
+			o1.setFileOutputClass(FileLineWriter.class);
+			o1.setFilePath(new Path(new File(ServerTestUtils.getRandomFilename()).toURI()));
+
+			i1.connectTo(o1, ChannelType.INMEMORY);
+
+			LibraryCacheManager.register(jobID, new String[0]);
+
+			final ExecutionGraph eg = new ExecutionGraph(jg, INSTANCE_MANAGER);
+			final ExecutionVertex input = eg.getInputVertex(0);
+			final ExecutionVertex output = eg.getOutputVertex(0);
+			assertNotSame(input.getGroupVertex(), output.getGroupVertex());
+			assertSame(input.getExecutionPipeline(), output.getExecutionPipeline());
+
+			final AtomicInteger activeListeners = new AtomicInteger(0);
+			final AtomicBoolean overlap = new AtomicBoolean(false);
+			final CountDownLatch finishing = new CountDownLatch(2);
+			final ExecutionListener listener = new ExecutionListener() {
+
+				@Override
+				public void executionStateChanged(final JobID jobID, final ExecutionVertexID vertexID,
+						final ExecutionState newExecutionState, final String optionalMessage) {
+
+					if (newExecutionState != ExecutionState.FINISHING) {
+						return;
+					}
+
+					if (activeListeners.incrementAndGet() > 1) {
+						overlap.set(true);
+					}
+					try {
+						Thread.sleep(100L);
+					} catch (InterruptedException e) {
+					}
+					activeListeners.decrementAndGet();
+					finishing.countDown();
+				}
+
+				@Override
+				public void userThreadStarted(final JobID jobID, final ExecutionVertexID vertexID,
+						final Thread userThread) {
+				}
+
+				@Override
+				public void userThreadFinished(final JobID jobID, final ExecutionVertexID vertexID,
+						final Thread userThread) {
+				}
+
+				@Override
+				public int getPriority() {
+					return 100;
+				}
+			};
+
+			for (final ExecutionVertex vertex : new ExecutionVertex[] { input, output }) {
+				vertex.registerExecutionListener(listener);
+				vertex.updateExecutionState(ExecutionState.RUNNING);
+			}
+
+			input.updateExecutionStateAsynchronously(ExecutionState.FINISHING);
+			output.updateExecutionStateAsynchronously(ExecutionState.FINISHING);
+
+			assertTrue(finishing.await(10L, TimeUnit.SECONDS));
+			assertFalse(overlap.get());
+		} finally {
+			if (inputFile != null) {
+				inputFile.delete();
+			}
+			if (jobID != null) {
+				LibraryCacheManager.unregister(jobID);
+			}
+		}
+	}
+
 	/**
 	 * This test checks the correctness of the instance sharing API. In particular, the test checks the behavior of the
 	 * instance sharing as reported broken in ticket #198
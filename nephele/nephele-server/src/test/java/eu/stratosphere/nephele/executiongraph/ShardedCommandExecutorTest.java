@@ -0,0 +1,152 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.executiongraph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+/**
+ * This class contains tests for the {@link ShardedCommandExecutor}.
+ */
+public class ShardedCommandExecutorTest {
+
+	/**
+	 * Creates a command which appends the given number to the given list.
+	 */
+	private static Runnable append(final List<Integer> list, final int number) {
+
+		return new Runnable() {
+
+			@Override
+			public void run() {
+				list.add(Integer.valueOf(number));
+			}
+		};
+	}
+
+	/**
+	 * Checks that the commands of a shard run in the order of their submission, including commands which require
+	 * coordination.
+	 */
+	@Test
+	public void testOrderWithinShard() throws Exception {
+
+		final ShardedCommandExecutor executor = new ShardedCommandExecutor(4);
+		final List<Integer> list = Collections.synchronizedList(new ArrayList<Integer>());
+
+		Future<?> last = null;
+		for (int i = 0; i < 1000; ++i) {
+			last = executor.submit(7, append(list, i), i % 10 == 0);
+		}
+		last.get();
+
+		assertEquals(1000, list.size());
+		for (int i = 0; i < 1000; ++i) {
+			assertEquals(i, list.get(i).intValue());
+		}
+	}
+
+	/**
+	 * Checks that commands of different shards run concurrently.
+	 */
+	@Test
+	public void testConcurrentShards() throws Exception {
+
+		final ShardedCommandExecutor executor = new ShardedCommandExecutor(2);
+		final CountDownLatch latch = new CountDownLatch(1);
+		final AtomicBoolean released = new AtomicBoolean(false);
+
+		// The first command can only complete if the second one runs at the same time
+		final Future<?> waiting = executor.submit(0, new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					released.set(latch.await(10L, TimeUnit.SECONDS));
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}, false);
+
+		executor.submit(1, new Runnable() {
+
+			@Override
+			public void run() {
+				latch.countDown();
+			}
+		}, false).get();
+
+		waiting.get();
+		assertTrue(released.get());
+	}
+
+	/**
+	 * Checks that shard commands do not run while a global command is running.
+	 */
+	@Test
+	public void testGlobalCommandIsExclusive() throws Exception {
+
+		final ShardedCommandExecutor executor = new ShardedCommandExecutor(2);
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch finish = new CountDownLatch(1);
+		final AtomicBoolean globalRunning = new AtomicBoolean(false);
+		final AtomicBoolean overlap = new AtomicBoolean(false);
+
+		final Future<?> global = executor.submit(new Runnable() {
+
+			@Override
+			public void run() {
+				globalRunning.set(true);
+				started.countDown();
+				try {
+					finish.await(10L, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				globalRunning.set(false);
+			}
+		});
+
+		started.await();
+		final Future<?> shard = executor.submit(0, new Runnable() {
+
+			@Override
+			public void run() {
+				overlap.set(globalRunning.get());
+			}
+		}, false);
+
+		Thread.sleep(100L);
+		assertFalse(shard.isDone());
+		finish.countDown();
+
+		global.get();
+		shard.get();
+		assertFalse(overlap.get());
+	}
+}
@@ -0,0 +1,229 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.jobmanager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.powermock.api.mockito.PowerMockito.mock;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import eu.stratosphere.nephele.execution.ExecutionState;
+import eu.stratosphere.nephele.executiongraph.ExecutionVertex;
+import eu.stratosphere.nephele.executiongraph.ExecutionVertexID;
+import eu.stratosphere.nephele.instance.AbstractInstance;
+import eu.stratosphere.nephele.instance.AllocatedResource;
+import eu.stratosphere.nephele.jobgraph.JobID;
+import eu.stratosphere.nephele.taskmanager.AbstractTaskResult.ReturnCode;
+import eu.stratosphere.nephele.taskmanager.TaskSubmissionResult;
+
+/**
+ * This class contains tests for the {@link DeploymentCoordinator}.
+ */
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({ LibraryDistributor.class, ExecutionVertex.class, AllocatedResource.class })
+public class DeploymentCoordinatorTest {
+
+	/**
+	 * The maximum time in seconds to wait for the deployments.
+	 */
+	private static final long TIMEOUT = 10L;
+
+	/**
+	 * Creates a mock vertex in state <code>READY</code> which is assigned to the given instance.
+	 */
+	private static ExecutionVertex createVertex(final AbstractInstance instance) {
+
+		final AllocatedResource allocatedResource = mock(AllocatedResource.class);
+		when(allocatedResource.getInstance()).thenReturn(instance);
+
+		final ExecutionVertex vertex = mock(ExecutionVertex.class);
+		when(vertex.getID()).thenReturn(new ExecutionVertexID());
+		when(vertex.getExecutionState()).thenReturn(ExecutionState.READY);
+		when(vertex.getAllocatedResource()).thenReturn(allocatedResource);
+
+		return vertex;
+	}
+
+	/**
+	 * Creates the result of a successful submission of the given vertex.
+	 */
+	private static List<TaskSubmissionResult> createSuccess(final ExecutionVertex vertex) {
+
+		final List<TaskSubmissionResult> results = new ArrayList<TaskSubmissionResult>();
+		results.add(new TaskSubmissionResult(vertex.getID(), ReturnCode.SUCCESS));
+
+		return results;
+	}
+
+	/**
+	 * Checks that no more than the configured number of deployments run at the same time.
+	 */
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testMaximumConcurrentDeployments() throws Exception {
+
+		final int maximumNumberOfDeployments = 2;
+		final int numberOfInstances = 6;
+
+		final DeploymentCoordinator coordinator = new DeploymentCoordinator(mock(LibraryDistributor.class),
+			maximumNumberOfDeployments);
+
+		final AtomicInteger runningDeployments = new AtomicInteger(0);
+		final AtomicInteger maximumRunningDeployments = new AtomicInteger(0);
+		final CountDownLatch release = new CountDownLatch(1);
+		final CountDownLatch finished = new CountDownLatch(numberOfInstances);
+
+		final JobID jobID = new JobID();
+		for (int i = 0; i < numberOfInstances; ++i) {
+
+			final AbstractInstance instance = mock(AbstractInstance.class);
+			final ExecutionVertex vertex = createVertex(instance);
+			when(instance.submitTasks(any(List.class))).thenAnswer(new Answer<List<TaskSubmissionResult>>() {
+
+				@Override
+				public List<TaskSubmissionResult> answer(final InvocationOnMock invocation) throws Exception {
+
+					final int running = runningDeployments.incrementAndGet();
+					synchronized (maximumRunningDeployments) {
+						maximumRunningDeployments.set(Math.max(running, maximumRunningDeployments.get()));
+					}
+
+					release.await(TIMEOUT, TimeUnit.SECONDS);
+
+					runningDeployments.decrementAndGet();
+					finished.countDown();
+					return createSuccess(vertex);
+				}
+			});
+
+			coordinator.deploy(jobID, instance, Collections.singletonList(vertex));
+			verify(vertex).updateExecutionState(ExecutionState.STARTING, null);
+		}
+
+		// Give the deployments beyond the limit the chance to start if the limit was not enforced
+		while (runningDeployments.get() < maximumNumberOfDeployments) {
+			Thread.sleep(10L);
+		}
+		Thread.sleep(200L);
+		assertEquals(maximumNumberOfDeployments, runningDeployments.get());
+
+		release.countDown();
+		assertTrue(finished.await(TIMEOUT, TimeUnit.SECONDS));
+		assertEquals(maximumNumberOfDeployments, maximumRunningDeployments.get());
+
+		coordinator.shutdown();
+	}
+
+	/**
+	 * Checks that the vertices of a failed submission are switched to <code>FAILED</code> and no deployment latency
+	 * is recorded for them.
+	 */
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testFailedSubmission() throws Exception {
+
+		final DeploymentCoordinator coordinator = new DeploymentCoordinator(mock(LibraryDistributor.class), 1);
+
+		final AbstractInstance instance = mock(AbstractInstance.class);
+		when(instance.submitTasks(any(List.class))).thenThrow(new IOException("Task manager unreachable"));
+
+		final List<ExecutionVertex> vertices = new ArrayList<ExecutionVertex>();
+		final CountDownLatch failed = new CountDownLatch(2);
+		for (int i = 0; i < 2; ++i) {
+			final ExecutionVertex vertex = createVertex(instance);
+			doAnswer(new Answer<Void>() {
+
+				@Override
+				public Void answer(final InvocationOnMock invocation) {
+					failed.countDown();
+					return null;
+				}
+			}).when(vertex).updateExecutionStateAsynchronously(eq(ExecutionState.FAILED), anyString());
+			vertices.add(vertex);
+		}
+
+		final JobID jobID = new JobID();
+		coordinator.deploy(jobID, instance, vertices);
+		assertTrue(failed.await(TIMEOUT, TimeUnit.SECONDS));
+
+		// The ready timestamps must have been cleared, so a late report does not record a latency
+		for (final ExecutionVertex vertex : vertices) {
+			coordinator.reportExecutionState(jobID, vertex.getID(), ExecutionState.RUNNING);
+		}
+		assertNull(coordinator.removeHistogram(jobID));
+
+		coordinator.shutdown();
+	}
+
+	/**
+	 * Checks that the histogram records the time from <code>READY</code> to <code>RUNNING</code> once per vertex.
+	 */
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testLatencyHistogram() throws Exception {
+
+		final DeploymentCoordinator coordinator = new DeploymentCoordinator(mock(LibraryDistributor.class), 1);
+
+		final AbstractInstance instance = mock(AbstractInstance.class);
+		final ExecutionVertex vertex = createVertex(instance);
+		final CountDownLatch submitted = new CountDownLatch(1);
+		when(instance.submitTasks(any(List.class))).thenAnswer(new Answer<List<TaskSubmissionResult>>() {
+
+			@Override
+			public List<TaskSubmissionResult> answer(final InvocationOnMock invocation) {
+				submitted.countDown();
+				return createSuccess(vertex);
+			}
+		});
+
+		final JobID jobID = new JobID();
+		coordinator.deploy(jobID, instance, Collections.singletonList(vertex));
+		assertTrue(submitted.await(TIMEOUT, TimeUnit.SECONDS));
+		verify(instance).submitTasks(any(List.class));
+
+		// STARTING does not end the measurement, RUNNING does
+		coordinator.reportExecutionState(jobID, vertex.getID(), ExecutionState.STARTING);
+		assertNull(coordinator.removeHistogram(jobID));
+		coordinator.reportExecutionState(jobID, vertex.getID(), ExecutionState.RUNNING);
+		coordinator.reportExecutionState(jobID, vertex.getID(), ExecutionState.RUNNING);
+
+		final LatencyHistogram histogram = coordinator.removeHistogram(jobID);
+		assertEquals(1L, histogram.getCount());
+
+		coordinator.shutdown();
+	}
+}
@@ -0,0 +1,65 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.jobmanager;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * This class contains tests for the {@link LatencyHistogram}.
+ */
+public class LatencyHistogramTest {
+
+	/**
+	 * Checks that latencies are assigned to the correct buckets.
+	 */
+	@Test
+	public void testBuckets() {
+
+		assertEquals(0, LatencyHistogram.getBucket(0L));
+		assertEquals(1, LatencyHistogram.getBucket(1L));
+		assertEquals(2, LatencyHistogram.getBucket(2L));
+		assertEquals(2, LatencyHistogram.getBucket(3L));
+		assertEquals(3, LatencyHistogram.getBucket(4L));
+		assertEquals(11, LatencyHistogram.getBucket(1024L));
+		assertEquals(LatencyHistogram.NUMBER_OF_BUCKETS - 1, LatencyHistogram.getBucket(Long.MAX_VALUE));
+	}
+
+	/**
+	 * Checks the percentiles computed from recorded latencies.
+	 */
+	@Test
+	public void testPercentiles() {
+
+		final LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0L, histogram.getPercentile(50.0));
+
+		for (int i = 0; i < 90; ++i) {
+			histogram.record(5L);
+		}
+		for (int i = 0; i < 10; ++i) {
+			histogram.record(100L);
+		}
+
+		assertEquals(100L, histogram.getCount());
+		assertEquals(90L, histogram.getBucketCount(3));
+		assertEquals(10L, histogram.getBucketCount(7));
+		assertEquals(8L, histogram.getPercentile(50.0));
+		assertEquals(8L, histogram.getPercentile(90.0));
+		assertEquals(100L, histogram.getPercentile(99.0));
+	}
+}
@@ -0,0 +1,167 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.jobmanager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.util.Random;
+
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import eu.stratosphere.nephele.execution.librarycache.LibraryCacheManager;
+import eu.stratosphere.nephele.execution.librarycache.LibraryCacheProfileRequest;
+import eu.stratosphere.nephele.execution.librarycache.LibraryCacheProfileResponse;
+import eu.stratosphere.nephele.execution.librarycache.LibraryManifest;
+import eu.stratosphere.nephele.fs.Path;
+import eu.stratosphere.nephele.instance.AbstractInstance;
+import eu.stratosphere.nephele.jobgraph.JobID;
+import eu.stratosphere.nephele.util.StringUtils;
+
+/**
+ * This class contains tests for the {@link LibraryDistributor}.
+ */
+public class LibraryDistributorTest {
+
+	/**
+	 * The cache name of a library which is only known to the distributor.
+	 */
+	private static final String OTHER_LIBRARY = "other.jar";
+
+	/**
+	 * Adds a library with random content to the library cache and registers it for a new job.
+	 */
+	private static JobID registerRandomLibrary(final String[] libraryFileName) throws Exception {
+
+		final byte[] data = new byte[4096];
+		new Random().nextBytes(data);
+		libraryFileName[0] = StringUtils.byteToHexString(MessageDigest.getInstance("SHA-1").digest(data)) + ".jar";
+
+		final JobID jobID = new JobID();
+		LibraryCacheManager.addLibrary(jobID, new Path("file:///test.jar"), data.length, new DataInputStream(
+			new ByteArrayInputStream(data)));
+		LibraryCacheManager.register(jobID, libraryFileName);
+
+		return jobID;
+	}
+
+	/**
+	 * Creates a mock instance which reports the given cache status for every requested library.
+	 */
+	private static AbstractInstance createInstance(final boolean cached) throws IOException {
+
+		final AbstractInstance instance = mock(AbstractInstance.class);
+		when(instance.getLibraryCacheProfile(any(LibraryCacheProfileRequest.class))).thenAnswer(
+			new Answer<LibraryCacheProfileResponse>() {
+
+				@Override
+				public LibraryCacheProfileResponse answer(final InvocationOnMock invocation) {
+
+					final LibraryCacheProfileRequest request = (LibraryCacheProfileRequest) invocation
+						.getArguments()[0];
+					final LibraryCacheProfileResponse response = new LibraryCacheProfileResponse(request);
+					for (int i = 0; i < request.getRequiredLibraries().length; ++i) {
+						response.setCached(i, cached);
+					}
+					return response;
+				}
+			});
+
+		return instance;
+	}
+
+	/**
+	 * Checks that an instance fetches a library from a peer which holds it instead of the job manager.
+	 */
+	@Test
+	public void testPeerToPeerDistribution() throws Exception {
+
+		final String[] libraryFileName = new String[1];
+		final JobID jobID = registerRandomLibrary(libraryFileName);
+
+		final LibraryDistributor distributor = new LibraryDistributor(1, true);
+		final AbstractInstance seed = createInstance(true);
+		final AbstractInstance first = createInstance(false);
+		final AbstractInstance second = createInstance(false);
+
+		distributor.distributeLibraries(seed, jobID);
+		distributor.distributeLibraries(first, jobID);
+		verify(first).fetchLibrary(any(LibraryManifest.class), eq(seed));
+		verify(first, never()).transferLibrary(libraryFileName[0]);
+
+		// Both instances hold the library now, the seed is selected first
+		assertEquals(seed, distributor.acquireSource(second, libraryFileName[0], true));
+		assertEquals(first, distributor.acquireSource(createInstance(false), libraryFileName[0], true));
+
+		LibraryCacheManager.unregister(jobID);
+	}
+
+	/**
+	 * Checks that the job manager transfers the library if fetching it from a peer fails and that the failed peer is
+	 * not selected again, neither for this library nor for any other.
+	 */
+	@Test
+	public void testFallbackToJobManager() throws Exception {
+
+		final String[] libraryFileName = new String[1];
+		final JobID jobID = registerRandomLibrary(libraryFileName);
+
+		final LibraryDistributor distributor = new LibraryDistributor(2, true);
+		final AbstractInstance seed = createInstance(true);
+		final AbstractInstance instance = createInstance(false);
+		distributor.addHolder(OTHER_LIBRARY, seed);
+		doThrow(new IOException("Checksum mismatch")).when(instance).fetchLibrary(any(LibraryManifest.class),
+			eq(seed));
+
+		distributor.distributeLibraries(seed, jobID);
+		distributor.distributeLibraries(instance, jobID);
+		verify(instance).transferLibrary(libraryFileName[0]);
+
+		// The instance which received the library from the job manager has replaced the failed peer
+		assertEquals(instance, distributor.acquireSource(createInstance(false), libraryFileName[0], true));
+		assertNull(distributor.acquireSource(createInstance(false), libraryFileName[0], false));
+		assertNull(distributor.acquireSource(createInstance(false), OTHER_LIBRARY, true));
+
+		LibraryCacheManager.unregister(jobID);
+	}
+
+	/**
+	 * Checks that an instance which has died is no longer selected as a source.
+	 */
+	@Test
+	public void testInstanceDied() throws Exception {
+
+		final LibraryDistributor distributor = new LibraryDistributor(1, true);
+		final AbstractInstance seed = createInstance(true);
+		distributor.addHolder(OTHER_LIBRARY, seed);
+
+		distributor.removeInstance(seed);
+		assertNull(distributor.acquireSource(createInstance(false), OTHER_LIBRARY, true));
+	}
+}
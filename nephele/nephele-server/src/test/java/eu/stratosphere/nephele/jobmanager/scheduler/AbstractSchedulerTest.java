@@ -0,0 +1,378 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.jobmanager.scheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import eu.stratosphere.nephele.configuration.Configuration;
+import eu.stratosphere.nephele.configuration.GlobalConfiguration;
+import eu.stratosphere.nephele.execution.ExecutionState;
+import eu.stratosphere.nephele.execution.librarycache.LibraryCacheManager;
+import eu.stratosphere.nephele.executiongraph.ExecutionGraph;
+import eu.stratosphere.nephele.executiongraph.ExecutionVertex;
+import eu.stratosphere.nephele.fs.Path;
+import eu.stratosphere.nephele.instance.AbstractInstance;
+import eu.stratosphere.nephele.instance.AllocatedResource;
+import eu.stratosphere.nephele.instance.AllocationID;
+import eu.stratosphere.nephele.instance.DummyInstance;
+import eu.stratosphere.nephele.instance.InstanceManager;
+import eu.stratosphere.nephele.instance.InstanceRequestMap;
+import eu.stratosphere.nephele.instance.InstanceType;
+import eu.stratosphere.nephele.instance.InstanceTypeFactory;
+import eu.stratosphere.nephele.io.channels.ChannelType;
+import eu.stratosphere.nephele.io.library.FileLineReader;
+import eu.stratosphere.nephele.io.library.FileLineWriter;
+import eu.stratosphere.nephele.jobgraph.JobFileInputVertex;
+import eu.stratosphere.nephele.jobgraph.JobFileOutputVertex;
+import eu.stratosphere.nephele.jobgraph.JobGraph;
+import eu.stratosphere.nephele.jobgraph.JobID;
+import eu.stratosphere.nephele.jobmanager.DeploymentManager;
+import eu.stratosphere.nephele.util.ServerTestUtils;
+
+/**
+ * This class contains tests for the reuse of the resources of finishing pipelines by the {@link AbstractScheduler}.
+ */
+public class AbstractSchedulerTest {
+
+	/**
+	 * The instance type used by the vertices of the test job.
+	 */
+	private static final InstanceType INSTANCE_TYPE = InstanceTypeFactory.construct("test", 4, 4, 1024, 50, 10);
+
+	/**
+	 * The regular life cycle of a task up to the state <code>FINISHING</code>.
+	 */
+	private static final ExecutionState[] LIFE_CYCLE = { ExecutionState.CREATED, ExecutionState.SCHEDULED,
+		ExecutionState.ASSIGNED, ExecutionState.READY, ExecutionState.STARTING, ExecutionState.RUNNING,
+		ExecutionState.FINISHING };
+
+	/**
+	 * A minimal scheduler which leaves the scheduling of entire jobs to the tests.
+	 */
+	private static final class TestScheduler extends AbstractScheduler {
+
+		/**
+		 * Constructs a new test scheduler.
+		 *
+		 * @param deploymentManager
+		 *        the deployment manager to deploy the vertices with
+		 * @param instanceManager
+		 *        the instance manager the scheduler is registered at
+		 */
+		private TestScheduler(final DeploymentManager deploymentManager, final InstanceManager instanceManager) {
+			super(deploymentManager, instanceManager);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void schedulJob(final ExecutionGraph executionGraph) throws SchedulingException {
+			throw new IllegalStateException("schedulJob called on TestScheduler");
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public ExecutionGraph getExecutionGraphByID(final JobID jobID) {
+			return null;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void shutdown() {
+		}
+	}
+
+	/**
+	 * The file the input vertices of the test job read from.
+	 */
+	private File inputFile;
+
+	/**
+	 * The job graph of the test job.
+	 */
+	private JobGraph jobGraph;
+
+	/**
+	 * The mocked instance manager the scheduler is registered at.
+	 */
+	private InstanceManager instanceManager;
+
+	/**
+	 * The mocked deployment manager the scheduler deploys the vertices with.
+	 */
+	private DeploymentManager deploymentManager;
+
+	/**
+	 * Creates a job in which two input vertices send their output through network channels to one output vertex, so
+	 * each vertex forms its own pipeline.
+	 */
+	@Before
+	public void setUp() throws Exception {
+
+		this.inputFile = ServerTestUtils.createInputFile(0);
+
+		this.jobGraph = new JobGraph("Reuse Job");
+
+		final JobFileInputVertex input = new JobFileInputVertex("Input", this.jobGraph);
+		input.setFileInputClass(FileLineReader.class);
+		input.setFilePath(new Path(this.inputFile.toURI()));
+		input.setNumberOfSubtasks(2);
+
+		final JobFileOutputVertex output = new JobFileOutputVertex("Output", this.jobGraph);
+		output.setFileOutputClass(FileLineWriter.class);
+		output.setFilePath(new Path(new File(ServerTestUtils.getRandomFilename()).toURI()));
+		output.setNumberOfSubtasks(1);
+
+		input.connectTo(output, ChannelType.NETWORK);
+
+		LibraryCacheManager.register(this.jobGraph.getJobID(), new String[0]);
+
+		this.instanceManager = mock(InstanceManager.class);
+		when(this.instanceManager.getDefaultInstanceType()).thenReturn(INSTANCE_TYPE);
+		when(this.instanceManager.getInstanceTypeByName(INSTANCE_TYPE.getIdentifier())).thenReturn(INSTANCE_TYPE);
+
+		this.deploymentManager = mock(DeploymentManager.class);
+	}
+
+	/**
+	 * Removes the input file, the registered libraries and the configuration of the tests.
+	 */
+	@After
+	public void tearDown() throws IOException {
+
+		setReuseFinishingResources(AbstractScheduler.DEFAULT_REUSE_FINISHING_RESOURCES);
+
+		if (this.inputFile != null) {
+			this.inputFile.delete();
+		}
+
+		LibraryCacheManager.unregister(this.jobGraph.getJobID());
+	}
+
+	/**
+	 * Checks that the resource of a finishing input vertex is handed to the waiting output vertex, and that the
+	 * resource of the second input vertex is not used for another deployment, so the job does not occupy more
+	 * instances than the ones it has been assigned.
+	 */
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testHandoffToWaitingVertex() throws Exception {
+
+		setReuseFinishingResources(true);
+
+		final AbstractScheduler scheduler = new TestScheduler(this.deploymentManager, this.instanceManager);
+		final ExecutionGraph eg = new ExecutionGraph(this.jobGraph, this.instanceManager);
+
+		final ExecutionVertex input0 = eg.getInputVertex(0).getGroupVertex().getGroupMember(0);
+		final ExecutionVertex input1 = eg.getInputVertex(0).getGroupVertex().getGroupMember(1);
+		final ExecutionVertex output = eg.getOutputVertex(0);
+		assertNotSame(input0.getExecutionPipeline(), output.getExecutionPipeline());
+
+		final AbstractInstance instance0 = assignInstance(input0, INSTANCE_TYPE);
+		final AbstractInstance instance1 = assignInstance(input1, INSTANCE_TYPE);
+		switchToState(input0, ExecutionState.FINISHING);
+		switchToState(input1, ExecutionState.RUNNING);
+		switchToState(output, ExecutionState.SCHEDULED);
+
+		// The output vertex consumes the running second input vertex, so it may use the resource of the first one
+		scheduler.deployOnFinishingResource(input0);
+
+		assertEquals(ExecutionState.READY, output.getExecutionState());
+		assertSame(instance0, output.getAllocatedResource().getInstance());
+		verify(this.deploymentManager).deploy(any(JobID.class), eq(instance0),
+			eq(Collections.singletonList(output)));
+
+		// No vertex is left waiting, so the resource of the second input vertex must not be used
+		switchToState(input1, ExecutionState.FINISHING);
+		scheduler.deployOnFinishingResource(input1);
+
+		verify(this.deploymentManager, never()).deploy(any(JobID.class), eq(instance1),
+			anyListOf(ExecutionVertex.class));
+		verify(this.deploymentManager, times(1)).deploy(any(JobID.class), any(AbstractInstance.class),
+			anyListOf(ExecutionVertex.class));
+		verify(this.instanceManager, never()).requestInstance(any(JobID.class), any(Configuration.class),
+			any(InstanceRequestMap.class), any(List.class));
+	}
+
+	/**
+	 * Checks that the resource of a finishing vertex is not handed to a vertex whose predecessors have not all started
+	 * yet, since it could only wait for its input on the resource.
+	 */
+	@Test
+	public void testNoHandoffToVertexWithUnstartedPredecessor() throws Exception {
+
+		setReuseFinishingResources(true);
+
+		final AbstractScheduler scheduler = new TestScheduler(this.deploymentManager, this.instanceManager);
+		final ExecutionGraph eg = new ExecutionGraph(this.jobGraph, this.instanceManager);
+
+		final ExecutionVertex input0 = eg.getInputVertex(0).getGroupVertex().getGroupMember(0);
+		final ExecutionVertex input1 = eg.getInputVertex(0).getGroupVertex().getGroupMember(1);
+		final ExecutionVertex output = eg.getOutputVertex(0);
+
+		assignInstance(input0, INSTANCE_TYPE);
+		assignInstance(input1, INSTANCE_TYPE);
+		switchToState(input0, ExecutionState.FINISHING);
+		switchToState(input1, ExecutionState.ASSIGNED);
+		switchToState(output, ExecutionState.SCHEDULED);
+
+		scheduler.deployOnFinishingResource(input0);
+
+		assertEquals(ExecutionState.SCHEDULED, output.getExecutionState());
+		assertTrue(output.getAllocatedResource().getInstance() instanceof DummyInstance);
+		verifyNoDeployment();
+	}
+
+	/**
+	 * Checks that the resource of a finishing vertex is not handed to a vertex which waits for a resource of another
+	 * instance type.
+	 */
+	@Test
+	public void testNoHandoffOfOtherInstanceType() throws Exception {
+
+		setReuseFinishingResources(true);
+
+		final AbstractScheduler scheduler = new TestScheduler(this.deploymentManager, this.instanceManager);
+		final ExecutionGraph eg = new ExecutionGraph(this.jobGraph, this.instanceManager);
+
+		final ExecutionVertex input0 = eg.getInputVertex(0).getGroupVertex().getGroupMember(0);
+		final ExecutionVertex input1 = eg.getInputVertex(0).getGroupVertex().getGroupMember(1);
+		final ExecutionVertex output = eg.getOutputVertex(0);
+
+		assignInstance(input0, InstanceTypeFactory.construct("other", 8, 8, 2048, 100, 20));
+		assignInstance(input1, INSTANCE_TYPE);
+		switchToState(input0, ExecutionState.FINISHING);
+		switchToState(input1, ExecutionState.FINISHING);
+		switchToState(output, ExecutionState.SCHEDULED);
+
+		scheduler.deployOnFinishingResource(input0);
+
+		assertEquals(ExecutionState.SCHEDULED, output.getExecutionState());
+		verifyNoDeployment();
+	}
+
+	/**
+	 * Checks that resources of finishing vertices are not reused unless the reuse is enabled in the configuration.
+	 */
+	@Test
+	public void testNoHandoffWhenDisabled() throws Exception {
+
+		final AbstractScheduler scheduler = new TestScheduler(this.deploymentManager, this.instanceManager);
+		final ExecutionGraph eg = new ExecutionGraph(this.jobGraph, this.instanceManager);
+
+		final ExecutionVertex input0 = eg.getInputVertex(0).getGroupVertex().getGroupMember(0);
+		final ExecutionVertex input1 = eg.getInputVertex(0).getGroupVertex().getGroupMember(1);
+		final ExecutionVertex output = eg.getOutputVertex(0);
+
+		assignInstance(input0, INSTANCE_TYPE);
+		assignInstance(input1, INSTANCE_TYPE);
+		switchToState(input0, ExecutionState.FINISHING);
+		switchToState(input1, ExecutionState.FINISHING);
+		switchToState(output, ExecutionState.SCHEDULED);
+
+		scheduler.deployOnFinishingResource(input0);
+
+		assertEquals(ExecutionState.SCHEDULED, output.getExecutionState());
+		verifyNoDeployment();
+	}
+
+	/**
+	 * Enables or disables the reuse of the resources of finishing pipelines in the global configuration.
+	 *
+	 * @param reuseFinishingResources
+	 *        <code>true</code> to enable the reuse, <code>false</code> to disable it
+	 */
+	private static void setReuseFinishingResources(final boolean reuseFinishingResources) {
+
+		final Configuration conf = new Configuration();
+		conf.setBoolean(AbstractScheduler.REUSE_FINISHING_RESOURCES_KEY, reuseFinishingResources);
+		GlobalConfiguration.includeConfiguration(conf);
+	}
+
+	/**
+	 * Assigns a resource on a new mocked instance of the given type to the given vertex.
+	 *
+	 * @param vertex
+	 *        the vertex to assign the resource to
+	 * @param instanceType
+	 *        the type of the instance
+	 * @return the mocked instance
+	 */
+	private static AbstractInstance assignInstance(final ExecutionVertex vertex, final InstanceType instanceType) {
+
+		final AbstractInstance instance = mock(AbstractInstance.class);
+		vertex.setAllocatedResource(new AllocatedResource(instance, instanceType, new AllocationID()));
+
+		return instance;
+	}
+
+	/**
+	 * Walks the given vertex through its regular life cycle until it reaches the given execution state.
+	 *
+	 * @param vertex
+	 *        the vertex to switch
+	 * @param executionState
+	 *        the execution state to switch the vertex to
+	 */
+	private static void switchToState(final ExecutionVertex vertex, final ExecutionState executionState) {
+
+		int i = 0;
+		while (LIFE_CYCLE[i] != vertex.getExecutionState()) {
+			++i;
+		}
+
+		while (vertex.getExecutionState() != executionState) {
+			vertex.updateExecutionState(LIFE_CYCLE[++i]);
+		}
+	}
+
+	/**
+	 * Checks that the scheduler has neither deployed a vertex nor requested an instance.
+	 */
+	@SuppressWarnings("unchecked")
+	private void verifyNoDeployment() throws Exception {
+
+		verify(this.deploymentManager, never()).deploy(any(JobID.class), any(AbstractInstance.class),
+			anyListOf(ExecutionVertex.class));
+		verify(this.instanceManager, never()).requestInstance(any(JobID.class), any(Configuration.class),
+			any(InstanceRequestMap.class), any(List.class));
+	}
+}
@@ -0,0 +1,109 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.jobmanager.splitassigner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.net.InetAddress;
+
+import org.junit.Test;
+
+import eu.stratosphere.nephele.instance.AbstractInstance;
+import eu.stratosphere.nephele.instance.InstanceConnectionInfo;
+import eu.stratosphere.nephele.instance.local.LocalInstance;
+import eu.stratosphere.nephele.template.LocatableInputSplit;
+import eu.stratosphere.nephele.topology.NetworkNode;
+import eu.stratosphere.nephele.topology.NetworkTopology;
+
+/**
+ * This class contains tests for the {@link LocalityIndexedSplitQueue}.
+ */
+public class LocalityIndexedSplitQueueTest {
+
+	/**
+	 * Creates a network node which does not run an instance, e.g. a rack or a host only storing data.
+	 */
+	private static NetworkNode createNode(final String name, final NetworkNode parentNode,
+			final NetworkTopology topology) {
+
+		return new NetworkNode(name, parentNode, topology) {
+		};
+	}
+
+	/**
+	 * Creates an instance running on the host with the given name.
+	 */
+	private static AbstractInstance createInstance(final String hostName, final NetworkNode rack,
+			final NetworkTopology topology) throws Exception {
+
+		final InstanceConnectionInfo connectionInfo = new InstanceConnectionInfo(InetAddress.getLocalHost(), hostName,
+			null, 1, 2);
+
+		return new LocalInstance(null, connectionInfo, rack, topology, null);
+	}
+
+	/**
+	 * Checks that splits are handed out to instances on the same host first, then to instances in the same rack and
+	 * finally to any instance, and that every split is handed out only once.
+	 */
+	@Test
+	public void testLocalityLevels() throws Exception {
+
+		final NetworkTopology topology = NetworkTopology.createEmptyTopology();
+		final NetworkNode rack1 = createNode("rack1", topology.getRootNode(), topology);
+		final NetworkNode rack2 = createNode("rack2", topology.getRootNode(), topology);
+		createNode("storage1", rack1, topology);
+		createNode("storage2", rack2, topology);
+
+		final AbstractInstance instance1 = createInstance("host1", rack1, topology);
+		final AbstractInstance instance2 = createInstance("host2", rack1, topology);
+		final AbstractInstance instance3 = createInstance("host3", rack2, topology);
+
+		final LocatableInputSplit localSplit = new LocatableInputSplit(0, new String[] { "host1", "storage2" });
+		final LocatableInputSplit rackSplit = new LocatableInputSplit(1, new String[] { "storage1" });
+		final LocatableInputSplit remoteSplit = new LocatableInputSplit(2, new String[] { "storage2" });
+		final LocatableInputSplit unknownSplit = new LocatableInputSplit(3, null);
+
+		final LocalityIndexedSplitQueue<LocatableInputSplit> queue = new LocalityIndexedSplitQueue<LocatableInputSplit>();
+		assertTrue(queue.add(unknownSplit, unknownSplit.getHostnames()));
+		assertTrue(queue.add(remoteSplit, remoteSplit.getHostnames()));
+		assertTrue(queue.add(rackSplit, rackSplit.getHostnames()));
+		assertTrue(queue.add(localSplit, localSplit.getHostnames()));
+		assertFalse(queue.add(localSplit, localSplit.getHostnames()));
+
+		// The split stored on the instance's host is preferred
+		assertEquals(localSplit, queue.poll(instance1));
+
+		// The split stored in the instance's rack is preferred over the other ones
+		assertEquals(rackSplit, queue.poll(instance2));
+
+		// The split stored in the instance's rack is preferred, the consumed local split is skipped
+		assertEquals(remoteSplit, queue.poll(instance3));
+
+		// The remaining split is handed out to any instance
+		assertEquals(unknownSplit, queue.poll(instance1));
+		assertTrue(queue.isEmpty());
+		assertNull(queue.poll(instance2));
+
+		// A returned split is handed out again
+		assertTrue(queue.add(rackSplit, rackSplit.getHostnames()));
+		assertEquals(rackSplit, queue.poll(instance3));
+		assertNull(queue.poll(instance3));
+	}
+}
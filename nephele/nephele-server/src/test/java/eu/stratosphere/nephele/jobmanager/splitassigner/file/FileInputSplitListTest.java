@@ -0,0 +1,184 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.jobmanager.splitassigner.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.Test;
+
+import eu.stratosphere.nephele.fs.FileInputSplit;
+import eu.stratosphere.nephele.fs.Path;
+import eu.stratosphere.nephele.instance.AbstractInstance;
+import eu.stratosphere.nephele.instance.InstanceConnectionInfo;
+import eu.stratosphere.nephele.instance.local.LocalInstance;
+
+/**
+ * This class contains tests for the adaptive split sizing and the handing out of split remainders of the
+ * {@link FileInputSplitList}.
+ */
+public class FileInputSplitListTest {
+
+	/**
+	 * The path of the file the input splits refer to.
+	 */
+	private static final Path PATH = new Path("file:///tmp/input");
+
+	/**
+	 * Creates an instance which is not part of any network topology.
+	 */
+	private static AbstractInstance createInstance() throws Exception {
+
+		final InstanceConnectionInfo connectionInfo = new InstanceConnectionInfo(InetAddress.getLocalHost(), "host",
+			null, 1, 2);
+
+		return new LocalInstance(null, connectionInfo, null, null, null);
+	}
+
+	/**
+	 * Checks that input splits are subdivided as the remaining data shrinks and that the handed out input splits cover
+	 * the data without gaps or overlaps.
+	 */
+	@Test
+	public void testSubdivision() throws Exception {
+
+		final AbstractInstance instance = createInstance();
+		final FileInputSplitList list = new FileInputSplitList(100L, 50L, 0.0f);
+		list.addSplit(new FileInputSplit(0, PATH, 0L, 1000L, null));
+		list.addSplit(new FileInputSplit(1, PATH, 1000L, 150L, null));
+
+		final List<FileInputSplit> splits = new ArrayList<FileInputSplit>();
+		FileInputSplit split;
+		while ((split = list.getNextInputSplit(instance, 2)) != null) {
+			assertTrue(split.getLength() >= 100L);
+			splits.add(split);
+		}
+
+		// The first input split is handed out larger than the last one
+		assertEquals(0L, splits.get(0).getStart());
+		assertTrue(splits.get(0).getLength() > 2L * splits.get(splits.size() - 1).getLength());
+
+		Collections.sort(splits, new Comparator<FileInputSplit>() {
+
+			@Override
+			public int compare(final FileInputSplit o1, final FileInputSplit o2) {
+				return Long.valueOf(o1.getStart()).compareTo(Long.valueOf(o2.getStart()));
+			}
+		});
+
+		long position = 0L;
+		for (final FileInputSplit fileInputSplit : splits) {
+			assertEquals(position, fileInputSplit.getStart());
+			position += fileInputSplit.getLength();
+		}
+		assertEquals(1150L, position);
+	}
+
+	/**
+	 * Checks that an idle consumer receives the unread remainder of an input split beyond the position granted to its
+	 * consumer and that the consumer stops at the start of the remainder.
+	 */
+	@Test
+	public void testRemainder() throws Exception {
+
+		final AbstractInstance instance = createInstance();
+		final FileInputSplitList list = new FileInputSplitList(100L, 50L, 0.0f);
+		list.addSplit(new FileInputSplit(0, PATH, 0L, 1000L, null));
+
+		final FileInputSplit first = list.getNextInputSplit(instance, 1);
+		assertEquals(0L, first.getStart());
+		assertEquals(500L, first.getLength());
+
+		// Only input splits whose consumers report their progress are considered
+		assertEquals(50L, list.reportProgress(first, 0L));
+		assertEquals(500L, list.getNextInputSplit(instance, 1).getStart());
+		assertEquals(750L, list.getNextInputSplit(instance, 1).getStart());
+		assertEquals(875L, list.getNextInputSplit(instance, 1).getStart());
+
+		final FileInputSplit remainder = list.getNextInputSplit(instance, 1);
+		assertEquals(250L, remainder.getStart());
+		assertEquals(250L, remainder.getLength());
+
+		// The consumer may continue up to the start of the remainder
+		assertEquals(90L, list.reportProgress(first, 40L));
+		assertEquals(250L, list.reportProgress(first, 220L));
+		assertEquals(250L, list.reportProgress(first, 251L));
+
+		// The remainder is subdivided further, but never before the position granted to its consumer
+		assertEquals(400L, list.reportProgress(remainder, 350L));
+		assertNull(list.getNextInputSplit(instance, 1));
+		// Granted positions are never withdrawn
+		assertEquals(400L, list.reportProgress(remainder, 250L));
+		final FileInputSplit secondRemainder = list.getNextInputSplit(instance, 1);
+		assertEquals(400L, secondRemainder.getStart());
+		assertEquals(100L, secondRemainder.getLength());
+		assertEquals(400L, list.reportProgress(remainder, 401L));
+
+		// A returned input split is only added again up to the start of its remainder
+		list.returnSplit(remainder);
+		final FileInputSplit returned = list.getNextInputSplit(instance, 1);
+		assertEquals(250L, returned.getStart());
+		assertEquals(150L, returned.getLength());
+		assertNull(list.getNextInputSplit(instance, 1));
+	}
+
+	/**
+	 * Checks that an idle consumer receives the entire unread remainder of an input split beyond the position granted to
+	 * its consumer if the consumer progresses far slower than the other consumers.
+	 */
+	@Test
+	public void testStraggler() throws Exception {
+
+		final AbstractInstance instance = createInstance();
+		final FileInputSplitList list = new FileInputSplitList(100L, 10L, 0.5f);
+		list.addSplit(new FileInputSplit(0, PATH, 0L, 190L, null));
+		list.addSplit(new FileInputSplit(1, PATH, 190L, 190L, null));
+		list.addSplit(new FileInputSplit(2, PATH, 380L, 190L, null));
+
+		final FileInputSplit fast1 = list.getNextInputSplit(instance, 1);
+		final FileInputSplit slow = list.getNextInputSplit(instance, 1);
+		final FileInputSplit fast2 = list.getNextInputSplit(instance, 1);
+		assertEquals(0L, fast1.getStart());
+		assertEquals(190L, slow.getStart());
+		assertEquals(380L, fast2.getStart());
+
+		list.reportProgress(fast1, 0L);
+		list.reportProgress(slow, 190L);
+		list.reportProgress(fast2, 380L);
+
+		Thread.sleep(20L);
+
+		assertEquals(60L, list.reportProgress(fast1, 50L));
+		assertEquals(201L, list.reportProgress(slow, 191L));
+		assertEquals(440L, list.reportProgress(fast2, 430L));
+
+		// None of the halves of the unread data is large enough, but the straggler's entire remainder is
+		final FileInputSplit remainder = list.getNextInputSplit(instance, 1);
+		assertEquals(201L, remainder.getStart());
+		assertEquals(179L, remainder.getLength());
+
+		// The straggler stops at the start of the remainder
+		assertEquals(201L, list.reportProgress(slow, 200L));
+		assertNull(list.getNextInputSplit(instance, 1));
+	}
+}
@@ -0,0 +1,163 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+
+package eu.stratosphere.nephele.taskmanager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import eu.stratosphere.nephele.execution.ExecutionState;
+import eu.stratosphere.nephele.executiongraph.ExecutionVertexID;
+import eu.stratosphere.nephele.instance.HardwareDescription;
+import eu.stratosphere.nephele.instance.InstanceConnectionInfo;
+import eu.stratosphere.nephele.jobgraph.JobID;
+import eu.stratosphere.nephele.protocols.JobManagerProtocol;
+
+/**
+ * This class contains tests for the {@link TaskExecutionStateBatcher}.
+ */
+public class TaskExecutionStateBatcherTest {
+
+	/**
+	 * A job manager which records the calls it receives.
+	 */
+	private static final class RecordingJobManager implements JobManagerProtocol {
+
+		private final List<TaskExecutionState> receivedStates = new ArrayList<TaskExecutionState>();
+
+		private int numberOfCalls = 0;
+
+		@Override
+		public void sendHeartbeat(final InstanceConnectionInfo instanceConnectionInfo,
+				final HardwareDescription hardwareDescription) {
+		}
+
+		@Override
+		public synchronized void updateTaskExecutionState(final TaskExecutionState taskExecutionState) {
+			++this.numberOfCalls;
+			this.receivedStates.add(taskExecutionState);
+		}
+
+		@Override
+		public synchronized void updateTaskExecutionStates(final List<TaskExecutionState> taskExecutionStates)
+				throws IOException {
+			++this.numberOfCalls;
+			this.receivedStates.addAll(taskExecutionStates);
+		}
+	}
+
+	/**
+	 * Creates the state updates of a set of vertices which run through the same sequence of states.
+	 */
+	private static List<TaskExecutionState> createStates(final int numberOfVertices) {
+
+		final JobID jobID = new JobID();
+		final ExecutionVertexID[] vertexIDs = new ExecutionVertexID[numberOfVertices];
+		for (int i = 0; i < numberOfVertices; ++i) {
+			vertexIDs[i] = new ExecutionVertexID();
+		}
+
+		final ExecutionState[] sequence = { ExecutionState.STARTING, ExecutionState.RUNNING, ExecutionState.FINISHING,
+			ExecutionState.FINISHED };
+		final List<TaskExecutionState> states = new ArrayList<TaskExecutionState>();
+		for (final ExecutionState executionState : sequence) {
+			for (final ExecutionVertexID vertexID : vertexIDs) {
+				states.add(new TaskExecutionState(jobID, vertexID, executionState, null));
+			}
+		}
+
+		return states;
+	}
+
+	/**
+	 * Checks that state updates are coalesced and arrive in the order they have been reported.
+	 */
+	@Test
+	public void testBatching() {
+
+		final RecordingJobManager jobManager = new RecordingJobManager();
+		final TaskExecutionStateBatcher batcher = new TaskExecutionStateBatcher(jobManager, 50);
+
+		final List<TaskExecutionState> states = createStates(100);
+		for (final TaskExecutionState state : states) {
+			batcher.report(state);
+		}
+		batcher.shutdown();
+
+		assertEquals(states, jobManager.receivedStates);
+		assertTrue(jobManager.numberOfCalls < states.size());
+	}
+
+	/**
+	 * Checks that a state update reported while the batcher shuts down does not overtake the pending updates.
+	 */
+	@Test
+	public void testReportDuringShutdown() throws Exception {
+
+		final RecordingJobManager jobManager = new RecordingJobManager();
+		final TaskExecutionStateBatcher batcher = new TaskExecutionStateBatcher(jobManager, 500);
+
+		final List<TaskExecutionState> states = createStates(1);
+		batcher.report(states.get(0));
+
+		// Give the batcher's thread the time to take the first update and wait for its batch to fill
+		Thread.sleep(100L);
+
+		final Thread shutdownThread = new Thread() {
+
+			@Override
+			public void run() {
+				batcher.shutdown();
+			}
+		};
+		shutdownThread.start();
+		while (shutdownThread.getState() != Thread.State.WAITING) {
+			Thread.sleep(1L);
+		}
+
+		batcher.report(states.get(1));
+		shutdownThread.join();
+
+		assertEquals(states.subList(0, 2), jobManager.receivedStates);
+	}
+
+	/**
+	 * Checks that state updates are transmitted one by one if batching is disabled or the batcher has been shut down.
+	 */
+	@Test
+	public void testWithoutBatching() {
+
+		final RecordingJobManager jobManager = new RecordingJobManager();
+		final TaskExecutionStateBatcher batcher = new TaskExecutionStateBatcher(jobManager, 0);
+
+		final List<TaskExecutionState> states = createStates(3);
+		for (int i = 0; i < states.size(); ++i) {
+			if (i == 5) {
+				batcher.shutdown();
+			}
+			batcher.report(states.get(i));
+			assertEquals(i + 1, jobManager.numberOfCalls);
+		}
+
+		assertEquals(states, jobManager.receivedStates);
+	}
+}
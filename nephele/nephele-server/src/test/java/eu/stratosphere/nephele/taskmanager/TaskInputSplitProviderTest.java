@@ -0,0 +1,204 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.taskmanager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import org.junit.Test;
+
+import eu.stratosphere.nephele.executiongraph.ExecutionVertexID;
+import eu.stratosphere.nephele.jobgraph.JobID;
+import eu.stratosphere.nephele.jobmanager.splitassigner.InputSplitWrapper;
+import eu.stratosphere.nephele.protocols.AsyncInputSplitProviderProtocol;
+import eu.stratosphere.nephele.protocols.InputSplitProviderProtocol;
+import eu.stratosphere.nephele.template.GenericInputSplit;
+import eu.stratosphere.nephele.types.IntegerRecord;
+import eu.stratosphere.nephele.types.LongRecord;
+
+/**
+ * This class contains tests for the prefetching and the progress reports of the {@link TaskInputSplitProvider}.
+ */
+public class TaskInputSplitProviderTest {
+
+	/**
+	 * The job ID used during the tests.
+	 */
+	private static final JobID JOB_ID = new JobID();
+
+	/**
+	 * A global input split provider which hands out a fixed number of input splits and records the calls it receives.
+	 */
+	private static final class RecordingInputSplitProvider implements InputSplitProviderProtocol {
+
+		private final int numberOfInputSplits;
+
+		private final List<Integer> requestSizes = new ArrayList<Integer>();
+
+		private int numberOfConsumedInputSplits = -1;
+
+		private final List<Integer> reportedSequenceNumbers = new ArrayList<Integer>();
+
+		private RecordingInputSplitProvider(final int numberOfInputSplits) {
+			this.numberOfInputSplits = numberOfInputSplits;
+		}
+
+		@Override
+		public InputSplitWrapper requestNextInputSplit(final JobID jobID, final ExecutionVertexID vertexID,
+				final IntegerRecord sequenceNumber) {
+
+			final int number = sequenceNumber.getValue();
+			return new InputSplitWrapper(jobID, (number < this.numberOfInputSplits) ? new GenericInputSplit(number)
+				: null);
+		}
+
+		@Override
+		public List<InputSplitWrapper> requestNextInputSplits(final JobID jobID, final ExecutionVertexID vertexID,
+				final IntegerRecord sequenceNumber, final IntegerRecord maximumNumberOfInputSplits) {
+
+			this.requestSizes.add(Integer.valueOf(maximumNumberOfInputSplits.getValue()));
+
+			final List<InputSplitWrapper> wrappers = new ArrayList<InputSplitWrapper>();
+			final int end = Math.min(this.numberOfInputSplits, sequenceNumber.getValue()
+				+ maximumNumberOfInputSplits.getValue());
+			for (int i = sequenceNumber.getValue(); i < end; ++i) {
+				wrappers.add(new InputSplitWrapper(jobID, new GenericInputSplit(i)));
+			}
+
+			return wrappers;
+		}
+
+		@Override
+		public void returnInputSplits(final JobID jobID, final ExecutionVertexID vertexID,
+				final IntegerRecord numberOfConsumedInputSplits) {
+
+			this.numberOfConsumedInputSplits = numberOfConsumedInputSplits.getValue();
+		}
+
+		@Override
+		public LongRecord reportInputSplitProgress(final JobID jobID, final ExecutionVertexID vertexID,
+				final IntegerRecord sequenceNumber, final LongRecord position) {
+
+			this.reportedSequenceNumbers.add(Integer.valueOf(sequenceNumber.getValue()));
+
+			return new LongRecord(position.getValue() + 1L);
+		}
+
+		/**
+		 * Returns an asynchronous view on this provider whose futures are already completed.
+		 */
+		private AsyncInputSplitProviderProtocol getAsyncProvider() {
+
+			return new AsyncInputSplitProviderProtocol() {
+
+				@Override
+				public Future<List<InputSplitWrapper>> requestNextInputSplits(final JobID jobID,
+						final ExecutionVertexID vertexID, final IntegerRecord sequenceNumber,
+						final IntegerRecord maximumNumberOfInputSplits) {
+
+					final FutureTask<List<InputSplitWrapper>> future = new FutureTask<List<InputSplitWrapper>>(
+						new Runnable() {
+
+							@Override
+							public void run() {
+							}
+						}, RecordingInputSplitProvider.this.requestNextInputSplits(jobID, vertexID, sequenceNumber,
+							maximumNumberOfInputSplits));
+					future.run();
+
+					return future;
+				}
+			};
+		}
+	}
+
+	/**
+	 * Checks that the input splits are requested in batches and handed out in the order of their sequence numbers.
+	 */
+	@Test
+	public void testPrefetching() {
+
+		final RecordingInputSplitProvider globalProvider = new RecordingInputSplitProvider(10);
+		final TaskInputSplitProvider provider = new TaskInputSplitProvider(JOB_ID, new ExecutionVertexID(),
+			globalProvider, globalProvider.getAsyncProvider(), 4);
+
+		for (int i = 0; i < 10; ++i) {
+			assertEquals(i, provider.getNextInputSplit().getSplitNumber());
+		}
+		assertNull(provider.getNextInputSplit());
+		assertNull(provider.getNextInputSplit());
+
+		// The buffer is refilled once it has drained to half of its capacity, the last request is not fully served
+		final List<Integer> expectedRequestSizes = new ArrayList<Integer>();
+		expectedRequestSizes.add(Integer.valueOf(4));
+		expectedRequestSizes.add(Integer.valueOf(2));
+		expectedRequestSizes.add(Integer.valueOf(3));
+		expectedRequestSizes.add(Integer.valueOf(2));
+		assertEquals(expectedRequestSizes, globalProvider.requestSizes);
+	}
+
+	/**
+	 * Checks that the prefetched input splits which have not been consumed are returned.
+	 */
+	@Test
+	public void testReturnUnconsumedInputSplits() throws IOException {
+
+		final RecordingInputSplitProvider globalProvider = new RecordingInputSplitProvider(10);
+		final TaskInputSplitProvider provider = new TaskInputSplitProvider(JOB_ID, new ExecutionVertexID(),
+			globalProvider, globalProvider.getAsyncProvider(), 4);
+
+		assertEquals(0, provider.getNextInputSplit().getSplitNumber());
+		assertEquals(1, provider.getNextInputSplit().getSplitNumber());
+
+		provider.returnUnconsumedInputSplits();
+		assertEquals(2, globalProvider.numberOfConsumedInputSplits);
+		assertNull(provider.getNextInputSplit());
+	}
+
+	/**
+	 * Checks that progress reports refer to the input split most recently handed out to the task, with and without
+	 * prefetching.
+	 */
+	@Test
+	public void testProgressReports() {
+
+		for (int prefetch = 0; prefetch <= 4; prefetch += 4) {
+
+			final RecordingInputSplitProvider globalProvider = new RecordingInputSplitProvider(3);
+			final TaskInputSplitProvider provider = new TaskInputSplitProvider(JOB_ID, new ExecutionVertexID(),
+				globalProvider, globalProvider.getAsyncProvider(), prefetch);
+
+			// Without an input split there is nothing to limit
+			assertEquals(Long.MAX_VALUE, provider.reportInputSplitProgress(0L));
+
+			final List<Integer> expectedSequenceNumbers = new ArrayList<Integer>();
+			while (provider.getNextInputSplit() != null) {
+				assertEquals(11L, provider.reportInputSplitProgress(10L));
+				assertEquals(21L, provider.reportInputSplitProgress(20L));
+				expectedSequenceNumbers.add(Integer.valueOf(expectedSequenceNumbers.size() / 2));
+				expectedSequenceNumbers.add(Integer.valueOf(expectedSequenceNumbers.size() / 2));
+			}
+
+			assertEquals(expectedSequenceNumbers, globalProvider.reportedSequenceNumbers);
+		}
+	}
+}
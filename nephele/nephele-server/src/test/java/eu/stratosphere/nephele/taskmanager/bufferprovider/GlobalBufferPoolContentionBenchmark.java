@@ -0,0 +1,138 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.taskmanager.bufferprovider;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+
+import eu.stratosphere.nephele.services.memorymanager.MemorySegment;
+
+/**
+ * Measures the throughput of lock/release cycles on the {@link GlobalBufferPool} with an increasing number of
+ * concurrent threads and compares it to a single {@link ArrayBlockingQueue}, the structure the pool was previously
+ * built on.
+ */
+public class GlobalBufferPoolContentionBenchmark {
+
+	private static final int NUMBER_OF_BUFFERS = 2048;
+
+	private static final int BUFFER_SIZE = 1024;
+
+	private static final int OPERATIONS_PER_THREAD = 2000000;
+
+	private static final int[] THREAD_COUNTS = { 1, 2, 4, 8, 16 };
+
+	public static void main(final String[] args) throws Exception {
+
+		for (final int batchSize : new int[] { 1, 8 }) {
+			for (final int numberOfThreads : THREAD_COUNTS) {
+				final GlobalBufferPool pool = new GlobalBufferPool(NUMBER_OF_BUFFERS, NUMBER_OF_BUFFERS, BUFFER_SIZE,
+					batchSize, Runtime.getRuntime().availableProcessors(), 0, 0L, 1.0f);
+				final long time = runStriped(pool, numberOfThreads);
+				report("Striped pool (batch size " + batchSize + ")", numberOfThreads, time);
+			}
+		}
+
+		for (final int numberOfThreads : THREAD_COUNTS) {
+			final ArrayBlockingQueue<MemorySegment> queue = new ArrayBlockingQueue<MemorySegment>(NUMBER_OF_BUFFERS);
+			for (int i = 0; i < NUMBER_OF_BUFFERS; ++i) {
+				queue.add(new MemorySegment(new byte[BUFFER_SIZE]));
+			}
+			final long time = runQueue(queue, numberOfThreads);
+			report("ArrayBlockingQueue", numberOfThreads, time);
+		}
+	}
+
+	private static void report(final String name, final int numberOfThreads, final long time) {
+
+		final double opsPerMs = (double) OPERATIONS_PER_THREAD * numberOfThreads / (double) Math.max(1L, time);
+		System.out.println(name + ", " + numberOfThreads + " threads: " + time + " ms, " + (long) opsPerMs
+			+ " lock/release cycles per ms");
+	}
+
+	private static long runStriped(final GlobalBufferPool pool, final int numberOfThreads) throws Exception {
+
+		final CountDownLatch start = new CountDownLatch(1);
+		final Thread[] threads = new Thread[numberOfThreads];
+		for (int i = 0; i < numberOfThreads; ++i) {
+			threads[i] = new Thread() {
+
+				@Override
+				public void run() {
+
+					final MemorySegment[] batch = new MemorySegment[pool.getBatchSize()];
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+
+					int remaining = OPERATIONS_PER_THREAD;
+					while (remaining > 0) {
+						final int count = pool.lockGlobalBuffers(batch, Math.min(batch.length, remaining));
+						pool.releaseGlobalBuffers(batch, count);
+						remaining -= Math.max(1, count);
+					}
+				}
+			};
+			threads[i].start();
+		}
+
+		return runThreads(start, threads);
+	}
+
+	private static long runQueue(final ArrayBlockingQueue<MemorySegment> queue, final int numberOfThreads)
+			throws Exception {
+
+		final CountDownLatch start = new CountDownLatch(1);
+		final Thread[] threads = new Thread[numberOfThreads];
+		for (int i = 0; i < numberOfThreads; ++i) {
+			threads[i] = new Thread() {
+
+				@Override
+				public void run() {
+
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+
+					for (int j = 0; j < OPERATIONS_PER_THREAD; ++j) {
+						final MemorySegment seg = queue.poll();
+						if (seg != null) {
+							queue.add(seg);
+						}
+					}
+				}
+			};
+			threads[i].start();
+		}
+
+		return runThreads(start, threads);
+	}
+
+	private static long runThreads(final CountDownLatch start, final Thread[] threads) throws InterruptedException {
+
+		final long startTime = System.currentTimeMillis();
+		start.countDown();
+		for (int i = 0; i < threads.length; ++i) {
+			threads[i].join();
+		}
+
+		return System.currentTimeMillis() - startTime;
+	}
+}
@@ -0,0 +1,213 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.taskmanager.bufferprovider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.IdentityHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+import eu.stratosphere.nephele.services.memorymanager.MemorySegment;
+
+/**
+ * This class contains tests for the {@link GlobalBufferPool}.
+ * 
+ */
+public class GlobalBufferPoolTest {
+
+	private static final int NUMBER_OF_BUFFERS = 64;
+
+	private static final int BUFFER_SIZE = 128;
+
+	/**
+	 * Checks that every buffer can be locked exactly once, regardless of the stripe it is initially assigned to.
+	 */
+	@Test
+	public void testLockAllBuffers() {
+
+		final GlobalBufferPool pool = new GlobalBufferPool(NUMBER_OF_BUFFERS, NUMBER_OF_BUFFERS, BUFFER_SIZE, 4, 4, 16,
+			0L, 1.0f);
+		assertEquals(NUMBER_OF_BUFFERS, pool.getCurrentNumberOfBuffers());
+
+		final IdentityHashMap<MemorySegment, Boolean> locked = new IdentityHashMap<MemorySegment, Boolean>();
+		final MemorySegment[] batch = new MemorySegment[5];
+		int count;
+		while ((count = pool.lockGlobalBuffers(batch, batch.length)) > 0) {
+			for (int i = 0; i < count; ++i) {
+				assertNull(locked.put(batch[i], Boolean.TRUE));
+			}
+		}
+
+		assertEquals(NUMBER_OF_BUFFERS, locked.size());
+		assertEquals(0, pool.getCurrentNumberOfBuffers());
+		assertNull(pool.lockGlobalBuffer());
+
+		for (final MemorySegment seg : locked.keySet()) {
+			pool.releaseGlobalBuffer(seg);
+		}
+
+		assertEquals(NUMBER_OF_BUFFERS, pool.getCurrentNumberOfBuffers());
+		assertEquals(NUMBER_OF_BUFFERS, pool.getTotalNumberOfBuffers());
+	}
+
+	/**
+	 * Checks that no buffer is lost or duplicated when several threads lock and release buffers concurrently.
+	 */
+	@Test
+	public void testConcurrentLockAndRelease() throws Exception {
+
+		final GlobalBufferPool pool = new GlobalBufferPool(NUMBER_OF_BUFFERS, NUMBER_OF_BUFFERS, BUFFER_SIZE, 4, 4, 16,
+			0L, 1.0f);
+		final AtomicBoolean failed = new AtomicBoolean(false);
+		final Thread[] threads = new Thread[8];
+
+		for (int i = 0; i < threads.length; ++i) {
+			threads[i] = new Thread() {
+
+				@Override
+				public void run() {
+
+					final MemorySegment[] batch = new MemorySegment[pool.getBatchSize()];
+					for (int j = 0; j < 20000; ++j) {
+
+						final int count = pool.lockGlobalBuffers(batch, batch.length);
+						for (int k = 0; k < count; ++k) {
+							if (batch[k] == null) {
+								failed.set(true);
+							}
+						}
+						pool.releaseGlobalBuffers(batch, count);
+					}
+				}
+			};
+			threads[i].start();
+		}
+
+		for (int i = 0; i < threads.length; ++i) {
+			threads[i].join();
+		}
+
+		assertTrue(!failed.get());
+		assertEquals(NUMBER_OF_BUFFERS, pool.getCurrentNumberOfBuffers());
+
+		final IdentityHashMap<MemorySegment, Boolean> locked = new IdentityHashMap<MemorySegment, Boolean>();
+		MemorySegment seg;
+		while ((seg = pool.lockGlobalBuffer()) != null) {
+			assertNotNull(seg);
+			assertNull(locked.put(seg, Boolean.TRUE));
+		}
+		assertEquals(NUMBER_OF_BUFFERS, locked.size());
+	}
+
+	/**
+	 * Checks that an elastic pool grows in chunks up to its maximum size and shrinks back to its minimum size once the
+	 * buffers have been idle for the configured time.
+	 */
+	@Test
+	public void testGrowAndShrink() {
+
+		final GlobalBufferPool pool = new GlobalBufferPool(8, 40, BUFFER_SIZE, 4, 2, 16, 1000L, 1.0f);
+		assertEquals(8, pool.getTotalNumberOfBuffers());
+		assertEquals(40, pool.getMaximumNumberOfBuffers());
+
+		final MemorySegment[] locked = new MemorySegment[64];
+		assertEquals(12, pool.lockGlobalBuffers(locked, 12));
+		assertEquals(24, pool.getTotalNumberOfBuffers());
+		assertEquals(12, pool.getCurrentNumberOfBuffers());
+
+		final MemorySegment[] more = new MemorySegment[64];
+		assertEquals(28, pool.lockGlobalBuffers(more, 64));
+		assertEquals(40, pool.getTotalNumberOfBuffers());
+		assertEquals(0, pool.getCurrentNumberOfBuffers());
+		assertNull(pool.lockGlobalBuffer());
+
+		pool.releaseGlobalBuffers(locked, 12);
+		pool.releaseGlobalBuffers(more, 28);
+		assertEquals(40, pool.getCurrentNumberOfBuffers());
+
+		// No shrinking within the idle time
+		assertEquals(0, pool.releaseSurplusBuffers(System.currentTimeMillis()));
+
+		final long later = System.currentTimeMillis() + 2000L;
+		assertEquals(16, pool.releaseSurplusBuffers(later));
+		assertEquals(16, pool.releaseSurplusBuffers(later));
+		assertEquals(0, pool.releaseSurplusBuffers(later));
+		assertEquals(8, pool.getTotalNumberOfBuffers());
+		assertEquals(8, pool.getCurrentNumberOfBuffers());
+	}
+
+	/**
+	 * Checks that an elastic pool does not grow beyond the configured heap usage, does not retry to grow within the
+	 * retry interval, and releases surplus buffers within the idle time while the heap usage exceeds the configured
+	 * fraction of the maximum heap size.
+	 */
+	@Test
+	public void testHeapPressure() {
+
+		// Any heap usage exceeds a fraction of 0
+		final GlobalBufferPool constrainedPool = new GlobalBufferPool(8, 40, BUFFER_SIZE, 4, 2, 16, 1000L, 0.0f);
+		final MemorySegment[] locked = new MemorySegment[64];
+		assertEquals(8, constrainedPool.lockGlobalBuffers(locked, 12));
+		assertEquals(8, constrainedPool.getTotalNumberOfBuffers());
+
+		final GlobalBufferPool pool = new GlobalBufferPool(8, 40, BUFFER_SIZE, 4, 2, 16, 1000L, 0.9f);
+		assertEquals(8, pool.lockGlobalBuffers(locked, 8));
+
+		// A chunk of 16 buffers of 128 bytes would push the heap usage beyond 90000 bytes
+		final long now = System.currentTimeMillis();
+		assertFalse(pool.grow(now, 88000L, 100000L));
+		assertEquals(8, pool.getTotalNumberOfBuffers());
+
+		// Lock requests do not attempt to grow again within the retry interval
+		final MemorySegment[] more = new MemorySegment[64];
+		assertEquals(0, pool.lockGlobalBuffers(more, 1));
+		assertEquals(8, pool.getTotalNumberOfBuffers());
+
+		assertTrue(pool.grow(now + 2000L, 80000L, 100000L));
+		assertEquals(24, pool.getTotalNumberOfBuffers());
+		assertEquals(16, pool.lockGlobalBuffers(more, 16));
+
+		pool.releaseGlobalBuffers(locked, 8);
+		pool.releaseGlobalBuffers(more, 16);
+		assertEquals(0, pool.releaseSurplusBuffers(now, 800L, 1000L));
+		assertEquals(16, pool.releaseSurplusBuffers(now, 950L, 1000L));
+		assertEquals(8, pool.getTotalNumberOfBuffers());
+	}
+
+	/**
+	 * Checks that the number of buffers an elastic pool can reach is limited by the chunks which fit into the
+	 * configured fraction of the maximum heap size.
+	 */
+	@Test
+	public void testReachableNumberOfBuffers() {
+
+		// Each chunk of 16 buffers of 128 bytes adds 2048 bytes to a heap usage limited to 50000 bytes
+		final GlobalBufferPool pool = new GlobalBufferPool(8, 40, BUFFER_SIZE, 4, 2, 16, 1000L, 0.5f);
+		assertEquals(40, pool.getReachableNumberOfBuffers(40000L, 100000L));
+		assertEquals(24, pool.getReachableNumberOfBuffers(47000L, 100000L));
+		assertEquals(8, pool.getReachableNumberOfBuffers(49000L, 100000L));
+
+		final GlobalBufferPool fixedPool = new GlobalBufferPool(NUMBER_OF_BUFFERS, NUMBER_OF_BUFFERS, BUFFER_SIZE, 4,
+			4, 16, 0L, 0.0f);
+		assertEquals(NUMBER_OF_BUFFERS, fixedPool.getReachableNumberOfBuffers(99000L, 100000L));
+	}
+}
@@ -0,0 +1,284 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.taskmanager.bytebuffered;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.powermock.api.mockito.PowerMockito.mock;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import eu.stratosphere.nephele.io.channels.Buffer;
+import eu.stratosphere.nephele.io.channels.BufferFactory;
+import eu.stratosphere.nephele.io.channels.ChannelID;
+import eu.stratosphere.nephele.jobgraph.JobID;
+import eu.stratosphere.nephele.services.memorymanager.MemorySegment;
+import eu.stratosphere.nephele.taskmanager.bufferprovider.BufferAvailabilityListener;
+import eu.stratosphere.nephele.taskmanager.bufferprovider.BufferProvider;
+import eu.stratosphere.nephele.taskmanager.bufferprovider.BufferProviderBroker;
+import eu.stratosphere.nephele.taskmanager.transferenvelope.TransferEnvelope;
+import eu.stratosphere.nephele.taskmanager.transferenvelope.TransferEnvelopeDispatcher;
+import eu.stratosphere.nephele.util.BufferPoolConnector;
+
+/**
+ * This class contains tests for the {@link ChannelMultiplexer} and the {@link ChannelDemultiplexer}.
+ */
+@RunWith(PowerMockRunner.class)
+@PrepareForTest(NetworkConnectionManager.class)
+public class ChannelMultiplexerTest {
+
+	/**
+	 * The size of the test buffers in bytes.
+	 */
+	private static final int TEST_BUFFER_SIZE = 128;
+
+	/**
+	 * The job ID used during the tests.
+	 */
+	private static final JobID JOB_ID = new JobID();
+
+	/**
+	 * The remote receiver used during the tests.
+	 */
+	private static final RemoteReceiver REMOTE_RECEIVER = new RemoteReceiver(new InetSocketAddress("localhost",
+		6121), 0);
+
+	/**
+	 * A simple buffer provider backed by a fixed number of memory segments.
+	 * <p>
+	 * This class is not thread-safe.
+	 */
+	private static final class TestBufferProvider implements BufferProvider {
+
+		private final Queue<MemorySegment> bufferPool = new ArrayDeque<MemorySegment>();
+
+		private TestBufferProvider(final int numberOfBuffers) {
+
+			for (int i = 0; i < numberOfBuffers; ++i) {
+				this.bufferPool.add(new MemorySegment(new byte[TEST_BUFFER_SIZE]));
+			}
+		}
+
+		@Override
+		public Buffer requestEmptyBuffer(final int minimumSizeOfBuffer) throws IOException {
+
+			if (this.bufferPool.isEmpty()) {
+				return null;
+			}
+
+			return BufferFactory.createFromMemory(minimumSizeOfBuffer, this.bufferPool.poll(),
+				new BufferPoolConnector(this.bufferPool));
+		}
+
+		@Override
+		public Buffer requestEmptyBufferBlocking(final int minimumSizeOfBuffer) throws IOException,
+				InterruptedException {
+
+			final Buffer buffer = requestEmptyBuffer(minimumSizeOfBuffer);
+			assertNotNull(buffer);
+
+			return buffer;
+		}
+
+		@Override
+		public int getMaximumBufferSize() {
+
+			return TEST_BUFFER_SIZE;
+		}
+
+		@Override
+		public boolean isShared() {
+
+			return false;
+		}
+
+		@Override
+		public void reportAsynchronousEvent() {
+
+			throw new IllegalStateException("reportAsynchronousEvent called");
+		}
+
+		@Override
+		public boolean registerBufferAvailabilityListener(final BufferAvailabilityListener bufferAvailabilityListener) {
+
+			throw new IllegalStateException("registerBufferAvailabilityListener called");
+		}
+
+		private int getNumberOfAvailableBuffers() {
+
+			return this.bufferPool.size();
+		}
+	}
+
+	/**
+	 * A dispatcher which collects the envelopes passed to it.
+	 */
+	private static final class CollectingDispatcher implements TransferEnvelopeDispatcher, BufferProviderBroker {
+
+		private final BufferProvider bufferProvider;
+
+		private final List<TransferEnvelope> envelopes = new ArrayList<TransferEnvelope>();
+
+		private CollectingDispatcher(final BufferProvider bufferProvider) {
+			this.bufferProvider = bufferProvider;
+		}
+
+		@Override
+		public BufferProvider getBufferProvider(final JobID jobID, final ChannelID sourceChannelID) {
+
+			return this.bufferProvider;
+		}
+
+		@Override
+		public void processEnvelopeFromOutputChannel(final TransferEnvelope transferEnvelope) {
+
+			throw new IllegalStateException("processEnvelopeFromOutputChannel called");
+		}
+
+		@Override
+		public void processEnvelopeFromInputChannel(final TransferEnvelope transferEnvelope) {
+
+			throw new IllegalStateException("processEnvelopeFromInputChannel called");
+		}
+
+		@Override
+		public void processEnvelopeFromNetwork(final TransferEnvelope transferEnvelope, final boolean freeSourceBuffer) {
+
+			this.envelopes.add(transferEnvelope);
+		}
+	}
+
+	/**
+	 * Creates a transfer envelope whose buffer is filled with the given byte value.
+	 */
+	private static TransferEnvelope createEnvelope(final TestBufferProvider bufferProvider, final ChannelID source,
+			final int sequenceNumber, final int size, final byte value) throws IOException, InterruptedException {
+
+		final Buffer buffer = bufferProvider.requestEmptyBufferBlocking(size);
+		final ByteBuffer data = ByteBuffer.allocate(size);
+		for (int i = 0; i < size; ++i) {
+			data.put(value);
+		}
+		data.flip();
+		buffer.write(data);
+		buffer.flip();
+
+		final TransferEnvelope transferEnvelope = new TransferEnvelope(sequenceNumber, JOB_ID, source);
+		transferEnvelope.setBuffer(buffer);
+
+		return transferEnvelope;
+	}
+
+	/**
+	 * Checks that the buffers of several channels are packed into shared buffers and restored with their original
+	 * sources and sequence numbers.
+	 */
+	@Test
+	public void testMultiplexAndDemultiplex() throws Exception {
+
+		final NetworkConnectionManager networkConnectionManager = mock(NetworkConnectionManager.class);
+		final TestBufferProvider senderProvider = new TestBufferProvider(8);
+		final ChannelMultiplexer multiplexer = new ChannelMultiplexer(JOB_ID, REMOTE_RECEIVER,
+			networkConnectionManager, senderProvider);
+
+		final ChannelID source1 = new ChannelID();
+		final ChannelID source2 = new ChannelID();
+
+		// 2 * (12 + 40) bytes fit into the first shared buffer, the third frame opens a second one
+		final TransferEnvelope[] envelopes = new TransferEnvelope[] {
+			createEnvelope(senderProvider, source1, 0, 40, (byte) 1),
+			createEnvelope(senderProvider, source2, 0, 40, (byte) 2),
+			createEnvelope(senderProvider, source1, 1, 40, (byte) 3) };
+
+		for (final TransferEnvelope envelope : envelopes) {
+			assertTrue(multiplexer.multiplex(envelope));
+			envelope.getBuffer().recycleBuffer();
+		}
+
+		// A buffer which does not fit into a shared buffer must be transmitted directly
+		final TransferEnvelope large = createEnvelope(senderProvider, source2, 1, TEST_BUFFER_SIZE, (byte) 4);
+		assertFalse(multiplexer.multiplex(large));
+		large.getBuffer().recycleBuffer();
+
+		multiplexer.close();
+
+		final ArgumentCaptor<TransferEnvelope> captor = ArgumentCaptor.forClass(TransferEnvelope.class);
+		verify(networkConnectionManager, times(4)).queueEnvelopeForTransfer(eq(REMOTE_RECEIVER), captor.capture());
+		final List<TransferEnvelope> queued = captor.getAllValues();
+
+		// Announcement, two shared buffers and the closing event
+		assertNull(queued.get(0).getBuffer());
+		assertNotNull(queued.get(1).getBuffer());
+		assertNotNull(queued.get(2).getBuffer());
+		assertTrue(MultiplexedChannelEvent.getMultiplexedChannelEvent(queued.get(3)).isClosing());
+		assertEquals(2, MultiplexedChannelEvent.getMultiplexedChannelEvent(queued.get(1)).getSources().size());
+		assertNull(queued.get(2).getEventList());
+
+		final TestBufferProvider receiverProvider = new TestBufferProvider(8);
+		final CollectingDispatcher dispatcher = new CollectingDispatcher(receiverProvider);
+		final ChannelDemultiplexer demultiplexer = new ChannelDemultiplexer();
+
+		for (final TransferEnvelope envelope : queued) {
+			final MultiplexedChannelEvent event = MultiplexedChannelEvent.getMultiplexedChannelEvent(envelope);
+			if (event != null) {
+				demultiplexer.declareSources(event);
+			}
+			if (envelope.getBuffer() != null) {
+				demultiplexer.demultiplex(envelope, dispatcher, dispatcher);
+			}
+		}
+
+		// The shared buffers have been recycled after demultiplexing
+		assertEquals(8, senderProvider.getNumberOfAvailableBuffers());
+		assertEquals(8 - envelopes.length, receiverProvider.getNumberOfAvailableBuffers());
+
+		assertEquals(envelopes.length, dispatcher.envelopes.size());
+		for (int i = 0; i < envelopes.length; ++i) {
+
+			final TransferEnvelope received = dispatcher.envelopes.get(i);
+			assertEquals(envelopes[i].getSource(), received.getSource());
+			assertEquals(envelopes[i].getSequenceNumber(), received.getSequenceNumber());
+			assertEquals(JOB_ID, received.getJobID());
+
+			final Buffer buffer = received.getBuffer();
+			assertEquals(40, buffer.size());
+			final ByteBuffer data = ByteBuffer.allocate(40);
+			buffer.read(data);
+			for (int j = 0; j < data.capacity(); ++j) {
+				assertEquals(i + 1, data.get(j));
+			}
+			buffer.recycleBuffer();
+		}
+	}
+}
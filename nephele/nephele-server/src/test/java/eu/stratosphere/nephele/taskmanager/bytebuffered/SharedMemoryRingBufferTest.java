@@ -0,0 +1,211 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.taskmanager.bytebuffered;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import eu.stratosphere.nephele.io.channels.ChannelID;
+import eu.stratosphere.nephele.jobgraph.JobID;
+import eu.stratosphere.nephele.taskmanager.transferenvelope.TransferEnvelope;
+
+/**
+ * This class contains tests for the {@link SharedMemoryRingBuffer}.
+ * 
+ */
+public class SharedMemoryRingBufferTest {
+
+	private static final String NAME = "nephele-test.ring";
+
+	private File directory;
+
+	@Before
+	public void createDirectory() {
+
+		this.directory = new File(System.getProperty("java.io.tmpdir"), "nephele-shm-test-" + System.nanoTime());
+		assertTrue(this.directory.mkdirs());
+	}
+
+	@After
+	public void deleteDirectory() {
+
+		final File[] files = this.directory.listFiles();
+		if (files != null) {
+			for (final File file : files) {
+				file.delete();
+			}
+		}
+		this.directory.delete();
+	}
+
+	/**
+	 * Checks that data written to the ring buffer is read back unmodified across several wrap-arounds, and that the
+	 * reader observes the end of the stream after the writer has been closed.
+	 */
+	@Test
+	public void testWriteAndRead() throws Exception {
+
+		final SharedMemoryRingBuffer writer = SharedMemoryRingBuffer.createForWriting(this.directory, NAME, 100);
+		assertEquals(128, writer.getCapacity());
+		assertEquals(0L, writer.getReaderHeartbeat());
+
+		final SharedMemoryRingBuffer reader = SharedMemoryRingBuffer.openForReading(new File(this.directory, NAME));
+		assertNotNull(reader);
+		assertTrue(writer.getReaderHeartbeat() != 0L);
+		assertEquals(0, this.directory.list().length);
+
+		final ByteBuffer src = ByteBuffer.allocate(77);
+		final ByteBuffer dst = ByteBuffer.allocate(50);
+		int nextWritten = 0;
+		int nextRead = 0;
+
+		for (int round = 0; round < 100; ++round) {
+
+			src.clear();
+			for (int i = 0; i < src.capacity(); ++i) {
+				src.put((byte) (nextWritten + i));
+			}
+			src.flip();
+
+			final int written = writer.write(src);
+			nextWritten += written;
+
+			dst.clear();
+			final int read = reader.read(dst);
+			dst.flip();
+			for (int i = 0; i < read; ++i) {
+				assertEquals((byte) nextRead++, dst.get());
+			}
+		}
+
+		// The ring buffer must be full or drained in between, never exceed its capacity
+		assertTrue(nextWritten - nextRead <= writer.getCapacity());
+
+		writer.close();
+
+		while (true) {
+			dst.clear();
+			final int read = reader.read(dst);
+			if (read == -1) {
+				break;
+			}
+			dst.flip();
+			for (int i = 0; i < read; ++i) {
+				assertEquals((byte) nextRead++, dst.get());
+			}
+		}
+
+		assertEquals(nextWritten, nextRead);
+		reader.close();
+	}
+
+	/**
+	 * Checks that a writer can withdraw a ring buffer as long as no reader has claimed it, and that no reader can claim
+	 * it afterwards.
+	 */
+	@Test
+	public void testAbandon() throws Exception {
+
+		final SharedMemoryRingBuffer writer = SharedMemoryRingBuffer.createForWriting(this.directory, NAME, 64);
+		assertTrue(writer.abandon());
+		assertNull(SharedMemoryRingBuffer.openForReading(new File(this.directory, NAME)));
+		writer.close();
+
+		final SharedMemoryRingBuffer writer2 = SharedMemoryRingBuffer.createForWriting(this.directory, NAME, 64);
+		final SharedMemoryRingBuffer reader = SharedMemoryRingBuffer.openForReading(new File(this.directory, NAME));
+		assertNotNull(reader);
+		assertFalse(writer2.abandon());
+
+		reader.close();
+		try {
+			writer2.write(ByteBuffer.allocate(1));
+			fail("Expected exception after reader has been closed");
+		} catch (IOException e) {
+			// Expected
+		}
+		writer2.close();
+	}
+
+	/**
+	 * Checks that a writer can still withdraw a ring buffer which a reader has claimed but failed to attach to.
+	 */
+	@Test
+	public void testAbandonAfterFailedAttach() throws Exception {
+
+		final SharedMemoryRingBuffer writer = SharedMemoryRingBuffer.createForWriting(this.directory, NAME, 64);
+
+		// Destroy the magic number, so the reader rejects the file after claiming it
+		final RandomAccessFile raf = new RandomAccessFile(new File(this.directory, NAME), "rw");
+		raf.writeInt(0);
+		raf.close();
+
+		try {
+			SharedMemoryRingBuffer.openForReading(new File(this.directory, NAME));
+			fail("Expected exception for a file without magic number");
+		} catch (IOException e) {
+			// Expected
+		}
+
+		assertTrue(writer.abandon());
+		assertEquals(0, this.directory.list().length);
+		writer.close();
+	}
+
+	/**
+	 * Checks that an outgoing shared memory connection does not write any envelope to its ring buffer before the
+	 * receiver has attached, so all envelopes remain queued for a possible fallback to TCP.
+	 */
+	@Test
+	public void testNoWriteBeforeAttach() throws Exception {
+
+		final SharedMemoryRingBuffer writer = SharedMemoryRingBuffer.createForWriting(this.directory, NAME, 4096);
+		final SharedMemoryOutgoingConnection connection = new SharedMemoryOutgoingConnection(new RemoteReceiver(
+			new InetSocketAddress("localhost", 1), 0), writer);
+
+		final JobID jobID = new JobID();
+		final ChannelID source = new ChannelID();
+		assertTrue(connection.queueEnvelope(new TransferEnvelope(0, jobID, source)));
+		assertTrue(connection.queueEnvelope(new TransferEnvelope(1, jobID, source)));
+
+		assertFalse(connection.write());
+		assertEquals(0L, writer.getPosition());
+		assertTrue(connection.hasQueuedEnvelopes());
+
+		final SharedMemoryRingBuffer reader = SharedMemoryRingBuffer.openForReading(new File(this.directory, NAME));
+		assertNotNull(reader);
+
+		assertTrue(connection.write());
+		assertTrue(writer.getPosition() > 0L);
+		assertFalse(connection.hasQueuedEnvelopes());
+
+		reader.close();
+		writer.close();
+	}
+}
@@ -31,10 +31,12 @@ import eu.stratosphere.nephele.profiling.ProfilingException;
 import eu.stratosphere.nephele.streaming.message.AbstractQosMessage;
 import eu.stratosphere.nephele.streaming.message.action.DestroyInstanceQosRolesAction;
 import eu.stratosphere.nephele.streaming.taskmanager.qosreporter.StreamJobEnvironment;
+import eu.stratosphere.nephele.streaming.taskmanager.qosreporter.TimestampTag;
 import eu.stratosphere.nephele.streaming.taskmanager.runtime.StreamTaskEnvironment;
 import eu.stratosphere.nephele.streaming.util.StreamPluginConfig;
 import eu.stratosphere.nephele.taskmanager.Task;
 import eu.stratosphere.nephele.taskmanager.runtime.RuntimeTask;
+import eu.stratosphere.nephele.types.TagRegistry;
 
 /**
  * Task manager plugin that implements Qos reporting and management.
@@ -113,6 +115,9 @@ public class StreamTaskManagerPlugin implements TaskManagerPlugin {
 			final Configuration jobConfiguration,
 			final IOReadableWritable pluginData) {
 
+		// the timestamp tags must be registered before the first tagged record is sent or received
+		TagRegistry.registerTagType(TimestampTag.class, TimestampTag.TAG_TYPE_ID);
+
 		try {
 			if (task instanceof RuntimeTask) {
 
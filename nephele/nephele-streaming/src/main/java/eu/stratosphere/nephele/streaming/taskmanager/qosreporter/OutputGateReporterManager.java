@@ -6,6 +6,7 @@ import eu.stratosphere.nephele.streaming.taskmanager.qosreporter.edge.OutputBuff
 import eu.stratosphere.nephele.streaming.taskmanager.qosreporter.sampling.BernoulliSampleDesign;
 import eu.stratosphere.nephele.types.AbstractTaggableRecord;
 
+import java.io.IOException;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -214,9 +215,14 @@ public class OutputGateReporterManager {
 		}
 
 		private void tagRecord(AbstractTaggableRecord record) {
-			TimestampTag tag = new TimestampTag();
+			TimestampTag tag;
+			try {
+				tag = record.reuseTag(TimestampTag.class);
+			} catch (IOException e) {
+				tag = new TimestampTag();
+				record.setTag(tag);
+			}
 			tag.setTimestamp(System.currentTimeMillis());
-			record.setTag(tag);
 		}
 
 		public void outputBufferSent(long currentAmountTransmitted) {
@@ -31,6 +31,12 @@ import eu.stratosphere.nephele.types.Tag;
  */
 public final class TimestampTag implements Tag {
 
+	/**
+	 * The ID under which this tag type is registered with the
+	 * {@link eu.stratosphere.nephele.types.TagRegistry}.
+	 */
+	public static final int TAG_TYPE_ID = 1;
+
 	private long timestamp = 0L;
 
 	public void setTimestamp(final long timestamp) {
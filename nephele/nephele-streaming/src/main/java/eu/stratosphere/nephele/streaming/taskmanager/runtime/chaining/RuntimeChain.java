@@ -19,6 +19,7 @@ import eu.stratosphere.nephele.streaming.taskmanager.runtime.io.StreamInputGate;
 import eu.stratosphere.nephele.streaming.taskmanager.runtime.io.StreamOutputGate;
 import eu.stratosphere.nephele.template.ioc.IocTask;
 import eu.stratosphere.nephele.types.Record;
+import eu.stratosphere.nephele.types.RecordCopier;
 import eu.stratosphere.nephele.util.StringUtils;
 
 import java.io.IOException;
@@ -78,7 +79,7 @@ public final class RuntimeChain {
 			Record tempRecord;
 			while ((tempRecord = records.poll()) != null) {
 				outputGate.reportRecordEmitted(tempRecord, 0);
-				nextRecords.offer(RecordUtils.createCopy(tempRecord));
+				nextRecords.offer(RecordCopier.createCopy(tempRecord));
 			}
 		}
 